@@ -2,8 +2,10 @@ package com.heamimont.salesstoreapi;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class SalesStoreApiApplication {
     public static void main(String[] args) {
         SpringApplication app = new SpringApplication(SalesStoreApiApplication.class);
@@ -0,0 +1,33 @@
+package com.heamimont.salesstoreapi.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Migrates the database schema at startup, before JPA starts, when db.migrations.enabled is set.
+ * Enabled for PostgreSQL (prod profile); the H2 profiles generate the schema from the entities, except for tests
+ * that validate the entities against the migrated schema.
+ */
+@Configuration
+@ConditionalOnProperty(name = "db.migrations.enabled", havingValue = "true")
+public class SchemaMigrationConfig {
+
+    @Bean(initMethod = "migrate")
+    public SchemaMigrator schemaMigrator(DataSource dataSource,
+                                         @Value("${db.migrations.location:classpath:db/migration}") String location) {
+        return new SchemaMigrator(dataSource, location);
+    }
+
+    /**
+     * Makes the entity manager factory, and with it every repository, wait for the migration.
+     */
+    @Bean
+    public static EntityManagerFactoryDependsOnPostProcessor entityManagerFactoryDependsOnSchemaMigrator() {
+        return new EntityManagerFactoryDependsOnPostProcessor("schemaMigrator");
+    }
+}
@@ -0,0 +1,201 @@
+package com.heamimont.salesstoreapi.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Applies versioned SQL migrations to the database.
+ * Migrations are files named {@code V<version>__<description>.sql} (the Flyway naming convention) and run in version
+ * order, each in its own transaction. Applied versions are recorded with a checksum in {@code schema_migrations};
+ * a migration that was changed after it was applied fails the migration instead of being silently skipped.
+ * Instances starting at the same time are not coordinated, so migrations should stay idempotent.
+ * <p>
+ * A statement preceded by a {@code -- vendor: <database>} line only runs on that database ({@code postgresql} or
+ * {@code h2}, as named by the JDBC driver), so the same scripts also build the H2 schema the tests validate the
+ * entities against; PostgreSQL-only indexes are then simply missing there.
+ */
+public class SchemaMigrator {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaMigrator.class);
+
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+    private static final Pattern VENDOR = Pattern.compile("--\\s*vendor:\\s*(\\w+)\\s*");
+
+    private final DataSource dataSource;
+    private final String location;
+
+    /**
+     * @param dataSource the database to migrate
+     * @param location the resource location of the migrations, e.g. {@code classpath:db/migration}
+     */
+    public SchemaMigrator(DataSource dataSource, String location) {
+        this.dataSource = dataSource;
+        this.location = location;
+    }
+
+    /**
+     * Applies the migrations that were not applied yet.
+     *
+     * @return the number of migrations applied
+     * @throws IllegalStateException if a migration fails or an applied migration was changed
+     */
+    public int migrate() {
+        Map<Integer, Migration> migrations = findMigrations();
+        try (Connection connection = dataSource.getConnection()) {
+            createHistoryTable(connection);
+            Map<Integer, String> applied = findApplied(connection);
+            String vendor = connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT);
+
+            int count = 0;
+            for (Migration migration : migrations.values()) {
+                String checksum = applied.get(migration.version());
+                if (checksum == null) {
+                    apply(connection, migration, vendor);
+                    count++;
+                } else if (!checksum.equals(migration.checksum())) {
+                    throw new IllegalStateException("Migration " + migration.name() + " was changed after it was applied");
+                }
+            }
+            logger.info("[Schema Migration] Applied {} migration(s), {} already applied", count, applied.size());
+            return count;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to migrate the database schema", e);
+        }
+    }
+
+    private Map<Integer, Migration> findMigrations() {
+        Map<Integer, Migration> migrations = new TreeMap<>();
+        try {
+            Resource[] resources = new PathMatchingResourcePatternResolver().getResources(location + "/V*__*.sql");
+            for (Resource resource : resources) {
+                Matcher matcher = FILE_NAME.matcher(resource.getFilename() == null ? "" : resource.getFilename());
+                if (!matcher.matches()) {
+                    throw new IllegalStateException("Invalid migration file name: " + resource.getFilename());
+                }
+                int version = Integer.parseInt(matcher.group(1));
+                Migration migration = new Migration(version, matcher.group(2), resource, checksum(resource));
+                Migration duplicate = migrations.put(version, migration);
+                if (duplicate != null) {
+                    throw new IllegalStateException("Duplicate migration version " + version + ": "
+                            + duplicate.name() + ", " + migration.name());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read the migrations in " + location, e);
+        }
+        return migrations;
+    }
+
+    private static void createHistoryTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS schema_migrations ("
+                    + "version INTEGER PRIMARY KEY, "
+                    + "description VARCHAR(200) NOT NULL, "
+                    + "checksum VARCHAR(64) NOT NULL, "
+                    + "applied_at TIMESTAMP NOT NULL)");
+        }
+    }
+
+    private static Map<Integer, String> findApplied(Connection connection) throws SQLException {
+        Map<Integer, String> applied = new HashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT version, checksum FROM schema_migrations")) {
+            while (rows.next()) {
+                applied.put(rows.getInt(1), rows.getString(2));
+            }
+        }
+        return applied;
+    }
+
+    private static void apply(Connection connection, Migration migration, String vendor) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            ScriptUtils.executeSqlScript(connection, new EncodedResource(
+                    new ByteArrayResource(forVendor(migration.resource(), vendor).getBytes(StandardCharsets.UTF_8),
+                            migration.name()), StandardCharsets.UTF_8));
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO schema_migrations (version, description, checksum, applied_at) VALUES (?, ?, ?, ?)")) {
+                insert.setInt(1, migration.version());
+                insert.setString(2, migration.description().replace('_', ' '));
+                insert.setString(3, migration.checksum());
+                insert.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now()));
+                insert.executeUpdate();
+            }
+            connection.commit();
+            logger.info("[Schema Migration] Applied {}", migration.name());
+        } catch (RuntimeException | SQLException e) {
+            connection.rollback();
+            throw new IllegalStateException("Migration " + migration.name() + " failed", e);
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * @return the script without the statements marked for other databases
+     */
+    static String forVendor(Resource resource, String vendor) {
+        StringBuilder script = new StringBuilder();
+        boolean skipping = false;
+        try (InputStream in = resource.getInputStream()) {
+            for (String line : new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\\R", -1)) {
+                Matcher matcher = VENDOR.matcher(line.trim());
+                if (matcher.matches()) {
+                    skipping = !matcher.group(1).equalsIgnoreCase(vendor);
+                    continue;
+                }
+                if (!skipping) {
+                    script.append(line).append('\n');
+                } else if (line.trim().endsWith(";")) {
+                    // The marked statement ends here
+                    skipping = false;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + resource.getDescription(), e);
+        }
+        return script.toString();
+    }
+
+    private static String checksum(Resource resource) throws IOException {
+        try (InputStream in = resource.getInputStream()) {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(in.readAllBytes()));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record Migration(int version, String description, Resource resource, String checksum) {
+        String name() {
+            return "V" + version + "__" + description;
+        }
+    }
+}
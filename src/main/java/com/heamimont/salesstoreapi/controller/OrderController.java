@@ -1,10 +1,23 @@
 package com.heamimont.salesstoreapi.controller;
 
 
+import com.heamimont.salesstoreapi.dto.order.BatchOrderDTO;
+import com.heamimont.salesstoreapi.dto.order.BulkUpdateOrderStatusDTO;
+import com.heamimont.salesstoreapi.dto.order.BulkUpdateOrderStatusResultDTO;
 import com.heamimont.salesstoreapi.dto.order.CreateOrderDTO;
+import com.heamimont.salesstoreapi.dto.order.OrderBatchResultDTO;
+import com.heamimont.salesstoreapi.dto.order.OrderIntakeResponseDTO;
+import com.heamimont.salesstoreapi.dto.order.OrderIntakeStatus;
+import com.heamimont.salesstoreapi.dto.order.OrderIntakeStatusDTO;
+import com.heamimont.salesstoreapi.dto.order.OrderPageResponseDTO;
 import com.heamimont.salesstoreapi.dto.order.OrderResponseDTO;
 import com.heamimont.salesstoreapi.dto.order.UpdateOrderStatusDTO;
+import com.heamimont.salesstoreapi.exceptions.ResourceNotFoundException;
+import com.heamimont.salesstoreapi.service.OrderBatchService;
+import com.heamimont.salesstoreapi.service.OrderIdempotencyService;
+import com.heamimont.salesstoreapi.service.OrderIntakeService;
 import com.heamimont.salesstoreapi.service.OrderService;
+import com.heamimont.salesstoreapi.service.OrderStatusUpdateService;
 import com.heamimont.salesstoreapi.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -12,6 +25,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -19,7 +33,9 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @RestController
@@ -27,35 +43,102 @@ import java.util.UUID;
 @Tag(name = "Orders", description = "Endpoints for managing orders")
 public class OrderController {
     private final OrderService orderService;
+    private final OrderBatchService orderBatchService;
+    private final OrderStatusUpdateService orderStatusUpdateService;
     private final UserService userService;
+    private final OrderIdempotencyService orderIdempotencyService;
+    // Only present when orders.intake.enabled is set
+    private final ObjectProvider<OrderIntakeService> orderIntakeService;
 
-    public OrderController(OrderService orderService, UserService userService) {
+    public OrderController(OrderService orderService, OrderBatchService orderBatchService,
+                           OrderStatusUpdateService orderStatusUpdateService, UserService userService,
+                           OrderIdempotencyService orderIdempotencyService,
+                           ObjectProvider<OrderIntakeService> orderIntakeService) {
         this.orderService = orderService;
+        this.orderBatchService = orderBatchService;
+        this.orderStatusUpdateService = orderStatusUpdateService;
         this.userService = userService;
+        this.orderIdempotencyService = orderIdempotencyService;
+        this.orderIntakeService = orderIntakeService;
     }
 
     /**
      * POST /api/orders
      * Create a new order for current user
      */
-    @Operation(summary = "Create Order", description = "Create a new order for the current authenticated user.")
+    @Operation(summary = "Create Order", description = "Create a new order for the current authenticated user. " +
+            "With the header Prefer: respond-async, and when asynchronous intake is enabled, the order is queued and " +
+            "answered with 202, its ID and the URL to poll for its progress; otherwise it is placed before answering. " +
+            "With an Idempotency-Key header, the order is placed synchronously and at most once per key: a repeated " +
+            "request gets the response of the first one, with the header Idempotent-Replayed: true.")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200" , description = "Order created successfully"),
+            @ApiResponse(responseCode = "201" , description = "Order created successfully"),
+            @ApiResponse(responseCode = "202" , description = "Order accepted, to be placed asynchronously"),
             @ApiResponse(responseCode = "400" , description = "Invalid order data", content = @Content),
-            @ApiResponse(responseCode = "401" , description = "Unauthorized access", content = @Content)
+            @ApiResponse(responseCode = "401" , description = "Unauthorized access", content = @Content),
+            @ApiResponse(responseCode = "409" , description = "Idempotency-Key used for a different order, or by a request in progress", content = @Content)
     })
     @PostMapping
     @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
-    public ResponseEntity<OrderResponseDTO> createOrder(
+    public ResponseEntity<?> createOrder(
             @Valid @RequestBody CreateOrderDTO createOrderDTO,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal UserDetails userDetails,
+            @RequestHeader(value = "Prefer", required = false) String prefer,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
 
         String username = userDetails.getUsername();
 
+        if (idempotencyKey != null) {
+            OrderIdempotencyService.IdempotentOrder result =
+                    orderIdempotencyService.createOrder(idempotencyKey, createOrderDTO, username);
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .header("Idempotent-Replayed", String.valueOf(result.replayed()))
+                    .body(result.order());
+        }
+
+        OrderIntakeService intake = orderIntakeService.getIfAvailable();
+        // Orders from a stock hold are always placed synchronously
+        if (intake != null && createOrderDTO.getHoldId() == null && prefer != null && prefer.contains("respond-async")) {
+            // Empty when the intake is saturated; the order is then placed synchronously
+            Optional<UUID> orderId = intake.accept(createOrderDTO, username);
+            if (orderId.isPresent()) {
+                String statusUrl = "/api/orders/intake/" + orderId.get();
+                return ResponseEntity.accepted()
+                        .location(URI.create(statusUrl))
+                        .body(new OrderIntakeResponseDTO(orderId.get(), OrderIntakeStatus.QUEUED, statusUrl));
+            }
+        }
+
         return ResponseEntity.status(HttpStatus.CREATED)
                 .body(orderService.createOrder(createOrderDTO, username));
     }
 
+    /**
+     * GET /api/orders/intake/{orderId}
+     * Get the progress of an order accepted asynchronously
+     */
+    @Operation(summary = "Get Order Intake Status", description = "Retrieve the progress of an order accepted with " +
+            "Prefer: respond-async: QUEUED, CREATED, or REJECTED with the reason. Users see their own orders only.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200" , description = "Status retrieved successfully"),
+            @ApiResponse(responseCode = "401" , description = "Unauthorized access", content = @Content),
+            @ApiResponse(responseCode = "404" , description = "Order not found, or asynchronous intake disabled", content = @Content),
+            @ApiResponse(responseCode = "503" , description = "Order still queued while the intake keeps failing to place orders", content = @Content)
+    })
+    @GetMapping("/intake/{orderId}")
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public ResponseEntity<OrderIntakeStatusDTO> getOrderIntakeStatus(
+            @PathVariable UUID orderId,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        OrderIntakeService intake = orderIntakeService.getIfAvailable();
+        if (intake == null) {
+            throw new ResourceNotFoundException("Asynchronous order intake is disabled");
+        }
+        boolean admin = userDetails.getAuthorities().stream()
+                .anyMatch(authority -> "ROLE_ADMIN".equals(authority.getAuthority()));
+        return ResponseEntity.ok(intake.getStatus(orderId, userDetails.getUsername(), admin));
+    }
+
     /**
      * POST /api/orders/admin/{username}
      * Create a new order for a specific user (admin only)
@@ -82,6 +165,42 @@ public class OrderController {
 
     }
 
+    /**
+     * POST /api/orders/batch
+     * Create many orders for many users (admin only)
+     */
+    @Operation(summary = "Create Orders in Batch", description = "Create many orders, each for the user it names (admin only). " +
+            "Orders are placed in chunks, each in its own transaction; an invalid order or one that asks for more stock " +
+            "than is left is rejected on its own. The response lists the outcome of every order in request order.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200" , description = "Batch processed, see the per-order results"),
+            @ApiResponse(responseCode = "400" , description = "Empty or too large batch", content = @Content),
+            @ApiResponse(responseCode = "401" , description = "Unauthorized access", content = @Content)
+    })
+    @PostMapping("/batch")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<OrderBatchResultDTO> createOrders(@RequestBody List<BatchOrderDTO> orders) {
+        return ResponseEntity.ok(orderBatchService.createOrders(orders));
+    }
+
+    /**
+     * POST /api/orders/claim
+     * Claim the oldest pending orders for fulfillment (admin only)
+     */
+    @Operation(summary = "Claim Pending Orders", description = "Claim up to limit of the oldest PENDING orders for fulfillment " +
+            "by moving them to IN_PROGRESS (admin only). Concurrent workers never receive the same order. " +
+            "An empty list means no order is pending.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200" , description = "Orders claimed, oldest first"),
+            @ApiResponse(responseCode = "400" , description = "Invalid limit", content = @Content),
+            @ApiResponse(responseCode = "401" , description = "Unauthorized access", content = @Content)
+    })
+    @PostMapping("/claim")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<OrderResponseDTO>> claimOrders(@RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(orderService.claimPendingOrders(limit));
+    }
+
     /**
      * GET /api/orders/{orderId}
      * Get order by ID (admin only)
@@ -102,41 +221,50 @@ public class OrderController {
      * GET /api/orders/me
      * Get orders for current user
      */
-    @Operation(summary = "Get Current User Orders", description = "Retrieve all orders for the current authenticated user.")
+    @Operation(summary = "Get Current User Orders", description = "Retrieve a page of orders for the current authenticated user, newest first. " +
+            "Pass the returned nextCursor to fetch the following page.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200" , description = "Orders retrieved successfully"),
+            @ApiResponse(responseCode = "400" , description = "Invalid cursor or page size", content = @Content),
             @ApiResponse(responseCode = "401" , description = "Unauthorized access", content = @Content),
             @ApiResponse(responseCode = "404" , description = "No orders found for the user", content = @Content)
     })
     @GetMapping("/me")
     @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
-    public ResponseEntity<List<OrderResponseDTO>> getCurrentUserOrders(
-            @AuthenticationPrincipal UserDetails userDetails) {
+    public ResponseEntity<OrderPageResponseDTO> getCurrentUserOrders(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
 
-        return ResponseEntity.ok(orderService.getOrdersByUsername(userDetails.getUsername()));
+        return ResponseEntity.ok(orderService.getOrdersByUsername(userDetails.getUsername(), cursor, size));
     }
 
     /**
      * GET /api/orders
      * Get all orders (admin only)
      */
-    @Operation(summary = "Get All Orders", description = "Retrieve all orders in the system (admin only).")
+    @Operation(summary = "Get All Orders", description = "Retrieve a page of orders in the system, newest first (admin only). " +
+            "Pass the returned nextCursor to fetch the following page.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200" , description = "Orders retrieved successfully"),
+            @ApiResponse(responseCode = "400" , description = "Invalid cursor or page size", content = @Content),
             @ApiResponse(responseCode = "401" , description = "Unauthorized access", content = @Content),
             @ApiResponse(responseCode = "404" , description = "No orders found", content = @Content)
     })
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<OrderResponseDTO>> getAllOrders() {
-        return ResponseEntity.ok(orderService.getAllOrders());
+    public ResponseEntity<OrderPageResponseDTO> getAllOrders(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(orderService.getAllOrders(cursor, size));
     }
 
     /**
      * PUT /api/orders/{orderId}/status
      * Update order status (admin only)
      */
-    @Operation(summary = "Update Order Status", description = "Update the status of an order (admin only).")
+    @Operation(summary = "Update Order Status", description = "Update the status of an order (admin only). " +
+            "With summary=true only the ID and the new status are returned, and the order is updated without loading its lines and products.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200" , description = "Order status updated successfully"),
             @ApiResponse(responseCode = "400" , description = "Invalid status value", content = @Content),
@@ -145,9 +273,32 @@ public class OrderController {
     })
     @PutMapping("/{orderId}/status")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<OrderResponseDTO> updateOrderStatus(
+    public ResponseEntity<?> updateOrderStatus(
             @PathVariable UUID orderId,
-            @Valid @RequestBody UpdateOrderStatusDTO updateOrderStatusDTO) {
+            @Valid @RequestBody UpdateOrderStatusDTO updateOrderStatusDTO,
+            @RequestParam(defaultValue = "false") boolean summary) {
+        if (summary) {
+            return ResponseEntity.ok(orderService.updateOrderStatusSummary(orderId, updateOrderStatusDTO.getStatus()));
+        }
         return ResponseEntity.ok(orderService.updateOrderStatus(orderId, updateOrderStatusDTO.getStatus()));
     }
+
+    /**
+     * PUT /api/orders/status
+     * Update the status of many orders (admin only)
+     */
+    @Operation(summary = "Update Order Statuses in Bulk", description = "Move many orders, selected by ID or with a filter " +
+            "(currentStatus, startDate, endDate), forward to a new status (admin only): PENDING to IN_PROGRESS or DONE, " +
+            "IN_PROGRESS to DONE. Requested orders that are not found or cannot move are skipped. Returns only counts and IDs.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200" , description = "Order statuses updated"),
+            @ApiResponse(responseCode = "400" , description = "Invalid status, transition or selection", content = @Content),
+            @ApiResponse(responseCode = "401" , description = "Unauthorized access", content = @Content)
+    })
+    @PutMapping("/status")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<BulkUpdateOrderStatusResultDTO> updateOrderStatuses(
+            @Valid @RequestBody BulkUpdateOrderStatusDTO bulkUpdateOrderStatusDTO) {
+        return ResponseEntity.ok(orderStatusUpdateService.updateStatuses(bulkUpdateOrderStatusDTO));
+    }
 }
@@ -1,61 +1,127 @@
 package com.heamimont.salesstoreapi.controller;
 
 import com.heamimont.salesstoreapi.dto.product.CreateProductDTO;
+import com.heamimont.salesstoreapi.dto.product.ProductChangesDTO;
+import com.heamimont.salesstoreapi.dto.product.ProductImportFormat;
+import com.heamimont.salesstoreapi.dto.product.ProductImportResultDTO;
 import com.heamimont.salesstoreapi.dto.product.ProductPublicResponseDTO;
 import com.heamimont.salesstoreapi.dto.product.ProductResponseDTO;
 import com.heamimont.salesstoreapi.dto.product.UpdateProductDTO;
+import com.heamimont.salesstoreapi.service.ProductCatalog;
+import com.heamimont.salesstoreapi.service.ProductImportService;
 import com.heamimont.salesstoreapi.service.ProductService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("api/products")
 @Tag(name = "Products", description = "Endpoints for managing products")
 public class ProductController {
     private final ProductService productService;
+    private final ProductImportService productImportService;
 
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ProductImportService productImportService) {
         this.productService = productService;
+        this.productImportService = productImportService;
     }
 
     /**
      * GET /api/products
      * Retrieves a list of all products (admin view).
      */
-    @Operation(summary = "Get All Products (Admin View)", description = "Retrieves a list of all products with detailed information. Accessible only by admin users.")
+    @Operation(summary = "Get All Products (Admin View)", description = "Retrieves a list of all products with detailed information. Accessible only by admin users. Supports conditional requests (ETag) and gzip.")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Successful retrieval of products"),
+            @ApiResponse(responseCode = "200", description = "Successful retrieval of products",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            array = @ArraySchema(schema = @Schema(implementation = ProductResponseDTO.class)))),
+            @ApiResponse(responseCode = "304", description = "Products not modified since the given ETag", content = @Content),
             @ApiResponse(responseCode = "403", description = "Access denied", content = @Content)
     })
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<ProductResponseDTO>> getAllProducts() {
-        return ResponseEntity.ok(productService.getAllProducts());
+    public ResponseEntity<byte[]> getAllProducts(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return catalogResponse(productService.getAllProductsBody(), ifNoneMatch, acceptEncoding);
     }
 
     /**
      * GET /api/products/public
      * Retrieves a list of all products (public view).
      */
-    @Operation(summary = "Get All Products (Public View)", description = "Public access of list of all products with limited information.")
+    @Operation(summary = "Get All Products (Public View)", description = "Public access of list of all products with limited information. Supports conditional requests (ETag) and gzip.")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Successful retrieval of products"),
+            @ApiResponse(responseCode = "200", description = "Successful retrieval of products",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            array = @ArraySchema(schema = @Schema(implementation = ProductPublicResponseDTO.class)))),
+            @ApiResponse(responseCode = "304", description = "Products not modified since the given ETag", content = @Content),
             @ApiResponse(responseCode = "403", description = "Access denied", content = @Content)
     })
     @GetMapping("/public")
     @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
-    public ResponseEntity<List<ProductPublicResponseDTO>> getAllProductsPublic() {
-        return ResponseEntity.ok(productService.getAllProductsPublic());
+    public ResponseEntity<byte[]> getAllProductsPublic(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return catalogResponse(productService.getAllProductsPublicBody(), ifNoneMatch, acceptEncoding);
+    }
+
+    /**
+     * GET /api/products/public/changes
+     * Retrieves the products changed or deleted since a catalog version (public view), optionally long-polling.
+     */
+    @Operation(summary = "Get Product Changes (Public View)", description = "Returns the products changed or deleted since the given catalog version, "
+            + "and the version to pass as 'since' next time. With 'wait', the request is held until a change happens or the wait elapses.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Changes since the given version, possibly empty"),
+            @ApiResponse(responseCode = "400", description = "Invalid since or wait", content = @Content),
+            @ApiResponse(responseCode = "403", description = "Access denied", content = @Content)
+    })
+    @GetMapping("/public/changes")
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public CompletableFuture<ProductChangesDTO> getProductChanges(
+            @Parameter(description = "Catalog version already seen; 0 returns the full catalog")
+            @RequestParam(defaultValue = "0") long since,
+            @Parameter(description = "Seconds to wait for a change when there is none yet")
+            @RequestParam(defaultValue = "0") long wait) {
+        return productService.getChangesSince(since, Duration.ofSeconds(wait));
+    }
+
+    /**
+     * GET /api/products/search
+     * Searches products by name and description (public view).
+     */
+    @Operation(summary = "Search Products (Public View)", description = "Full-text search over product names and descriptions, best match first. "
+            + "The last word also matches as a prefix, so the endpoint can back a typeahead.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Matching products, possibly none"),
+            @ApiResponse(responseCode = "400", description = "Blank query or invalid limit", content = @Content),
+            @ApiResponse(responseCode = "403", description = "Access denied", content = @Content)
+    })
+    @GetMapping("/search")
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public ResponseEntity<List<ProductPublicResponseDTO>> searchProducts(
+            @Parameter(description = "Words to search for") @RequestParam String q,
+            @Parameter(description = "Maximum number of results") @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(productService.searchProducts(q, limit));
     }
 
     /**
@@ -107,6 +173,27 @@ public class ProductController {
                 .body(productService.createProduct(createProductDTO));
     }
 
+    /**
+     * POST /api/products/bulk
+     * Creates or updates products in bulk from a streamed NDJSON or CSV body.
+     */
+    @Operation(summary = "Import Products in Bulk", description = "Streams products as NDJSON (application/x-ndjson, one CreateProductDTO per line) "
+            + "or CSV (text/csv, header: name,description,actualPrice,sellingPrice,availableQuantity). Rows are validated like "
+            + "Create New Product and upserted by name in batches; invalid rows are skipped and reported. Accessible only by admin users.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Import finished; see 'failed' and 'errors' for rejected rows"),
+            @ApiResponse(responseCode = "400", description = "Invalid CSV header or unreadable body", content = @Content),
+            @ApiResponse(responseCode = "403", description = "Access denied", content = @Content),
+            @ApiResponse(responseCode = "415", description = "Unsupported content type", content = @Content)
+    })
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_NDJSON_VALUE, "text/csv"})
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ProductImportResultDTO> importProducts(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body) {
+        return ResponseEntity.ok(productImportService.importProducts(body, ProductImportFormat.fromContentType(contentType)));
+    }
+
     /**
      * PUT /api/products/{id}
      * Updates an existing product.
@@ -142,4 +229,65 @@ public class ProductController {
         productService.deleteProduct(id);
         return ResponseEntity.noContent().build();
     }
+
+    /**
+     * Writes a pre-serialized catalog body, or 304 if the client already has it.
+     * The gzip variant is sent when the client accepts it; it gets its own strong ETag, as it is a different
+     * representation, but a tag of either variant validates the other one.
+     */
+    private static ResponseEntity<byte[]> catalogResponse(ProductCatalog.Body body, String ifNoneMatch, String acceptEncoding) {
+        boolean gzip = acceptsGzip(acceptEncoding);
+        String etag = "\"" + body.tag() + (gzip ? "-gzip" : "") + "\"";
+
+        if (matchesTag(ifNoneMatch, body.tag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(etag)
+                // Clients may keep the body but must revalidate it, which is cheap thanks to the ETag
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(body.gzip());
+        }
+        return response.body(body.json());
+    }
+
+    private static boolean matchesTag(String ifNoneMatch, String tag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*")) {
+                return true;
+            }
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("\"" + tag + "\"") || candidate.equals("\"" + tag + "-gzip\"")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                // gzip;q=0 means the client refuses gzip
+                return parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
 }
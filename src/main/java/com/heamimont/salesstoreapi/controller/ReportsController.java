@@ -1,19 +1,32 @@
 package com.heamimont.salesstoreapi.controller;
 
 import com.heamimont.salesstoreapi.dto.report.OrderReportDTO;
+import com.heamimont.salesstoreapi.dto.report.ProductSalesReportDTO;
+import com.heamimont.salesstoreapi.dto.report.ReportFormat;
+import com.heamimont.salesstoreapi.dto.report.ReportGranularity;
+import com.heamimont.salesstoreapi.dto.report.RollupRebuildResponseDTO;
+import com.heamimont.salesstoreapi.dto.report.SalesPeriodReportDTO;
+import com.heamimont.salesstoreapi.dto.report.UserSalesReportDTO;
+import com.heamimont.salesstoreapi.exceptions.BadRequestException;
+import com.heamimont.salesstoreapi.repository.SalesReportFilter;
 import com.heamimont.salesstoreapi.service.ReportService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Locale;
 
 @RestController
 @RequestMapping("api/reports")
@@ -48,24 +61,183 @@ public class ReportsController {
                                                                 @RequestParam(required = false) String username,
                                                                 @RequestParam(required = false) String startDate,
                                                                 @RequestParam(required = false) String endDate) {
-        // Validate and parse the start and end dates
-        LocalDateTime start;
+        LocalDateTime start = parseDate(startDate, "startDate");
+        LocalDateTime end = parseDate(endDate, "endDate");
+
+        List<OrderReportDTO> report = reportService.getFilteredOrders(productName, username, start, end);
+        return ResponseEntity.ok(report);
+
+    }
+
+    /**
+     * GET /api/reports/export
+     * Streams a report of orders filtered by product name, username, and date range.
+     *
+     * @param productName the name of the product to filter by (optional)
+     * @param username    the username to filter by (optional)
+     * @param startDate   the start date for filtering (optional, format: yyyy-MM-ddTHH:mm:ss)
+     * @param endDate     the end date for filtering (optional, format: yyyy-MM-ddTHH:mm:ss)
+     * @param format      json (default), ndjson or csv
+     * @return the report, written to the response as it is read from the database
+     */
+    @Operation(summary = "Export Orders Report", description = "Stream a report of orders, oldest first, filtered by product name, username, and date range. " +
+            "Suited for large date ranges. All parameters are optional; format is one of json (default), ndjson, csv.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Report streamed"),
+            @ApiResponse(responseCode = "400", description = "Invalid date format or report format", content = @Content),
+            @ApiResponse(responseCode = "403", description = "Access denied", content = @Content)
+    })
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOrdersReport(@RequestParam(required = false) String productName,
+                                                                    @RequestParam(required = false) String username,
+                                                                    @RequestParam(required = false) String startDate,
+                                                                    @RequestParam(required = false) String endDate,
+                                                                    @RequestParam(defaultValue = "json") String format) {
+        LocalDateTime start = parseDate(startDate, "startDate");
+        LocalDateTime end = parseDate(endDate, "endDate");
+
+        ReportFormat reportFormat;
         try {
-            start = (startDate != null) ? LocalDateTime.parse(startDate) : null;
-        } catch (Exception e) {
-            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            reportFormat = ReportFormat.valueOf(format.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Unsupported report format: " + format, e);
         }
 
-        // Validate and parse the end date
-        LocalDateTime end;
+        StreamingResponseBody body = out ->
+                reportService.exportFilteredOrders(productName, username, start, end, reportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(reportFormat.getMediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"orders-report." + reportFormat.getFileExtension() + "\"")
+                .body(body);
+    }
+
+    /**
+     * GET /api/reports/sales/by-product
+     * Aggregates units sold, revenue and gross margin per product.
+     *
+     * @param productName the name of the product to filter by (optional)
+     * @param username    the username to filter by (optional)
+     * @param startDate   the start date for filtering (optional, format: yyyy-MM-ddTHH:mm:ss)
+     * @param endDate     the end date for filtering (optional, format: yyyy-MM-ddTHH:mm:ss)
+     * @return one row per product, highest revenue first
+     */
+    @Operation(summary = "Get Sales by Product", description = "Units sold, revenue and gross margin per product, computed from current product prices. All parameters are optional.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successful retrieval of the sales report"),
+            @ApiResponse(responseCode = "400", description = "Invalid date format", content = @Content),
+            @ApiResponse(responseCode = "403", description = "Access denied", content = @Content)
+    })
+    @GetMapping("/sales/by-product")
+    public ResponseEntity<List<ProductSalesReportDTO>> getSalesByProduct(@RequestParam(required = false) String productName,
+                                                                         @RequestParam(required = false) String username,
+                                                                         @RequestParam(required = false) String startDate,
+                                                                         @RequestParam(required = false) String endDate) {
+        SalesReportFilter filter = new SalesReportFilter(productName, username,
+                parseDate(startDate, "startDate"), parseDate(endDate, "endDate"));
+        return ResponseEntity.ok(reportService.getSalesByProduct(filter));
+    }
+
+    /**
+     * GET /api/reports/sales/by-user
+     * Aggregates orders, units sold, revenue and gross margin per user.
+     *
+     * @param productName the name of the product to filter by (optional)
+     * @param username    the username to filter by (optional)
+     * @param startDate   the start date for filtering (optional, format: yyyy-MM-ddTHH:mm:ss)
+     * @param endDate     the end date for filtering (optional, format: yyyy-MM-ddTHH:mm:ss)
+     * @return one row per user, highest revenue first
+     */
+    @Operation(summary = "Get Sales by User", description = "Orders, units sold, revenue and gross margin per user, computed from current product prices. All parameters are optional.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successful retrieval of the sales report"),
+            @ApiResponse(responseCode = "400", description = "Invalid date format", content = @Content),
+            @ApiResponse(responseCode = "403", description = "Access denied", content = @Content)
+    })
+    @GetMapping("/sales/by-user")
+    public ResponseEntity<List<UserSalesReportDTO>> getSalesByUser(@RequestParam(required = false) String productName,
+                                                                   @RequestParam(required = false) String username,
+                                                                   @RequestParam(required = false) String startDate,
+                                                                   @RequestParam(required = false) String endDate) {
+        SalesReportFilter filter = new SalesReportFilter(productName, username,
+                parseDate(startDate, "startDate"), parseDate(endDate, "endDate"));
+        return ResponseEntity.ok(reportService.getSalesByUser(filter));
+    }
+
+    /**
+     * GET /api/reports/sales/timeline
+     * Aggregates units sold, revenue and gross margin per day, week or month.
+     *
+     * @param productName the name of the product to filter by (optional)
+     * @param username    the username to filter by (optional)
+     * @param startDate   the start date for filtering (optional, format: yyyy-MM-ddTHH:mm:ss)
+     * @param endDate     the end date for filtering (optional, format: yyyy-MM-ddTHH:mm:ss)
+     * @param granularity day (default), week or month
+     * @return one row per period with sales, oldest first
+     */
+    @Operation(summary = "Get Sales Timeline", description = "Units sold, revenue and gross margin per day, week (starting Monday) or month, computed from current product prices. All parameters are optional.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successful retrieval of the sales report"),
+            @ApiResponse(responseCode = "400", description = "Invalid date format or granularity", content = @Content),
+            @ApiResponse(responseCode = "403", description = "Access denied", content = @Content)
+    })
+    @GetMapping("/sales/timeline")
+    public ResponseEntity<List<SalesPeriodReportDTO>> getSalesTimeline(@RequestParam(required = false) String productName,
+                                                                       @RequestParam(required = false) String username,
+                                                                       @RequestParam(required = false) String startDate,
+                                                                       @RequestParam(required = false) String endDate,
+                                                                       @RequestParam(defaultValue = "day") String granularity) {
+        SalesReportFilter filter = new SalesReportFilter(productName, username,
+                parseDate(startDate, "startDate"), parseDate(endDate, "endDate"));
+
+        ReportGranularity reportGranularity;
         try {
-            end = (endDate != null) ? LocalDateTime.parse(endDate) : null;
-        } catch (Exception e) {
-            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            reportGranularity = ReportGranularity.valueOf(granularity.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Unsupported granularity: " + granularity, e);
         }
+        return ResponseEntity.ok(reportService.getSalesTimeline(filter, reportGranularity));
+    }
 
-        List<OrderReportDTO> report = reportService.getFilteredOrders(productName, username, start, end);
-        return ResponseEntity.ok(report);
+    /**
+     * POST /api/reports/sales/rollup/rebuild
+     * Recomputes the daily product sales rollup behind the aggregated reports.
+     *
+     * @param from the first day to rebuild (optional, format: yyyy-MM-dd)
+     * @param to   the last day to rebuild (optional, format: yyyy-MM-dd)
+     * @return the rebuilt range and the number of rollup rows written
+     */
+    @Operation(summary = "Rebuild Sales Rollup", description = "Recompute the daily product sales rollup from the orders placed between two days (inclusive). " +
+            "Without parameters the whole rollup is rebuilt; use this once to backfill it.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Rollup rebuilt"),
+            @ApiResponse(responseCode = "400", description = "Invalid date format or range", content = @Content),
+            @ApiResponse(responseCode = "403", description = "Access denied", content = @Content)
+    })
+    @PostMapping("/sales/rollup/rebuild")
+    public ResponseEntity<RollupRebuildResponseDTO> rebuildSalesRollup(@RequestParam(required = false) String from,
+                                                                       @RequestParam(required = false) String to) {
+        return ResponseEntity.ok(reportService.rebuildDailySalesRollup(parseDay(from, "from"), parseDay(to, "to")));
+    }
 
+    private static LocalDateTime parseDate(String value, String name) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException("Invalid " + name + ": " + value, e);
+        }
+    }
+
+    private static LocalDate parseDay(String value, String name) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException("Invalid " + name + ": " + value, e);
+        }
     }
 }
@@ -0,0 +1,72 @@
+package com.heamimont.salesstoreapi.controller;
+
+import com.heamimont.salesstoreapi.dto.cart.CreateStockHoldDTO;
+import com.heamimont.salesstoreapi.dto.cart.StockHoldResponseDTO;
+import com.heamimont.salesstoreapi.service.StockHoldService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("api/holds")
+@Tag(name = "Stock Holds", description = "Endpoints for holding stock while checking out")
+public class StockHoldController {
+    private final StockHoldService stockHoldService;
+
+    public StockHoldController(StockHoldService stockHoldService) {
+        this.stockHoldService = stockHoldService;
+    }
+
+    /**
+     * POST /api/holds
+     * Hold stock for the cart of the current user
+     */
+    @Operation(summary = "Hold Stock", description = "Takes the given quantities from the stock and holds them for " +
+            "the current user for ttlSeconds (carts.holds.ttl by default). An order created with the holdId sells " +
+            "the held units; otherwise they are given back when the hold expires.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Stock held successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid hold, or not enough stock", content = @Content),
+            @ApiResponse(responseCode = "401", description = "Unauthorized access", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Product not found", content = @Content)
+    })
+    @PostMapping
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public ResponseEntity<StockHoldResponseDTO> createHold(
+            @Valid @RequestBody CreateStockHoldDTO createStockHoldDTO,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(stockHoldService.hold(createStockHoldDTO, userDetails.getUsername()));
+    }
+
+    /**
+     * DELETE /api/holds/{holdId}
+     * Release a hold of the current user before it expires
+     */
+    @Operation(summary = "Release Stock Hold", description = "Gives the stock of a hold of the current user back " +
+            "before it expires.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Hold released"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized access", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Hold not found, or already expired", content = @Content)
+    })
+    @DeleteMapping("/{holdId}")
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public ResponseEntity<Void> releaseHold(
+            @PathVariable UUID holdId,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        stockHoldService.release(holdId, userDetails.getUsername());
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,21 @@
+package com.heamimont.salesstoreapi.dto.cart;
+import com.heamimont.salesstoreapi.dto.order.OrderProductDTO;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class CreateStockHoldDTO {
+
+    @NotEmpty(message = "Hold must contain at least one product")
+    @Valid
+    private List<OrderProductDTO> items;
+
+    @Schema(description = "How long the stock is held, in seconds; carts.holds.ttl by default", example = "900")
+    @Positive(message = "ttlSeconds must be positive")
+    private Integer ttlSeconds;
+}
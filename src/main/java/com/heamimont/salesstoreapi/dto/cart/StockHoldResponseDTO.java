@@ -0,0 +1,22 @@
+package com.heamimont.salesstoreapi.dto.cart;
+
+import com.heamimont.salesstoreapi.dto.order.OrderProductDTO;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockHoldResponseDTO {
+    @Schema(description = "Identifier of the hold, to send as holdId with the order (UUID)", example = "3fa85f64-5717-4562-b3fc-2c963f66afa6")
+    private UUID id;
+    @Schema(description = "When the held stock is given back unless an order is placed with the hold")
+    private LocalDateTime expiresAt;
+    private List<OrderProductDTO> items;
+}
@@ -0,0 +1,17 @@
+package com.heamimont.salesstoreapi.dto.order;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * An order of a batch, placed for the user it names.
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class BatchOrderDTO extends CreateOrderDTO {
+
+    @Schema(description = "Username of the user the order is placed for", example = "jdoe")
+    @NotBlank(message = "Username is required")
+    private String username;
+}
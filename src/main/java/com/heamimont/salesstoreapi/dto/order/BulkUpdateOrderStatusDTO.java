@@ -0,0 +1,32 @@
+package com.heamimont.salesstoreapi.dto.order;
+import com.heamimont.salesstoreapi.model.OrderStatus;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Selects the orders of a bulk status change, either by ID or with a filter, and the status to move them to.
+ */
+@Data
+public class BulkUpdateOrderStatusDTO {
+
+    @Schema(description = "New status of the orders (IN_PROGRESS, DONE); orders only move forward", example = "DONE")
+    @NotNull
+    private OrderStatus status;
+
+    @Schema(description = "IDs of the orders to update; leave empty to select the orders with the filter fields instead")
+    private List<UUID> orderIds;
+
+    @Schema(description = "Filter: orders currently in this status", example = "IN_PROGRESS")
+    private OrderStatus currentStatus;
+
+    @Schema(description = "Filter: orders placed at or after this time", example = "2024-01-01T00:00:00")
+    private LocalDateTime startDate;
+
+    @Schema(description = "Filter: orders placed at or before this time", example = "2024-01-31T23:59:59")
+    private LocalDateTime endDate;
+}
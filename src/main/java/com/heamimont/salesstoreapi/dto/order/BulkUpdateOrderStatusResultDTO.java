@@ -0,0 +1,26 @@
+package com.heamimont.salesstoreapi.dto.order;
+
+import com.heamimont.salesstoreapi.model.OrderStatus;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkUpdateOrderStatusResultDTO {
+    @Schema(description = "Status the orders were moved to", example = "DONE")
+    private OrderStatus status;
+    @Schema(description = "Number of orders updated", example = "480")
+    private int updated;
+    @Schema(description = "Number of requested orders that were not found or cannot move to the status", example = "20")
+    private int skipped;
+    @Schema(description = "IDs of the updated orders; null when more than orders.status-update.max-ids were selected with the filter")
+    private List<UUID> updatedIds;
+    @Schema(description = "IDs of the requested orders that were not updated; always empty when selecting with the filter")
+    private List<UUID> skippedIds;
+}
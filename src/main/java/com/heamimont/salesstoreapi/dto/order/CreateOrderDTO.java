@@ -1,9 +1,11 @@
 package com.heamimont.salesstoreapi.dto.order;
+import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotEmpty;
 import lombok.Data;
 
 import java.util.List;
+import java.util.UUID;
 
 @Data
 public class CreateOrderDTO {
@@ -11,4 +13,8 @@ public class CreateOrderDTO {
     @NotEmpty(message = "Order must contain at least one product")
     @Valid
     private List<OrderProductDTO> orderProducts;
+
+    @Schema(description = "Stock hold of the current user the order is placed from (UUID); its held units are sold " +
+            "first and the units not ordered are given back", example = "3fa85f64-5717-4562-b3fc-2c963f66afa6")
+    private UUID holdId;
 }
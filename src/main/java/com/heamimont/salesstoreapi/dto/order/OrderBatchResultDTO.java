@@ -0,0 +1,33 @@
+package com.heamimont.salesstoreapi.dto.order;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderBatchResultDTO {
+    @Schema(description = "Number of orders created", example = "4990")
+    private int created;
+    @Schema(description = "Number of orders that were rejected", example = "10")
+    private int failed;
+    @Schema(description = "Outcome of every order, in request order")
+    private List<OrderResult> results;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class OrderResult {
+        @Schema(description = "Position of the order in the request (0-based)", example = "17")
+        private int index;
+        @Schema(description = "ID of the created order, null if the order was rejected", example = "0192a3b4-5c6d-7e8f-9a0b-1c2d3e4f5a6b")
+        private UUID orderId;
+        @Schema(description = "Why the order was rejected, null if it was created", example = "Insufficient product quantity available")
+        private String error;
+    }
+}
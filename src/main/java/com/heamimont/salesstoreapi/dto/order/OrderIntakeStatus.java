@@ -0,0 +1,13 @@
+package com.heamimont.salesstoreapi.dto.order;
+
+/**
+ * Progress of an order accepted by the asynchronous order intake.
+ */
+public enum OrderIntakeStatus {
+    /** Journaled, waiting to be placed */
+    QUEUED,
+    /** Placed; the order can be read like any other */
+    CREATED,
+    /** Could not be placed, for instance for lack of stock */
+    REJECTED
+}
@@ -0,0 +1,19 @@
+package com.heamimont.salesstoreapi.dto.order;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderIntakeStatusDTO {
+    @Schema(description = "Unique identifier of the order (UUID)", example = "3fa85f64-5717-4562-b3fc-2c963f66afa6")
+    private UUID orderId;
+    private OrderIntakeStatus status;
+    @Schema(description = "Why the order was rejected", example = "Insufficient product quantity available")
+    private String error;
+}
@@ -0,0 +1,19 @@
+package com.heamimont.salesstoreapi.dto.order;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderPageResponseDTO {
+    @Schema(description = "Orders in this page, newest first")
+    private List<OrderResponseDTO> orders;
+    @Schema(description = "Opaque cursor for the next page; null when this is the last page",
+            example = "MjAyMy0xMC0wNVQxNDo0ODowMHwzZmE4NWY2NC01NzE3LTQ1NjItYjNmYy0yYzk2M2Y2NmFmYTY")
+    private String nextCursor;
+}
@@ -0,0 +1,18 @@
+package com.heamimont.salesstoreapi.dto.order;
+
+import com.heamimont.salesstoreapi.model.OrderStatus;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatusDTO {
+    @Schema(description = "Unique identifier of the order (UUID)", example = "3fa85f64-5717-4562-b3fc-2c963f66afa6")
+    private UUID id;
+    private OrderStatus status;
+}
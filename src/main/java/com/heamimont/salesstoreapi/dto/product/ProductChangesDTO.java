@@ -0,0 +1,20 @@
+package com.heamimont.salesstoreapi.dto.product;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductChangesDTO {
+    @Schema(description = "Catalog version covered by this response; pass it as 'since' on the next call", example = "42")
+    private long version;
+    @Schema(description = "Products created or changed since the requested version, in their current state")
+    private List<ProductPublicResponseDTO> changed;
+    @Schema(description = "IDs of products deleted since the requested version")
+    private List<Long> deleted;
+}
@@ -0,0 +1,42 @@
+package com.heamimont.salesstoreapi.dto.product;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+/**
+ * Input formats of the bulk product import.
+ */
+public enum ProductImportFormat {
+    NDJSON(MediaType.APPLICATION_NDJSON_VALUE),
+    CSV("text/csv");
+
+    private final String mediaType;
+
+    ProductImportFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * @return the format of a request Content-Type, or null if it is not an import format
+     */
+    public static ProductImportFormat fromContentType(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        try {
+            MediaType type = MediaType.parseMediaType(contentType);
+            for (ProductImportFormat format : values()) {
+                if (MediaType.parseMediaType(format.mediaType).equalsTypeAndSubtype(type)) {
+                    return format;
+                }
+            }
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,34 @@
+package com.heamimont.salesstoreapi.dto.product;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportResultDTO {
+    @Schema(description = "Number of products created", example = "98000")
+    private int created;
+    @Schema(description = "Number of existing products, matched by name, that were overwritten", example = "1990")
+    private int updated;
+    @Schema(description = "Number of rows that were rejected", example = "10")
+    private int failed;
+    @Schema(description = "Rejected rows in input order; capped at products.import.max-errors, see 'failed' for the total")
+    private List<RowError> errors;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        @Schema(description = "Line of the input the row starts on (1-based; line 1 of a CSV file is the header)", example = "17")
+        private long line;
+        @Schema(description = "Product name of the row, if it could be read", example = "Laptop")
+        private String name;
+        @Schema(description = "Why the row was rejected", example = "sellingPrice: Selling price must be positive")
+        private String message;
+    }
+}
@@ -0,0 +1,21 @@
+package com.heamimont.salesstoreapi.dto.report;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSalesReportDTO {
+    private Long productId;
+    private String productName;
+    private long unitsSold;
+    @Schema(description = "Units sold * current selling price", example = "2400.00")
+    private BigDecimal revenue;
+    @Schema(description = "Units sold * (current selling price - actual price)", example = "600.00")
+    private BigDecimal grossMargin;
+}
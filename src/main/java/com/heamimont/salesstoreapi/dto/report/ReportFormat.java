@@ -0,0 +1,28 @@
+package com.heamimont.salesstoreapi.dto.report;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Output formats of the streamed order report export.
+ */
+public enum ReportFormat {
+    JSON(MediaType.APPLICATION_JSON_VALUE, "json"),
+    NDJSON(MediaType.APPLICATION_NDJSON_VALUE, "ndjson"),
+    CSV("text/csv", "csv");
+
+    private final String mediaType;
+    private final String fileExtension;
+
+    ReportFormat(String mediaType, String fileExtension) {
+        this.mediaType = mediaType;
+        this.fileExtension = fileExtension;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public String getFileExtension() {
+        return fileExtension;
+    }
+}
@@ -0,0 +1,25 @@
+package com.heamimont.salesstoreapi.dto.report;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Period length of the sales timeline report.
+ */
+public enum ReportGranularity {
+    DAY,
+    WEEK,
+    MONTH;
+
+    /**
+     * @return the first day of the period containing the given day; weeks start on Monday
+     */
+    public LocalDate periodStart(LocalDate day) {
+        return switch (this) {
+            case DAY -> day;
+            case WEEK -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> day.withDayOfMonth(1);
+        };
+    }
+}
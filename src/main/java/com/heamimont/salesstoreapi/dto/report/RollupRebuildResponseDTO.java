@@ -0,0 +1,20 @@
+package com.heamimont.salesstoreapi.dto.report;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RollupRebuildResponseDTO {
+    @Schema(description = "First rebuilt day; null when unbounded", example = "2023-01-01")
+    private LocalDate from;
+    @Schema(description = "Last rebuilt day; null when unbounded", example = "2023-12-31")
+    private LocalDate to;
+    @Schema(description = "Number of (day, product) rollup rows written", example = "5120")
+    private int rowsWritten;
+}
@@ -0,0 +1,22 @@
+package com.heamimont.salesstoreapi.dto.report;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesPeriodReportDTO {
+    @Schema(description = "First day of the period (the day itself, the Monday of the week, or the first of the month)", example = "2023-10-02")
+    private LocalDate periodStart;
+    private long unitsSold;
+    @Schema(description = "Units sold * current selling price", example = "2400.00")
+    private BigDecimal revenue;
+    @Schema(description = "Units sold * (current selling price - actual price)", example = "600.00")
+    private BigDecimal grossMargin;
+}
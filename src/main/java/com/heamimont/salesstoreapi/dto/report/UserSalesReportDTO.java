@@ -0,0 +1,24 @@
+package com.heamimont.salesstoreapi.dto.report;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSalesReportDTO {
+    @Schema(description = "Unique identifier of the user (UUID)", example = "550e8400-e29b-41d4-a716-446655440000")
+    private UUID userId;
+    private String username;
+    private long orderCount;
+    private long unitsSold;
+    @Schema(description = "Units sold * current selling price", example = "2400.00")
+    private BigDecimal revenue;
+    @Schema(description = "Units sold * (current selling price - actual price)", example = "600.00")
+    private BigDecimal grossMargin;
+}
@@ -1,5 +1,6 @@
 package com.heamimont.salesstoreapi.mapper;
 import com.heamimont.salesstoreapi.dto.order.CreateOrderDTO;
+import com.heamimont.salesstoreapi.dto.order.OrderProductDTO;
 import com.heamimont.salesstoreapi.dto.order.OrderProductResponseDTO;
 import com.heamimont.salesstoreapi.dto.order.OrderResponseDTO;
 import com.heamimont.salesstoreapi.exceptions.ResourceNotFoundException;
@@ -10,8 +11,12 @@ import com.heamimont.salesstoreapi.repository.ProductRepository;
 import com.heamimont.salesstoreapi.repository.UserRepository;
 import org.springframework.stereotype.Component;
 
-import java.util.stream.Collectors;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Component
 public class OrderMapper {
@@ -28,19 +33,36 @@ public class OrderMapper {
     public Order toEntity(CreateOrderDTO dto) {
         Order order = new Order();
         order.setOrderProducts(new ArrayList<>());
-        
+
         if (dto.getOrderProducts() != null) {
+            // Load all referenced products with a single query
+            Set<Long> productIds = dto.getOrderProducts().stream()
+                    .map(OrderProductDTO::getProductId)
+                    .collect(Collectors.toSet());
+            Map<Long, Product> products = productRepository.findAllById(productIds).stream()
+                    .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+            // Lines for the same product are merged, as (order, product) is the primary key of an order line
+            Map<Long, OrderProduct> lines = new LinkedHashMap<>();
             dto.getOrderProducts().forEach(item -> {
+                Product product = products.get(item.getProductId());
+                if (product == null) {
+                    throw new ResourceNotFoundException("Product not found");
+                }
+                OrderProduct existing = lines.get(product.getId());
+                if (existing != null) {
+                    existing.setProductQuantity(existing.getProductQuantity() + item.getProductQuantity());
+                    return;
+                }
                 OrderProduct orderProduct = new OrderProduct();
-                Product product = productRepository.findById(item.getProductId())
-                        .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
                 orderProduct.setProduct(product);
                 orderProduct.setOrder(order);
                 orderProduct.setProductQuantity(item.getProductQuantity());
-                order.getOrderProducts().add(orderProduct);
+                lines.put(product.getId(), orderProduct);
             });
+            order.getOrderProducts().addAll(lines.values());
         }
-        
+
         return order;
     }
 
@@ -21,6 +21,14 @@ public class ProductMapper {
         return product;
     }
 
+    // Method to overwrite a Product entity with CreateProductDTO, keeping its ID and name (bulk import upsert)
+    public void replaceEntity(Product product, CreateProductDTO dto) {
+        product.setDescription(dto.getDescription());
+        product.setActualPrice(dto.getActualPrice());
+        product.setSellingPrice(dto.getSellingPrice());
+        product.setAvailableQuantity(dto.getAvailableQuantity());
+    }
+
     // Method to update Product entity from UpdateProductDTO
     public void updateEntity(Product product, UpdateProductDTO dto) {
         if (dto.getName() != null) {
@@ -35,9 +43,7 @@ public class ProductMapper {
         if (dto.getSellingPrice() != null) {
             product.setSellingPrice(dto.getSellingPrice());
         }
-        if (dto.getAvailableQuantity() != null) {
-            product.setAvailableQuantity(dto.getAvailableQuantity());
-        }
+        // The available quantity is changed through the inventory ledger, see ProductService.updateProduct
     }
 
     // Method to convert Product entity to ProductResponseDTO
@@ -0,0 +1,29 @@
+package com.heamimont.salesstoreapi.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/*
+ * Rollup of the units sold per product and calendar day of the order date.
+ * Maintained incrementally when orders are created and rebuilt on demand, see DailyProductSalesRepository.
+ * Prices are not stored; revenue and margin are derived from the current product prices when reading.
+ */
+@Getter
+@Setter
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "daily_product_sales")
+public class DailyProductSales {
+
+    @EmbeddedId
+    private DailyProductSalesKey id = new DailyProductSalesKey();
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @MapsId("productId")
+    @JoinColumn(name = "product_id")
+    private Product product;
+
+    @Column(name = "units_sold", nullable = false)
+    private long unitsSold;
+}
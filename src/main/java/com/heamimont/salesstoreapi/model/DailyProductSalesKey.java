@@ -0,0 +1,36 @@
+package com.heamimont.salesstoreapi.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+@Embeddable
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class DailyProductSalesKey implements Serializable {
+
+    @Column(name = "sale_date")
+    private LocalDate saleDate;
+
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof DailyProductSalesKey that)) return false;
+        return Objects.equals(saleDate, that.saleDate) &&
+                Objects.equals(productId, that.productId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(saleDate, productId);
+    }
+}
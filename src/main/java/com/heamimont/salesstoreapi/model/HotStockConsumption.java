@@ -0,0 +1,34 @@
+package com.heamimont.salesstoreapi.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+/*
+ * Stock sold from the in-memory shards of a hot product, inserted by the transaction of the sale.
+ * Insert-only, so sales do not lock the product row; HotStockService folds these rows into
+ * products.leased_quantity and daily_product_sales in batches and deletes them.
+ */
+@Getter
+@Setter
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "hot_stock_consumption")
+public class HotStockConsumption {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(nullable = false)
+    private int quantity;
+
+    // Null for stock taken for a hold, which is not a sale
+    @Column(name = "sale_date")
+    private LocalDate saleDate;
+}
@@ -0,0 +1,36 @@
+package com.heamimont.salesstoreapi.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/*
+ * An Idempotency-Key sent with POST /api/orders, and the response of the request that first used it.
+ * The key is unique per user; a record without response belongs to a request still in progress.
+ * Records are deleted in bulk once they expire, see OrderIdempotencyService.
+ */
+@Getter
+@Setter
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "idempotency_keys")
+public class IdempotencyRecord {
+
+    @EmbeddedId
+    private IdempotencyRecordKey id;
+
+    // SHA-256 of the request body, so a key reused for another request is detected
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Column(name = "response_body", columnDefinition = "text")
+    private String responseBody;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
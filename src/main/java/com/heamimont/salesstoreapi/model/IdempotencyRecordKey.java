@@ -0,0 +1,35 @@
+package com.heamimont.salesstoreapi.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.*;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+@Embeddable
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class IdempotencyRecordKey implements Serializable {
+
+    @Column(name = "username", length = 50)
+    private String username;
+
+    @Column(name = "idempotency_key")
+    private String idempotencyKey;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof IdempotencyRecordKey that)) return false;
+        return Objects.equals(username, that.username) &&
+                Objects.equals(idempotencyKey, that.idempotencyKey);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(username, idempotencyKey);
+    }
+}
@@ -0,0 +1,37 @@
+package com.heamimont.salesstoreapi.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/*
+ * One change of the stock of a product, see InventoryLedger. Rows are only inserted; the movements of a product sum
+ * up to products.available_quantity.
+ */
+@Getter
+@Setter
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "inventory_movements")
+public class InventoryMovement {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    // Signed: negative for stock taken away
+    @Column(nullable = false)
+    private int quantity;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private InventoryMovementReason reason;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,17 @@
+package com.heamimont.salesstoreapi.model;
+
+import lombok.Getter;
+
+@Getter
+public enum InventoryMovementReason {
+    SALE("Stock sold by an order"),
+    RESTOCK("Stock added to a product"),
+    ADJUSTMENT("Stock set lower by an admin or replaced by an import"),
+    HOLD("Stock held for a cart, or given back when the hold ends");
+
+    private final String description;
+
+    InventoryMovementReason(String description) {
+        this.description = description;
+    }
+}
@@ -22,7 +22,7 @@ import java.util.UUID;
 public class Order {
 
     @Id
-    @GeneratedValue
+    @TimeOrderedUuid
     @Column(columnDefinition = "uuid")
     private UUID id;
 
@@ -2,6 +2,9 @@ package com.heamimont.salesstoreapi.model;
 
 import lombok.Getter;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 @Getter
 public enum OrderStatus {
     PENDING("Order has been created but not yet processed"),
@@ -14,4 +17,16 @@ public enum OrderStatus {
         this.description = description;
     }
 
+    /**
+     * The statuses a bulk status change may move orders to this status from; orders only move forward.
+     *
+     * @return the previous statuses, empty for PENDING
+     */
+    public Set<OrderStatus> previousStatuses() {
+        return switch (this) {
+            case PENDING -> EnumSet.noneOf(OrderStatus.class);
+            case IN_PROGRESS -> EnumSet.of(PENDING);
+            case DONE -> EnumSet.of(PENDING, IN_PROGRESS);
+        };
+    }
 }
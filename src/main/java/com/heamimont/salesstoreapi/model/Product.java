@@ -6,18 +6,24 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.PositiveOrZero;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.math.BigDecimal;
 
 @Getter
 @Setter
 @Entity
+// Only changed columns are written, so editing a product does not overwrite stock changed by statements since it was loaded
+@DynamicUpdate
 @NoArgsConstructor
 @AllArgsConstructor
 @Table(name = "products")
 public class Product {
+    // Pooled sequence, so Hibernate can batch product inserts (it cannot with IDENTITY); see db/migration/V8
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "products_id_seq")
+    @SequenceGenerator(name = "products_id_seq", sequenceName = "products_id_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "Product name cannot be blank")
@@ -38,4 +44,20 @@ public class Product {
     @PositiveOrZero
     @Column(name = "available_quantity", nullable = false)
     private int availableQuantity;
-}
\ No newline at end of file
+
+    // Version of the last change of this product, assigned by ProductChangeLog
+    @ColumnDefault("0")
+    @Column(name = "change_version", nullable = false)
+    private long changeVersion;
+
+    // Stock moved from availableQuantity to the in-memory shards of HotStockService and not sold yet.
+    // Only written by the repository's hot stock statements, so saving a product never overwrites it.
+    @ColumnDefault("0")
+    @Column(name = "leased_quantity", nullable = false, insertable = false, updatable = false)
+    private int leasedQuantity;
+
+    public Product(Long id, String name, String description, BigDecimal actualPrice, BigDecimal sellingPrice,
+                   int availableQuantity) {
+        this(id, name, description, actualPrice, sellingPrice, availableQuantity, 0L, 0);
+    }
+}
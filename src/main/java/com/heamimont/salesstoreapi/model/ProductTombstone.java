@@ -0,0 +1,25 @@
+package com.heamimont.salesstoreapi.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/*
+ * Record of a deleted product, so catalog delta sync can report the deletion.
+ * Keyed by the change version of the deletion, see ProductChangeLog.
+ */
+
+@Getter
+@Setter
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "product_tombstones")
+public class ProductTombstone {
+
+    @Id
+    @Column(name = "change_version")
+    private Long changeVersion;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+}
@@ -0,0 +1,40 @@
+package com.heamimont.salesstoreapi.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/*
+ * Stock held for the cart of a user until it expires, see StockHoldService. The held quantities are already taken
+ * from the products; an order placed with the hold sells them, otherwise they are given back on expiry.
+ */
+@Getter
+@Setter
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "stock_holds")
+public class StockHold {
+
+    @Id
+    @TimeOrderedUuid
+    @Column(columnDefinition = "uuid")
+    private UUID id;
+
+    @Column(name = "user_id", nullable = false, columnDefinition = "uuid")
+    private UUID userId;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    // Product ID to quantity held
+    @ElementCollection
+    @CollectionTable(name = "stock_hold_items", joinColumns = @JoinColumn(name = "hold_id"))
+    @MapKeyColumn(name = "product_id")
+    @Column(name = "quantity", nullable = false)
+    private Map<Long, Integer> quantities = new HashMap<>();
+}
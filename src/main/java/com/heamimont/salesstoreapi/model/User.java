@@ -4,6 +4,7 @@ import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.UUID;
 
@@ -20,10 +21,11 @@ import java.util.UUID;
 public class User {
 
     @Id
-    @GeneratedValue
+    @TimeOrderedUuid
     @Column(columnDefinition = "uuid")
     private UUID id;
 
+    // Case-insensitive lookups use the upper(username) and upper(email) indexes (db/migration/V7)
     @NotNull(message = "Username cannot be null")
     @Column (nullable = false, unique = true, length = 50)
     private String username;
@@ -48,6 +50,12 @@ public class User {
     @Column(nullable = false)
     private Role role;
 
+    // Bumped on every change of the user; tokens issued with an older version are rejected in stateless mode
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private int tokenVersion;
 
-
+    public User(UUID id, String username, String firstName, String lastName, String email, String password, Role role) {
+        this(id, username, firstName, lastName, email, password, role, 0);
+    }
 }
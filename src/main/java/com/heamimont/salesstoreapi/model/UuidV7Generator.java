@@ -0,0 +1,65 @@
+package com.heamimont.salesstoreapi.model;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+
+import java.util.EnumSet;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates UUIDv7 identifiers (RFC 9562): a 48-bit Unix timestamp in milliseconds, followed by a 12-bit counter
+ * and 62 random bits. New identifiers are appended at the end of a primary key index instead of landing on a
+ * random page, and sort by creation time.
+ * <p>
+ * Identifiers are strictly increasing within this JVM: the timestamp and counter are taken from one atomic
+ * value, and the counter restarts at zero every millisecond (RFC 9562 section 6.2, method 1). If more than
+ * 4096 identifiers are generated in one millisecond, or the clock goes backwards, the counter carries into
+ * the timestamp, which then runs slightly ahead of the clock until the clock catches up.
+ * <p>
+ * The random bits come from {@link ThreadLocalRandom}: the identifiers are unique, not secret, and they
+ * already reveal their creation time.
+ */
+public class UuidV7Generator implements BeforeExecutionGenerator {
+
+    private static final int COUNTER_BITS = 12;
+
+    // Timestamp in milliseconds << COUNTER_BITS | counter, of the last identifier generated
+    private static final AtomicLong lastTimestampAndCounter = new AtomicLong();
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue, EventType eventType) {
+        return next();
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+
+    /**
+     * @return a new UUIDv7, greater than every UUIDv7 generated before by this JVM
+     */
+    public static UUID next() {
+        long now = System.currentTimeMillis() << COUNTER_BITS;
+        long timestampAndCounter = lastTimestampAndCounter.updateAndGet(last -> Math.max(last + 1, now));
+
+        // 48-bit timestamp, version 7, 12-bit counter
+        long mostSigBits = (timestampAndCounter >>> COUNTER_BITS) << 16
+                | 0x7000L
+                | (timestampAndCounter & 0xFFFL);
+        // Variant 0b10, 62 random bits
+        long leastSigBits = ThreadLocalRandom.current().nextLong() >>> 2 | 0x8000_0000_0000_0000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    /**
+     * @return the Unix timestamp in milliseconds of a UUIDv7
+     */
+    public static long timestampOf(UUID uuid) {
+        return uuid.getMostSignificantBits() >>> 16;
+    }
+}
@@ -0,0 +1,10 @@
+package com.heamimont.salesstoreapi.repository;
+
+import com.heamimont.salesstoreapi.model.DailyProductSales;
+import com.heamimont.salesstoreapi.model.DailyProductSalesKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface DailyProductSalesRepository extends JpaRepository<DailyProductSales, DailyProductSalesKey>, DailyProductSalesRepositoryCustom {
+}
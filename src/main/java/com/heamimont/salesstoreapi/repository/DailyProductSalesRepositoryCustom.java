@@ -0,0 +1,46 @@
+package com.heamimont.salesstoreapi.repository;
+
+import com.heamimont.salesstoreapi.dto.report.ProductSalesReportDTO;
+import com.heamimont.salesstoreapi.dto.report.SalesPeriodReportDTO;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.SortedMap;
+
+/**
+ * Maintenance and aggregation of the daily product sales rollup.
+ */
+public interface DailyProductSalesRepositoryCustom {
+
+    /**
+     * Adds sold units to the rollup rows of a day, creating missing rows, in a single JDBC batch.
+     * Rows are updated in ascending product id order, like the stock decrements of the same order,
+     * so concurrent orders lock them in the same order.
+     *
+     * @param saleDate the order date
+     * @param units product ID to units sold, iterated in ascending product ID order
+     */
+    void addUnitsSold(LocalDate saleDate, SortedMap<Long, Integer> units);
+
+    /**
+     * Recomputes the rollup from the orders placed between two days.
+     * Concurrent order creation is blocked for the duration on PostgreSQL, so no order is counted twice or lost.
+     *
+     * @param from the first day to rebuild (inclusive), or null for no lower bound
+     * @param to the last day to rebuild (inclusive), or null for no upper bound
+     * @return the number of rollup rows written
+     */
+    int rebuild(LocalDate from, LocalDate to);
+
+    /**
+     * Same as {@link OrderProductRepositoryCustom#sumSalesByProduct}, read from the rollup.
+     * The filter must satisfy {@link SalesReportFilter#isCoveredByDailyRollup()}.
+     */
+    List<ProductSalesReportDTO> sumSalesByProduct(SalesReportFilter filter);
+
+    /**
+     * Same as {@link OrderProductRepositoryCustom#sumSalesByDay}, read from the rollup.
+     * The filter must satisfy {@link SalesReportFilter#isCoveredByDailyRollup()}.
+     */
+    List<SalesPeriodReportDTO> sumSalesByDay(SalesReportFilter filter);
+}
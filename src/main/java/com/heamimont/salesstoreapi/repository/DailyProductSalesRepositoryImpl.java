@@ -0,0 +1,196 @@
+package com.heamimont.salesstoreapi.repository;
+
+import com.heamimont.salesstoreapi.dto.report.ProductSalesReportDTO;
+import com.heamimont.salesstoreapi.dto.report.SalesPeriodReportDTO;
+import com.heamimont.salesstoreapi.model.DailyProductSales;
+import com.heamimont.salesstoreapi.model.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.*;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Implementation of {@link DailyProductSalesRepositoryCustom}: maintenance with JDBC on the connection of
+ * the surrounding JPA transaction, aggregation with JPA criteria.
+ */
+public class DailyProductSalesRepositoryImpl implements DailyProductSalesRepositoryCustom {
+
+    // PostgreSQL: atomic under concurrent inserts of the same row
+    private static final String UPSERT_SQL_POSTGRES =
+            "INSERT INTO daily_product_sales (sale_date, product_id, units_sold) VALUES (?, ?, ?) " +
+            "ON CONFLICT (sale_date, product_id) DO UPDATE SET units_sold = daily_product_sales.units_sold + EXCLUDED.units_sold";
+
+    // Standard SQL for other databases (H2 in development and tests)
+    private static final String UPSERT_SQL_STANDARD =
+            "MERGE INTO daily_product_sales d " +
+            "USING (VALUES (CAST(? AS DATE), CAST(? AS BIGINT), CAST(? AS BIGINT))) AS s (sale_date, product_id, units_sold) " +
+            "ON d.sale_date = s.sale_date AND d.product_id = s.product_id " +
+            "WHEN MATCHED THEN UPDATE SET units_sold = d.units_sold + s.units_sold " +
+            "WHEN NOT MATCHED THEN INSERT (sale_date, product_id, units_sold) VALUES (s.sale_date, s.product_id, s.units_sold)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private volatile Boolean postgres;
+
+    public DailyProductSalesRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void addUnitsSold(LocalDate saleDate, SortedMap<Long, Integer> units) {
+        if (units.isEmpty()) {
+            return;
+        }
+        List<Object[]> batchArgs = new ArrayList<>(units.size());
+        for (Map.Entry<Long, Integer> entry : units.entrySet()) {
+            batchArgs.add(new Object[]{Date.valueOf(saleDate), entry.getKey(), entry.getValue().longValue()});
+        }
+        jdbcTemplate.batchUpdate(isPostgres() ? UPSERT_SQL_POSTGRES : UPSERT_SQL_STANDARD, batchArgs);
+    }
+
+    @Override
+    public int rebuild(LocalDate from, LocalDate to) {
+        // Orders created in this transaction must be visible to the INSERT ... SELECT
+        entityManager.flush();
+        if (isPostgres()) {
+            // Waits for in-flight orders that already updated the rollup, and makes later ones wait for the rebuild.
+            // Orders not yet visible to the rebuild add their units after it, so each order is counted exactly once.
+            jdbcTemplate.execute("LOCK TABLE daily_product_sales IN EXCLUSIVE MODE");
+        }
+
+        List<Object> deleteArgs = new ArrayList<>();
+        List<Object> insertArgs = new ArrayList<>();
+        StringBuilder deleteSql = new StringBuilder("DELETE FROM daily_product_sales WHERE 1 = 1");
+        StringBuilder insertSql = new StringBuilder(
+                "INSERT INTO daily_product_sales (sale_date, product_id, units_sold) " +
+                "SELECT CAST(o.order_date AS DATE), op.product_id, SUM(op.product_quantity) " +
+                "FROM orders o JOIN order_products op ON op.order_id = o.id WHERE 1 = 1");
+        if (from != null) {
+            deleteSql.append(" AND sale_date >= ?");
+            deleteArgs.add(Date.valueOf(from));
+            insertSql.append(" AND o.order_date >= ?");
+            insertArgs.add(Timestamp.valueOf(from.atStartOfDay()));
+        }
+        if (to != null) {
+            deleteSql.append(" AND sale_date <= ?");
+            deleteArgs.add(Date.valueOf(to));
+            insertSql.append(" AND o.order_date < ?");
+            insertArgs.add(Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+        }
+        insertSql.append(" GROUP BY CAST(o.order_date AS DATE), op.product_id");
+
+        jdbcTemplate.update(deleteSql.toString(), deleteArgs.toArray());
+        int rows = jdbcTemplate.update(insertSql.toString(), insertArgs.toArray());
+        // Rollup entities loaded before the rebuild are stale now
+        entityManager.clear();
+        return rows;
+    }
+
+    @Override
+    public List<ProductSalesReportDTO> sumSalesByProduct(SalesReportFilter filter) {
+        RollupQuery q = new RollupQuery(filter);
+        Path<Long> productId = q.product.get("id");
+        Path<String> productName = q.product.get("name");
+        q.query.multiselect(productId, productName, q.units, q.revenue, q.margin)
+                .groupBy(productId, productName)
+                .orderBy(q.cb.desc(q.revenue), q.cb.asc(productId));
+
+        return entityManager.createQuery(q.query).getResultList().stream()
+                .map(row -> new ProductSalesReportDTO(
+                        row.get(0, Long.class),
+                        row.get(1, String.class),
+                        units(row.get(2)),
+                        amount(row.get(3)),
+                        amount(row.get(4))))
+                .toList();
+    }
+
+    @Override
+    public List<SalesPeriodReportDTO> sumSalesByDay(SalesReportFilter filter) {
+        RollupQuery q = new RollupQuery(filter);
+        Path<LocalDate> day = q.saleDate;
+        q.query.multiselect(day, q.units, q.revenue, q.margin)
+                .groupBy(day)
+                .orderBy(q.cb.asc(day));
+
+        return entityManager.createQuery(q.query).getResultList().stream()
+                .map(row -> new SalesPeriodReportDTO(
+                        row.get(0, LocalDate.class),
+                        units(row.get(1)),
+                        amount(row.get(2)),
+                        amount(row.get(3))))
+                .toList();
+    }
+
+    private boolean isPostgres() {
+        Boolean result = postgres;
+        if (result == null) {
+            String productName = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            result = "PostgreSQL".equalsIgnoreCase(productName);
+            postgres = result;
+        }
+        return result;
+    }
+
+    private static long units(Object value) {
+        return value == null ? 0 : ((Number) value).longValue();
+    }
+
+    private static BigDecimal amount(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        return value instanceof BigDecimal decimal ? decimal : new BigDecimal(value.toString());
+    }
+
+    /**
+     * Tuple query over rollup rows joined to their product, with the filter applied
+     * and the units, revenue and margin aggregates prepared.
+     */
+    private final class RollupQuery {
+        final CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        final CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        final Root<DailyProductSales> rollup = query.from(DailyProductSales.class);
+        final Join<DailyProductSales, Product> product = rollup.join("product");
+        final Path<LocalDate> saleDate = rollup.get("id").get("saleDate");
+        final Expression<Long> units;
+        final Expression<Number> revenue;
+        final Expression<Number> margin;
+
+        RollupQuery(SalesReportFilter filter) {
+            Expression<Long> unitsSold = rollup.get("unitsSold");
+            Expression<Number> sellingPrice = product.get("sellingPrice");
+            Expression<Number> actualPrice = product.get("actualPrice");
+            units = cb.sum(unitsSold);
+            revenue = cb.sum(cb.prod(sellingPrice, unitsSold));
+            margin = cb.sum(cb.prod(cb.diff(sellingPrice, actualPrice), unitsSold));
+
+            List<Predicate> predicates = new ArrayList<>();
+            if (filter.productName() != null) {
+                predicates.add(cb.like(cb.lower(product.get("name")), "%" + filter.productName().toLowerCase() + "%"));
+            }
+            if (filter.startDate() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(saleDate, filter.startDate().toLocalDate()));
+            }
+            if (filter.endDate() != null) {
+                predicates.add(cb.lessThanOrEqualTo(saleDate, filter.endDate().toLocalDate()));
+            }
+            query.where(predicates.toArray(new Predicate[0]));
+        }
+    }
+}
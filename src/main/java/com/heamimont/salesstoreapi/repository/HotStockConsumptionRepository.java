@@ -0,0 +1,16 @@
+package com.heamimont.salesstoreapi.repository;
+
+import com.heamimont.salesstoreapi.model.HotStockConsumption;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface HotStockConsumptionRepository extends JpaRepository<HotStockConsumption, Long>, HotStockConsumptionRepositoryCustom {
+
+    @Query("SELECT c FROM HotStockConsumption c ORDER BY c.id")
+    List<HotStockConsumption> findOldest(Limit limit);
+}
@@ -0,0 +1,15 @@
+package com.heamimont.salesstoreapi.repository;
+
+import java.time.LocalDate;
+import java.util.SortedMap;
+
+public interface HotStockConsumptionRepositoryCustom {
+
+    /**
+     * Records stock sold from hot-SKU shards, with one JDBC batch of inserts.
+     *
+     * @param quantities product ID to quantity sold
+     * @param saleDate the day of the sales, or null for stock taken for a hold
+     */
+    void insertAll(SortedMap<Long, Integer> quantities, LocalDate saleDate);
+}
@@ -0,0 +1,36 @@
+package com.heamimont.salesstoreapi.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * JDBC backed implementation of {@link HotStockConsumptionRepositoryCustom}.
+ * Runs on the connection of the surrounding JPA transaction.
+ */
+public class HotStockConsumptionRepositoryImpl implements HotStockConsumptionRepositoryCustom {
+
+    private static final String INSERT_SQL = 
+            "INSERT INTO hot_stock_consumption (product_id, quantity, sale_date) VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public HotStockConsumptionRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void insertAll(SortedMap<Long, Integer> quantities, LocalDate saleDate) {
+        Date date = saleDate == null ? null : Date.valueOf(saleDate);
+        List<Object[]> batchArgs = new ArrayList<>(quantities.size());
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            batchArgs.add(new Object[]{entry.getKey(), entry.getValue(), date});
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, batchArgs);
+    }
+}
@@ -0,0 +1,24 @@
+package com.heamimont.salesstoreapi.repository;
+
+import com.heamimont.salesstoreapi.model.IdempotencyRecord;
+import com.heamimont.salesstoreapi.model.IdempotencyRecordKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, IdempotencyRecordKey>, IdempotencyRecordRepositoryCustom {
+
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.responseBody = :responseBody WHERE r.id = :id")
+    int storeResponse(@Param("id") IdempotencyRecordKey id, @Param("responseBody") String responseBody);
+
+    // One set-based DELETE over the expires_at index
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,14 @@
+package com.heamimont.salesstoreapi.repository;
+
+import com.heamimont.salesstoreapi.model.IdempotencyRecord;
+
+public interface IdempotencyRecordRepositoryCustom {
+
+    /**
+     * Inserts the record unless one with the same user and key exists.
+     * The unique primary key decides between concurrent inserts, also across application instances.
+     *
+     * @return true if the record was inserted
+     */
+    boolean insertIfAbsent(IdempotencyRecord record);
+}
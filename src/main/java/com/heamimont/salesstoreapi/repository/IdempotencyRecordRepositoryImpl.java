@@ -0,0 +1,62 @@
+package com.heamimont.salesstoreapi.repository;
+
+import com.heamimont.salesstoreapi.model.IdempotencyRecord;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+
+/**
+ * Implementation of {@link IdempotencyRecordRepositoryCustom} with JDBC, on the connection of the surrounding transaction.
+ */
+public class IdempotencyRecordRepositoryImpl implements IdempotencyRecordRepositoryCustom {
+
+    // PostgreSQL: a conflicting insert does not abort the transaction
+    private static final String INSERT_SQL_POSTGRES =
+            "INSERT INTO idempotency_keys (username, idempotency_key, request_hash, created_at, expires_at) " +
+            "VALUES (?, ?, ?, ?, ?) ON CONFLICT (username, idempotency_key) DO NOTHING";
+
+    // Standard SQL for other databases (H2 in development and tests); a conflict fails with a duplicate key error
+    private static final String INSERT_SQL_STANDARD =
+            "INSERT INTO idempotency_keys (username, idempotency_key, request_hash, created_at, expires_at) " +
+            "VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Boolean postgres;
+
+    public IdempotencyRecordRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public boolean insertIfAbsent(IdempotencyRecord record) {
+        Object[] args = {
+                record.getId().getUsername(),
+                record.getId().getIdempotencyKey(),
+                record.getRequestHash(),
+                Timestamp.valueOf(record.getCreatedAt()),
+                Timestamp.valueOf(record.getExpiresAt())
+        };
+        if (isPostgres()) {
+            return jdbcTemplate.update(INSERT_SQL_POSTGRES, args) == 1;
+        }
+        try {
+            return jdbcTemplate.update(INSERT_SQL_STANDARD, args) == 1;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    private boolean isPostgres() {
+        Boolean result = postgres;
+        if (result == null) {
+            String productName = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            result = "PostgreSQL".equalsIgnoreCase(productName);
+            postgres = result;
+        }
+        return result;
+    }
+}
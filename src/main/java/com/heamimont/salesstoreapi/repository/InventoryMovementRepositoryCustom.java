@@ -0,0 +1,18 @@
+package com.heamimont.salesstoreapi.repository;
+
+import com.heamimont.salesstoreapi.model.InventoryMovementReason;
+
+import java.time.LocalDateTime;
+import java.util.SortedMap;
+
+public interface InventoryMovementRepositoryCustom {
+
+    /**
+     * Appends movements with one JDBC batch of inserts.
+     *
+     * @param quantities product ID to signed quantity
+     * @param reason the reason of every movement
+     * @param createdAt the time of the movements
+     */
+    void insertAll(SortedMap<Long, Integer> quantities, InventoryMovementReason reason, LocalDateTime createdAt);
+}
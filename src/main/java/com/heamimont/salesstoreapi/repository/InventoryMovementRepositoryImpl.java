@@ -0,0 +1,40 @@
+package com.heamimont.salesstoreapi.repository;
+
+import com.heamimont.salesstoreapi.model.InventoryMovementReason;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * JDBC backed implementation of {@link InventoryMovementRepositoryCustom}.
+ * Runs on the connection of the surrounding JPA transaction.
+ */
+public class InventoryMovementRepositoryImpl implements InventoryMovementRepositoryCustom {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO inventory_movements (product_id, quantity, reason, created_at) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public InventoryMovementRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void insertAll(SortedMap<Long, Integer> quantities, InventoryMovementReason reason, LocalDateTime createdAt) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        Timestamp timestamp = Timestamp.valueOf(createdAt);
+        List<Object[]> batchArgs = new ArrayList<>(quantities.size());
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            batchArgs.add(new Object[]{entry.getKey(), entry.getValue(), reason.name(), timestamp});
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, batchArgs);
+    }
+}
@@ -6,5 +6,5 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface OrderProductRepository extends JpaRepository<OrderProduct, OrderProductKey> {
+public interface OrderProductRepository extends JpaRepository<OrderProduct, OrderProductKey>, OrderProductRepositoryCustom {
 }
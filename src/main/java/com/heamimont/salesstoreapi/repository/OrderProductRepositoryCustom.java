@@ -0,0 +1,30 @@
+package com.heamimont.salesstoreapi.repository;
+
+import com.heamimont.salesstoreapi.dto.report.ProductSalesReportDTO;
+import com.heamimont.salesstoreapi.dto.report.SalesPeriodReportDTO;
+import com.heamimont.salesstoreapi.dto.report.UserSalesReportDTO;
+
+import java.util.List;
+
+/**
+ * Sales aggregations over order lines, computed with GROUP BY queries in the database.
+ * Revenue is quantity * selling price and gross margin is quantity * (selling price - actual price),
+ * both using the current product prices, as order lines do not keep the prices they were sold at.
+ */
+public interface OrderProductRepositoryCustom {
+
+    /**
+     * @return one row per product with sales, highest revenue first
+     */
+    List<ProductSalesReportDTO> sumSalesByProduct(SalesReportFilter filter);
+
+    /**
+     * @return one row per user with orders, highest revenue first
+     */
+    List<UserSalesReportDTO> sumSalesByUser(SalesReportFilter filter);
+
+    /**
+     * @return one row per day with sales, oldest first
+     */
+    List<SalesPeriodReportDTO> sumSalesByDay(SalesReportFilter filter);
+}
@@ -0,0 +1,146 @@
+package com.heamimont.salesstoreapi.repository;
+
+import com.heamimont.salesstoreapi.dto.report.ProductSalesReportDTO;
+import com.heamimont.salesstoreapi.dto.report.SalesPeriodReportDTO;
+import com.heamimont.salesstoreapi.dto.report.UserSalesReportDTO;
+import com.heamimont.salesstoreapi.model.Order;
+import com.heamimont.salesstoreapi.model.OrderProduct;
+import com.heamimont.salesstoreapi.model.Product;
+import com.heamimont.salesstoreapi.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.*;
+import org.hibernate.query.criteria.JpaExpression;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * JPA criteria backed implementation of {@link OrderProductRepositoryCustom}.
+ */
+public class OrderProductRepositoryImpl implements OrderProductRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ProductSalesReportDTO> sumSalesByProduct(SalesReportFilter filter) {
+        SalesQuery q = new SalesQuery(filter);
+        Path<Long> productId = q.product.get("id");
+        Path<String> productName = q.product.get("name");
+        q.query.multiselect(productId, productName, q.units, q.revenue, q.margin)
+                .groupBy(productId, productName)
+                .orderBy(q.cb.desc(q.revenue), q.cb.asc(productId));
+
+        return entityManager.createQuery(q.query).getResultList().stream()
+                .map(row -> new ProductSalesReportDTO(
+                        row.get(0, Long.class),
+                        row.get(1, String.class),
+                        units(row.get(2)),
+                        amount(row.get(3)),
+                        amount(row.get(4))))
+                .toList();
+    }
+
+    @Override
+    public List<UserSalesReportDTO> sumSalesByUser(SalesReportFilter filter) {
+        SalesQuery q = new SalesQuery(filter);
+        Path<UUID> userId = q.user().get("id");
+        Path<String> username = q.user().get("username");
+        Expression<Long> orderCount = q.cb.countDistinct(q.order.get("id"));
+        q.query.multiselect(userId, username, orderCount, q.units, q.revenue, q.margin)
+                .groupBy(userId, username)
+                .orderBy(q.cb.desc(q.revenue), q.cb.asc(username));
+
+        return entityManager.createQuery(q.query).getResultList().stream()
+                .map(row -> new UserSalesReportDTO(
+                        row.get(0, UUID.class),
+                        row.get(1, String.class),
+                        row.get(2, Long.class),
+                        units(row.get(3)),
+                        amount(row.get(4)),
+                        amount(row.get(5))))
+                .toList();
+    }
+
+    @Override
+    public List<SalesPeriodReportDTO> sumSalesByDay(SalesReportFilter filter) {
+        SalesQuery q = new SalesQuery(filter);
+        // A SQL cast to date, not just a Java-side type conversion as with Expression.as
+        Expression<LocalDate> day = ((JpaExpression<LocalDateTime>) q.order.<LocalDateTime>get("orderDate")).cast(LocalDate.class);
+        q.query.multiselect(day, q.units, q.revenue, q.margin)
+                .groupBy(day)
+                .orderBy(q.cb.asc(day));
+
+        return entityManager.createQuery(q.query).getResultList().stream()
+                .map(row -> new SalesPeriodReportDTO(
+                        row.get(0, LocalDate.class),
+                        units(row.get(1)),
+                        amount(row.get(2)),
+                        amount(row.get(3))))
+                .toList();
+    }
+
+    private static long units(Object value) {
+        return value == null ? 0 : ((Number) value).longValue();
+    }
+
+    private static BigDecimal amount(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        return value instanceof BigDecimal decimal ? decimal : new BigDecimal(value.toString());
+    }
+
+    /**
+     * Tuple query over order lines joined to their order and product, with the filter applied
+     * and the units, revenue and margin aggregates prepared.
+     */
+    private final class SalesQuery {
+        final CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        final CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        final Root<OrderProduct> line = query.from(OrderProduct.class);
+        final Join<OrderProduct, Order> order = line.join("order");
+        final Join<OrderProduct, Product> product = line.join("product");
+        final Expression<Long> units;
+        final Expression<Number> revenue;
+        final Expression<Number> margin;
+        private Join<Order, User> user;
+
+        SalesQuery(SalesReportFilter filter) {
+            Expression<Integer> quantity = line.get("productQuantity");
+            Expression<Number> sellingPrice = product.get("sellingPrice");
+            Expression<Number> actualPrice = product.get("actualPrice");
+            units = cb.sumAsLong(quantity);
+            revenue = cb.sum(cb.prod(sellingPrice, quantity));
+            margin = cb.sum(cb.prod(cb.diff(sellingPrice, actualPrice), quantity));
+
+            List<Predicate> predicates = new ArrayList<>();
+            if (filter.productName() != null) {
+                predicates.add(cb.like(cb.lower(product.get("name")), "%" + filter.productName().toLowerCase() + "%"));
+            }
+            if (filter.username() != null) {
+                predicates.add(cb.equal(cb.lower(user().get("username")), filter.username().toLowerCase()));
+            }
+            if (filter.startDate() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(order.get("orderDate"), filter.startDate()));
+            }
+            if (filter.endDate() != null) {
+                predicates.add(cb.lessThanOrEqualTo(order.get("orderDate"), filter.endDate()));
+            }
+            query.where(predicates.toArray(new Predicate[0]));
+        }
+
+        Join<Order, User> user() {
+            if (user == null) {
+                user = order.join("user");
+            }
+            return user;
+        }
+    }
+}
@@ -1,19 +1,105 @@
 package com.heamimont.salesstoreapi.repository;
 
 import com.heamimont.salesstoreapi.model.Order;
+import com.heamimont.salesstoreapi.model.OrderStatus;
 import lombok.NonNull;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface OrderRepository extends JpaRepository<Order, UUID>, JpaSpecificationExecutor<Order> {
-    Optional<List<Order>> findOrdersByUser_Username(String username);
-    Optional<List<Order>> findOrdersByUser_Id(UUID id);
+public interface OrderRepository extends JpaRepository<Order, UUID>, JpaSpecificationExecutor<Order>, OrderRepositoryCustom {
+    /*
+     * Derived queries on user properties left join users and filter on the joined side, which leads the plan
+     * with a scan of orders. These filter on orders.user_id instead, resolving a username with a subquery,
+     * so the (user_id, order_date, id) index is used. See RepositoryQueryPlanTest.
+     */
+
+    @Query("SELECT o FROM Order o WHERE o.user.id = (SELECT u.id FROM User u WHERE u.username = :username)")
+    Optional<List<Order>> findOrdersByUser_Username(@Param("username") String username);
+
+    @Query("SELECT o FROM Order o WHERE o.user.id = :id")
+    Optional<List<Order>> findOrdersByUser_Id(@Param("id") UUID id);
+
     @Override
     @NonNull
     Optional<Order> findById(@NonNull UUID orderId);
+
+    /*
+     * The "WithDetails" queries fetch the user, the order lines and their products together with the orders,
+     * so mapping the result to DTOs does not trigger a lazy load per order and per line.
+     * Only one collection is fetched, so the joined result has one row per order line (no cartesian product).
+     */
+
+    @EntityGraph(attributePaths = {"user", "orderProducts", "orderProducts.product"})
+    @Query("SELECT o FROM Order o")
+    List<Order> findAllWithDetails();
+
+    @EntityGraph(attributePaths = {"user", "orderProducts", "orderProducts.product"})
+    @Query("SELECT o FROM Order o WHERE o.user.id = (SELECT u.id FROM User u WHERE u.username = :username)")
+    List<Order> findWithDetailsByUser_Username(@Param("username") String username);
+
+    @EntityGraph(attributePaths = {"user", "orderProducts", "orderProducts.product"})
+    List<Order> findWithDetailsByIdIn(Collection<UUID> ids);
+
+    @EntityGraph(attributePaths = {"user", "orderProducts", "orderProducts.product"})
+    Optional<Order> findWithDetailsById(UUID id);
+
+    /*
+     * Keyset pagination: orders are listed newest first on (order_date, id), and the next page starts strictly
+     * after the last (order_date, id) of the previous one. Backed by the orders (order_date, id) and
+     * (user_id, order_date, id) indexes, so the cost of a page does not depend on how deep the client pages.
+     * Only ids are selected here; the page is then loaded with findWithDetailsByIdIn.
+     */
+
+    @Query("SELECT o.id FROM Order o ORDER BY o.orderDate DESC, o.id DESC")
+    List<UUID> findPageIds(Limit limit);
+
+    @Query("SELECT o.id FROM Order o WHERE (o.orderDate, o.id) < (:orderDate, :id) ORDER BY o.orderDate DESC, o.id DESC")
+    List<UUID> findPageIdsAfter(@Param("orderDate") LocalDateTime orderDate, @Param("id") UUID id, Limit limit);
+
+    @Query("SELECT o.id FROM Order o WHERE o.user.id = :userId ORDER BY o.orderDate DESC, o.id DESC")
+    List<UUID> findPageIdsByUserId(@Param("userId") UUID userId, Limit limit);
+
+    @Query("SELECT o.id FROM Order o WHERE o.user.id = :userId AND (o.orderDate, o.id) < (:orderDate, :id) " +
+            "ORDER BY o.orderDate DESC, o.id DESC")
+    List<UUID> findPageIdsByUserIdAfter(@Param("userId") UUID userId,
+                                        @Param("orderDate") LocalDateTime orderDate,
+                                        @Param("id") UUID id,
+                                        Limit limit);
+
+    /*
+     * Status changes as single set-based UPDATEs, without loading the orders, their lines and products.
+     * They bypass the persistence context, so it is flushed before and cleared after.
+     */
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Order o SET o.status = :status WHERE o.id = :id")
+    int updateStatusById(@Param("id") UUID id, @Param("status") OrderStatus status);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Order o SET o.status = :status WHERE o.id IN :ids")
+    int updateStatusByIdIn(@Param("ids") Collection<UUID> ids, @Param("status") OrderStatus status);
+
+    /*
+     * Orders of the asynchronous intake are created with IDs assigned when they were journaled;
+     * these tell which of them were already placed, and whom an order belongs to.
+     */
+
+    @Query("SELECT o.id FROM Order o WHERE o.id IN :ids")
+    List<UUID> findExistingIds(@Param("ids") Collection<UUID> ids);
+
+    @Query("SELECT o.user.username FROM Order o WHERE o.id = :id")
+    Optional<String> findUsernameById(@Param("id") UUID id);
 }
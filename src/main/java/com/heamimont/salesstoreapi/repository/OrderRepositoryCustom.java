@@ -0,0 +1,73 @@
+package com.heamimont.salesstoreapi.repository;
+
+import com.heamimont.salesstoreapi.model.Order;
+import com.heamimont.salesstoreapi.model.OrderStatus;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Custom order repository operations that are not expressible as Spring Data query methods.
+ */
+public interface OrderRepositoryCustom {
+
+    /**
+     * Streams the orders matching a specification, oldest first, without holding the whole result in memory.
+     * Order ids are read through a forward-only cursor with the given fetch size; each batch of ids is then loaded
+     * together with the user, the order lines and their products, handed to the consumer and detached again.
+     * Must be called within a transaction, and the consumer must not keep references to the orders it receives.
+     *
+     * @param spec the filter to apply, or null for all orders
+     * @param batchSize the JDBC fetch size and the number of orders handed to the consumer at a time
+     * @param consumer receives the orders batch by batch
+     */
+    void streamWithDetails(Specification<Order> spec, int batchSize, Consumer<List<Order>> consumer);
+
+    /**
+     * Inserts new orders and their lines with JDBC batches, bypassing the persistence context:
+     * one batch for the orders and one for the lines. The orders must have their ID, user, date, total cost and status
+     * set, and are not managed afterwards. Must be called within a transaction.
+     *
+     * @param orders the orders to insert
+     */
+    void insertAll(List<Order> orders);
+
+    /**
+     * Locks those of the given orders that are in one of {@code statuses} (SELECT ... FOR UPDATE), so their status can
+     * be changed without a concurrent change slipping in between. Rows are locked in ascending ID order, which
+     * prevents deadlocks between concurrent bulk changes. Must be called within a transaction.
+     *
+     * @return the IDs of the locked orders, in ascending order
+     */
+    List<UUID> lockIdsInStatus(Collection<UUID> ids, Collection<OrderStatus> statuses);
+
+    /**
+     * Locks the next orders that are in one of {@code statuses} and were placed within a date range, like
+     * {@link #lockIdsInStatus(Collection, Collection)}. Orders are visited in ascending ID order; pass the last ID
+     * of the previous call as {@code after} to continue.
+     *
+     * @param startDate orders placed at or after this time, or null for no lower bound
+     * @param endDate orders placed at or before this time, or null for no upper bound
+     * @param after only orders after this ID, or null to start with the first
+     * @param limit the most orders to lock
+     * @return the IDs of the locked orders, in ascending order
+     */
+    List<UUID> lockIdsInStatus(Collection<OrderStatus> statuses, LocalDateTime startDate, LocalDateTime endDate,
+                               UUID after, int limit);
+
+    /**
+     * Claims the oldest PENDING orders for fulfillment: moves up to {@code limit} of them to IN_PROGRESS in a single
+     * statement and returns their IDs. On PostgreSQL the orders are selected with FOR UPDATE SKIP LOCKED, so
+     * concurrent claims skip each other's orders instead of waiting for them, and no order is claimed twice.
+     * Other databases (H2 in development and tests) wait for concurrently claimed orders instead of skipping them.
+     * The persistence context is flushed before and cleared after. Must be called within a transaction.
+     *
+     * @param limit the most orders to claim
+     * @return the IDs of the claimed orders, in no particular order
+     */
+    List<UUID> claimPending(int limit);
+}
@@ -0,0 +1,224 @@
+package com.heamimont.salesstoreapi.repository;
+
+import com.heamimont.salesstoreapi.model.Order;
+import com.heamimont.salesstoreapi.model.OrderProduct;
+import com.heamimont.salesstoreapi.model.OrderStatus;
+import jakarta.persistence.EntityGraph;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.jpa.SpecHints;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * JPA criteria backed implementation of {@link OrderRepositoryCustom}; bulk inserts and row locks use JDBC
+ * on the connection of the surrounding JPA transaction.
+ */
+public class OrderRepositoryImpl implements OrderRepositoryCustom {
+
+    private static final String INSERT_ORDER_SQL =
+            "INSERT INTO orders (id, user_id, order_date, total_cost, status) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String INSERT_ORDER_PRODUCT_SQL =
+            "INSERT INTO order_products (order_id, product_id, product_quantity) VALUES (?, ?, ?)";
+
+    // The oldest PENDING orders, served by the orders (status, order_date) index
+    static final String NEXT_PENDING_SQL =
+            "SELECT id FROM orders WHERE status = 'PENDING' ORDER BY order_date LIMIT ?";
+
+    // PostgreSQL: rows locked by concurrent claims are skipped, and the claimed IDs are returned by the UPDATE itself
+    private static final String CLAIM_SQL_POSTGRES =
+            "UPDATE orders SET status = 'IN_PROGRESS' WHERE status = 'PENDING' AND id IN ("
+                    + NEXT_PENDING_SQL + " FOR UPDATE SKIP LOCKED) RETURNING id";
+
+    // H2 accepts SKIP LOCKED but applies the LIMIT before skipping locked rows, so concurrent claims wait instead.
+    // A claim that waited finds the orders it selected claimed already, and is repeated while orders are pending.
+    private static final String CLAIM_SQL_STANDARD =
+            "SELECT id FROM FINAL TABLE (UPDATE orders SET status = 'IN_PROGRESS' WHERE status = 'PENDING' AND id IN ("
+                    + NEXT_PENDING_SQL + " FOR UPDATE))";
+
+    private static final String ANY_PENDING_SQL = "SELECT COUNT(*) FROM (SELECT 1 FROM orders WHERE status = 'PENDING' LIMIT 1)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    private volatile Boolean postgres;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public OrderRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    @Override
+    public void streamWithDetails(Specification<Order> spec, int batchSize, Consumer<List<Order>> consumer) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Order> root = query.from(Order.class);
+        if (spec != null) {
+            Predicate predicate = spec.toPredicate(root, query, cb);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+        }
+        // orderDate is selected as well, so the ordering stays valid when the specification makes the query distinct
+        query.multiselect(root.get("id"), root.get("orderDate"))
+                .orderBy(cb.asc(root.get("orderDate")), cb.asc(root.get("id")));
+
+        List<UUID> batch = new ArrayList<>(batchSize);
+        try (Stream<Tuple> rows = entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, batchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()) {
+            rows.forEach(row -> {
+                batch.add(row.get(0, UUID.class));
+                if (batch.size() == batchSize) {
+                    emitBatch(batch, consumer);
+                    batch.clear();
+                }
+            });
+        }
+        if (!batch.isEmpty()) {
+            emitBatch(batch, consumer);
+        }
+    }
+
+    private void emitBatch(List<UUID> ids, Consumer<List<Order>> consumer) {
+        EntityGraph<Order> graph = entityManager.createEntityGraph(Order.class);
+        graph.addAttributeNodes("user");
+        graph.addSubgraph("orderProducts", OrderProduct.class).addAttributeNodes("product");
+
+        Map<UUID, Order> ordersById = entityManager
+                .createQuery("SELECT o FROM Order o WHERE o.id IN :ids", Order.class)
+                .setParameter("ids", ids)
+                .setHint(SpecHints.HINT_SPEC_FETCH_GRAPH, graph)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()
+                .collect(Collectors.toMap(Order::getId, Function.identity()));
+
+        consumer.accept(ids.stream().map(ordersById::get).filter(Objects::nonNull).toList());
+        // Detach the batch, so the persistence context does not grow with the result
+        entityManager.clear();
+    }
+
+    @Override
+    public void insertAll(List<Order> orders) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        // Pending entity changes must reach the database before we bypass the persistence context
+        entityManager.flush();
+
+        List<Object[]> orderArgs = new ArrayList<>(orders.size());
+        List<Object[]> lineArgs = new ArrayList<>();
+        for (Order order : orders) {
+            orderArgs.add(new Object[]{order.getId(), order.getUser().getId(), Timestamp.valueOf(order.getOrderDate()),
+                    order.getTotalCost(), order.getStatus().name()});
+            for (OrderProduct line : order.getOrderProducts()) {
+                lineArgs.add(new Object[]{order.getId(), line.getProduct().getId(), line.getProductQuantity()});
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_ORDER_SQL, orderArgs);
+        jdbcTemplate.batchUpdate(INSERT_ORDER_PRODUCT_SQL, lineArgs);
+    }
+
+    @Override
+    public List<UUID> lockIdsInStatus(Collection<UUID> ids, Collection<OrderStatus> statuses) {
+        if (ids.isEmpty() || statuses.isEmpty()) {
+            return List.of();
+        }
+        entityManager.flush();
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("ids", ids)
+                .addValue("statuses", statusNames(statuses));
+        return namedJdbcTemplate.queryForList(
+                "SELECT id FROM orders WHERE id IN (:ids) AND status IN (:statuses) ORDER BY id FOR UPDATE",
+                params, UUID.class);
+    }
+
+    @Override
+    public List<UUID> lockIdsInStatus(Collection<OrderStatus> statuses, LocalDateTime startDate, LocalDateTime endDate,
+                                      UUID after, int limit) {
+        if (statuses.isEmpty()) {
+            return List.of();
+        }
+        entityManager.flush();
+        StringBuilder sql = new StringBuilder("SELECT id FROM orders WHERE status IN (:statuses)");
+        MapSqlParameterSource params = new MapSqlParameterSource("statuses", statusNames(statuses));
+        if (startDate != null) {
+            sql.append(" AND order_date >= :startDate");
+            params.addValue("startDate", Timestamp.valueOf(startDate));
+        }
+        if (endDate != null) {
+            sql.append(" AND order_date <= :endDate");
+            params.addValue("endDate", Timestamp.valueOf(endDate));
+        }
+        if (after != null) {
+            sql.append(" AND id > :after");
+            params.addValue("after", after);
+        }
+        sql.append(" ORDER BY id LIMIT :limit FOR UPDATE");
+        params.addValue("limit", limit);
+        return namedJdbcTemplate.queryForList(sql.toString(), params, UUID.class);
+    }
+
+    @Override
+    public List<UUID> claimPending(int limit) {
+        entityManager.flush();
+        List<UUID> ids;
+        if (isPostgres()) {
+            ids = jdbcTemplate.queryForList(CLAIM_SQL_POSTGRES, UUID.class, limit);
+        } else {
+            ids = new ArrayList<>(limit);
+            while (ids.size() < limit) {
+                List<UUID> claimed = jdbcTemplate.queryForList(CLAIM_SQL_STANDARD, UUID.class, limit - ids.size());
+                ids.addAll(claimed);
+                if (claimed.isEmpty() && jdbcTemplate.queryForObject(ANY_PENDING_SQL, Integer.class) == 0) {
+                    break;
+                }
+            }
+        }
+        // Managed orders may still hold the status before the claim
+        entityManager.clear();
+        return ids;
+    }
+
+    private boolean isPostgres() {
+        Boolean result = postgres;
+        if (result == null) {
+            String productName = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            result = "PostgreSQL".equalsIgnoreCase(productName);
+            postgres = result;
+        }
+        return result;
+    }
+
+    private static List<String> statusNames(Collection<OrderStatus> statuses) {
+        return statuses.stream().map(OrderStatus::name).toList();
+    }
+}
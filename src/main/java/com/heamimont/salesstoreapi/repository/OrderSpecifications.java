@@ -1,30 +1,83 @@
 package com.heamimont.salesstoreapi.repository;
 
 import com.heamimont.salesstoreapi.model.Order;
-import jakarta.persistence.criteria.Join;
+import com.heamimont.salesstoreapi.model.OrderProduct;
+import com.heamimont.salesstoreapi.model.Product;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
 import org.springframework.data.jpa.domain.Specification;
 
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.UUID;
 
 public class OrderSpecifications {
 
+    /**
+     * Orders with a line for a product whose name contains the given value, case-insensitive.
+     * Prefer {@link #hasAnyProductNameContaining(String)}, which does not scan the products per order.
+     */
     public static Specification<Order> hasProductName(String productName) {
         return (root, query, cb) -> {
             assert query != null;
-            query.distinct(true);
-            Join<Order, Object> orderProductsJoin = root.join("orderProducts");
-            Join<Object, Object> productJoin = orderProductsJoin.join("product");
-            return cb.and(
-                cb.like(cb.lower(productJoin.get("name")), "%" + productName.toLowerCase() + "%"),
-                cb.equal(orderProductsJoin.get("order"), root)
-            );
+            // A subquery instead of a join, so orders with several matching lines are not duplicated
+            Subquery<UUID> lines = query.subquery(UUID.class);
+            Root<OrderProduct> line = lines.from(OrderProduct.class);
+            lines.select(line.get("id").get("orderId")).where(
+                    cb.like(cb.lower(line.get("product").get("name")), "%" + productName.toLowerCase() + "%"));
+            return root.get("id").in(lines);
         };
     }
 
+    /**
+     * Orders with a line for a product whose name contains the given value, case-insensitive, like
+     * {@link ProductRepository#findIdsByNameContaining(String)}. The same semi-join as
+     * {@link #hasAnyProductId(Collection)}, with the product IDs selected by a nested subquery
+     * ({@code product_id IN (SELECT id FROM products WHERE ...)}) instead of bound one parameter each, so a name
+     * matching many products stays within the bind parameter limit of the database.
+     */
+    public static Specification<Order> hasAnyProductNameContaining(String fragment) {
+        return (root, query, cb) -> {
+            assert query != null;
+            Subquery<Long> products = query.subquery(Long.class);
+            Root<Product> product = products.from(Product.class);
+            products.select(product.get("id")).where(
+                    cb.like(cb.lower(product.get("name")), "%" + fragment.toLowerCase(Locale.ROOT) + "%"));
+            Subquery<UUID> lines = query.subquery(UUID.class);
+            Root<OrderProduct> line = lines.from(OrderProduct.class);
+            lines.select(line.get("id").get("orderId")).where(line.get("id").get("productId").in(products));
+            return root.get("id").in(lines);
+        };
+    }
+
+    /**
+     * Orders with a line for any of the given products: a semi-join ({@code id IN (SELECT order_id ...)}) on
+     * order_products.product_id, served by idx_order_products_product_id, without joining products or making the
+     * query distinct. The subquery is not correlated, so it runs once instead of once per order.
+     * An empty collection matches no order.
+     */
+    public static Specification<Order> hasAnyProductId(Collection<Long> productIds) {
+        return (root, query, cb) -> {
+            assert query != null;
+            if (productIds.isEmpty()) {
+                return cb.disjunction();
+            }
+            Subquery<UUID> lines = query.subquery(UUID.class);
+            Root<OrderProduct> line = lines.from(OrderProduct.class);
+            lines.select(line.get("id").get("orderId")).where(line.get("id").get("productId").in(productIds));
+            return root.get("id").in(lines);
+        };
+    }
+
+    /**
+     * Case-insensitive username match. Compared with upper(), like the IgnoreCase repository queries,
+     * so the users (upper(username)) index serves both.
+     */
     public static Specification<Order> hasUsername(String username) {
         return (root, query, cb)
-                -> cb.equal(cb.lower(root.get("user").get("username")), username.toLowerCase());
+                -> cb.equal(cb.upper(root.get("user").get("username")), username.toUpperCase(Locale.ROOT));
     }
 
     public static Specification<Order> orderDateAfter(LocalDateTime startDate) {
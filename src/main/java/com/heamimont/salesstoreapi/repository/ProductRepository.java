@@ -2,11 +2,54 @@ package com.heamimont.salesstoreapi.repository;
 
 import com.heamimont.salesstoreapi.model.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
     Optional<Product> findByName(String name);
+
+    List<Product> findAllByNameIn(Collection<String> names);
+
+    @Query("SELECT p.id FROM Product p WHERE p.name IN :names")
+    List<Long> findIdsByNameIn(@Param("names") Collection<String> names);
+
+    /**
+     * Finds the IDs of the products whose name contains {@code fragment}, case-insensitive.
+     * On PostgreSQL the trigram index idx_products_name_trgm serves the infix match.
+     */
+    @Query("SELECT p.id FROM Product p WHERE LOWER(p.name) LIKE CONCAT('%', LOWER(:fragment), '%')")
+    List<Long> findIdsByNameContaining(@Param("fragment") String fragment);
+
+    /**
+     * Atomically decrements the available quantity of a product, but only if enough stock is left.
+     * The check and the write happen in a single guarded UPDATE, so concurrent callers cannot oversell.
+     *
+     * The change version of the product is set to {@code changeVersion} as well.
+     *
+     * @return the number of affected rows (1 if the stock was reserved, 0 if the product is missing or has too little stock)
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Product p SET p.availableQuantity = p.availableQuantity - :quantity, p.changeVersion = :changeVersion " +
+            "WHERE p.id = :id AND p.availableQuantity >= :quantity")
+    int decrementAvailableQuantity(@Param("id") Long id, @Param("quantity") int quantity,
+                                   @Param("changeVersion") long changeVersion);
+
+    @Query("SELECT p.availableQuantity FROM Product p WHERE p.id = :id")
+    Optional<Integer> findAvailableQuantityById(@Param("id") Long id);
+
+    /**
+     * Finds the products changed after {@code since} up to and including {@code until}, served by the change version index.
+     */
+    @Query("SELECT p FROM Product p WHERE p.changeVersion > :since AND p.changeVersion <= :until ORDER BY p.changeVersion")
+    List<Product> findChangedBetween(@Param("since") long since, @Param("until") long until);
+
+    @Query("SELECT COALESCE(MAX(p.changeVersion), 0) FROM Product p")
+    long findMaxChangeVersion();
 }
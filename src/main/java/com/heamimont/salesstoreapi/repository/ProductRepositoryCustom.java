@@ -0,0 +1,99 @@
+package com.heamimont.salesstoreapi.repository;
+
+import com.heamimont.salesstoreapi.model.Product;
+
+import java.util.List;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+/**
+ * Custom product repository operations that are not expressible as Spring Data query methods.
+ */
+public interface ProductRepositoryCustom {
+
+    /**
+     * Decrements the available quantity of several products in a single JDBC batch.
+     * Each statement is guarded by {@code available_quantity >= quantity}, so it only applies when enough stock is left.
+     * The statements are executed in ascending product id order, which makes concurrent orders
+     * acquire row locks in the same order and prevents deadlocks between them.
+     *
+     * @param quantities product ID to quantity, iterated in ascending product ID order
+     * @param changeVersion the change version to set on every updated product
+     * @return affected row counts in the iteration order of {@code quantities}
+     */
+    int[] decrementAvailableQuantities(SortedMap<Long, Integer> quantities, long changeVersion);
+
+    /**
+     * Moves stock of a product from its available quantity to its leased quantity, for the shards of a hot product.
+     * Guarded by {@code available_quantity >= quantity}, like the decrement of an order.
+     *
+     * @param productId the product
+     * @param quantity the quantity to lease
+     * @param changeVersion the change version to set on the product
+     * @return the number of affected rows (0 if the product is missing or has too little stock)
+     */
+    int leaseQuantity(long productId, int quantity, long changeVersion);
+
+    /**
+     * Moves unsold leased stock of a product back to its available quantity.
+     *
+     * @param productId the product
+     * @param quantity the quantity to give back
+     * @param changeVersion the change version to set on the product
+     * @return the number of affected rows (0 if the product was deleted)
+     */
+    int returnLeasedQuantity(long productId, int quantity, long changeVersion);
+
+    /**
+     * Removes sold stock from the leased quantity of several products in a single JDBC batch,
+     * in ascending product id order. The available quantities do not change, but the listed stock did when the
+     * units were sold from the shards, so the products take a new change version.
+     *
+     * @param quantities product ID to quantity sold from the shards
+     * @param changeVersion the change version of the products
+     */
+    void releaseConsumedQuantities(SortedMap<Long, Integer> quantities, long changeVersion);
+
+    /**
+     * Moves the leased quantity of every product back to its available quantity.
+     *
+     * @param changeVersion the change version to set on every updated product
+     * @return the number of updated products
+     */
+    int returnAllLeasedQuantities(long changeVersion);
+
+    /**
+     * Locks the rows of the given products, in ascending product id order.
+     *
+     * @param productIds the products, iterated in ascending order
+     */
+    void lockAll(SortedSet<Long> productIds);
+
+    /**
+     * Adds signed quantities to the available quantities of several products in a single JDBC batch,
+     * in ascending product id order. Unguarded: callers check the stock themselves.
+     *
+     * @param quantities product ID to signed quantity
+     */
+    void addAvailableQuantities(SortedMap<Long, Integer> quantities);
+
+    /**
+     * Gives stock back to the available quantities of several products in a single JDBC batch,
+     * in ascending product id order, e.g. when stock holds expire.
+     *
+     * @param quantities product ID to quantity to give back
+     * @param changeVersion the change version to set on the products
+     */
+    void returnAvailableQuantities(SortedMap<Long, Integer> quantities, long changeVersion);
+
+    /**
+     * Inserts products, or overwrites the description, prices, available quantity and change version of the
+     * products with the same names, in a single JDBC batch in ascending name order. On PostgreSQL each row is an
+     * INSERT ... ON CONFLICT (name) DO UPDATE, so concurrent upserts of a name never fail on its unique constraint;
+     * other databases (H2 in development and tests) use MERGE. The entities are not managed by the persistence context.
+     *
+     * @param products the products; those without an ID get one from the product sequence, which they keep only
+     *                 if no product with their name exists
+     */
+    void upsertAllByName(List<Product> products);
+}
@@ -0,0 +1,200 @@
+package com.heamimont.salesstoreapi.repository;
+
+import com.heamimont.salesstoreapi.model.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+/**
+ * JDBC backed implementation of {@link ProductRepositoryCustom}.
+ * Runs on the connection of the surrounding JPA transaction.
+ */
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    private static final String DECREMENT_QUANTITY_SQL =
+            "UPDATE products SET available_quantity = available_quantity - ?, change_version = ? " +
+                    "WHERE id = ? AND available_quantity >= ?";
+
+    private static final String LEASE_QUANTITY_SQL =
+            "UPDATE products SET available_quantity = available_quantity - ?, leased_quantity = leased_quantity + ?, " +
+                    "change_version = ? WHERE id = ? AND available_quantity >= ?";
+
+    private static final String RETURN_LEASED_QUANTITY_SQL =
+            "UPDATE products SET available_quantity = available_quantity + ?, leased_quantity = leased_quantity - ?, " +
+                    "change_version = ? WHERE id = ?";
+
+    private static final String RELEASE_CONSUMED_QUANTITY_SQL =
+            "UPDATE products SET leased_quantity = leased_quantity - ?, change_version = ? WHERE id = ?";
+
+    private static final String ADD_QUANTITY_SQL =
+            "UPDATE products SET available_quantity = available_quantity + ? WHERE id = ?";
+
+    private static final String RETURN_QUANTITY_SQL =
+            "UPDATE products SET available_quantity = available_quantity + ?, change_version = ? WHERE id = ?";
+
+    private static final String RETURN_ALL_LEASED_QUANTITIES_SQL =
+            "UPDATE products SET available_quantity = available_quantity + leased_quantity, leased_quantity = 0, " +
+                    "change_version = ? WHERE leased_quantity > 0";
+
+    // PostgreSQL: atomic under concurrent upserts of the same name
+    private static final String UPSERT_SQL_POSTGRES =
+            "INSERT INTO products (id, name, description, actual_price, selling_price, available_quantity, change_version) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (name) DO UPDATE SET description = EXCLUDED.description, actual_price = EXCLUDED.actual_price, " +
+            "selling_price = EXCLUDED.selling_price, available_quantity = EXCLUDED.available_quantity, " +
+            "change_version = EXCLUDED.change_version";
+
+    // Standard SQL for other databases (H2 in development and tests)
+    private static final String UPSERT_SQL_STANDARD =
+            "MERGE INTO products p " +
+            "USING (VALUES (CAST(? AS BIGINT), CAST(? AS VARCHAR(50)), CAST(? AS VARCHAR(400)), CAST(? AS NUMERIC(10,2)), " +
+            "CAST(? AS NUMERIC(10,2)), CAST(? AS INTEGER), CAST(? AS BIGINT))) " +
+            "AS s (id, name, description, actual_price, selling_price, available_quantity, change_version) " +
+            "ON p.name = s.name " +
+            "WHEN MATCHED THEN UPDATE SET description = s.description, actual_price = s.actual_price, " +
+            "selling_price = s.selling_price, available_quantity = s.available_quantity, change_version = s.change_version " +
+            "WHEN NOT MATCHED THEN INSERT (id, name, description, actual_price, selling_price, available_quantity, change_version) " +
+            "VALUES (s.id, s.name, s.description, s.actual_price, s.selling_price, s.available_quantity, s.change_version)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private volatile Boolean postgres;
+
+    public ProductRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public int[] decrementAvailableQuantities(SortedMap<Long, Integer> quantities, long changeVersion) {
+        if (quantities.isEmpty()) {
+            return new int[0];
+        }
+        // Pending entity changes must reach the database before we bypass the persistence context
+        entityManager.flush();
+
+        List<Object[]> batchArgs = new ArrayList<>(quantities.size());
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            batchArgs.add(new Object[]{entry.getValue(), changeVersion, entry.getKey(), entry.getValue()});
+        }
+        return jdbcTemplate.batchUpdate(DECREMENT_QUANTITY_SQL, batchArgs);
+    }
+
+    @Override
+    public int leaseQuantity(long productId, int quantity, long changeVersion) {
+        entityManager.flush();
+        return jdbcTemplate.update(LEASE_QUANTITY_SQL, quantity, quantity, changeVersion, productId, quantity);
+    }
+
+    @Override
+    public int returnLeasedQuantity(long productId, int quantity, long changeVersion) {
+        entityManager.flush();
+        return jdbcTemplate.update(RETURN_LEASED_QUANTITY_SQL, quantity, quantity, changeVersion, productId);
+    }
+
+    @Override
+    public void releaseConsumedQuantities(SortedMap<Long, Integer> quantities, long changeVersion) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        entityManager.flush();
+
+        List<Object[]> batchArgs = new ArrayList<>(quantities.size());
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            batchArgs.add(new Object[]{entry.getValue(), changeVersion, entry.getKey()});
+        }
+        jdbcTemplate.batchUpdate(RELEASE_CONSUMED_QUANTITY_SQL, batchArgs);
+    }
+
+    @Override
+    public int returnAllLeasedQuantities(long changeVersion) {
+        entityManager.flush();
+        return jdbcTemplate.update(RETURN_ALL_LEASED_QUANTITIES_SQL, changeVersion);
+    }
+
+    @Override
+    public void lockAll(SortedSet<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(productIds.size(), "?"));
+        jdbcTemplate.queryForList("SELECT id FROM products WHERE id IN (" + placeholders + ") ORDER BY id FOR UPDATE",
+                Long.class, productIds.toArray());
+    }
+
+    @Override
+    public void addAvailableQuantities(SortedMap<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        entityManager.flush();
+
+        List<Object[]> batchArgs = new ArrayList<>(quantities.size());
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            batchArgs.add(new Object[]{entry.getValue(), entry.getKey()});
+        }
+        jdbcTemplate.batchUpdate(ADD_QUANTITY_SQL, batchArgs);
+    }
+
+    @Override
+    public void returnAvailableQuantities(SortedMap<Long, Integer> quantities, long changeVersion) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        entityManager.flush();
+
+        List<Object[]> batchArgs = new ArrayList<>(quantities.size());
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            batchArgs.add(new Object[]{entry.getValue(), changeVersion, entry.getKey()});
+        }
+        jdbcTemplate.batchUpdate(RETURN_QUANTITY_SQL, batchArgs);
+    }
+
+    @Override
+    public void upsertAllByName(List<Product> products) {
+        if (products.isEmpty()) {
+            return;
+        }
+        entityManager.flush();
+
+        // IDs from the generator of the entity, so they never collide with the blocks Hibernate allocates itself
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        BeforeExecutionGenerator generator = (BeforeExecutionGenerator) session.getFactory().getMappingMetamodel()
+                .getEntityDescriptor(Product.class).getGenerator();
+        List<Object[]> batchArgs = new ArrayList<>(products.size());
+        for (Product product : products.stream().sorted(Comparator.comparing(Product::getName)).toList()) {
+            if (product.getId() == null) {
+                product.setId((Long) generator.generate(session, product, null, EventType.INSERT));
+            }
+            batchArgs.add(new Object[]{product.getId(), product.getName(), product.getDescription(),
+                    product.getActualPrice(), product.getSellingPrice(), product.getAvailableQuantity(),
+                    product.getChangeVersion()});
+        }
+        jdbcTemplate.batchUpdate(isPostgres() ? UPSERT_SQL_POSTGRES : UPSERT_SQL_STANDARD, batchArgs);
+    }
+
+    private boolean isPostgres() {
+        Boolean result = postgres;
+        if (result == null) {
+            String productName = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            result = "PostgreSQL".equalsIgnoreCase(productName);
+            postgres = result;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,19 @@
+package com.heamimont.salesstoreapi.repository;
+
+import com.heamimont.salesstoreapi.model.ProductTombstone;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ProductTombstoneRepository extends JpaRepository<ProductTombstone, Long> {
+
+    @Query("SELECT t.productId FROM ProductTombstone t " +
+            "WHERE t.changeVersion > :since AND t.changeVersion <= :until ORDER BY t.changeVersion")
+    List<Long> findDeletedProductIds(long since, long until);
+
+    @Query("SELECT COALESCE(MAX(t.changeVersion), 0) FROM ProductTombstone t")
+    long findMaxChangeVersion();
+}
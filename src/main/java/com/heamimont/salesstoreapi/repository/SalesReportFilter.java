@@ -0,0 +1,37 @@
+package com.heamimont.salesstoreapi.repository;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Filters of the aggregated sales reports; null fields are not applied.
+ * Matching follows {@link OrderSpecifications}, except that the product name selects order lines rather than whole orders.
+ *
+ * @param productName order lines whose product name contains this value, case-insensitive
+ * @param username orders placed by this user, case-insensitive
+ * @param startDate orders placed at or after this time
+ * @param endDate orders placed at or before this time
+ */
+public record SalesReportFilter(String productName, String username, LocalDateTime startDate, LocalDateTime endDate) {
+
+    private static final LocalTime END_OF_DAY = LocalTime.of(23, 59, 59);
+
+    public SalesReportFilter {
+        productName = blankToNull(productName);
+        username = blankToNull(username);
+    }
+
+    /**
+     * Whether the daily product sales rollup can answer a report with this filter: it has no user dimension,
+     * and it holds whole days, so the date range must start at midnight and end at 23:59:59 or later.
+     */
+    public boolean isCoveredByDailyRollup() {
+        return username == null
+                && (startDate == null || startDate.toLocalTime().equals(LocalTime.MIDNIGHT))
+                && (endDate == null || !endDate.toLocalTime().isBefore(END_OF_DAY));
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+}
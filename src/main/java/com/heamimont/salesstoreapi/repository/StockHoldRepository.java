@@ -0,0 +1,38 @@
+package com.heamimont.salesstoreapi.repository;
+
+import com.heamimont.salesstoreapi.model.StockHold;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface StockHoldRepository extends JpaRepository<StockHold, UUID>, StockHoldRepositoryCustom {
+
+    /**
+     * Finds when every hold expires, to schedule the holds again on startup.
+     */
+    @Query("SELECT h.id AS id, h.expiresAt AS expiresAt FROM StockHold h")
+    List<HoldExpiry> findAllExpiries();
+
+    /**
+     * Finds the holds whose deadline passed, whichever instance placed them.
+     */
+    @Query("SELECT h.id FROM StockHold h WHERE h.expiresAt < :now ORDER BY h.expiresAt")
+    List<UUID> findIdsExpiredBefore(LocalDateTime now);
+
+    /**
+     * Finds the holds of a user.
+     */
+    @Query("SELECT h.id FROM StockHold h WHERE h.userId = :userId")
+    List<UUID> findIdsByUserId(UUID userId);
+
+    interface HoldExpiry {
+        UUID getId();
+
+        LocalDateTime getExpiresAt();
+    }
+}
@@ -0,0 +1,35 @@
+package com.heamimont.salesstoreapi.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.UUID;
+
+/**
+ * Stock hold operations on many holds at once, for their expiry.
+ */
+public interface StockHoldRepositoryCustom {
+
+    /**
+     * Locks the rows of the given holds, in ascending id order, so a hold is either expired or converted once.
+     *
+     * @param holdIds the holds
+     * @return the ids of the holds that still exist
+     */
+    List<UUID> lockAll(Collection<UUID> holdIds);
+
+    /**
+     * Sums the quantities held by the given holds, per product.
+     *
+     * @param holdIds the holds
+     * @return product ID to quantity held
+     */
+    SortedMap<Long, Integer> sumQuantities(Collection<UUID> holdIds);
+
+    /**
+     * Deletes the given holds with their items.
+     *
+     * @param holdIds the holds
+     */
+    void deleteWithItems(Collection<UUID> holdIds);
+}
@@ -0,0 +1,60 @@
+package com.heamimont.salesstoreapi.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * JDBC backed implementation of {@link StockHoldRepositoryCustom}.
+ * Runs on the connection of the surrounding JPA transaction.
+ */
+public class StockHoldRepositoryImpl implements StockHoldRepositoryCustom {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public StockHoldRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<UUID> lockAll(Collection<UUID> holdIds) {
+        if (holdIds.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query("SELECT id FROM stock_holds WHERE id IN (" + placeholders(holdIds) + ") ORDER BY id FOR UPDATE",
+                (rs, rowNum) -> rs.getObject(1, UUID.class), holdIds.toArray());
+    }
+
+    @Override
+    public SortedMap<Long, Integer> sumQuantities(Collection<UUID> holdIds) {
+        SortedMap<Long, Integer> quantities = new TreeMap<>();
+        if (holdIds.isEmpty()) {
+            return quantities;
+        }
+        jdbcTemplate.query("SELECT product_id, SUM(quantity) FROM stock_hold_items WHERE hold_id IN (" + placeholders(holdIds) +
+                        ") GROUP BY product_id",
+                rs -> {
+                    quantities.put(rs.getLong(1), rs.getInt(2));
+                }, holdIds.toArray());
+        return quantities;
+    }
+
+    @Override
+    public void deleteWithItems(Collection<UUID> holdIds) {
+        if (holdIds.isEmpty()) {
+            return;
+        }
+        String placeholders = placeholders(holdIds);
+        jdbcTemplate.update("DELETE FROM stock_hold_items WHERE hold_id IN (" + placeholders + ")", holdIds.toArray());
+        jdbcTemplate.update("DELETE FROM stock_holds WHERE id IN (" + placeholders + ")", holdIds.toArray());
+    }
+
+    private static String placeholders(Collection<?> values) {
+        return String.join(", ", Collections.nCopies(values.size(), "?"));
+    }
+}
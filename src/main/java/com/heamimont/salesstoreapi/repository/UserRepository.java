@@ -3,8 +3,11 @@ package com.heamimont.salesstoreapi.repository;
 import com.heamimont.salesstoreapi.model.User;
 import lombok.NonNull;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -12,10 +15,25 @@ import java.util.UUID;
 public interface UserRepository extends JpaRepository<User, UUID> {
     Optional<User> findByUsername(String username);
     Optional<User> findByEmail(String email);
+    List<User> findAllByUsernameIn(Collection<String> usernames);
     boolean existsByUsernameIgnoreCase(String username);
     boolean existsByEmailIgnoreCase(String email);
 
+    @Query("select u.username as username, u.id as id, u.tokenVersion as tokenVersion from User u")
+    List<TokenVersion> findAllTokenVersions();
+
+    @Query("select u.username as username, u.id as id, u.tokenVersion as tokenVersion from User u where u.username = :username")
+    Optional<TokenVersion> findTokenVersionByUsername(String username);
+
     @Override
     @NonNull
     Optional<User> findById(@NonNull UUID id);
+
+    interface TokenVersion {
+        String getUsername();
+
+        UUID getId();
+
+        int getTokenVersion();
+    }
 }
@@ -0,0 +1,148 @@
+package com.heamimont.salesstoreapi.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of verified JWTs and the user details they authenticate, so that a token seen before is neither
+ * parsed nor looked up in the database again.
+ * Tokens are keyed by their SHA-256 hash, and an entry expires at the token's own expiration or after the
+ * configured TTL, whichever comes first. Entries of a user are dropped when the user is changed or deleted.
+ */
+@Component
+public class AuthenticationCache {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Bumped on every invalidation; see stamp()
+    private final AtomicLong invalidations = new AtomicLong();
+    private final int maxSize;
+    private final Duration ttl;
+    private final Clock clock;
+
+    @Autowired
+    public AuthenticationCache(@Value("${security.auth-cache.max-size:10000}") int maxSize,
+                               @Value("${security.auth-cache.ttl:5m}") Duration ttl) {
+        this(maxSize, ttl, Clock.systemUTC());
+    }
+
+    AuthenticationCache(int maxSize, Duration ttl, Clock clock) {
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        this.clock = clock;
+    }
+
+    /**
+     * @return the user details cached for the token, or null if the token is not cached or its entry expired
+     */
+    public UserDetails get(String token) {
+        String key = hash(token);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt() <= clock.millis()) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.userDetails();
+    }
+
+    /**
+     * Returns a stamp to pass to {@link #put} for user details loaded after this call.
+     * If the user is invalidated in between, the put is skipped, so details read before a change
+     * cannot be cached after the change.
+     */
+    public long stamp() {
+        return invalidations.get();
+    }
+
+    /**
+     * Caches the user details of a verified token.
+     *
+     * @param token the verified token
+     * @param userDetails the user details loaded for the token's subject
+     * @param tokenExpiration the token's expiration; the entry never outlives it
+     * @param stamp the value of {@link #stamp()} taken before the user details were loaded
+     */
+    public void put(String token, UserDetails userDetails, Instant tokenExpiration, long stamp) {
+        long now = clock.millis();
+        long expiresAt = Math.min(tokenExpiration.toEpochMilli(), now + ttl.toMillis());
+        if (expiresAt <= now || stamp != invalidations.get()) {
+            return;
+        }
+        if (entries.size() >= maxSize) {
+            evict(now);
+        }
+        entries.put(hash(token), new Entry(userDetails, expiresAt));
+    }
+
+    /**
+     * Drops all cached tokens of a user, right away or, within a transaction, once it has committed.
+     * Dropping after the commit makes sure no request re-caches the user as it was before the change.
+     */
+    public void invalidateAfterCommit(String username) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate(username);
+                }
+            });
+        } else {
+            invalidate(username);
+        }
+    }
+
+    /**
+     * Drops all cached tokens of a user.
+     */
+    public void invalidate(String username) {
+        invalidations.incrementAndGet();
+        entries.values().removeIf(entry -> entry.userDetails().getUsername().equals(username));
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Removes expired entries and, if the cache is still full, a tenth of the remaining ones.
+     */
+    private void evict(long now) {
+        entries.values().removeIf(entry -> entry.expiresAt() <= now);
+        int excess = entries.size() - maxSize + Math.max(1, maxSize / 10);
+        Iterator<String> keys = entries.keySet().iterator();
+        while (excess-- > 0 && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record Entry(UserDetails userDetails, long expiresAt) {
+    }
+}
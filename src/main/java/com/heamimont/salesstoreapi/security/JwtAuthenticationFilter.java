@@ -1,5 +1,6 @@
 package com.heamimont.salesstoreapi.security;
 
+import com.heamimont.salesstoreapi.model.Role;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -10,6 +11,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
@@ -20,6 +22,8 @@ import java.io.IOException;
  * Filter for JWT authentication.
  * It checks the Authorization header for a valid JWT token,
  * extracts the username, and sets the authentication in the security context.
+ * Verified tokens are cached in {@link AuthenticationCache}. In stateless mode (see {@link TokenVersionRegistry})
+ * the authentication is built from the token's claims without loading the user.
  */
 @Component
 @RequiredArgsConstructor
@@ -27,6 +31,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final CustomUserDetailsService userDetailsService;
+    private final AuthenticationCache authenticationCache;
+    private final TokenVersionRegistry tokenVersionRegistry;
     private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
 
     /**
@@ -47,7 +53,6 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
-        final String username;
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
@@ -57,27 +62,53 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         jwt = authHeader.substring(7);
 
         try {
-            username = jwtService.extractUsername(jwt);
-
-            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-
-                if (jwtService.isTokenValid(jwt, userDetails)) {
-                    UsernamePasswordAuthenticationToken authToken =
-                            new UsernamePasswordAuthenticationToken(
-                                    userDetails,
-                                    null,
-                                    userDetails.getAuthorities()
-                            );
-
-                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
-                } else {
-                    // Invalid token
-                    response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Invalid JWT token");
-                    logger.warn("Invalid JWT token for user: {}", username);
-                    return;
+            if (SecurityContextHolder.getContext().getAuthentication() == null) {
+                // A token verified before is served from the cache, without parsing it or reading the user again
+                UserDetails userDetails = authenticationCache.get(jwt);
+
+                if (userDetails == null) {
+                    long stamp = authenticationCache.stamp();
+                    JwtToken token = jwtService.validateAndParse(jwt);
+                    String username = token.subject();
+
+                    if (username == null) {
+                        filterChain.doFilter(request, response);
+                        return;
+                    }
+
+                    if (tokenVersionRegistry.isEnabled() && token.isStateless()) {
+                        // Stateless mode: the role travels in the token and revocation is checked in memory
+                        if (!tokenVersionRegistry.isCurrent(username, token.userId(), token.tokenVersion())) {
+                            response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Invalid JWT token");
+                            logger.warn("Revoked JWT token for user: {}", username);
+                            return;
+                        }
+                        userDetails = User.withUsername(username)
+                                .password("")
+                                .authorities(Role.valueOf(token.role()).getAuthorities())
+                                .build();
+                    } else {
+                        userDetails = userDetailsService.loadUserByUsername(username);
+
+                        if (!jwtService.isTokenValid(token, userDetails)) {
+                            // Invalid token
+                            response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Invalid JWT token");
+                            logger.warn("Invalid JWT token for user: {}", username);
+                            return;
+                        }
+                        authenticationCache.put(jwt, userDetails, token.expiresAt(), stamp);
+                    }
                 }
+
+                UsernamePasswordAuthenticationToken authToken =
+                        new UsernamePasswordAuthenticationToken(
+                                userDetails,
+                                null,
+                                userDetails.getAuthorities()
+                        );
+
+                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authToken);
             }
 
             filterChain.doFilter(request, response);
@@ -2,11 +2,13 @@ package com.heamimont.salesstoreapi.security;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
 import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
@@ -14,22 +16,31 @@ import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 /**
  * Service for handling JWT operations such as token generation, validation, and claim extraction.
  * Uses HS256 algorithm with a secret key defined in application properties.
+ * Tokens are verified by a single parser built at startup; JwtParser is immutable and thread-safe.
  */
 @Service
 public class JwtService {
 
+    static final String ROLE_CLAIM = "role";
+    static final String TOKEN_VERSION_CLAIM = "ver";
+    static final String USER_ID_CLAIM = "uid";
+    private static final String ROLE_PREFIX = "ROLE_";
+
     @Value("${jwt.secret}")
     private String secret;
     private Key signingKey;
+    private JwtParser parser;
 
     @PostConstruct
     public void init() {
         this.signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        this.parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
     }
 
 
@@ -49,6 +60,19 @@ public class JwtService {
         return generateToken(new HashMap<>(), userDetails);
     }
 
+    // Generate token carrying the user's ID, role and token version, for stateless authentication
+    public String generateToken(UserDetails userDetails, UUID userId, int tokenVersion) {
+        Map<String, Object> claims = new HashMap<>();
+        userDetails.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .filter(authority -> authority.startsWith(ROLE_PREFIX))
+                .findFirst()
+                .ifPresent(authority -> claims.put(ROLE_CLAIM, authority.substring(ROLE_PREFIX.length())));
+        claims.put(USER_ID_CLAIM, userId.toString());
+        claims.put(TOKEN_VERSION_CLAIM, tokenVersion);
+        return generateToken(claims, userDetails);
+    }
+
     // Generate token with extra claims
     public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
         return Jwts
@@ -61,33 +85,45 @@ public class JwtService {
                 .compact();
     }
 
+    /**
+     * Parses a token and verifies its signature and expiration in one pass.
+     *
+     * @param token the compact JWT
+     * @return the verified token
+     * @throws io.jsonwebtoken.ExpiredJwtException if the token has expired
+     * @throws io.jsonwebtoken.JwtException if the token is malformed or its signature does not match
+     */
+    public JwtToken validateAndParse(String token) {
+        Claims claims = extractAllClaims(token);
+        Date expiration = claims.getExpiration();
+        Integer tokenVersion = claims.get(TOKEN_VERSION_CLAIM, Integer.class);
+        String userId = claims.get(USER_ID_CLAIM, String.class);
+        return new JwtToken(
+                claims.getSubject(),
+                userId == null ? null : UUID.fromString(userId),
+                claims.get(ROLE_CLAIM, String.class),
+                tokenVersion == null ? -1 : tokenVersion,
+                expiration == null ? 0L : expiration.getTime());
+    }
+
+    // Validate an already verified token against the user it claims to belong to
+    public boolean isTokenValid(JwtToken token, UserDetails userDetails) {
+        return token.subject() != null
+                && token.subject().equals(userDetails.getUsername())
+                && !token.isExpired(System.currentTimeMillis());
+    }
+
     // Validate token
     public boolean isTokenValid(String token, UserDetails userDetails) {
         try {
-            final String username = extractUsername(token);
-            return username.equals(userDetails.getUsername()) && !isTokenExpired(token);
+            return isTokenValid(validateAndParse(token), userDetails);
         } catch (ExpiredJwtException e) {
             return false; // Token is expired
         }
     }
 
-    // Check if token is expired
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
-    // Get expiration date from token
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
-    }
-
-    // Parse and return all claims from token
+    // Parse and return all claims from token, verifying its signature and expiration
     private Claims extractAllClaims(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(signingKey)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parser.parseClaimsJws(token).getBody();
     }
 }
@@ -0,0 +1,32 @@
+package com.heamimont.salesstoreapi.security;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Immutable view of a verified JWT, holding only the claims the application reads.
+ * The expiration is kept as epoch milliseconds, so checking it needs no Date objects.
+ *
+ * @param subject the username the token was issued to
+ * @param userId the user ID claim, or null if the token has none
+ * @param role the role claim, or null if the token has none
+ * @param tokenVersion the token version claim, or -1 if the token has none
+ * @param expiresAtMillis the expiration as epoch milliseconds, or 0 if the token has none
+ */
+public record JwtToken(String subject, UUID userId, String role, int tokenVersion, long expiresAtMillis) {
+
+    /**
+     * @return true if the token carries the user ID, role and token version, so it can be trusted without a user lookup
+     */
+    public boolean isStateless() {
+        return userId != null && role != null && tokenVersion >= 0;
+    }
+
+    public boolean isExpired(long nowMillis) {
+        return expiresAtMillis <= nowMillis;
+    }
+
+    public Instant expiresAt() {
+        return Instant.ofEpochMilli(expiresAtMillis);
+    }
+}
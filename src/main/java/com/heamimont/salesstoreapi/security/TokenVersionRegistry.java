@@ -0,0 +1,140 @@
+package com.heamimont.salesstoreapi.security;
+
+import com.heamimont.salesstoreapi.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory map of the current token version of every user, used by the opt-in stateless authentication mode
+ * (security.jwt.stateless=true). In that mode tokens carry the user's ID, role and token version, and a token is
+ * accepted only while its user ID and version match the ones registered here, so no user lookup is needed per request.
+ * Versions restart at 0 for a new user, so a username deleted and registered again only tells the users apart by
+ * their IDs: a token of the former user never matches the new one.
+ * The map is loaded at startup and kept current by UserService after each committed change; users missing from it
+ * are looked up in the database once.
+ */
+@Component
+public class TokenVersionRegistry {
+
+    // Registered for deleted or renamed users; never matches a token, as tokens always carry a user ID
+    private static final Version REVOKED = new Version(null, -1);
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenVersionRegistry.class);
+
+    private final Map<String, Version> versions = new ConcurrentHashMap<>();
+    private final UserRepository userRepository;
+    private final boolean enabled;
+
+    public TokenVersionRegistry(UserRepository userRepository,
+                                @Value("${security.jwt.stateless:false}") boolean enabled) {
+        this.userRepository = userRepository;
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return true if tokens are issued with role and version claims and trusted without a user lookup
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Loads the token versions of all users.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        List<UserRepository.TokenVersion> rows = userRepository.findAllTokenVersions();
+        rows.forEach(row -> versions.merge(row.getUsername(), Version.of(row), TokenVersionRegistry::latest));
+        logger.info("[Token Versions] Loaded token versions of {} user(s)", rows.size());
+    }
+
+    /**
+     * Returns the current token version of a user.
+     *
+     * @param username the username
+     * @return the user ID and token version, or empty if the user does not exist
+     */
+    public Optional<Version> currentVersion(String username) {
+        Version version = versions.get(username);
+        if (version == null) {
+            // Created after startup and not registered yet; not cached when the user does not exist
+            version = userRepository.findTokenVersionByUsername(username)
+                    .map(row -> versions.merge(username, Version.of(row), TokenVersionRegistry::latest))
+                    .orElse(null);
+        }
+        return version == null || version == REVOKED ? Optional.empty() : Optional.of(version);
+    }
+
+    /**
+     * Checks whether a token was issued to the current user of its username, with the current token version.
+     */
+    public boolean isCurrent(String username, UUID userId, int tokenVersion) {
+        return currentVersion(username)
+                .filter(current -> current.userId().equals(userId) && current.version() == tokenVersion)
+                .isPresent();
+    }
+
+    /**
+     * Registers the token version of a user once the current transaction commits.
+     */
+    public void registerAfterCommit(String username, UUID userId, int tokenVersion) {
+        if (enabled) {
+            afterCommit(() -> versions.put(username, new Version(userId, tokenVersion)));
+        }
+    }
+
+    /**
+     * Rejects all tokens issued for a username once the current transaction commits.
+     */
+    public void revokeAfterCommit(String username) {
+        if (enabled) {
+            afterCommit(() -> versions.put(username, REVOKED));
+        }
+    }
+
+    // Keeps a registered entry over one read from the database, unless it is an older version of the same user
+    private static Version latest(Version registered, Version read) {
+        return Objects.equals(registered.userId(), read.userId()) && read.version() > registered.version()
+                ? read
+                : registered;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * The token version of a user, with the user ID it belongs to.
+     */
+    public record Version(UUID userId, int version) {
+
+        static Version of(UserRepository.TokenVersion row) {
+            return new Version(row.getId(), row.getTokenVersion());
+        }
+    }
+}
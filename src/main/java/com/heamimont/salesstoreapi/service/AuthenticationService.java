@@ -8,6 +8,7 @@ import com.heamimont.salesstoreapi.exceptions.BadCredentialsException;
 import com.heamimont.salesstoreapi.mapper.UserMapper;
 import com.heamimont.salesstoreapi.dto.user.UserResponseDTO;
 import com.heamimont.salesstoreapi.security.JwtService;
+import com.heamimont.salesstoreapi.security.TokenVersionRegistry;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -31,6 +32,7 @@ public class AuthenticationService {
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
     private final UserDetailsService userDetailsService;
+    private final TokenVersionRegistry tokenVersionRegistry;
 
     /**
      * Handles user registration and JWT token issuance.
@@ -49,7 +51,7 @@ public class AuthenticationService {
 
         // Load UserDetails for token generation
         UserDetails userDetails = userDetailsService.loadUserByUsername(savedUserDTO.getUsername());
-        String jwtToken = jwtService.generateToken(userDetails);
+        String jwtToken = issueToken(userDetails);
 
         return new AuthResponse(jwtToken);
     }
@@ -74,11 +76,21 @@ public class AuthenticationService {
 
             // Generate token
             UserDetails userDetails = userDetailsService.loadUserByUsername(request.getUsername());
-            String jwtToken = jwtService.generateToken(userDetails);
+            String jwtToken = issueToken(userDetails);
 
             return new AuthResponse(jwtToken);
         } catch (AuthenticationException ex) {
             throw new BadCredentialsException("Invalid username or password", ex);
         }
     }
+
+    // In stateless mode the token carries the ID, role and current token version of the user
+    private String issueToken(UserDetails userDetails) {
+        if (!tokenVersionRegistry.isEnabled()) {
+            return jwtService.generateToken(userDetails);
+        }
+        return tokenVersionRegistry.currentVersion(userDetails.getUsername())
+                .map(current -> jwtService.generateToken(userDetails, current.userId(), current.version()))
+                .orElseGet(() -> jwtService.generateToken(userDetails));
+    }
 }
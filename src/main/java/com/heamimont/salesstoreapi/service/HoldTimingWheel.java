@@ -0,0 +1,120 @@
+package com.heamimont.salesstoreapi.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Hierarchical timing wheel of hold deadlines, see {@link StockHoldService}.
+ * <p>
+ * Time is cut into ticks. Each of the {@value #LEVELS} levels has {@value #WHEEL_SIZE} slots, a slot of level n
+ * spanning WHEEL_SIZE^n ticks, so the wheel covers WHEEL_SIZE^LEVELS ticks ahead. A deadline goes to the lowest
+ * level whose span reaches it, into the slot its tick falls in. Every tick expires one slot of level 0; when a
+ * higher level slot comes due, its deadlines are spread over the levels below. Scheduling is O(1) and every
+ * deadline is moved at most LEVELS - 1 times before it expires, whatever the number of pending deadlines.
+ * <p>
+ * Deadlines are not cancelled: a hold converted or released early stays in the wheel until its deadline, and is
+ * then skipped by the caller.
+ */
+final class HoldTimingWheel {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+
+    private final long tickMillis;
+    private final List<List<Entry>> slots;
+    // The last tick that was expired
+    private long currentTick;
+    private int size;
+
+    HoldTimingWheel(long tickMillis, long nowMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("The tick must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = nowMillis / tickMillis;
+        this.slots = new ArrayList<>(LEVELS * WHEEL_SIZE);
+        for (int i = 0; i < LEVELS * WHEEL_SIZE; i++) {
+            slots.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * @return how far ahead deadlines can be scheduled, in milliseconds
+     */
+    long rangeMillis() {
+        return (1L << (WHEEL_BITS * LEVELS)) * tickMillis;
+    }
+
+    /**
+     * Schedules a deadline. A deadline already passed expires on the next tick.
+     *
+     * @param id the hold
+     * @param deadlineMillis when the hold expires, in epoch milliseconds
+     * @throws IllegalArgumentException if the deadline is beyond {@link #rangeMillis()}
+     */
+    synchronized void schedule(UUID id, long deadlineMillis) {
+        // Rounded up, so a hold never expires before its deadline
+        long deadlineTick = Math.max(Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis), currentTick + 1);
+        if (deadlineTick - currentTick >= 1L << (WHEEL_BITS * LEVELS)) {
+            throw new IllegalArgumentException("The deadline is beyond the range of the timing wheel");
+        }
+        place(new Entry(id, deadlineTick));
+        size++;
+    }
+
+    /**
+     * Advances the wheel to the given time.
+     *
+     * @param nowMillis the current time, in epoch milliseconds
+     * @return the holds whose deadline passed, in deadline order
+     */
+    synchronized List<UUID> advance(long nowMillis) {
+        long targetTick = nowMillis / tickMillis;
+        List<UUID> expired = new ArrayList<>();
+        while (currentTick < targetTick) {
+            currentTick++;
+            // Higher levels first, so their deadlines due this tick reach level 0 before it is expired
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (WHEEL_BITS * level)) - 1)) == 0) {
+                    List<Entry> due = slot(level, currentTick);
+                    List<Entry> cascaded = new ArrayList<>(due);
+                    due.clear();
+                    cascaded.forEach(this::place);
+                }
+            }
+            List<Entry> due = slot(0, currentTick);
+            for (Entry entry : due) {
+                expired.add(entry.id());
+            }
+            size -= due.size();
+            due.clear();
+        }
+        return expired;
+    }
+
+    /**
+     * @return the number of scheduled deadlines
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    private void place(Entry entry) {
+        long delta = entry.deadlineTick() - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (WHEEL_BITS * (level + 1))) {
+            level++;
+        }
+        slot(level, entry.deadlineTick()).add(entry);
+    }
+
+    private List<Entry> slot(int level, long tick) {
+        return slots.get(level * WHEEL_SIZE + (int) ((tick >>> (WHEEL_BITS * level)) & WHEEL_MASK));
+    }
+
+    private record Entry(UUID id, long deadlineTick) {
+    }
+}
@@ -0,0 +1,419 @@
+package com.heamimont.salesstoreapi.service;
+
+import com.heamimont.salesstoreapi.model.HotStockConsumption;
+import com.heamimont.salesstoreapi.repository.DailyProductSalesRepository;
+import com.heamimont.salesstoreapi.repository.HotStockConsumptionRepository;
+import com.heamimont.salesstoreapi.repository.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serves the stock of hot products from memory, so that concurrent orders of one product stop queueing on its row lock.
+ * <p>
+ * Every stock reservation that goes to the database counts how many others of the same product are in flight; one
+ * that finds products.hot-stock.contention-threshold or more counts as contended. A product with
+ * products.hot-stock.promote-after contended reservations within a products.hot-stock.window becomes hot: blocks of
+ * products.hot-stock.lease-size units per shard are moved from its available quantity to its leased quantity and
+ * spread across products.hot-stock.shards in-memory counters ({@link HotStockShards}). Orders then take their units
+ * from the counters with a compare-and-set and record the sale with an insert into hot_stock_consumption, so the row
+ * is only written once per block, by a single lease thread. Every products.hot-stock.flush-interval the recorded sales
+ * are removed from the leased quantities and added to the daily sales rollup in one batch, which also gives the sold
+ * products a new change version for the delta sync. Reservations that roll back give their units back to the
+ * counters. A product that has no reservation within a window, runs out of stock, or is changed by an admin is
+ * demoted and its unsold units go back to its available quantity.
+ * <p>
+ * While a product is hot its available quantity excludes the units held in memory; they are added back wherever
+ * the stock is listed (see {@link ProductCatalog#addStockSource}), and {@link OrderBatchService} releases the hot
+ * products it orders, as it checks the stock of a whole chunk against the rows. Leases belong to this instance:
+ * on startup every leased quantity is returned to the available one, so the mode must only be enabled when a single
+ * instance serves the database.
+ */
+@Service
+public class HotStockService {
+
+    private static final Logger logger = LoggerFactory.getLogger(HotStockService.class);
+
+    private static final int FLUSH_BATCH_SIZE = 1000;
+
+    private final ProductRepository productRepository;
+    private final HotStockConsumptionRepository hotStockConsumptionRepository;
+    private final DailyProductSalesRepository dailyProductSalesRepository;
+    private final ProductChangeLog productChangeLog;
+    private final ProductCatalog productCatalog;
+    private final TransactionTemplate transactionTemplate;
+    // Leases and returns of units run on this thread in their own transactions, never on an order's thread,
+    // so an order never waits for a second connection while holding one
+    private final ExecutorService leaseExecutor;
+
+    private final ConcurrentMap<Long, HotStockShards> hotProducts = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Contention> contention = new ConcurrentHashMap<>();
+
+    @Value("${products.hot-stock.enabled:false}")
+    private boolean enabled;
+
+    @Value("${products.hot-stock.shards:8}")
+    private int shardCount;
+
+    @Value("${products.hot-stock.lease-size:50}")
+    private int leaseSize;
+
+    @Value("${products.hot-stock.contention-threshold:4}")
+    private int contentionThreshold;
+
+    @Value("${products.hot-stock.promote-after:100}")
+    private long promoteAfter;
+
+    public HotStockService(ProductRepository productRepository,
+                           HotStockConsumptionRepository hotStockConsumptionRepository,
+                           DailyProductSalesRepository dailyProductSalesRepository,
+                           ProductChangeLog productChangeLog,
+                           ProductCatalog productCatalog,
+                           PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.hotStockConsumptionRepository = hotStockConsumptionRepository;
+        this.dailyProductSalesRepository = dailyProductSalesRepository;
+        this.productChangeLog = productChangeLog;
+        this.productCatalog = productCatalog;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.leaseExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hot-stock-lease");
+            thread.setDaemon(true);
+            return thread;
+        });
+        productCatalog.addStockSource(this::availableInMemory);
+    }
+
+    /**
+     * Returns the stock leased before the last shutdown or crash, once its recorded sales are flushed.
+     */
+    @PostConstruct
+    public void reconcile() {
+        flushAll();
+        int returned = transactionTemplate.execute(status -> {
+            int updated = productRepository.returnAllLeasedQuantities(productChangeLog.allocate());
+            productCatalog.invalidateAfterCommit();
+            return updated;
+        });
+        if (returned > 0) {
+            logger.info("[Hot Stock] Returned the leased stock of {} product(s)", returned);
+        }
+    }
+
+    /**
+     * Demotes every hot product and waits for its units to be returned.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        hotProducts.forEach((productId, shards) -> runOnLeaseThread(() -> demote(productId, shards)));
+        leaseExecutor.shutdown();
+        if (!leaseExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+            logger.warn("[Hot Stock] Leased stock not returned on shutdown, it is returned on the next startup");
+        }
+        flushAll();
+    }
+
+    /**
+     * Reserves the lines of hot products from memory, within the current transaction. The sales are recorded in
+     * hot_stock_consumption, and given back to memory if the transaction rolls back. The other lines are counted
+     * for contention, and must be reserved from the database by the caller.
+     *
+     * @param quantities product ID to quantity, all positive
+     * @param saleDate the day of the sale, whose rollup the flush adds the lines reserved from memory to;
+     *                 null for stock that is not sold, such as a hold
+     * @return the lines reserved from memory
+     */
+    public SortedMap<Long, Integer> reserve(SortedMap<Long, Integer> quantities, LocalDate saleDate) {
+        SortedMap<Long, Integer> reserved = new TreeMap<>();
+        if (!enabled || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return reserved;
+        }
+        List<Contention> tracked = new ArrayList<>();
+        for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+            HotStockShards shards = hotProducts.get(line.getKey());
+            if (shards != null && shards.take(line.getValue())) {
+                reserved.put(line.getKey(), line.getValue());
+                if (shards.available() < shardCount * leaseSize / 2) {
+                    requestRefill(line.getKey(), shards);
+                }
+            } else {
+                if (shards != null) {
+                    requestRefill(line.getKey(), shards);
+                }
+                tracked.add(track(line.getKey()));
+            }
+        }
+
+        if (!tracked.isEmpty()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    tracked.forEach(c -> c.inFlight.decrementAndGet());
+                }
+            });
+        }
+        if (!reserved.isEmpty()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        reserved.forEach(HotStockService.this::giveBack);
+                    }
+                }
+            });
+            hotStockConsumptionRepository.insertAll(reserved, saleDate);
+            productCatalog.invalidateAfterCommit();
+        }
+        return reserved;
+    }
+
+    /**
+     * Demotes a hot product within the current transaction, returning its unsold units to its available quantity.
+     * Must be called before an admin change loads the product, so the change sees the returned units.
+     *
+     * @param productIds the products about to be changed
+     */
+    public void release(Collection<Long> productIds) {
+        for (Long productId : productIds) {
+            HotStockShards shards = hotProducts.remove(productId);
+            if (shards == null) {
+                continue;
+            }
+            int drained = shards.deactivate();
+            if (drained > 0) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        if (status != STATUS_COMMITTED) {
+                            runOnLeaseThread(() -> returnToRow(productId, drained));
+                        }
+                    }
+                });
+                productRepository.returnLeasedQuantity(productId, drained, productChangeLog.allocate());
+                productCatalog.invalidateAfterCommit();
+            }
+            logger.info("[Hot Stock] Product ({}) released, {} unit(s) returned", productId, drained);
+        }
+    }
+
+    /**
+     * Makes a product hot, whatever its contention.
+     */
+    public void promote(Long productId) {
+        if (!enabled) {
+            return;
+        }
+        HotStockShards shards = new HotStockShards(shardCount, units -> runOnLeaseThread(() -> returnToRow(productId, units)));
+        if (hotProducts.putIfAbsent(productId, shards) == null) {
+            logger.info("[Hot Stock] Product ({}) promoted", productId);
+            requestRefill(productId, shards);
+        }
+    }
+
+    public boolean isHot(Long productId) {
+        return hotProducts.containsKey(productId);
+    }
+
+    /**
+     * @return the units of a product held in memory, 0 if it is not hot
+     */
+    public int availableInMemory(Long productId) {
+        HotStockShards shards = hotProducts.get(productId);
+        return shards == null ? 0 : shards.available();
+    }
+
+    /**
+     * Closes a contention window: promotes the contended products, demotes the idle hot ones and rebalances the rest.
+     */
+    @Scheduled(fixedDelayString = "${products.hot-stock.window:10s}")
+    public void evaluate() {
+        if (!enabled) {
+            return;
+        }
+        hotProducts.forEach((productId, shards) -> {
+            if (shards.reservationsThenReset() == 0) {
+                runOnLeaseThread(() -> demote(productId, shards));
+            } else {
+                shards.rebalance();
+            }
+        });
+        contention.forEach((productId, c) -> {
+            long contended = c.contended.sumThenReset();
+            if (contended >= promoteAfter) {
+                promote(productId);
+            }
+            if (contended == 0 && c.inFlight.get() == 0) {
+                contention.remove(productId, c);
+            }
+        });
+    }
+
+    /**
+     * Removes the sales recorded since the last flush from the leased quantities and adds them to the daily rollup.
+     */
+    @Scheduled(fixedDelayString = "${products.hot-stock.flush-interval:1s}")
+    public void flushConsumption() {
+        if (enabled) {
+            flushAll();
+        }
+    }
+
+    private void flushAll() {
+        while (flush() == FLUSH_BATCH_SIZE) {
+            // More sales are waiting
+        }
+    }
+
+    /**
+     * Flushes one batch of recorded sales.
+     *
+     * @return the number of sales flushed
+     */
+    private int flush() {
+        return transactionTemplate.execute(status -> {
+            List<HotStockConsumption> sales = hotStockConsumptionRepository.findOldest(Limit.of(FLUSH_BATCH_SIZE));
+            if (sales.isEmpty()) {
+                return 0;
+            }
+            SortedMap<Long, Integer> consumed = new TreeMap<>();
+            Map<LocalDate, SortedMap<Long, Integer>> soldByDay = new TreeMap<>();
+            List<Long> ids = new ArrayList<>(sales.size());
+            for (HotStockConsumption sale : sales) {
+                consumed.merge(sale.getProductId(), sale.getQuantity(), Integer::sum);
+                if (sale.getSaleDate() != null) {
+                    soldByDay.computeIfAbsent(sale.getSaleDate(), day -> new TreeMap<>())
+                            .merge(sale.getProductId(), sale.getQuantity(), Integer::sum);
+                }
+                ids.add(sale.getId());
+            }
+            productRepository.releaseConsumedQuantities(consumed, productChangeLog.allocate());
+            // One increment per product and day for the whole batch, instead of one per order on the hot rollup row
+            soldByDay.forEach(dailyProductSalesRepository::addUnitsSold);
+            hotStockConsumptionRepository.deleteAllByIdInBatch(ids);
+            return sales.size();
+        });
+    }
+
+    private Contention track(Long productId) {
+        Contention c = contention.computeIfAbsent(productId, id -> new Contention());
+        if (c.inFlight.getAndIncrement() >= contentionThreshold) {
+            c.contended.increment();
+        }
+        return c;
+    }
+
+    private void giveBack(Long productId, int quantity) {
+        HotStockShards shards = hotProducts.get(productId);
+        if (shards == null || !shards.giveBack(quantity)) {
+            runOnLeaseThread(() -> returnToRow(productId, quantity));
+        }
+    }
+
+    private void requestRefill(Long productId, HotStockShards shards) {
+        if (shards.refillPending.compareAndSet(false, true)) {
+            runOnLeaseThread(() -> refill(productId, shards));
+        }
+    }
+
+    private void runOnLeaseThread(Runnable task) {
+        try {
+            leaseExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Shutting down: units not returned now are returned on the next startup
+            logger.warn("[Hot Stock] Lease thread stopped, task dropped");
+        }
+    }
+
+    /**
+     * Tops the counters of a hot product up to a full lease from its row, or demotes it once the row is empty.
+     * Runs on the lease thread.
+     */
+    private void refill(Long productId, HotStockShards shards) {
+        try {
+            int wanted = shardCount * leaseSize - shards.available();
+            if (!shards.isActive() || wanted <= 0) {
+                return;
+            }
+            int leased = transactionTemplate.execute(status -> {
+                int quantity = Math.min(wanted, productRepository.findAvailableQuantityById(productId).orElse(0));
+                if (quantity == 0 || productRepository.leaseQuantity(productId, quantity, productChangeLog.allocate()) == 0) {
+                    return 0;
+                }
+                return quantity;
+            });
+            if (leased == 0) {
+                demote(productId, shards);
+            } else if (shards.add(leased)) {
+                // Rebuilt once the units are in the counters, so the listing never misses them
+                productCatalog.invalidateAfterCommit();
+            } else {
+                returnToRow(productId, leased);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("[Hot Stock] Lease of product ({}) failed: {}", productId, e.getMessage());
+        } finally {
+            shards.refillPending.set(false);
+        }
+    }
+
+    /**
+     * Stops serving a product from memory and returns its unsold units. Runs on the lease thread.
+     */
+    private void demote(Long productId, HotStockShards shards) {
+        if (!hotProducts.remove(productId, shards)) {
+            return;
+        }
+        int drained = shards.deactivate();
+        if (drained > 0) {
+            returnToRow(productId, drained);
+        }
+        logger.info("[Hot Stock] Product ({}) demoted, {} unit(s) returned", productId, drained);
+    }
+
+    private void returnToRow(Long productId, int quantity) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                productRepository.returnLeasedQuantity(productId, quantity, productChangeLog.allocate());
+                productCatalog.invalidateAfterCommit();
+            });
+        } catch (RuntimeException e) {
+            // Still counted in the leased quantity, returned on the next startup
+            logger.warn("[Hot Stock] Return of {} unit(s) of product ({}) failed: {}", quantity, productId, e.getMessage());
+        }
+    }
+
+    /**
+     * Database reservations of a product in flight, and how many of them started contended in the current window.
+     */
+    private static final class Contention {
+        final AtomicInteger inFlight = new AtomicInteger();
+        final LongAdder contended = new LongAdder();
+    }
+}
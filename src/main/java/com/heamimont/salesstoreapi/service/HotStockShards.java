@@ -0,0 +1,178 @@
+package com.heamimont.salesstoreapi.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+
+/**
+ * The stock of one hot product leased into memory, split across counters so that concurrent orders rarely
+ * compare-and-set the same one. Orders take from the counters without locking. Adding stock, giving stock back,
+ * rebalancing and deactivating synchronize on the instance, so no unit can be put into a deactivated instance:
+ * units that arrive after deactivation go to the {@code orphaned} callback instead, which returns them to the row.
+ */
+final class HotStockShards {
+
+    private final AtomicInteger[] shards;
+    private final IntConsumer orphaned;
+    // Reservations served since the last evaluation window
+    private final LongAdder reservations = new LongAdder();
+    final AtomicBoolean refillPending = new AtomicBoolean();
+    private volatile boolean active = true;
+
+    HotStockShards(int shardCount, IntConsumer orphaned) {
+        this.shards = new AtomicInteger[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new AtomicInteger();
+        }
+        this.orphaned = orphaned;
+    }
+
+    /**
+     * Takes {@code quantity} units, from a single counter if one holds enough, otherwise gathered from several.
+     *
+     * @return false if the counters together hold too little, or the instance is deactivated
+     */
+    boolean take(int quantity) {
+        if (!active) {
+            return false;
+        }
+        int count = shards.length;
+        int start = ThreadLocalRandom.current().nextInt(count);
+        for (int i = 0; i < count; i++) {
+            if (takeUpTo(shards[(start + i) % count], quantity, true) == quantity) {
+                reservations.increment();
+                return true;
+            }
+        }
+
+        int[] taken = new int[count];
+        int total = 0;
+        for (int i = 0; i < count && total < quantity; i++) {
+            int shard = (start + i) % count;
+            taken[shard] = takeUpTo(shards[shard], quantity - total, false);
+            total += taken[shard];
+        }
+        if (total == quantity) {
+            reservations.increment();
+            return true;
+        }
+        if (total > 0) {
+            putBack(taken, total);
+        }
+        return false;
+    }
+
+    /**
+     * Gives back units of a reservation that was rolled back.
+     *
+     * @return false if the instance is deactivated, in which case the caller owns the units
+     */
+    synchronized boolean giveBack(int quantity) {
+        if (!active) {
+            return false;
+        }
+        shards[ThreadLocalRandom.current().nextInt(shards.length)].addAndGet(quantity);
+        return true;
+    }
+
+    /**
+     * Adds leased units, spread evenly across the counters.
+     *
+     * @return false if the instance is deactivated, in which case the caller owns the units
+     */
+    synchronized boolean add(int quantity) {
+        if (!active) {
+            return false;
+        }
+        spread(quantity);
+        return true;
+    }
+
+    /**
+     * Spreads the units evenly again, so that orders keep finding a counter that can serve them alone.
+     */
+    synchronized void rebalance() {
+        if (!active) {
+            return;
+        }
+        int total = 0;
+        for (AtomicInteger shard : shards) {
+            total += shard.getAndSet(0);
+        }
+        spread(total);
+    }
+
+    /**
+     * Stops serving orders and drains the counters.
+     *
+     * @return the units drained, owned by the caller
+     */
+    synchronized int deactivate() {
+        active = false;
+        int total = 0;
+        for (AtomicInteger shard : shards) {
+            total += shard.getAndSet(0);
+        }
+        return total;
+    }
+
+    int available() {
+        int total = 0;
+        for (AtomicInteger shard : shards) {
+            total += shard.get();
+        }
+        return total;
+    }
+
+    boolean isActive() {
+        return active;
+    }
+
+    long reservationsThenReset() {
+        return reservations.sumThenReset();
+    }
+
+    private synchronized void putBack(int[] taken, int total) {
+        if (!active) {
+            orphaned.accept(total);
+            return;
+        }
+        for (int i = 0; i < taken.length; i++) {
+            if (taken[i] > 0) {
+                shards[i].addAndGet(taken[i]);
+            }
+        }
+    }
+
+    private void spread(int quantity) {
+        int count = shards.length;
+        int share = quantity / count;
+        int remainder = quantity % count;
+        for (int i = 0; i < count; i++) {
+            int units = share + (i < remainder ? 1 : 0);
+            if (units > 0) {
+                shards[i].addAndGet(units);
+            }
+        }
+    }
+
+    /**
+     * Takes {@code quantity} units from a counter, or unless {@code exact} as many as it holds up to that.
+     *
+     * @return the units taken
+     */
+    private static int takeUpTo(AtomicInteger shard, int quantity, boolean exact) {
+        while (true) {
+            int current = shard.get();
+            int units = Math.min(current, quantity);
+            if (units == 0 || (exact && units < quantity)) {
+                return 0;
+            }
+            if (shard.compareAndSet(current, current - units)) {
+                return units;
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.heamimont.salesstoreapi.service;
+
+import com.heamimont.salesstoreapi.exceptions.ResourceNotFoundException;
+import com.heamimont.salesstoreapi.model.InventoryMovementReason;
+import com.heamimont.salesstoreapi.repository.InventoryMovementRepository;
+import com.heamimont.salesstoreapi.repository.ProductRepository;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Append-only ledger of stock changes, in the inventory_movements table.
+ * <p>
+ * The stock of a product is its available quantity; every change of it is also recorded here as a movement, within
+ * the transaction of the change, so the movements of a product sum up to its stock and can be audited. The ledger
+ * does not take writes off the product rows: sales still take their stock from the row with a guarded decrement
+ * (or from the hot stock, see {@link HotStockService}), and each sale adds an insert here.
+ * <p>
+ * Setting the stock locks the product row, computes the change from the locked quantity and writes it to the row
+ * right away, so the new stock is sellable as soon as the change commits and concurrent changes never add up.
+ */
+@Service
+public class InventoryLedger {
+
+    private final InventoryMovementRepository inventoryMovementRepository;
+    private final ProductRepository productRepository;
+
+    public InventoryLedger(InventoryMovementRepository inventoryMovementRepository,
+                           ProductRepository productRepository) {
+        this.inventoryMovementRepository = inventoryMovementRepository;
+        this.productRepository = productRepository;
+    }
+
+    /**
+     * Records sales already taken from the stock, within the current transaction.
+     *
+     * @param quantities product ID to quantity sold
+     */
+    public void recordSales(SortedMap<Long, Integer> quantities) {
+        SortedMap<Long, Integer> movements = new TreeMap<>();
+        quantities.forEach((productId, quantity) -> movements.put(productId, -quantity));
+        inventoryMovementRepository.insertAll(movements, InventoryMovementReason.SALE, LocalDateTime.now());
+    }
+
+    /**
+     * Records stock taken for stock holds, within the current transaction.
+     *
+     * @param quantities product ID to quantity held
+     */
+    public void recordHolds(SortedMap<Long, Integer> quantities) {
+        SortedMap<Long, Integer> movements = new TreeMap<>();
+        quantities.forEach((productId, quantity) -> movements.put(productId, -quantity));
+        inventoryMovementRepository.insertAll(movements, InventoryMovementReason.HOLD, LocalDateTime.now());
+    }
+
+    /**
+     * Records held stock given back, on expiry or when a hold is sold or released, within the current transaction.
+     *
+     * @param quantities product ID to quantity given back
+     */
+    public void recordHoldReturns(SortedMap<Long, Integer> quantities) {
+        inventoryMovementRepository.insertAll(quantities, InventoryMovementReason.HOLD, LocalDateTime.now());
+    }
+
+    /**
+     * Records the stock products were created with, within the current transaction.
+     *
+     * @param quantities product ID to available quantity
+     */
+    public void recordInitialStock(Map<Long, Integer> quantities) {
+        SortedMap<Long, Integer> movements = new TreeMap<>();
+        quantities.forEach((productId, quantity) -> {
+            if (quantity != 0) {
+                movements.put(productId, quantity);
+            }
+        });
+        inventoryMovementRepository.insertAll(movements, InventoryMovementReason.RESTOCK, LocalDateTime.now());
+    }
+
+    /**
+     * Records stock changes already written to the stock, within the current transaction.
+     *
+     * @param quantities product ID to signed quantity
+     */
+    public void recordAdjustments(SortedMap<Long, Integer> quantities) {
+        SortedMap<Long, Integer> movements = new TreeMap<>(quantities);
+        movements.values().removeIf(quantity -> quantity == 0);
+        inventoryMovementRepository.insertAll(movements, InventoryMovementReason.ADJUSTMENT, LocalDateTime.now());
+    }
+
+    /**
+     * Records the stock a product was set to without reading its previous stock, within the current transaction,
+     * as the difference with the stock its movements sum up to. The product row must be locked.
+     *
+     * @param productId the product
+     * @param quantity the stock it was set to
+     */
+    public void recordStockSet(Long productId, int quantity) {
+        int change = quantity - (int) inventoryMovementRepository.sumByProductId(productId);
+        if (change != 0) {
+            inventoryMovementRepository.insertAll(new TreeMap<>(Map.of(productId, change)),
+                    InventoryMovementReason.ADJUSTMENT, LocalDateTime.now());
+        }
+    }
+
+    /**
+     * Sets the stock of a product, within the current transaction. The product row is locked first, so concurrent
+     * calls compute their change from each other's result instead of both changing the stock from the same one.
+     *
+     * @param productId the product
+     * @param quantity the new stock
+     * @throws ResourceNotFoundException if the product does not exist
+     */
+    public void setStock(Long productId, int quantity) {
+        productRepository.lockAll(new TreeSet<>(List.of(productId)));
+        int change = quantity - productRepository.findAvailableQuantityById(productId)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
+        if (change == 0) {
+            return;
+        }
+        SortedMap<Long, Integer> movement = new TreeMap<>(Map.of(productId, change));
+        productRepository.addAvailableQuantities(movement);
+        inventoryMovementRepository.insertAll(movement,
+                change > 0 ? InventoryMovementReason.RESTOCK : InventoryMovementReason.ADJUSTMENT, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,330 @@
+package com.heamimont.salesstoreapi.service;
+
+import com.heamimont.salesstoreapi.dto.order.BatchOrderDTO;
+import com.heamimont.salesstoreapi.dto.order.OrderBatchResultDTO;
+import com.heamimont.salesstoreapi.dto.order.OrderProductDTO;
+import com.heamimont.salesstoreapi.exceptions.BadRequestException;
+import com.heamimont.salesstoreapi.model.Order;
+import com.heamimont.salesstoreapi.model.OrderProduct;
+import com.heamimont.salesstoreapi.model.OrderStatus;
+import com.heamimont.salesstoreapi.model.Product;
+import com.heamimont.salesstoreapi.model.User;
+import com.heamimont.salesstoreapi.model.UuidV7Generator;
+import com.heamimont.salesstoreapi.repository.DailyProductSalesRepository;
+import com.heamimont.salesstoreapi.repository.OrderRepository;
+import com.heamimont.salesstoreapi.repository.ProductRepository;
+import com.heamimont.salesstoreapi.repository.UserRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Places many orders, for many users, in one call.
+ * Orders are validated with the rules of {@link BatchOrderDTO} and placed in chunks of orders.batch.chunk-size,
+ * each chunk in its own transaction: the users and products of the chunk are loaded with one query each, stock is
+ * reserved for the whole chunk with one guarded JDBC batch, and the orders and their lines are inserted with one
+ * JDBC batch each. An order that names an unknown user or product, or asks for more stock than is left, is rejected
+ * on its own; chunks that were placed stay placed if a later one fails.
+ * <p>
+ * Hot products ordered by a chunk are released first (see {@link HotStockService#release}), so their units held in
+ * memory are back in their rows when the chunk checks its stock. They are promoted again if orders keep contending.
+ */
+@Service
+public class OrderBatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderBatchService.class);
+
+    // A chunk is retried when stock changed between reading it and reserving it
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final OrderRepository orderRepository;
+    private final UserRepository userRepository;
+    private final ProductRepository productRepository;
+    private final DailyProductSalesRepository dailyProductSalesRepository;
+    private final ProductCatalog productCatalog;
+    private final ProductChangeLog productChangeLog;
+    private final InventoryLedger inventoryLedger;
+    private final HotStockService hotStockService;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${orders.batch.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${orders.batch.max-orders:10000}")
+    private int maxOrders;
+
+    public OrderBatchService(OrderRepository orderRepository,
+                             UserRepository userRepository,
+                             ProductRepository productRepository,
+                             DailyProductSalesRepository dailyProductSalesRepository,
+                             ProductCatalog productCatalog,
+                             ProductChangeLog productChangeLog,
+                             InventoryLedger inventoryLedger,
+                             HotStockService hotStockService,
+                             Validator validator,
+                             PlatformTransactionManager transactionManager) {
+        this.orderRepository = orderRepository;
+        this.userRepository = userRepository;
+        this.productRepository = productRepository;
+        this.dailyProductSalesRepository = dailyProductSalesRepository;
+        this.productCatalog = productCatalog;
+        this.productChangeLog = productChangeLog;
+        this.inventoryLedger = inventoryLedger;
+        this.hotStockService = hotStockService;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Places the given orders.
+     *
+     * @param orders the orders to place, each naming the user it is placed for
+     * @return the number of created and rejected orders, and the outcome of every order in request order
+     * @throws BadRequestException if the batch is empty or holds more than orders.batch.max-orders orders
+     */
+    public OrderBatchResultDTO createOrders(List<BatchOrderDTO> orders) {
+        if (orders == null || orders.isEmpty()) {
+            throw new BadRequestException("The batch must contain at least one order", null);
+        }
+        if (orders.size() > maxOrders) {
+            throw new BadRequestException("The batch must not contain more than " + maxOrders + " orders", null);
+        }
+        long start = System.nanoTime();
+        OrderBatchResultDTO.OrderResult[] results = new OrderBatchResultDTO.OrderResult[orders.size()];
+        List<PendingOrder> chunk = new ArrayList<>(chunkSize);
+
+        for (int index = 0; index < orders.size(); index++) {
+            BatchOrderDTO order = orders.get(index);
+            String violations = order == null ? "Order is required" : validate(order);
+            if (violations != null) {
+                results[index] = rejected(index, violations);
+                continue;
+            }
+            chunk.add(new PendingOrder(index, UuidV7Generator.next(), order));
+            if (chunk.size() == chunkSize) {
+                write(chunk, results);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            write(chunk, results);
+        }
+
+        int created = (int) Arrays.stream(results).filter(result -> result.getOrderId() != null).count();
+        logger.info("[Order Batch] {} order(s) created, {} rejected in {} ms",
+                created, results.length - created, (System.nanoTime() - start) / 1_000_000);
+        return new OrderBatchResultDTO(created, results.length - created, Arrays.asList(results));
+    }
+
+    /**
+     * Places orders whose IDs were assigned up front, all in one transaction; used by {@link OrderIntakeService}.
+     * Orders whose ID already exists were placed before and are reported as created again, so the same orders
+     * can be placed again after a crash. The orders must be valid; an order that cannot be placed is rejected on its own.
+     *
+     * @param ids the IDs to create the orders with
+     * @param orders the orders, in the order of their IDs
+     * @return the outcome of every order, indexed by position
+     * @throws RuntimeException if the transaction failed, in which case no order was placed
+     */
+    List<OrderBatchResultDTO.OrderResult> placeWithIds(List<UUID> ids, List<BatchOrderDTO> orders) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> {
+                    Set<UUID> existing = new HashSet<>(orderRepository.findExistingIds(ids));
+                    List<OrderBatchResultDTO.OrderResult> results = new ArrayList<>(ids.size());
+                    List<PendingOrder> chunk = new ArrayList<>(ids.size());
+                    for (int index = 0; index < ids.size(); index++) {
+                        if (existing.contains(ids.get(index))) {
+                            results.add(new OrderBatchResultDTO.OrderResult(index, ids.get(index), null));
+                        } else {
+                            chunk.add(new PendingOrder(index, ids.get(index), orders.get(index)));
+                        }
+                    }
+                    if (!chunk.isEmpty()) {
+                        results.addAll(place(chunk));
+                    }
+                    results.sort(Comparator.comparingInt(OrderBatchResultDTO.OrderResult::getIndex));
+                    return results;
+                });
+            } catch (StockChangedException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private String validate(BatchOrderDTO order) {
+        Set<ConstraintViolation<BatchOrderDTO>> violations = validator.validate(order);
+        if (violations.isEmpty()) {
+            // Held stock is sold by OrderService only
+            return order.getHoldId() == null ? null : "holdId: stock holds cannot be used in a batch";
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private void write(List<PendingOrder> chunk, OrderBatchResultDTO.OrderResult[] results) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                List<OrderBatchResultDTO.OrderResult> placed = transactionTemplate.execute(status -> place(chunk));
+                placed.forEach(result -> results[result.getIndex()] = result);
+                return;
+            } catch (StockChangedException e) {
+                if (attempt < MAX_ATTEMPTS) {
+                    continue;
+                }
+                reject(chunk, results, "Batch failed: stock changed concurrently, retry the orders");
+                return;
+            } catch (RuntimeException e) {
+                // The chunk was rolled back as a whole
+                String message = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+                reject(chunk, results, "Batch failed: " + message);
+                return;
+            }
+        }
+    }
+
+    private static void reject(List<PendingOrder> chunk, OrderBatchResultDTO.OrderResult[] results, String message) {
+        logger.warn("[Order Batch] Chunk of {} order(s) starting at index {} failed: {}", chunk.size(), chunk.get(0).index(), message);
+        for (PendingOrder pending : chunk) {
+            results[pending.index()] = rejected(pending.index(), message);
+        }
+    }
+
+    /**
+     * Places the orders of one chunk that can be placed.
+     *
+     * @return the outcome of every order of the chunk
+     * @throws StockChangedException if stock was taken concurrently after the chunk read it
+     */
+    private List<OrderBatchResultDTO.OrderResult> place(List<PendingOrder> chunk) {
+        Set<String> usernames = new HashSet<>();
+        Set<Long> productIds = new TreeSet<>();
+        for (PendingOrder pending : chunk) {
+            usernames.add(pending.order().getUsername());
+            pending.order().getOrderProducts().forEach(line -> productIds.add(line.getProductId()));
+        }
+        Map<String, User> users = userRepository.findAllByUsernameIn(usernames).stream()
+                .collect(Collectors.toMap(User::getUsername, Function.identity()));
+        // In ascending ID order, as returning the units locks the rows
+        hotStockService.release(productIds);
+        Map<Long, Product> products = productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        // Stock left for the rest of the chunk, and stock reserved by the orders accepted so far
+        Map<Long, Integer> available = new HashMap<>();
+        SortedMap<Long, Integer> reserved = new TreeMap<>();
+        // Stored timestamps keep microseconds, see OrderService.createOrder
+        LocalDateTime orderDate = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        List<Order> accepted = new ArrayList<>(chunk.size());
+        List<OrderBatchResultDTO.OrderResult> results = new ArrayList<>(chunk.size());
+
+        for (PendingOrder pending : chunk) {
+            User user = users.get(pending.order().getUsername());
+            if (user == null) {
+                results.add(rejected(pending.index(), "User not found"));
+                continue;
+            }
+            // Lines for the same product are merged, as (order, product) is the primary key of an order line
+            Map<Long, Integer> quantities = new LinkedHashMap<>();
+            for (OrderProductDTO line : pending.order().getOrderProducts()) {
+                quantities.merge(line.getProductId(), line.getProductQuantity(), Integer::sum);
+            }
+            String error = checkStock(quantities, products, available);
+            if (error != null) {
+                results.add(rejected(pending.index(), error));
+                continue;
+            }
+
+            Order order = new Order();
+            order.setId(pending.id());
+            order.setUser(user);
+            order.setOrderDate(orderDate);
+            order.setStatus(OrderStatus.PENDING);
+            BigDecimal totalCost = BigDecimal.ZERO;
+            for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+                Product product = products.get(entry.getKey());
+                order.getOrderProducts().add(new OrderProduct(order, product, entry.getValue()));
+                totalCost = totalCost.add(product.getSellingPrice().multiply(BigDecimal.valueOf(entry.getValue())));
+                available.merge(entry.getKey(), -entry.getValue(), Integer::sum);
+                reserved.merge(entry.getKey(), entry.getValue(), Integer::sum);
+            }
+            order.setTotalCost(totalCost);
+            accepted.add(order);
+            results.add(new OrderBatchResultDTO.OrderResult(pending.index(), order.getId(), null));
+        }
+
+        if (!accepted.isEmpty()) {
+            int[] updated = productRepository.decrementAvailableQuantities(reserved, productChangeLog.allocate());
+            if (Arrays.stream(updated).anyMatch(count -> count == 0)) {
+                throw new StockChangedException();
+            }
+            orderRepository.insertAll(accepted);
+            dailyProductSalesRepository.addUnitsSold(orderDate.toLocalDate(), reserved);
+            inventoryLedger.recordSales(reserved);
+            productCatalog.invalidateAfterCommit();
+        }
+        return results;
+    }
+
+    /**
+     * @return why the order cannot be placed with the stock left, or null if it can
+     */
+    private static String checkStock(Map<Long, Integer> quantities, Map<Long, Product> products, Map<Long, Integer> available) {
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            Product product = products.get(entry.getKey());
+            if (product == null) {
+                return "Product not found";
+            }
+            if (available.computeIfAbsent(product.getId(), id -> product.getAvailableQuantity()) < entry.getValue()) {
+                return "Insufficient product quantity available";
+            }
+        }
+        return null;
+    }
+
+    private static OrderBatchResultDTO.OrderResult rejected(int index, String error) {
+        return new OrderBatchResultDTO.OrderResult(index, null, error);
+    }
+
+    private record PendingOrder(int index, UUID id, BatchOrderDTO order) {
+    }
+
+    /**
+     * Rolls back a chunk whose guarded stock reservation found less stock than the chunk read.
+     */
+    private static final class StockChangedException extends RuntimeException {
+        StockChangedException() {
+            super("Stock changed concurrently", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.heamimont.salesstoreapi.service;
+
+import com.heamimont.salesstoreapi.exceptions.BadRequestException;
+import com.heamimont.salesstoreapi.model.Order;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position of the last order of a page, handed to clients as an opaque continuation token.
+ * The token is the base64url encoding of "orderDate|id"; clients must not rely on its content.
+ */
+record OrderCursor(LocalDateTime orderDate, UUID id) {
+
+    private static final String SEPARATOR = "|";
+
+    static OrderCursor of(Order order) {
+        return new OrderCursor(order.getOrderDate(), order.getId());
+    }
+
+    String encode() {
+        String raw = orderDate + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token produced by {@link #encode()}.
+     *
+     * @throws BadRequestException if the token is malformed
+     */
+    static OrderCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            return new OrderCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    UUID.fromString(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new BadRequestException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.heamimont.salesstoreapi.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.heamimont.salesstoreapi.dto.order.CreateOrderDTO;
+import com.heamimont.salesstoreapi.dto.order.OrderResponseDTO;
+import com.heamimont.salesstoreapi.exceptions.BadRequestException;
+import com.heamimont.salesstoreapi.exceptions.ResourceAlreadyExistsException;
+import com.heamimont.salesstoreapi.model.IdempotencyRecord;
+import com.heamimont.salesstoreapi.model.IdempotencyRecordKey;
+import com.heamimont.salesstoreapi.repository.IdempotencyRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Creates orders at most once per Idempotency-Key, so a client can safely retry POST /api/orders.
+ * Keys are scoped to the user. The first request with a key claims it in a concurrent map of this instance, then
+ * inserts it into the idempotency_keys table in the transaction that creates the order and stores its response, so
+ * the key is only ever committed together with its response. Repeated requests with the key get the stored response
+ * without touching stock: from the map while it is recent (orders.idempotency.cache-ttl), otherwise from the table.
+ * A duplicate arriving while the first request runs on this instance waits for it; one running on another instance
+ * blocks on the primary key of the uncommitted row until the first request commits, then gets its response. A key
+ * reused with a different body is rejected. A request that fails or crashes leaves no key behind, so it can be retried.
+ * <p>
+ * Keys expire after orders.idempotency.ttl; expired keys are deleted in bulk every orders.idempotency.eviction-interval.
+ */
+@Service
+public class OrderIdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderIdempotencyService.class);
+
+    private static final int MAX_KEY_LENGTH = 255;
+    // How long a duplicate waits for the request that first used its key
+    private static final long MAX_WAIT_SECONDS = 30;
+
+    private final OrderService orderService;
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ConcurrentMap<IdempotencyRecordKey, Entry> entries = new ConcurrentHashMap<>();
+
+    @Value("${orders.idempotency.ttl:24h}")
+    private Duration ttl;
+
+    @Value("${orders.idempotency.cache-ttl:10m}")
+    private Duration cacheTtl;
+
+    public OrderIdempotencyService(OrderService orderService,
+                                   IdempotencyRecordRepository idempotencyRecordRepository,
+                                   ObjectMapper objectMapper,
+                                   PlatformTransactionManager transactionManager) {
+        this.orderService = orderService;
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.objectMapper = objectMapper;
+        // Keys are claimed with their order, whatever transaction the caller runs in
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Creates an order, unless the user already sent a request with the same key.
+     *
+     * @param idempotencyKey the Idempotency-Key header
+     * @param createOrderDTO the order
+     * @param username the user placing the order
+     * @return the created order, or the order created by the first request with the key
+     * @throws BadRequestException if the key is blank or too long
+     * @throws ResourceAlreadyExistsException if the key was used for a different order, or by a request still running
+     *         on this instance after waiting for it
+     */
+    public IdempotentOrder createOrder(String idempotencyKey, CreateOrderDTO createOrderDTO, String username) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException("Idempotency-Key must be between 1 and " + MAX_KEY_LENGTH + " characters", null);
+        }
+        IdempotencyRecordKey id = new IdempotencyRecordKey(username, idempotencyKey);
+        String requestHash = hash(createOrderDTO);
+
+        while (true) {
+            Entry entry = new Entry(requestHash);
+            Entry existing = entries.putIfAbsent(id, entry);
+            if (existing == null) {
+                return createOnce(id, entry, createOrderDTO);
+            }
+            if (existing.isExpired()) {
+                entries.remove(id, existing);
+                continue;
+            }
+            checkSameRequest(existing.requestHash, requestHash);
+            String responseBody = await(existing);
+            if (responseBody != null) {
+                return replay(responseBody);
+            }
+            // The request that used the key first failed and released it
+        }
+    }
+
+    /**
+     * Deletes the expired keys from the table and from the map.
+     */
+    @Scheduled(fixedDelayString = "${orders.idempotency.eviction-interval:1m}")
+    public void evictExpired() {
+        entries.values().removeIf(Entry::isExpired);
+        int deleted = transactionTemplate.execute(status -> idempotencyRecordRepository.deleteExpired(LocalDateTime.now()));
+        if (deleted > 0) {
+            logger.info("[Order Idempotency] {} expired key(s) evicted", deleted);
+        }
+    }
+
+    /**
+     * Creates the order for a key claimed in the map by this request. The key is inserted, the order created and
+     * its response stored in one transaction, so a failure or crash in between rolls the key back with the order.
+     */
+    private IdempotentOrder createOnce(IdempotencyRecordKey id, Entry entry, CreateOrderDTO createOrderDTO) {
+        Outcome outcome;
+        try {
+            outcome = transactionTemplate.execute(status -> {
+                String stored = claim(id, entry.requestHash);
+                if (stored != null) {
+                    return new Outcome(null, stored);
+                }
+                OrderResponseDTO created = orderService.createOrder(createOrderDTO, id.getUsername());
+                String responseBody = toJson(created);
+                idempotencyRecordRepository.storeResponse(id, responseBody);
+                return new Outcome(created, responseBody);
+            });
+        } catch (RuntimeException e) {
+            entries.remove(id, entry);
+            entry.fail(e);
+            throw e;
+        }
+        entry.complete(outcome.responseBody(), cacheTtl);
+        return outcome.order() == null ? replay(outcome.responseBody()) : new IdempotentOrder(outcome.order(), false);
+    }
+
+    /**
+     * Claims the key in the table, within the transaction of the order. An insert racing with a request on another
+     * instance waits on the primary key until that request's transaction completes.
+     *
+     * @return null if this request claimed the key, or the response stored by the request that used it before
+     */
+    private String claim(IdempotencyRecordKey id, String requestHash) {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        Optional<IdempotencyRecord> stored = idempotencyRecordRepository.findById(id);
+        // Keys without a response were left by versions that committed the key before its order
+        if (stored.isPresent() && (stored.get().getExpiresAt().isBefore(now) || stored.get().getResponseBody() == null)) {
+            idempotencyRecordRepository.delete(stored.get());
+            idempotencyRecordRepository.flush();
+            stored = Optional.empty();
+        }
+        if (stored.isEmpty()) {
+            IdempotencyRecord record = new IdempotencyRecord(id, requestHash, null, now, now.plus(ttl));
+            if (idempotencyRecordRepository.insertIfAbsent(record)) {
+                return null;
+            }
+            // Committed meanwhile by a request on another instance
+            stored = idempotencyRecordRepository.findById(id);
+        }
+        IdempotencyRecord record = stored.orElseThrow(() ->
+                new ResourceAlreadyExistsException("A request with this Idempotency-Key is in progress"));
+        checkSameRequest(record.getRequestHash(), requestHash);
+        return record.getResponseBody();
+    }
+
+    /**
+     * Waits for the request that used the key first.
+     *
+     * @return its response, or null if it failed
+     */
+    private static String await(Entry entry) {
+        try {
+            return entry.response.get(MAX_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            return null;
+        } catch (TimeoutException e) {
+            throw new ResourceAlreadyExistsException("A request with this Idempotency-Key is in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAlreadyExistsException("A request with this Idempotency-Key is in progress");
+        }
+    }
+
+    private static void checkSameRequest(String expectedHash, String requestHash) {
+        if (!expectedHash.equals(requestHash)) {
+            throw new ResourceAlreadyExistsException("Idempotency-Key was already used for a different order");
+        }
+    }
+
+    private IdempotentOrder replay(String responseBody) {
+        try {
+            return new IdempotentOrder(objectMapper.readValue(responseBody, OrderResponseDTO.class), true);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable stored order response", e);
+        }
+    }
+
+    private String toJson(OrderResponseDTO order) {
+        try {
+            return objectMapper.writeValueAsString(order);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Order response cannot be stored", e);
+        }
+    }
+
+    private String hash(CreateOrderDTO createOrderDTO) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(objectMapper.writeValueAsBytes(createOrderDTO)));
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Order request cannot be hashed", e);
+        }
+    }
+
+    /**
+     * An order, and whether it was created by an earlier request with the same key.
+     */
+    public record IdempotentOrder(OrderResponseDTO order, boolean replayed) {
+    }
+
+    private record Outcome(OrderResponseDTO order, String responseBody) {
+    }
+
+    /**
+     * A key of the map: the request that claimed it, its response once known, and when it stops being kept.
+     */
+    private static final class Entry {
+        final String requestHash;
+        final CompletableFuture<String> response = new CompletableFuture<>();
+        // Nanotime after which the entry is dropped, set once the response is known
+        volatile long expiresAt;
+
+        Entry(String requestHash) {
+            this.requestHash = requestHash;
+        }
+
+        void complete(String responseBody, Duration keep) {
+            expiresAt = System.nanoTime() + keep.toNanos();
+            response.complete(responseBody);
+        }
+
+        void fail(RuntimeException e) {
+            response.completeExceptionally(e);
+        }
+
+        boolean isExpired() {
+            return response.isDone() && System.nanoTime() - expiresAt > 0;
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package com.heamimont.salesstoreapi.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.heamimont.salesstoreapi.dto.order.BatchOrderDTO;
+import com.heamimont.salesstoreapi.dto.order.CreateOrderDTO;
+import com.heamimont.salesstoreapi.dto.order.OrderBatchResultDTO;
+import com.heamimont.salesstoreapi.dto.order.OrderIntakeStatus;
+import com.heamimont.salesstoreapi.dto.order.OrderIntakeStatusDTO;
+import com.heamimont.salesstoreapi.exceptions.ResourceNotFoundException;
+import com.heamimont.salesstoreapi.exceptions.ServiceUnavailableException;
+import com.heamimont.salesstoreapi.model.UuidV7Generator;
+import com.heamimont.salesstoreapi.repository.OrderRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous order intake, for bursts of orders such as flash sales (orders.intake.enabled).
+ * An accepted order is given its ID, appended to an {@link OrderJournal} on local disk and made durable there, and
+ * the caller is answered before the order is placed. A single writer thread takes the queued orders in journal order
+ * and places up to orders.intake.group-size of them per transaction, with {@link OrderBatchService}; then it
+ * checkpoints the journal. Orders journaled but not checkpointed when the application stops are placed after the
+ * next start. As orders keep the ID they were journaled with, an order placed just before a crash is not placed twice.
+ * <p>
+ * An order is checked for stock when it is placed, not when it is accepted: one that cannot be placed ends up
+ * {@link OrderIntakeStatus#REJECTED}, see {@link #getStatus}. Orders are dated when they are placed.
+ * <p>
+ * If the writer fails outside of placing, e.g. to checkpoint the journal, it retries the same group with a growing
+ * delay. Until it succeeds the intake is stalled: new orders are not accepted, so they are placed synchronously,
+ * and the status of a queued order is answered with a {@link ServiceUnavailableException}.
+ */
+@Service
+@ConditionalOnProperty(name = "orders.intake.enabled", havingValue = "true")
+public class OrderIntakeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderIntakeService.class);
+
+    // Outcomes kept for polling; older ones are answered from the orders table, or not at all if rejected
+    private static final int MAX_OUTCOMES = 100_000;
+    private static final long RETRY_DELAY_MILLIS = 200;
+    private static final long MAX_RETRY_DELAY_MILLIS = 5_000;
+
+    private final OrderBatchService orderBatchService;
+    private final OrderRepository orderRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${orders.intake.journal-dir:data/order-journal}")
+    private Path journalDir;
+
+    @Value("${orders.intake.segment-size:16MB}")
+    private DataSize segmentSize;
+
+    @Value("${orders.intake.group-size:500}")
+    private int groupSize;
+
+    @Value("${orders.intake.max-pending:50000}")
+    private int maxPending;
+
+    @Value("${orders.intake.max-attempts:3}")
+    private int maxAttempts;
+
+    // Orders are appended to the journal and queued under this lock, so the queue is in journal order
+    private final Object appendLock = new Object();
+    private final BlockingQueue<QueuedOrder> queue = new LinkedBlockingQueue<>();
+    private final Map<UUID, Outcome> outcomes = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, Outcome> eldest) {
+            return size() > MAX_OUTCOMES;
+        }
+    };
+
+    private OrderJournal journal;
+    private Thread writer;
+    private volatile boolean running;
+    // Why the writer last failed, until it places a group again
+    private volatile String failure;
+
+    public OrderIntakeService(OrderBatchService orderBatchService, OrderRepository orderRepository, ObjectMapper objectMapper) {
+        this.orderBatchService = orderBatchService;
+        this.orderRepository = orderRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Opens the journal, queues the orders it holds that were not placed yet, and starts the writer.
+     */
+    @PostConstruct
+    public void start() {
+        List<QueuedOrder> replayed = new ArrayList<>();
+        journal = OrderJournal.open(journalDir, (int) segmentSize.toBytes(), (sequence, payload) -> {
+            try {
+                JournalRecord record = objectMapper.readValue(payload, JournalRecord.class);
+                replayed.add(new QueuedOrder(sequence, record.orderId(), record.order()));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unreadable order in the journal at sequence " + sequence, e);
+            }
+        });
+        for (QueuedOrder order : replayed) {
+            queue.add(order);
+            putOutcome(order.orderId(), new Outcome(order.order().getUsername(), OrderIntakeStatus.QUEUED, null));
+        }
+        if (!replayed.isEmpty()) {
+            logger.info("[Order Intake] Replaying {} journaled order(s) that were not placed", replayed.size());
+        }
+        running = true;
+        writer = new Thread(this::drain, "order-intake-writer");
+        writer.start();
+    }
+
+    /**
+     * Stops the writer after the group it is placing, and closes the journal. Orders still queued stay journaled.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        synchronized (appendLock) {
+            running = false;
+        }
+        writer.join();
+        journal.close();
+    }
+
+    /**
+     * Journals an order for the given user, to be placed by the writer.
+     *
+     * @param createOrderDTO the order, already validated
+     * @param username the user the order is placed for
+     * @return the ID the order will be created with, once the order is durable in the journal,
+     *         or empty if orders.intake.max-pending orders are already waiting or the intake is stalled,
+     *         in which case nothing was journaled
+     * @throws ServiceUnavailableException if the journal could not be made durable. The order stays queued and
+     *         journaled, as it cannot be taken back from the journal, so it may still be placed; the message carries
+     *         its ID, for {@link #getStatus}
+     */
+    public Optional<UUID> accept(CreateOrderDTO createOrderDTO, String username) {
+        UUID orderId = UuidV7Generator.next();
+        BatchOrderDTO order = new BatchOrderDTO();
+        order.setUsername(username);
+        order.setOrderProducts(createOrderDTO.getOrderProducts());
+        byte[] payload;
+        try {
+            payload = objectMapper.writeValueAsBytes(new JournalRecord(orderId, order));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        long sequence;
+        synchronized (appendLock) {
+            if (!running || failure != null || queue.size() >= maxPending) {
+                return Optional.empty();
+            }
+            sequence = journal.append(payload);
+            putOutcome(orderId, new Outcome(username, OrderIntakeStatus.QUEUED, null));
+            queue.add(new QueuedOrder(sequence, orderId, order));
+        }
+        // Concurrent requests wait for the same fsync
+        try {
+            journal.sync(sequence);
+        } catch (RuntimeException e) {
+            logger.error("[Order Intake] Order {} queued but could not be made durable", orderId, e);
+            throw new ServiceUnavailableException("Order " + orderId + " was queued but could not be made durable, it may still be placed");
+        }
+        return Optional.of(orderId);
+    }
+
+    /**
+     * Returns the progress of an order accepted by the intake.
+     *
+     * @param orderId the ID returned by {@link #accept}
+     * @param username the user asking
+     * @param admin whether that user may see the orders of every user
+     * @throws ResourceNotFoundException if the order is unknown, or belongs to another user
+     * @throws ServiceUnavailableException if the order is still queued and the intake is stalled
+     */
+    public OrderIntakeStatusDTO getStatus(UUID orderId, String username, boolean admin) {
+        Outcome outcome;
+        synchronized (outcomes) {
+            outcome = outcomes.get(orderId);
+        }
+        if (outcome != null && outcome.status() != OrderIntakeStatus.CREATED) {
+            if (!admin && !outcome.username().equals(username)) {
+                throw new ResourceNotFoundException("Order not found");
+            }
+            if (outcome.status() == OrderIntakeStatus.QUEUED && failure != null) {
+                throw new ServiceUnavailableException("Order intake is stalled, the order stays queued until it recovers");
+            }
+            return new OrderIntakeStatusDTO(orderId, outcome.status(), outcome.error());
+        }
+        // Created orders are answered from the orders table, so a deleted order is not reported
+        String owner = orderRepository.findUsernameById(orderId)
+                .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
+        if (!admin && !owner.equals(username)) {
+            throw new ResourceNotFoundException("Order not found");
+        }
+        return new OrderIntakeStatusDTO(orderId, OrderIntakeStatus.CREATED, null);
+    }
+
+    private void drain() {
+        List<QueuedOrder> group = new ArrayList<>(groupSize);
+        long delay = RETRY_DELAY_MILLIS;
+        while (running) {
+            try {
+                // A group that failed is kept and tried again
+                if (group.isEmpty()) {
+                    QueuedOrder first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    group.add(first);
+                    queue.drainTo(group, groupSize - 1);
+                }
+                if (place(group)) {
+                    journal.commit(group.get(group.size() - 1).sequence());
+                }
+                group.clear();
+                if (failure != null) {
+                    logger.info("[Order Intake] Writer recovered");
+                    failure = null;
+                    delay = RETRY_DELAY_MILLIS;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // Orders of the group already placed keep their IDs, so placing the group again does not duplicate them
+                failure = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+                logger.error("[Order Intake] Writer failed on a group of {} order(s), retrying in {} ms", group.size(), delay, e);
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                delay = Math.min(delay * 2, MAX_RETRY_DELAY_MILLIS);
+            }
+        }
+    }
+
+    /**
+     * Places a group of orders in one transaction, retrying a failed transaction; if it keeps failing, the orders
+     * are placed one at a time, so an order that cannot be stored does not take the others with it.
+     *
+     * @return true once every order of the group is either placed or rejected, false if the intake stopped before
+     */
+    private boolean place(List<QueuedOrder> group) throws InterruptedException {
+        long start = System.nanoTime();
+        long delay = RETRY_DELAY_MILLIS;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                record(group, orderBatchService.placeWithIds(
+                        group.stream().map(QueuedOrder::orderId).toList(),
+                        group.stream().map(QueuedOrder::order).toList()));
+                logger.debug("[Order Intake] Group of {} order(s) placed in {} ms", group.size(), (System.nanoTime() - start) / 1_000_000);
+                return true;
+            } catch (RuntimeException e) {
+                if (!isTransient(e) && attempt >= maxAttempts) {
+                    if (group.size() > 1) {
+                        for (QueuedOrder order : group) {
+                            if (!place(List.of(order))) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    }
+                    reject(group.get(0), "Order could not be placed: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+                    return true;
+                }
+                // Transient failures, such as the database being unreachable, are retried until the intake stops
+                logger.warn("[Order Intake] Placing {} order(s) failed, attempt {}: {}", group.size(), attempt, e.getMessage());
+                if (!running) {
+                    return false;
+                }
+                Thread.sleep(delay);
+                delay = Math.min(delay * 2, MAX_RETRY_DELAY_MILLIS);
+            }
+        }
+    }
+
+    private void record(List<QueuedOrder> group, List<OrderBatchResultDTO.OrderResult> results) {
+        for (OrderBatchResultDTO.OrderResult result : results) {
+            QueuedOrder order = group.get(result.getIndex());
+            if (result.getOrderId() != null) {
+                putOutcome(order.orderId(), new Outcome(order.order().getUsername(), OrderIntakeStatus.CREATED, null));
+            } else {
+                reject(order, result.getError());
+            }
+        }
+    }
+
+    private void reject(QueuedOrder order, String error) {
+        logger.info("[Order Intake] Order {} rejected: {}", order.orderId(), error);
+        putOutcome(order.orderId(), new Outcome(order.order().getUsername(), OrderIntakeStatus.REJECTED, error));
+    }
+
+    private void putOutcome(UUID orderId, Outcome outcome) {
+        synchronized (outcomes) {
+            outcomes.put(orderId, outcome);
+        }
+    }
+
+    private static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException || e instanceof CannotCreateTransactionException;
+    }
+
+    /**
+     * An order as it is stored in the journal.
+     */
+    record JournalRecord(UUID orderId, BatchOrderDTO order) {
+    }
+
+    private record QueuedOrder(long sequence, UUID orderId, BatchOrderDTO order) {
+    }
+
+    private record Outcome(String username, OrderIntakeStatus status, String error) {
+    }
+}
@@ -0,0 +1,343 @@
+package com.heamimont.salesstoreapi.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of opaque records in memory-mapped segment files, made durable with batched fsyncs.
+ * Records get increasing sequence numbers. {@link #append(byte[])} only copies a record into the mapped segment;
+ * {@link #sync(long)} makes it durable, and a single force covers every record appended before it, so concurrent
+ * callers share one fsync (group commit). Once the records are processed, {@link #commit(long)} checkpoints their
+ * sequence number and deletes the segments holding only committed records; records after the checkpoint are
+ * handed to {@link #open} again after a restart.
+ * <p>
+ * A record is {@code [int length][int crc32c][long sequence][payload]}; reading a segment stops at the first record
+ * that is empty, incomplete or fails its checksum, which is where a crash interrupted the last write. Each open
+ * starts a new segment, so a torn tail is never appended to.
+ */
+final class OrderJournal implements Closeable {
+
+    private static final int HEADER_SIZE = 16;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("journal-(\\d{20})\\.log");
+    private static final String CHECKPOINT = "checkpoint";
+
+    private final Path directory;
+    private final int segmentSize;
+
+    // Closed segments, oldest first, that may still hold uncommitted records; guarded by this
+    private final Deque<Segment> closedSegments = new ArrayDeque<>();
+    private Segment active;
+    private long lastSequence;
+    private boolean closed;
+
+    // Guarded by syncLock
+    private final Object syncLock = new Object();
+    private long durableSequence;
+
+    // Guarded by commitLock
+    private final Object commitLock = new Object();
+    private long committedSequence;
+
+    private OrderJournal(Path directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Opens the journal in {@code directory}, creating it if needed, and hands the records after the last
+     * checkpoint to {@code uncommitted} in sequence order.
+     *
+     * @param segmentSize the size of a segment file in bytes, which bounds the size of a record
+     * @param uncommitted receives the sequence number and payload of every uncommitted record
+     */
+    static OrderJournal open(Path directory, int segmentSize, BiConsumer<Long, byte[]> uncommitted) {
+        if (segmentSize <= HEADER_SIZE) {
+            throw new IllegalArgumentException("Segment size must be larger than " + HEADER_SIZE + " bytes");
+        }
+        OrderJournal journal = new OrderJournal(directory, segmentSize);
+        try {
+            Files.createDirectories(directory);
+            journal.recover(uncommitted);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open the journal in " + directory, e);
+        }
+        return journal;
+    }
+
+    private void recover(BiConsumer<Long, byte[]> uncommitted) throws IOException {
+        Path checkpoint = directory.resolve(CHECKPOINT);
+        committedSequence = Files.exists(checkpoint) ? Long.parseLong(Files.readString(checkpoint).trim()) : 0;
+        lastSequence = committedSequence;
+
+        for (Path path : segmentFiles()) {
+            int records = 0;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                Record record;
+                while ((record = Record.read(buffer)) != null) {
+                    records++;
+                    lastSequence = Math.max(lastSequence, record.sequence());
+                    if (record.sequence() > committedSequence) {
+                        uncommitted.accept(record.sequence(), record.payload());
+                    }
+                }
+            }
+            if (records == 0) {
+                // Opened by an earlier run that appended nothing, or torn at its first record
+                Files.delete(path);
+            } else {
+                closedSegments.add(new Segment(path, firstSequenceOf(path), null, null));
+            }
+        }
+        durableSequence = lastSequence;
+        active = createSegment(lastSequence + 1);
+        deleteCommittedSegments();
+    }
+
+    /**
+     * Copies a record into the journal. The record is not durable before {@link #sync(long)} returns for its sequence.
+     *
+     * @return the sequence number of the record
+     * @throws IllegalArgumentException if the record is empty, as reading stops at a zero length,
+     *         or does not fit into a segment
+     */
+    synchronized long append(byte[] payload) {
+        if (closed) {
+            throw new IllegalStateException("The journal is closed");
+        }
+        if (payload.length == 0) {
+            throw new IllegalArgumentException("An empty record cannot be journaled");
+        }
+        int size = HEADER_SIZE + payload.length;
+        if (size > segmentSize) {
+            throw new IllegalArgumentException("Record of " + payload.length + " bytes does not fit into a journal segment");
+        }
+        long sequence = lastSequence + 1;
+        if (active.buffer.remaining() < size) {
+            roll(sequence);
+        }
+        Record.write(active.buffer, sequence, payload);
+        lastSequence = sequence;
+        return sequence;
+    }
+
+    /**
+     * Makes the records up to {@code sequence} durable. Callers that arrive while a force is running wait for it,
+     * and usually find their record covered by it or by the next one.
+     */
+    void sync(long sequence) {
+        synchronized (syncLock) {
+            if (durableSequence >= sequence) {
+                return;
+            }
+            MappedByteBuffer buffer;
+            int from;
+            int to;
+            long target;
+            synchronized (this) {
+                buffer = active.buffer;
+                from = active.forcedPosition;
+                to = buffer.position();
+                target = lastSequence;
+                active.forcedPosition = to;
+            }
+            if (to > from) {
+                buffer.force(from, to - from);
+            }
+            durableSequence = target;
+        }
+    }
+
+    /**
+     * Checkpoints that every record up to {@code sequence} has been processed, so they are not replayed after a restart,
+     * and deletes the segments that hold only such records.
+     */
+    void commit(long sequence) {
+        synchronized (commitLock) {
+            if (sequence <= committedSequence) {
+                return;
+            }
+            try {
+                Path temp = directory.resolve(CHECKPOINT + ".tmp");
+                try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                    channel.write(ByteBuffer.wrap(Long.toString(sequence).getBytes()));
+                    channel.force(true);
+                }
+                Files.move(temp, directory.resolve(CHECKPOINT), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to checkpoint the journal", e);
+            }
+            committedSequence = sequence;
+        }
+        synchronized (this) {
+            deleteCommittedSegments();
+        }
+    }
+
+    /**
+     * @return the sequence number of the last appended record
+     */
+    synchronized long lastSequence() {
+        return lastSequence;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        sync(Long.MAX_VALUE);
+        synchronized (this) {
+            closeQuietly(active.channel);
+        }
+    }
+
+    /**
+     * Forces and closes the active segment and starts a new one. Called with the monitor held.
+     */
+    private void roll(long firstSequence) {
+        // Forced here rather than through sync, whose lock is taken before the monitor
+        active.buffer.force();
+        closeQuietly(active.channel);
+        closedSegments.add(new Segment(active.path, active.firstSequence, null, null));
+        try {
+            active = createSegment(firstSequence);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create a journal segment", e);
+        }
+    }
+
+    private Segment createSegment(long firstSequence) throws IOException {
+        Path path = directory.resolve("journal-%020d.log".formatted(firstSequence));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        return new Segment(path, firstSequence, channel, buffer);
+    }
+
+    /**
+     * Deletes the closed segments whose records are all committed: those followed by a segment starting at or
+     * before the record after the checkpoint. Called with the monitor held.
+     */
+    private void deleteCommittedSegments() {
+        long committed;
+        synchronized (commitLock) {
+            committed = committedSequence;
+        }
+        while (!closedSegments.isEmpty()) {
+            Iterator<Segment> segments = closedSegments.iterator();
+            segments.next();
+            Segment next = segments.hasNext() ? segments.next() : active;
+            if (next.firstSequence > committed + 1) {
+                return;
+            }
+            Segment segment = closedSegments.removeFirst();
+            try {
+                Files.deleteIfExists(segment.path);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to delete journal segment " + segment.path, e);
+            }
+        }
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(path -> SEGMENT_NAME.matcher(path.getFileName().toString()).matches())
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long firstSequenceOf(Path path) {
+        Matcher matcher = SEGMENT_NAME.matcher(path.getFileName().toString());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Not a journal segment: " + path);
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException ignored) {
+            // The mapping stays valid, and every record in it was forced
+        }
+    }
+
+    private static final class Segment {
+        final Path path;
+        final long firstSequence;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        int forcedPosition;
+
+        Segment(Path path, long firstSequence, FileChannel channel, MappedByteBuffer buffer) {
+            this.path = path;
+            this.firstSequence = firstSequence;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+
+    private record Record(long sequence, byte[] payload) {
+
+        static void write(ByteBuffer buffer, long sequence, byte[] payload) {
+            buffer.putInt(payload.length)
+                    .putInt(checksum(sequence, payload))
+                    .putLong(sequence)
+                    .put(payload);
+        }
+
+        /**
+         * @return the next record, or null at the end of the written part of the segment
+         */
+        static Record read(ByteBuffer buffer) {
+            if (buffer.remaining() < HEADER_SIZE) {
+                return null;
+            }
+            int length = buffer.getInt(buffer.position());
+            if (length <= 0 || length > buffer.remaining() - HEADER_SIZE) {
+                return null;
+            }
+            int checksum = buffer.getInt(buffer.position() + 4);
+            long sequence = buffer.getLong(buffer.position() + 8);
+            byte[] payload = new byte[length];
+            buffer.get(buffer.position() + HEADER_SIZE, payload);
+            if (checksum(sequence, payload) != checksum) {
+                return null;
+            }
+            buffer.position(buffer.position() + HEADER_SIZE + length);
+            return new Record(sequence, payload);
+        }
+
+        private static int checksum(long sequence, byte[] payload) {
+            CRC32C crc = new CRC32C();
+            crc.update(ByteBuffer.allocate(Long.BYTES).putLong(0, sequence));
+            crc.update(payload);
+            return (int) crc.getValue();
+        }
+    }
+}
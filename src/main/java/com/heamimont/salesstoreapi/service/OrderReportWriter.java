@@ -0,0 +1,136 @@
+package com.heamimont.salesstoreapi.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.heamimont.salesstoreapi.dto.report.OrderProductReportDTO;
+import com.heamimont.salesstoreapi.dto.report.OrderReportDTO;
+import com.heamimont.salesstoreapi.dto.report.ReportFormat;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes order reports one at a time to an output stream in one of the {@link ReportFormat}s.
+ * Closing the writer completes the document and flushes it, but leaves the underlying stream open.
+ */
+abstract class OrderReportWriter implements Closeable {
+
+    static OrderReportWriter create(ReportFormat format, OutputStream out, ObjectMapper objectMapper) throws IOException {
+        return switch (format) {
+            case JSON -> new JsonArrayWriter(out, objectMapper);
+            case NDJSON -> new NdjsonWriter(out, objectMapper);
+            case CSV -> new CsvWriter(out);
+        };
+    }
+
+    abstract void write(OrderReportDTO report) throws IOException;
+
+    abstract void flush() throws IOException;
+
+    private abstract static class JacksonWriter extends OrderReportWriter {
+        protected final JsonGenerator generator;
+        protected final ObjectWriter writer;
+
+        JacksonWriter(OutputStream out, ObjectMapper objectMapper) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Flushing is done once per batch, not once per report
+            this.writer = objectMapper.writerFor(OrderReportDTO.class)
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        }
+
+        @Override
+        void flush() throws IOException {
+            generator.flush();
+        }
+    }
+
+    /** A single JSON array, same as the non-streaming report. */
+    private static final class JsonArrayWriter extends JacksonWriter {
+        JsonArrayWriter(OutputStream out, ObjectMapper objectMapper) throws IOException {
+            super(out, objectMapper);
+            generator.writeStartArray();
+        }
+
+        @Override
+        void write(OrderReportDTO report) throws IOException {
+            writer.writeValue(generator, report);
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.writeEndArray();
+            generator.close();
+        }
+    }
+
+    /** One JSON document per line. */
+    private static final class NdjsonWriter extends JacksonWriter {
+        NdjsonWriter(OutputStream out, ObjectMapper objectMapper) throws IOException {
+            super(out, objectMapper);
+            generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        void write(OrderReportDTO report) throws IOException {
+            writer.writeValue(generator, report);
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.close();
+        }
+    }
+
+    /** One row per order line (RFC 4180). */
+    private static final class CsvWriter extends OrderReportWriter {
+        private final Writer writer;
+
+        CsvWriter(OutputStream out) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            writer.write("orderId,userFullName,productName,quantity\r\n");
+        }
+
+        @Override
+        void write(OrderReportDTO report) throws IOException {
+            for (OrderProductReportDTO product : report.getProducts()) {
+                writer.write(String.valueOf(report.getOrderId()));
+                writer.write(',');
+                writer.write(escape(report.getUserFullName()));
+                writer.write(',');
+                writer.write(escape(product.getProductName()));
+                writer.write(',');
+                writer.write(Integer.toString(product.getQuantity()));
+                writer.write("\r\n");
+            }
+        }
+
+        @Override
+        void flush() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+
+        private static String escape(String value) {
+            if (value == null) {
+                return "";
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+}
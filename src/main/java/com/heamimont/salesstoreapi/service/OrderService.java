@@ -2,24 +2,38 @@ package com.heamimont.salesstoreapi.service;
 
 import com.heamimont.salesstoreapi.dto.order.CreateOrderDTO;
 import com.heamimont.salesstoreapi.mapper.OrderMapper;
+import com.heamimont.salesstoreapi.dto.order.OrderPageResponseDTO;
 import com.heamimont.salesstoreapi.dto.order.OrderResponseDTO;
+import com.heamimont.salesstoreapi.dto.order.OrderStatusDTO;
+import com.heamimont.salesstoreapi.exceptions.BadRequestException;
 import com.heamimont.salesstoreapi.exceptions.ResourceCreationException;
 import com.heamimont.salesstoreapi.exceptions.ResourceNotFoundException;
 import com.heamimont.salesstoreapi.model.Order;
 import com.heamimont.salesstoreapi.model.OrderProduct;
 import com.heamimont.salesstoreapi.model.OrderStatus;
 import com.heamimont.salesstoreapi.model.User;
+import com.heamimont.salesstoreapi.repository.DailyProductSalesRepository;
 import com.heamimont.salesstoreapi.repository.OrderRepository;
 import com.heamimont.salesstoreapi.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -34,20 +48,40 @@ public class OrderService {
     private final OrderMapper orderMapper;
     private final UserRepository userRepository;
     private final ProductService productService;
+    private final DailyProductSalesRepository dailyProductSalesRepository;
+    private final StockHoldService stockHoldService;
+
+    @Value("${orders.pagination.default-size:20}")
+    private int defaultPageSize;
+
+    @Value("${orders.pagination.max-size:100}")
+    private int maxPageSize;
+
+    @Value("${orders.claim.default-size:10}")
+    private int defaultClaimSize;
+
+    @Value("${orders.claim.max-size:100}")
+    private int maxClaimSize;
 
     private static final Logger logger = LoggerFactory.getLogger(OrderService.class);
 
 
-    public OrderService(OrderRepository orderRepository, OrderMapper orderMapper, UserRepository userRepository, ProductService productService) {
+    public OrderService(OrderRepository orderRepository, OrderMapper orderMapper, UserRepository userRepository,
+                        ProductService productService, DailyProductSalesRepository dailyProductSalesRepository,
+                        StockHoldService stockHoldService) {
         this.orderRepository = orderRepository;
         this.orderMapper = orderMapper;
         this.userRepository = userRepository;
         this.productService = productService;
+        this.dailyProductSalesRepository = dailyProductSalesRepository;
+        this.stockHoldService = stockHoldService;
     }
 
     /**
      * Creates a new order.
      * Automatically calculates the total cost of the order based on the products and their quantities.
+     * With a hold ID, the units held by that stock hold are sold first and only the rest is reserved,
+     * see {@link StockHoldService#convert}.
      *
      * @param createOrderDTO the DTO containing order details
      * @return OrderResponseDTO containing the created order details
@@ -64,19 +98,36 @@ public class OrderService {
             order.setUser(user);
 
             BigDecimal totalCost = new BigDecimal(0);
+            Map<Long, Integer> quantities = new HashMap<>();
 
             for (OrderProduct op : order.getOrderProducts()) {
                 BigDecimal lineTotal = op.getProduct().getSellingPrice().multiply(BigDecimal.valueOf(op.getProductQuantity()));
                 totalCost = totalCost.add(lineTotal);
+                quantities.merge(op.getProduct().getId(), op.getProductQuantity(), Integer::sum);
+            }
+
+            // Stored timestamps keep microseconds; truncating keeps the in-memory value equal to the stored one,
+            // which pagination cursors built from this entity rely on
+            order.setOrderDate(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
 
-                // Reduce product quantity in inventory
-                productService.reduceProductQuantity(op.getProduct().getId(), op.getProductQuantity());
+            // Reduce product quantities in inventory, all lines in one batch, apart from the units already held
+            Map<Long, Integer> toReserve = createOrderDTO.getHoldId() == null
+                    ? quantities
+                    : stockHoldService.convert(createOrderDTO.getHoldId(), username, quantities);
+            SortedMap<Long, Integer> unitsSold = new TreeMap<>(quantities);
+            if (!toReserve.isEmpty()) {
+                // Units of hot products are added to the rollup when their sales are flushed
+                productService.reserveProductQuantities(toReserve, order.getOrderDate().toLocalDate())
+                        .forEach((productId, quantity) -> unitsSold.merge(productId, -quantity, Integer::sum));
+                unitsSold.values().removeIf(quantity -> quantity == 0);
             }
 
             order.setTotalCost(totalCost);
-            order.setOrderDate(LocalDateTime.now());
             order.setStatus(OrderStatus.PENDING);
             Order savedOrder = orderRepository.save(order);
+
+            // Keep the daily sales rollup in step, in the same transaction
+            dailyProductSalesRepository.addUnitsSold(savedOrder.getOrderDate().toLocalDate(), unitsSold);
             logger.info("[Order Creation] Order ({}, by {}) created successfully", savedOrder.getId(), savedOrder.getUser().getUsername());
             return orderMapper.toDTO(savedOrder);
         } catch (Exception e) {
@@ -85,45 +136,119 @@ public class OrderService {
     }
 
     /**
-     * Retrieves orders by username.
+     * Retrieves a page of orders placed by a user, newest first.
      *
      * @param username the username of the user whose orders are to be retrieved
-     * @return List of OrderResponseDTO containing orders for the specified user
+     * @param cursor the nextCursor of the previous page, or null for the first page
+     * @param size the requested page size, or null for the default; capped at the configured maximum
+     * @return OrderPageResponseDTO containing the page and the cursor of the next one
+     * @throws BadRequestException if the cursor or the page size is invalid
      * @throws ResourceNotFoundException if no orders are found for the given username or an error occurs during retrieval
      */
     @Transactional(readOnly = true)
-    public List<OrderResponseDTO> getOrdersByUsername(String username) {
+    public OrderPageResponseDTO getOrdersByUsername(String username, String cursor, Integer size) {
+        OrderCursor after = cursor != null ? OrderCursor.decode(cursor) : null;
+        int pageSize = resolvePageSize(size);
         try {
-            List<Order> orders = orderRepository.findOrdersByUser_Username(username).orElse(null);
+            User user = userRepository.findByUsername(username)
+                    .orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
-            if (orders == null || orders.isEmpty()) {
+            Limit limit = Limit.of(pageSize + 1);
+            List<UUID> ids = after == null
+                    ? orderRepository.findPageIdsByUserId(user.getId(), limit)
+                    : orderRepository.findPageIdsByUserIdAfter(user.getId(), after.orderDate(), after.id(), limit);
+
+            if (ids.isEmpty() && after == null) {
                 throw new ResourceNotFoundException("No orders found for user [" + username + "]");
-            } else {
-                return orders.stream()
-                        .map(orderMapper::toDTO)
-                        .collect(Collectors.toList());
             }
+            return loadPage(ids, pageSize);
         } catch (Exception e) {
             throw new ResourceNotFoundException("Failed to fetch orders for user [" + username + "]");
         }
     }
 
     /**
-     * Retrieved all orders
-     * @return List of OrderResponseDTO containing all orders
-     * @throws ResourceNotFoundException if there are no orders found or an error occurs during retrieval
+     * Retrieves a page of all orders, newest first.
+     *
+     * @param cursor the nextCursor of the previous page, or null for the first page
+     * @param size the requested page size, or null for the default; capped at the configured maximum
+     * @return OrderPageResponseDTO containing the page and the cursor of the next one
+     * @throws BadRequestException if the cursor or the page size is invalid
+     * @throws ResourceNotFoundException if an error occurs during retrieval
      */
     @Transactional(readOnly = true)
-    public List<OrderResponseDTO> getAllOrders() {
+    public OrderPageResponseDTO getAllOrders(String cursor, Integer size) {
+        OrderCursor after = cursor != null ? OrderCursor.decode(cursor) : null;
+        int pageSize = resolvePageSize(size);
         try {
-            return orderRepository.findAll().stream()
-                    .map(orderMapper::toDTO)
-                    .collect(Collectors.toList());
+            Limit limit = Limit.of(pageSize + 1);
+            List<UUID> ids = after == null
+                    ? orderRepository.findPageIds(limit)
+                    : orderRepository.findPageIdsAfter(after.orderDate(), after.id(), limit);
+            return loadPage(ids, pageSize);
         } catch (Exception e) {
             throw new ResourceNotFoundException("Failed to fetch all orders");
         }
     }
 
+    private int resolvePageSize(Integer size) {
+        if (size == null) {
+            return Math.min(defaultPageSize, maxPageSize);
+        }
+        if (size < 1) {
+            throw new BadRequestException("Page size must be positive", null);
+        }
+        return Math.min(size, maxPageSize);
+    }
+
+    /**
+     * Loads the orders of a page with their details, keeping the keyset order of the ids.
+     * The ids list holds one id more than the page size when there is a next page.
+     */
+    private OrderPageResponseDTO loadPage(List<UUID> ids, int pageSize) {
+        List<UUID> pageIds = ids.size() > pageSize ? ids.subList(0, pageSize) : ids;
+        if (pageIds.isEmpty()) {
+            return new OrderPageResponseDTO(List.of(), null);
+        }
+
+        Map<UUID, Order> ordersById = orderRepository.findWithDetailsByIdIn(pageIds).stream()
+                .collect(Collectors.toMap(Order::getId, Function.identity()));
+        List<Order> orders = pageIds.stream()
+                .map(ordersById::get)
+                .filter(Objects::nonNull)
+                .toList();
+
+        String nextCursor = ids.size() > pageSize && !orders.isEmpty()
+                ? OrderCursor.of(orders.get(orders.size() - 1)).encode()
+                : null;
+        return new OrderPageResponseDTO(orders.stream().map(orderMapper::toDTO).toList(), nextCursor);
+    }
+
+    /**
+     * Claims the oldest pending orders for fulfillment by moving them to IN_PROGRESS.
+     * Concurrent callers never claim the same order, see {@link OrderRepository#claimPending(int)}.
+     *
+     * @param limit the most orders to claim, or null for the default; capped at the configured maximum
+     * @return the claimed orders, oldest first; empty when no order is pending
+     * @throws BadRequestException if the limit is not positive
+     */
+    @Transactional
+    public List<OrderResponseDTO> claimPendingOrders(Integer limit) {
+        if (limit != null && limit < 1) {
+            throw new BadRequestException("Claim limit must be positive", null);
+        }
+        int size = Math.min(limit == null ? defaultClaimSize : limit, maxClaimSize);
+        List<UUID> ids = orderRepository.claimPending(size);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        logger.info("[Order Claim] Claimed {} pending order(s)", ids.size());
+        return orderRepository.findWithDetailsByIdIn(ids).stream()
+                .sorted(Comparator.comparing(Order::getOrderDate).thenComparing(Order::getId))
+                .map(orderMapper::toDTO)
+                .toList();
+    }
+
     /**
      * Updates the status of an order.
      *
@@ -134,15 +259,33 @@ public class OrderService {
      */
     @Transactional
     public OrderResponseDTO updateOrderStatus(UUID orderId, OrderStatus status) {
-        Order order = orderRepository.findById(orderId)
+        Order order = orderRepository.findWithDetailsById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
 
+        // Every status still counts as a sale, so the daily sales rollup does not change here
         order.setStatus(status);
         Order updatedOrder = orderRepository.save(order);
         logger.info("[Order Update] Order ({}) status updated to {}", updatedOrder.getId(), status);
         return orderMapper.toDTO(updatedOrder);
     }
 
+    /**
+     * Updates the status of an order with a single UPDATE, without loading the order, its lines and products.
+     *
+     * @param orderId the ID of the order to update
+     * @param status the new status to set for the order
+     * @return OrderStatusDTO containing the ID and the new status of the order
+     * @throws ResourceNotFoundException if the order with the given ID does not exist
+     */
+    @Transactional
+    public OrderStatusDTO updateOrderStatusSummary(UUID orderId, OrderStatus status) {
+        if (orderRepository.updateStatusById(orderId, status) == 0) {
+            throw new ResourceNotFoundException("Order not found");
+        }
+        logger.info("[Order Update] Order ({}) status updated to {}", orderId, status);
+        return new OrderStatusDTO(orderId, status);
+    }
+
     /**
      * Retrieves an order by its ID.
      *
@@ -152,7 +295,7 @@ public class OrderService {
      */
     @Transactional(readOnly = true)
     public OrderResponseDTO getOrderById(UUID orderId) {
-        return orderRepository.findById(orderId)
+        return orderRepository.findWithDetailsById(orderId)
                 .map(orderMapper::toDTO)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
     }
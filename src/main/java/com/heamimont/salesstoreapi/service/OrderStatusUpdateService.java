@@ -0,0 +1,148 @@
+package com.heamimont.salesstoreapi.service;
+
+import com.heamimont.salesstoreapi.dto.order.BulkUpdateOrderStatusDTO;
+import com.heamimont.salesstoreapi.dto.order.BulkUpdateOrderStatusResultDTO;
+import com.heamimont.salesstoreapi.exceptions.BadRequestException;
+import com.heamimont.salesstoreapi.model.OrderStatus;
+import com.heamimont.salesstoreapi.repository.OrderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Moves many orders to a new status at once.
+ * Orders are selected by ID or with a filter (current status and date range), and only move forward, see
+ * {@link OrderStatus#previousStatuses()}. They are updated in chunks of orders.status-update.chunk-size, each in its
+ * own transaction: the orders of the chunk that can move are locked, then moved with a single set-based UPDATE,
+ * without loading their lines and products. Chunks that were updated stay updated if a later one fails; as orders
+ * that already moved are skipped, the same request can simply be sent again.
+ * <p>
+ * A filter can select any number of orders, so their IDs are only returned while no more than
+ * orders.status-update.max-ids of them were updated; beyond that only the count is returned.
+ */
+@Service
+public class OrderStatusUpdateService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderStatusUpdateService.class);
+
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${orders.status-update.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${orders.status-update.max-ids:10000}")
+    private int maxIds;
+
+    public OrderStatusUpdateService(OrderRepository orderRepository, PlatformTransactionManager transactionManager) {
+        this.orderRepository = orderRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Moves the selected orders to the requested status.
+     *
+     * @param request the status, and either the order IDs or the filter
+     * @return the number and IDs of the updated orders, and of the requested orders that were skipped;
+     *         no IDs of updated orders if more than orders.status-update.max-ids were selected with the filter
+     * @throws BadRequestException if the status is PENDING, if neither or both of IDs and filter are given,
+     *                             if too many IDs are given, or if the filter cannot match any order that can move
+     */
+    public BulkUpdateOrderStatusResultDTO updateStatuses(BulkUpdateOrderStatusDTO request) {
+        OrderStatus status = request.getStatus();
+        Set<OrderStatus> previous = status.previousStatuses();
+        if (previous.isEmpty()) {
+            throw new BadRequestException("Orders cannot be moved back to " + status, null);
+        }
+        boolean byIds = request.getOrderIds() != null && !request.getOrderIds().isEmpty();
+        boolean byFilter = request.getCurrentStatus() != null || request.getStartDate() != null || request.getEndDate() != null;
+        if (byIds == byFilter) {
+            throw new BadRequestException("Select the orders either with orderIds or with currentStatus, startDate and endDate", null);
+        }
+
+        long start = System.nanoTime();
+        BulkUpdateOrderStatusResultDTO result = byIds
+                ? updateByIds(request.getOrderIds(), status, previous)
+                : updateByFilter(request, status, previous);
+        logger.info("[Order Status Update] {} order(s) moved to {}, {} skipped in {} ms",
+                result.getUpdated(), status, result.getSkipped(), (System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
+    private BulkUpdateOrderStatusResultDTO updateByIds(List<UUID> orderIds, OrderStatus status, Set<OrderStatus> previous) {
+        if (orderIds.size() > maxIds) {
+            throw new BadRequestException("No more than " + maxIds + " order IDs can be updated at once", null);
+        }
+        if (orderIds.contains(null)) {
+            throw new BadRequestException("Order IDs must not be null", null);
+        }
+        List<UUID> ids = new ArrayList<>(new LinkedHashSet<>(orderIds));
+        List<UUID> updatedIds = new ArrayList<>();
+        List<UUID> skippedIds = new ArrayList<>();
+
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<UUID> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+            List<UUID> moved = transactionTemplate.execute(tx -> move(orderRepository.lockIdsInStatus(chunk, previous), status));
+            Set<UUID> movedSet = new HashSet<>(moved);
+            for (UUID id : chunk) {
+                (movedSet.contains(id) ? updatedIds : skippedIds).add(id);
+            }
+        }
+        return new BulkUpdateOrderStatusResultDTO(status, updatedIds.size(), skippedIds.size(), updatedIds, skippedIds);
+    }
+
+    private BulkUpdateOrderStatusResultDTO updateByFilter(BulkUpdateOrderStatusDTO request, OrderStatus status, Set<OrderStatus> previous) {
+        if (request.getStartDate() != null && request.getEndDate() != null && request.getStartDate().isAfter(request.getEndDate())) {
+            throw new BadRequestException("startDate must not be after endDate", null);
+        }
+        Set<OrderStatus> statuses = previous;
+        if (request.getCurrentStatus() != null) {
+            if (!previous.contains(request.getCurrentStatus())) {
+                throw new BadRequestException("Orders cannot be moved from " + request.getCurrentStatus() + " to " + status, null);
+            }
+            statuses = Set.of(request.getCurrentStatus());
+        }
+
+        // Dropped once more than maxIds orders are updated
+        List<UUID> updatedIds = new ArrayList<>();
+        int updated = 0;
+        UUID after = null;
+        List<UUID> moved;
+        do {
+            UUID last = after;
+            Set<OrderStatus> current = statuses;
+            moved = transactionTemplate.execute(tx -> move(orderRepository.lockIdsInStatus(
+                    current, request.getStartDate(), request.getEndDate(), last, chunkSize), status));
+            updated += moved.size();
+            if (updatedIds != null) {
+                if (updated > maxIds) {
+                    updatedIds = null;
+                } else {
+                    updatedIds.addAll(moved);
+                }
+            }
+            if (!moved.isEmpty()) {
+                after = moved.get(moved.size() - 1);
+            }
+        } while (moved.size() == chunkSize);
+        return new BulkUpdateOrderStatusResultDTO(status, updated, 0, updatedIds, List.of());
+    }
+
+    private List<UUID> move(List<UUID> lockedIds, OrderStatus status) {
+        if (!lockedIds.isEmpty()) {
+            // Every status still counts as a sale, so the daily sales rollup does not change here
+            orderRepository.updateStatusByIdIn(lockedIds, status);
+        }
+        return lockedIds;
+    }
+}
@@ -0,0 +1,243 @@
+package com.heamimont.salesstoreapi.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.heamimont.salesstoreapi.dto.product.ProductPublicResponseDTO;
+import com.heamimont.salesstoreapi.dto.product.ProductResponseDTO;
+import com.heamimont.salesstoreapi.mapper.ProductMapper;
+import com.heamimont.salesstoreapi.model.Product;
+import com.heamimont.salesstoreapi.repository.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Immutable in-memory snapshot of the product catalog, served to readers without locks or database access.
+ * Each snapshot holds the mapped products together with their JSON bytes, a gzip variant and a strong ETag.
+ * The first snapshot is built on startup. Product changes mark it stale once their transaction commits (see
+ * {@link #invalidateAfterCommit()}) and a background thread rebuilds it, coalescing the changes committed meanwhile
+ * into one rebuild, then swaps the new snapshot in with a volatile write. Readers only read the current snapshot,
+ * so they never wait for a rebuild, and see a change shortly after its commit.
+ * The snapshot is local to this instance, so other instances only see changes made through them.
+ * The available quantities include the stock kept outside the product rows, such as the units of hot products held
+ * in memory (see {@link HotStockService}), as read from the registered stock sources when the snapshot is built.
+ */
+@Component
+public class ProductCatalog {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductCatalog.class);
+
+    private final ProductRepository productRepository;
+    private final ProductMapper productMapper;
+    private final ObjectMapper objectMapper;
+
+    private static final long REBUILD_RETRY_SECONDS = 1;
+
+    // Bumped after every committed product change; a snapshot built for an older value is stale
+    private final AtomicLong modifications = new AtomicLong();
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService rebuildExecutor;
+    private final List<ToIntFunction<Long>> stockSources = new CopyOnWriteArrayList<>();
+    private volatile Snapshot snapshot;
+
+    public ProductCatalog(ProductRepository productRepository,
+                          ProductMapper productMapper,
+                          ObjectMapper objectMapper) {
+        this.productRepository = productRepository;
+        this.productMapper = productMapper;
+        this.objectMapper = objectMapper;
+        this.rebuildExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "product-catalog-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Builds the first snapshot, so readers never build one.
+     */
+    @PostConstruct
+    public void start() {
+        snapshot = build(modifications.get());
+    }
+
+    /**
+     * Adds a source of stock kept outside the available quantity of the product rows. Its quantity is listed with
+     * the available quantity from the next snapshot on; the source must answer from memory.
+     *
+     * @param source product ID to the quantity it holds
+     */
+    public void addStockSource(ToIntFunction<Long> source) {
+        stockSources.add(source);
+    }
+
+    @PreDestroy
+    public void stop() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    /**
+     * Returns the current catalog snapshot, without waiting for a rebuild in progress.
+     * The snapshot may miss the changes committed in the last moments, until the rebuild they triggered completes.
+     * Inside a read-write transaction the catalog is read directly and not published, so the transaction sees
+     * its own changes and changes not committed yet are never served to others.
+     *
+     * @return the catalog snapshot
+     */
+    public Snapshot snapshot() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return build(modifications.get());
+        }
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        // Only before start(), e.g. when the catalog is not managed by Spring
+        synchronized (this) {
+            if (snapshot == null) {
+                snapshot = build(modifications.get());
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Marks the snapshot stale once the current transaction commits, or immediately outside a transaction,
+     * and schedules its rebuild. Must be called by every operation that changes products, including stock changes.
+     */
+    public void invalidateAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate();
+                }
+            });
+        } else {
+            invalidate();
+        }
+    }
+
+    private void invalidate() {
+        modifications.incrementAndGet();
+        scheduleRebuild(0);
+    }
+
+    // At most one rebuild is scheduled; changes committed before it starts are all covered by it
+    private void scheduleRebuild(long delaySeconds) {
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            try {
+                rebuildExecutor.schedule(this::rebuild, delaySeconds, TimeUnit.SECONDS);
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+                rebuildScheduled.set(false);
+            }
+        }
+    }
+
+    private void rebuild() {
+        // Cleared first, so a change committed from here on schedules another rebuild
+        rebuildScheduled.set(false);
+        long modification = modifications.get();
+        Snapshot current = snapshot;
+        if (current != null && current.modification() == modification) {
+            return;
+        }
+        try {
+            snapshot = build(modification);
+        } catch (RuntimeException e) {
+            logger.warn("[Product Catalog] Failed to rebuild snapshot {}, retrying in {}s",
+                    modification, REBUILD_RETRY_SECONDS, e);
+            scheduleRebuild(REBUILD_RETRY_SECONDS);
+        }
+    }
+
+    private Snapshot build(long modification) {
+        List<Product> products = productRepository.findAll();
+        List<ProductResponseDTO> adminView = products.stream().map(productMapper::toDTO).toList();
+        List<ProductPublicResponseDTO> publicView = products.stream().map(productMapper::toPublicDTO).toList();
+        Map<Long, ProductPublicResponseDTO> publicById = new HashMap<>(publicView.size() * 2);
+        for (int i = 0; i < products.size(); i++) {
+            Long id = products.get(i).getId();
+            int unlisted = 0;
+            for (ToIntFunction<Long> source : stockSources) {
+                unlisted += source.applyAsInt(id);
+            }
+            if (unlisted != 0) {
+                adminView.get(i).setAvailableQuantity(adminView.get(i).getAvailableQuantity() + unlisted);
+                publicView.get(i).setAvailableQuantity(publicView.get(i).getAvailableQuantity() + unlisted);
+            }
+            publicById.put(id, publicView.get(i));
+        }
+        logger.debug("[Product Catalog] Built snapshot {} with {} product(s)", modification, products.size());
+        return new Snapshot(modification, adminView, publicView, Collections.unmodifiableMap(publicById),
+                serialize(adminView), serialize(publicView));
+    }
+
+    private Body serialize(List<?> view) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(view);
+
+            ByteArrayOutputStream gzip = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (GZIPOutputStream out = new GZIPOutputStream(gzip)) {
+                out.write(json);
+            }
+
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            String etag = HexFormat.of().formatHex(digest, 0, 16);
+            return new Body(json, gzip.toByteArray(), etag);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize the product catalog", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * One version of the catalog. The lists and the map are unmodifiable and shared between all readers.
+     */
+    public record Snapshot(long modification,
+                           List<ProductResponseDTO> products,
+                           List<ProductPublicResponseDTO> publicProducts,
+                           Map<Long, ProductPublicResponseDTO> publicProductsById,
+                           Body productsBody,
+                           Body publicProductsBody) {
+    }
+
+    /**
+     * A pre-serialized response body. The arrays are shared and must not be modified.
+     *
+     * @param json the JSON bytes
+     * @param gzip the gzip compressed JSON bytes
+     * @param tag the entity tag of the JSON, without quotes
+     */
+    public record Body(byte[] json, byte[] gzip, String tag) {
+    }
+}
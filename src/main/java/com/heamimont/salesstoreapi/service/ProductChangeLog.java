@@ -0,0 +1,148 @@
+package com.heamimont.salesstoreapi.service;
+
+import com.heamimont.salesstoreapi.model.ProductTombstone;
+import com.heamimont.salesstoreapi.repository.ProductRepository;
+import com.heamimont.salesstoreapi.repository.ProductTombstoneRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Queue;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands out the monotonically increasing change versions of products and tells delta sync clients up to which
+ * version all changes are visible.
+ * Every product change takes a new version, which is stored on the product (or on a {@link ProductTombstone} for a
+ * deletion). As transactions commit in any order, a version only becomes "stable" once no smaller version is still in
+ * flight, so a client that resumes from a stable version never skips a change that committed later.
+ * Versions are allocated by this instance, seeded from the database at startup; product writes must therefore go
+ * through a single instance.
+ */
+@Component
+public class ProductChangeLog {
+
+    private final ProductRepository productRepository;
+    private final ProductTombstoneRepository productTombstoneRepository;
+    private final Executor executor;
+
+    // Guarded by this
+    private long lastAllocated;
+    private long lastCommitted;
+    private final NavigableSet<Long> inFlight = new TreeSet<>();
+
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+    public ProductChangeLog(ProductRepository productRepository,
+                            ProductTombstoneRepository productTombstoneRepository,
+                            @Qualifier("applicationTaskExecutor") Executor executor) {
+        this.productRepository = productRepository;
+        this.productTombstoneRepository = productTombstoneRepository;
+        this.executor = executor;
+    }
+
+    @PostConstruct
+    public synchronized void load() {
+        long max = Math.max(productRepository.findMaxChangeVersion(), productTombstoneRepository.findMaxChangeVersion());
+        lastAllocated = Math.max(lastAllocated, max);
+        lastCommitted = Math.max(lastCommitted, max);
+    }
+
+    /**
+     * Allocates the version of a product change. The version becomes stable once the current transaction completes,
+     * or immediately outside a transaction.
+     *
+     * @return the new change version
+     */
+    public long allocate() {
+        long version;
+        synchronized (this) {
+            version = ++lastAllocated;
+            inFlight.add(version);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    complete(version, status == STATUS_COMMITTED);
+                }
+            });
+        } else {
+            complete(version, true);
+        }
+        return version;
+    }
+
+    /**
+     * Records the deletion of a product under a new change version.
+     */
+    public void recordDeletion(Long productId) {
+        productTombstoneRepository.save(new ProductTombstone(allocate(), productId));
+    }
+
+    /**
+     * @return the highest version up to which all changes are committed
+     */
+    public synchronized long stableVersion() {
+        return inFlight.isEmpty() ? lastCommitted : Math.min(lastCommitted, inFlight.first() - 1);
+    }
+
+    /**
+     * Finds the products deleted after {@code since} up to and including {@code until}.
+     */
+    public List<Long> findDeletedBetween(long since, long until) {
+        return productTombstoneRepository.findDeletedProductIds(since, until);
+    }
+
+    /**
+     * Waits until the stable version passes {@code since}, or the timeout elapses.
+     * The returned future completes on the application task executor, never on a committing thread.
+     *
+     * @param since the version the client has seen
+     * @param timeout how long to wait for a change
+     * @return the stable version at completion
+     */
+    public CompletableFuture<Long> awaitChangeAfter(long since, Duration timeout) {
+        if (stableVersion() > since || timeout.isZero()) {
+            return CompletableFuture.completedFuture(stableVersion());
+        }
+        Waiter waiter = new Waiter(since, new CompletableFuture<>());
+        waiters.add(waiter);
+        // A change may have become stable between the check and the registration
+        notifyWaiters();
+        return waiter.signal()
+                .completeOnTimeout(since, timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((version, e) -> waiters.remove(waiter))
+                .thenApplyAsync(version -> stableVersion(), executor);
+    }
+
+    private void complete(long version, boolean committed) {
+        synchronized (this) {
+            inFlight.remove(version);
+            if (committed) {
+                lastCommitted = Math.max(lastCommitted, version);
+            }
+        }
+        notifyWaiters();
+    }
+
+    private void notifyWaiters() {
+        if (waiters.isEmpty()) {
+            return;
+        }
+        long stable = stableVersion();
+        waiters.removeIf(waiter -> waiter.since() < stable && waiter.signal().complete(stable));
+    }
+
+    private record Waiter(long since, CompletableFuture<Long> signal) {
+    }
+}
@@ -0,0 +1,273 @@
+package com.heamimont.salesstoreapi.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.heamimont.salesstoreapi.dto.product.CreateProductDTO;
+import com.heamimont.salesstoreapi.dto.product.ProductImportFormat;
+import com.heamimont.salesstoreapi.exceptions.BadRequestException;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads the rows of a bulk product import one at a time from an input stream in one of the
+ * {@link ProductImportFormat}s, so the input never has to fit in memory. A row that cannot be read is returned
+ * with an error instead of failing the whole import. Input is read as UTF-8.
+ */
+abstract class ProductImportReader implements Closeable {
+
+    static ProductImportReader create(ProductImportFormat format, InputStream in, ObjectMapper objectMapper) throws IOException {
+        Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+        return switch (format) {
+            case NDJSON -> new NdjsonReader(reader, objectMapper);
+            case CSV -> new CsvReader(reader);
+        };
+    }
+
+    /**
+     * @return the next row, or null at the end of the input
+     */
+    abstract Row next() throws IOException;
+
+    /**
+     * A row of the input, starting on {@code line}. Either {@code product} or {@code error} is set;
+     * {@code name} is the product name if it could be read.
+     */
+    record Row(long line, String name, CreateProductDTO product, String error) {
+
+        static Row of(long line, CreateProductDTO product) {
+            return new Row(line, product.getName(), product, null);
+        }
+
+        static Row failed(long line, String name, String error) {
+            return new Row(line, name, null, error);
+        }
+    }
+
+    /** One JSON object per line, with the fields of {@link CreateProductDTO}. Blank lines are skipped. */
+    private static final class NdjsonReader extends ProductImportReader {
+        private final BufferedReader reader;
+        private final ObjectReader objectReader;
+        private long line;
+
+        NdjsonReader(Reader reader, ObjectMapper objectMapper) {
+            this.reader = new BufferedReader(reader);
+            this.objectReader = objectMapper.readerFor(CreateProductDTO.class);
+        }
+
+        @Override
+        Row next() throws IOException {
+            String text;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (text.isBlank()) {
+                    continue;
+                }
+                try {
+                    return Row.of(line, objectReader.readValue(text));
+                } catch (JsonProcessingException e) {
+                    return Row.failed(line, null, "Malformed JSON: " + e.getOriginalMessage());
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    /**
+     * RFC 4180 CSV with a header row naming the columns: name, description, actualPrice, sellingPrice and
+     * availableQuantity (case-insensitive, snake_case also accepted; description is optional, other columns are
+     * ignored). Quoted fields may contain commas, quotes and line breaks. Empty fields are null.
+     */
+    private static final class CsvReader extends ProductImportReader {
+        private static final String[] COLUMNS = {"name", "description", "actualprice", "sellingprice", "availablequantity"};
+        private static final int NAME = 0, DESCRIPTION = 1, ACTUAL_PRICE = 2, SELLING_PRICE = 3, AVAILABLE_QUANTITY = 4;
+
+        private final Reader reader;
+        private final char[] buffer = new char[8192];
+        private int position;
+        private int limit;
+        private int pushedBack = -2;
+        private long line = 1;
+        private final int[] columnIndexes = new int[COLUMNS.length];
+
+        CsvReader(Reader reader) throws IOException {
+            this.reader = reader;
+            List<String> header = readRecord();
+            if (header == null) {
+                throw new BadRequestException("CSV import is empty, a header row is required", null);
+            }
+            Arrays.fill(columnIndexes, -1);
+            for (int i = 0; i < header.size(); i++) {
+                String column = header.get(i).replace("\uFEFF", "").replaceAll("[_\\-\\s]", "").toLowerCase(Locale.ROOT);
+                for (int c = 0; c < COLUMNS.length; c++) {
+                    if (COLUMNS[c].equals(column)) {
+                        columnIndexes[c] = i;
+                    }
+                }
+            }
+            List<String> missing = new ArrayList<>();
+            for (int c : new int[]{NAME, ACTUAL_PRICE, SELLING_PRICE, AVAILABLE_QUANTITY}) {
+                if (columnIndexes[c] < 0) {
+                    missing.add(COLUMNS[c]);
+                }
+            }
+            if (!missing.isEmpty()) {
+                throw new BadRequestException("CSV header is missing the column(s) " + String.join(", ", missing), null);
+            }
+        }
+
+        @Override
+        Row next() throws IOException {
+            while (true) {
+                long start = line;
+                List<String> fields;
+                try {
+                    fields = readRecord();
+                } catch (MalformedRecordException e) {
+                    return Row.failed(start, null, e.getMessage());
+                }
+                if (fields == null) {
+                    return null;
+                }
+                if (fields.size() == 1 && fields.get(0).isBlank()) {
+                    continue;
+                }
+                CreateProductDTO product = new CreateProductDTO();
+                product.setName(field(fields, NAME));
+                product.setDescription(field(fields, DESCRIPTION));
+                try {
+                    product.setActualPrice(decimal(field(fields, ACTUAL_PRICE), "actualPrice"));
+                    product.setSellingPrice(decimal(field(fields, SELLING_PRICE), "sellingPrice"));
+                    String quantity = field(fields, AVAILABLE_QUANTITY);
+                    try {
+                        product.setAvailableQuantity(quantity == null ? null : Integer.valueOf(quantity));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("availableQuantity: must be a whole number");
+                    }
+                } catch (IllegalArgumentException e) {
+                    return Row.failed(start, product.getName(), e.getMessage());
+                }
+                return Row.of(start, product);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+
+        private String field(List<String> fields, int column) {
+            int index = columnIndexes[column];
+            if (index < 0 || index >= fields.size()) {
+                return null;
+            }
+            String value = fields.get(index).trim();
+            return value.isEmpty() ? null : value;
+        }
+
+        private static BigDecimal decimal(String value, String column) {
+            if (value == null) {
+                return null;
+            }
+            try {
+                return new BigDecimal(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(column + ": must be a number");
+            }
+        }
+
+        /**
+         * @return the fields of the next record, or null at the end of the input
+         */
+        private List<String> readRecord() throws IOException {
+            int c = read();
+            if (c < 0) {
+                return null;
+            }
+            List<String> fields = new ArrayList<>(COLUMNS.length);
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c < 0) {
+                        throw new MalformedRecordException("Unterminated quoted field");
+                    }
+                    if (c == '"') {
+                        int next = read();
+                        if (next == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            c = next;
+                            continue;
+                        }
+                    } else {
+                        if (c == '\n') {
+                            line++;
+                        }
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\r' || c == '\n' || c < 0) {
+                    if (c == '\r') {
+                        int next = read();
+                        if (next != '\n') {
+                            pushedBack = next;
+                        }
+                    }
+                    if (c >= 0) {
+                        line++;
+                    }
+                    fields.add(field.toString());
+                    return fields;
+                } else {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+        }
+
+        private int read() throws IOException {
+            if (pushedBack != -2) {
+                int c = pushedBack;
+                pushedBack = -2;
+                return c;
+            }
+            if (position == limit) {
+                limit = reader.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[position++];
+        }
+    }
+
+    private static final class MalformedRecordException extends IOException {
+        MalformedRecordException(String message) {
+            super(message);
+        }
+    }
+}
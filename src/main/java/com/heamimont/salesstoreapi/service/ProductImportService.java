@@ -0,0 +1,245 @@
+package com.heamimont.salesstoreapi.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.heamimont.salesstoreapi.dto.product.CreateProductDTO;
+import com.heamimont.salesstoreapi.dto.product.ProductImportFormat;
+import com.heamimont.salesstoreapi.dto.product.ProductImportResultDTO;
+import com.heamimont.salesstoreapi.exceptions.BadRequestException;
+import com.heamimont.salesstoreapi.mapper.ProductMapper;
+import com.heamimont.salesstoreapi.model.Product;
+import com.heamimont.salesstoreapi.repository.ProductRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Imports products in bulk from a streamed NDJSON or CSV body.
+ * Rows are validated with the rules of {@link CreateProductDTO} and upserted by name: a row creates the product,
+ * or overwrites the product with the same name. Valid rows are written in batches of products.import.batch-size,
+ * each batch in its own transaction with one JDBC batch of upserts, so concurrent imports of the same names do
+ * not fail on the unique name. Batches that were written stay written
+ * if a later one fails, and importing the same input again is harmless.
+ */
+@Service
+public class ProductImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductImportService.class);
+
+    private final ProductRepository productRepository;
+    private final ProductMapper productMapper;
+    private final ProductCatalog productCatalog;
+    private final ProductChangeLog productChangeLog;
+    private final ProductSearchIndex productSearchIndex;
+    private final HotStockService hotStockService;
+    private final InventoryLedger inventoryLedger;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${products.import.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${products.import.max-errors:1000}")
+    private int maxErrors;
+
+    public ProductImportService(ProductRepository productRepository,
+                                ProductMapper productMapper,
+                                ProductCatalog productCatalog,
+                                ProductChangeLog productChangeLog,
+                                ProductSearchIndex productSearchIndex,
+                                HotStockService hotStockService,
+                                InventoryLedger inventoryLedger,
+                                Validator validator,
+                                ObjectMapper objectMapper,
+                                PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.productMapper = productMapper;
+        this.productCatalog = productCatalog;
+        this.productChangeLog = productChangeLog;
+        this.productSearchIndex = productSearchIndex;
+        this.hotStockService = hotStockService;
+        this.inventoryLedger = inventoryLedger;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Imports the products of {@code in}.
+     *
+     * @param in the import body, read as UTF-8
+     * @param format the format of the body
+     * @return the number of created, updated and rejected rows, and why rows were rejected
+     * @throws BadRequestException if the format is not supported, the CSV header is invalid or the body cannot be read
+     */
+    public ProductImportResultDTO importProducts(InputStream in, ProductImportFormat format) {
+        if (format == null) {
+            throw new BadRequestException("Unsupported import format, use application/x-ndjson or text/csv", null);
+        }
+        long start = System.nanoTime();
+        Report report = new Report(maxErrors);
+        Set<String> names = new HashSet<>();
+        List<ProductImportReader.Row> batch = new ArrayList<>(batchSize);
+
+        try (ProductImportReader reader = ProductImportReader.create(format, in, objectMapper)) {
+            ProductImportReader.Row row;
+            while ((row = reader.next()) != null) {
+                if (row.error() != null) {
+                    report.reject(row, row.error());
+                    continue;
+                }
+                String violations = validate(row.product());
+                if (violations != null) {
+                    report.reject(row, violations);
+                } else if (!names.add(row.name())) {
+                    report.reject(row, "name: Duplicate product name in this import");
+                } else {
+                    batch.add(row);
+                    if (batch.size() == batchSize) {
+                        write(batch, report);
+                        batch.clear();
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                write(batch, report);
+            }
+        } catch (IOException e) {
+            throw new BadRequestException("Failed to read the import: " + e.getMessage(), e);
+        }
+
+        logger.info("[Product Import] {} created, {} updated, {} rejected in {} ms",
+                report.created, report.updated, report.failed, (System.nanoTime() - start) / 1_000_000);
+        return new ProductImportResultDTO(report.created, report.updated, report.failed, report.errors);
+    }
+
+    private String validate(CreateProductDTO product) {
+        Set<ConstraintViolation<CreateProductDTO>> violations = validator.validate(product);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private void write(List<ProductImportReader.Row> rows, Report report) {
+        try {
+            int created = transactionTemplate.execute(status -> upsert(rows));
+            report.created += created;
+            report.updated += rows.size() - created;
+        } catch (RuntimeException e) {
+            // E.g. a lost connection or a deadlock; the batch was rolled back as a whole
+            String message = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            logger.warn("[Product Import] Batch of {} row(s) starting on line {} failed: {}", rows.size(), rows.get(0).line(), message);
+            for (ProductImportReader.Row row : rows) {
+                report.reject(row, "Batch failed: " + message);
+            }
+        }
+    }
+
+    /**
+     * Creates or overwrites the products of one batch, with a single upsert per row.
+     *
+     * @return the number of products created
+     */
+    private int upsert(List<ProductImportReader.Row> rows) {
+        List<String> names = rows.stream().map(ProductImportReader.Row::name).toList();
+        // Rows replace the stock, so the units of hot products held in memory go back first and the rows are
+        // locked until the batch commits
+        List<Long> existingIds = productRepository.findIdsByNameIn(names);
+        hotStockService.release(existingIds);
+        productRepository.lockAll(new TreeSet<>(existingIds));
+
+        Map<String, Long> existing = new HashMap<>(rows.size() * 2);
+        Map<Long, Integer> previousQuantities = new HashMap<>(rows.size() * 2);
+        for (Product product : productRepository.findAllByNameIn(names)) {
+            existing.put(product.getName(), product.getId());
+            previousQuantities.put(product.getId(), product.getAvailableQuantity());
+        }
+
+        long changeVersion = productChangeLog.allocate();
+        List<Product> products = new ArrayList<>(rows.size());
+        Map<String, Product> created = new HashMap<>();
+        for (ProductImportReader.Row row : rows) {
+            Product product = productMapper.toEntity(row.product());
+            product.setId(existing.get(row.name()));
+            product.setChangeVersion(changeVersion);
+            products.add(product);
+            if (product.getId() == null) {
+                created.put(product.getName(), product);
+            }
+        }
+        productRepository.upsertAllByName(products);
+
+        // A name created by a concurrent import since the lookup was updated instead, and kept the ID of that import
+        Map<Long, Integer> concurrentlyCreated = new HashMap<>();
+        if (!created.isEmpty()) {
+            for (Product stored : productRepository.findAllByNameIn(created.keySet())) {
+                Product product = created.get(stored.getName());
+                if (!stored.getId().equals(product.getId())) {
+                    product.setId(stored.getId());
+                    created.remove(stored.getName());
+                    concurrentlyCreated.put(stored.getId(), product.getAvailableQuantity());
+                }
+            }
+        }
+
+        Map<Long, Integer> initialStock = new HashMap<>();
+        SortedMap<Long, Integer> adjustments = new TreeMap<>();
+        for (Product product : products) {
+            Integer previous = previousQuantities.get(product.getId());
+            if (previous != null) {
+                adjustments.put(product.getId(), product.getAvailableQuantity() - previous);
+            } else if (!concurrentlyCreated.containsKey(product.getId())) {
+                initialStock.put(product.getId(), product.getAvailableQuantity());
+            }
+        }
+        inventoryLedger.recordInitialStock(initialStock);
+        inventoryLedger.recordAdjustments(adjustments);
+        concurrentlyCreated.forEach(inventoryLedger::recordStockSet);
+
+        productCatalog.invalidateAfterCommit();
+        productSearchIndex.indexAllAfterCommit(products);
+        return created.size();
+    }
+
+    private static final class Report {
+        private final int maxErrors;
+        private final List<ProductImportResultDTO.RowError> errors = new ArrayList<>();
+        private int created;
+        private int updated;
+        private int failed;
+
+        Report(int maxErrors) {
+            this.maxErrors = maxErrors;
+        }
+
+        void reject(ProductImportReader.Row row, String message) {
+            failed++;
+            if (errors.size() < maxErrors) {
+                errors.add(new ProductImportResultDTO.RowError(row.line(), row.name(), message));
+            }
+        }
+    }
+}
@@ -0,0 +1,644 @@
+package com.heamimont.salesstoreapi.service;
+
+import com.heamimont.salesstoreapi.model.Product;
+import com.heamimont.salesstoreapi.repository.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory full-text index over product names and descriptions, used for search and typeahead.
+ * Terms map to postings of primitive product IDs kept sorted, and the term dictionary is sorted so the terms
+ * starting with a prefix form one contiguous range. The last word of a query matches as a prefix, the others
+ * as whole words, and all of them must match.
+ * Results are ranked by the matched words, weighted by rarity (IDF) and by the field they occur in; whole
+ * words rank above prefix matches.
+ * Product changes are applied once their transaction commits (see {@link #indexAfterCommit(Product)}), so the
+ * index is local to this instance like {@link ProductCatalog}.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    private static final float NAME_WEIGHT = 3f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+    private static final float PREFIX_MATCH_FACTOR = 0.5f;
+    // Bounds the postings scanned for short prefixes such as "a", which match a large part of the dictionary
+    private static final int MAX_PREFIX_POSTINGS = 250_000;
+    private static final int MAX_QUERY_TERMS = 8;
+
+    private final ProductRepository productRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Guarded by lock
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final Map<Long, String[]> documentTerms = new HashMap<>();
+
+    public ProductSearchIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @PostConstruct
+    public void load() {
+        List<Product> products = productRepository.findAll();
+        lock.writeLock().lock();
+        try {
+            terms.clear();
+            documentTerms.clear();
+            products.forEach(product -> add(product.getId(), product.getName(), product.getDescription()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("[Product Search] Indexed {} product(s), {} term(s)", products.size(), terms.size());
+    }
+
+    /**
+     * (Re)indexes the product once the current transaction commits, or immediately outside a transaction.
+     * Must be called by every operation that creates a product or changes its name or description.
+     */
+    public void indexAfterCommit(Product product) {
+        long id = product.getId();
+        String name = product.getName();
+        String description = product.getDescription();
+        afterCommit(() -> index(id, name, description));
+    }
+
+    /**
+     * (Re)indexes several products at once, once the current transaction commits, or immediately outside a transaction.
+     */
+    public void indexAllAfterCommit(Collection<Product> products) {
+        long[] ids = new long[products.size()];
+        String[] names = new String[ids.length];
+        String[] descriptions = new String[ids.length];
+        int i = 0;
+        for (Product product : products) {
+            ids[i] = product.getId();
+            names[i] = product.getName();
+            descriptions[i++] = product.getDescription();
+        }
+        afterCommit(() -> indexAll(ids, names, descriptions));
+    }
+
+    /**
+     * Removes the product once the current transaction commits, or immediately outside a transaction.
+     */
+    public void removeAfterCommit(long productId) {
+        afterCommit(() -> remove(productId));
+    }
+
+    void index(long id, String name, String description) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(id);
+            add(id, name, description);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * (Re)indexes several products. Changes are grouped by term, so that each affected posting list is rewritten
+     * once per call rather than shifted once per product, which matters for terms most products share.
+     */
+    void indexAll(long[] ids, String[] names, String[] descriptions) {
+        // Tokenized before taking the lock; the last occurrence of an ID wins
+        Map<Long, Map<String, Float>> documents = new HashMap<>(ids.length * 2);
+        for (int i = 0; i < ids.length; i++) {
+            documents.put(ids[i], weights(names[i], descriptions[i]));
+        }
+
+        lock.writeLock().lock();
+        try {
+            Map<String, TermChanges> changes = new HashMap<>();
+            documents.forEach((id, weights) -> {
+                String[] previous = documentTerms.get(id);
+                if (previous != null) {
+                    for (String term : previous) {
+                        changes.computeIfAbsent(term, t -> new TermChanges()).remove(id);
+                    }
+                }
+                weights.forEach((term, weight) -> changes.computeIfAbsent(term, t -> new TermChanges()).add(id, weight));
+                documentTerms.put(id, weights.keySet().toArray(new String[0]));
+            });
+            changes.forEach((term, termChanges) -> {
+                Postings postings = terms.computeIfAbsent(term, t -> new Postings());
+                postings.apply(termChanges);
+                if (postings.size == 0) {
+                    terms.remove(term);
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the products matching all words of the query, the last word also as a prefix.
+     *
+     * @param query free text
+     * @param limit maximum number of results
+     * @return product IDs, best match first
+     */
+    public long[] search(String query, int limit) {
+        List<String> queryTerms = tokenize(query);
+        if (queryTerms.isEmpty() || limit <= 0) {
+            return new long[0];
+        }
+        if (queryTerms.size() > MAX_QUERY_TERMS) {
+            queryTerms = queryTerms.subList(0, MAX_QUERY_TERMS);
+        }
+
+        Hits hits = null;
+        lock.readLock().lock();
+        try {
+            int documents = documentTerms.size();
+            for (int i = 0; i < queryTerms.size(); i++) {
+                Hits termHits = score(queryTerms.get(i), i == queryTerms.size() - 1, documents, hits, limit);
+                hits = hits == null ? termHits : Hits.merge(hits, termHits, true);
+                if (hits.size == 0) {
+                    return new long[0];
+                }
+            }
+            // Still under the lock: the hits of a single term share the ids of its postings, which writers shift
+            return hits.top(limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Scores the documents matching one query term and, if it is a prefix, its completions until {@code limit}
+     * documents match or MAX_PREFIX_POSTINGS postings were scanned.
+     * When {@code candidates} is given, only those documents are scored.
+     */
+    private Hits score(String term, boolean prefix, int documents, Hits candidates, int limit) {
+        Postings exact = terms.get(term);
+        Hits hits = exact == null ? Hits.EMPTY : Hits.of(exact, idf(documents, exact.size), candidates);
+        if (!prefix || hits.size >= limit) {
+            return hits;
+        }
+
+        // Most frequent completions first, as typeahead users are most likely looking for those
+        List<Postings> completions = new ArrayList<>(terms.subMap(term, false, term + Character.MAX_VALUE, false).values());
+        completions.sort(Comparator.comparingInt((Postings postings) -> postings.size).reversed());
+        int next = 0;
+        int scanned = 0;
+        while (hits.size < limit && next < completions.size() && scanned < MAX_PREFIX_POSTINGS) {
+            // Each round takes completions with at least as many hits as are missing and merges them at once,
+            // as documents matching several completions only count once
+            List<Hits> matches = new ArrayList<>();
+            matches.add(hits);
+            int found = 0;
+            while (found < limit - hits.size && next < completions.size() && scanned < MAX_PREFIX_POSTINGS) {
+                Postings postings = completions.get(next++);
+                scanned += postings.size;
+                Hits completionHits = Hits.of(postings, idf(documents, postings.size) * PREFIX_MATCH_FACTOR, candidates);
+                found += completionHits.size;
+                matches.add(completionHits);
+            }
+            hits = Hits.union(matches, 0, matches.size());
+        }
+        return hits;
+    }
+
+    private static float idf(int documents, int documentFrequency) {
+        return (float) Math.log(1 + (double) documents / documentFrequency);
+    }
+
+    private void add(long id, String name, String description) {
+        Map<String, Float> weights = weights(name, description);
+        weights.forEach((term, weight) -> terms.computeIfAbsent(term, t -> new Postings()).add(id, weight));
+        documentTerms.put(id, weights.keySet().toArray(new String[0]));
+    }
+
+    private static Map<String, Float> weights(String name, String description) {
+        Map<String, Float> weights = new HashMap<>();
+        tokenize(name).forEach(term -> weights.merge(term, NAME_WEIGHT, Float::sum));
+        tokenize(description).forEach(term -> weights.merge(term, DESCRIPTION_WEIGHT, Float::sum));
+        return weights;
+    }
+
+    private void removeDocument(long id) {
+        String[] previous = documentTerms.remove(id);
+        if (previous == null) {
+            return;
+        }
+        for (String term : previous) {
+            Postings postings = terms.get(term);
+            if (postings != null && postings.remove(id) && postings.size == 0) {
+                terms.remove(term);
+            }
+        }
+    }
+
+    /**
+     * Splits text into lower case words without diacritics.
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String normalized = isAscii(text)
+                ? text
+                : DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(normalized.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Scored documents sorted by ID, so that the hits of several terms are combined with linear merges.
+     */
+    private static final class Hits {
+        private static final Hits EMPTY = new Hits(new long[0], new float[0], 0);
+
+        private final long[] ids;
+        private final float[] scores;
+        private final int size;
+
+        private Hits(long[] ids, float[] scores, int size) {
+            this.ids = ids;
+            this.scores = scores;
+            this.size = size;
+        }
+
+        /**
+         * Scores the documents of a term, restricted to {@code candidates} when given.
+         */
+        static Hits of(Postings postings, float factor, Hits candidates) {
+            if (candidates == null) {
+                // Shares postings.ids, so the hits may only be read under the read lock
+                float[] scores = new float[postings.size];
+                for (int i = 0; i < postings.size; i++) {
+                    scores[i] = postings.weights[i] * factor;
+                }
+                return new Hits(postings.ids, scores, postings.size);
+            }
+
+            int capacity = Math.min(candidates.size, postings.size);
+            long[] ids = new long[capacity];
+            float[] scores = new float[capacity];
+            int n = 0;
+            if (postings.size > 8 * candidates.size) {
+                // Postings of a common term: search them for each candidate instead of scanning them
+                int from = 0;
+                for (int c = 0; c < candidates.size && from < postings.size; c++) {
+                    int index = Arrays.binarySearch(postings.ids, from, postings.size, candidates.ids[c]);
+                    if (index >= 0) {
+                        ids[n] = postings.ids[index];
+                        scores[n++] = postings.weights[index] * factor;
+                        from = index + 1;
+                    } else {
+                        from = -index - 1;
+                    }
+                }
+            } else if (candidates.size > 8 * postings.size) {
+                // Postings of a rare term: search the candidates for each of them
+                int from = 0;
+                for (int p = 0; p < postings.size && from < candidates.size; p++) {
+                    int index = Arrays.binarySearch(candidates.ids, from, candidates.size, postings.ids[p]);
+                    if (index >= 0) {
+                        ids[n] = postings.ids[p];
+                        scores[n++] = postings.weights[p] * factor;
+                        from = index + 1;
+                    } else {
+                        from = -index - 1;
+                    }
+                }
+            } else {
+                int p = 0;
+                for (int c = 0; c < candidates.size && p < postings.size; c++) {
+                    long id = candidates.ids[c];
+                    while (p < postings.size && postings.ids[p] < id) {
+                        p++;
+                    }
+                    if (p < postings.size && postings.ids[p] == id) {
+                        ids[n] = id;
+                        scores[n++] = postings.weights[p++] * factor;
+                    }
+                }
+            }
+            return new Hits(ids, scores, n);
+        }
+
+        /**
+         * Combines hits pairwise, keeping the best score of a document that matches several completions.
+         */
+        static Hits union(List<Hits> hits, int from, int to) {
+            if (to - from == 0) {
+                return EMPTY;
+            }
+            if (to - from == 1) {
+                return hits.get(from);
+            }
+            int middle = (from + to) >>> 1;
+            return merge(union(hits, from, middle), union(hits, middle, to), false);
+        }
+
+        /**
+         * Merges two hit lists: with {@code intersect} only documents in both remain and their scores add up,
+         * otherwise all documents remain with their best score.
+         */
+        static Hits merge(Hits a, Hits b, boolean intersect) {
+            int capacity = intersect ? Math.min(a.size, b.size) : a.size + b.size;
+            long[] ids = new long[capacity];
+            float[] scores = new float[capacity];
+            int i = 0;
+            int j = 0;
+            int n = 0;
+            while (i < a.size && j < b.size) {
+                long idA = a.ids[i];
+                long idB = b.ids[j];
+                if (idA == idB) {
+                    ids[n] = idA;
+                    scores[n++] = intersect ? a.scores[i] + b.scores[j] : Math.max(a.scores[i], b.scores[j]);
+                    i++;
+                    j++;
+                } else if (idA < idB) {
+                    if (!intersect) {
+                        ids[n] = idA;
+                        scores[n++] = a.scores[i];
+                    }
+                    i++;
+                } else {
+                    if (!intersect) {
+                        ids[n] = idB;
+                        scores[n++] = b.scores[j];
+                    }
+                    j++;
+                }
+            }
+            if (!intersect) {
+                for (; i < a.size; i++, n++) {
+                    ids[n] = a.ids[i];
+                    scores[n] = a.scores[i];
+                }
+                for (; j < b.size; j++, n++) {
+                    ids[n] = b.ids[j];
+                    scores[n] = b.scores[j];
+                }
+            }
+            return new Hits(ids, scores, n);
+        }
+
+        /**
+         * @return the IDs of the best scored documents, best first; ties go to the lower ID
+         */
+        long[] top(int limit) {
+            int count = Math.min(limit, size);
+            // Min-heap of positions holding the best hits seen so far, worst at the root
+            int[] heap = new int[count];
+            int heapSize = 0;
+            for (int i = 0; i < size; i++) {
+                if (heapSize < count) {
+                    heap[heapSize] = i;
+                    siftUp(heap, heapSize++);
+                } else if (better(i, heap[0])) {
+                    heap[0] = i;
+                    siftDown(heap, heapSize);
+                }
+            }
+            long[] result = new long[count];
+            for (int k = count - 1; k >= 0; k--) {
+                result[k] = ids[heap[0]];
+                heap[0] = heap[--heapSize];
+                siftDown(heap, heapSize);
+            }
+            return result;
+        }
+
+        private boolean better(int x, int y) {
+            return scores[x] > scores[y] || (scores[x] == scores[y] && ids[x] < ids[y]);
+        }
+
+        private void siftUp(int[] heap, int k) {
+            while (k > 0) {
+                int parent = (k - 1) >>> 1;
+                if (!better(heap[parent], heap[k])) {
+                    break;
+                }
+                swap(heap, parent, k);
+                k = parent;
+            }
+        }
+
+        private void siftDown(int[] heap, int heapSize) {
+            int k = 0;
+            while (true) {
+                int child = 2 * k + 1;
+                if (child >= heapSize) {
+                    break;
+                }
+                if (child + 1 < heapSize && better(heap[child], heap[child + 1])) {
+                    child++;
+                }
+                if (!better(heap[k], heap[child])) {
+                    break;
+                }
+                swap(heap, k, child);
+                k = child;
+            }
+        }
+
+        private static void swap(int[] heap, int a, int b) {
+            int tmp = heap[a];
+            heap[a] = heap[b];
+            heap[b] = tmp;
+        }
+    }
+
+    /**
+     * The documents containing a term, sorted by ID, with the weight of the term in each document.
+     */
+    private static final class Postings {
+        private long[] ids = new long[2];
+        private float[] weights = new float[2];
+        private int size;
+
+        void add(long id, float weight) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                weights[index] = weight;
+                return;
+            }
+            index = -index - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            System.arraycopy(weights, index, weights, index + 1, size - index);
+            ids[index] = id;
+            weights[index] = weight;
+            size++;
+        }
+
+        boolean remove(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            System.arraycopy(weights, index + 1, weights, index, size - index - 1);
+            size--;
+            return true;
+        }
+
+        /**
+         * Removes and then adds the IDs of {@code changes} in a single merge pass.
+         */
+        void apply(TermChanges changes) {
+            changes.sort();
+            if (changes.removedCount == 0 && (size == 0 || changes.addedIds[0] > ids[size - 1])) {
+                // New products only, whose IDs come after the existing ones: append in place
+                if (size + changes.addedCount > ids.length) {
+                    int capacity = Math.max(ids.length * 2, size + changes.addedCount);
+                    ids = Arrays.copyOf(ids, capacity);
+                    weights = Arrays.copyOf(weights, capacity);
+                }
+                System.arraycopy(changes.addedIds, 0, ids, size, changes.addedCount);
+                System.arraycopy(changes.addedWeights, 0, weights, size, changes.addedCount);
+                size += changes.addedCount;
+                return;
+            }
+            long[] mergedIds = new long[Math.max(2, size + changes.addedCount)];
+            float[] mergedWeights = new float[mergedIds.length];
+            int merged = 0;
+            int removed = 0;
+            int added = 0;
+            for (int i = 0; i < size; i++) {
+                long id = ids[i];
+                while (added < changes.addedCount && changes.addedIds[added] < id) {
+                    mergedIds[merged] = changes.addedIds[added];
+                    mergedWeights[merged++] = changes.addedWeights[added++];
+                }
+                while (removed < changes.removedCount && changes.removedIds[removed] < id) {
+                    removed++;
+                }
+                if (added < changes.addedCount && changes.addedIds[added] == id) {
+                    mergedIds[merged] = id;
+                    mergedWeights[merged++] = changes.addedWeights[added++];
+                } else if (removed >= changes.removedCount || changes.removedIds[removed] != id) {
+                    mergedIds[merged] = id;
+                    mergedWeights[merged++] = weights[i];
+                }
+            }
+            while (added < changes.addedCount) {
+                mergedIds[merged] = changes.addedIds[added];
+                mergedWeights[merged++] = changes.addedWeights[added++];
+            }
+            ids = mergedIds;
+            weights = mergedWeights;
+            size = merged;
+        }
+    }
+
+    /**
+     * The IDs to remove from and add to the postings of one term, see {@link #indexAll}.
+     * An ID is added at most once.
+     */
+    private static final class TermChanges {
+        private long[] removedIds = new long[4];
+        private int removedCount;
+        private long[] addedIds = new long[4];
+        private float[] addedWeights = new float[4];
+        private int addedCount;
+
+        void remove(long id) {
+            if (removedCount == removedIds.length) {
+                removedIds = Arrays.copyOf(removedIds, removedCount * 2);
+            }
+            removedIds[removedCount++] = id;
+        }
+
+        void add(long id, float weight) {
+            if (addedCount == addedIds.length) {
+                addedIds = Arrays.copyOf(addedIds, addedCount * 2);
+                addedWeights = Arrays.copyOf(addedWeights, addedCount * 2);
+            }
+            addedIds[addedCount] = id;
+            addedWeights[addedCount++] = weight;
+        }
+
+        void sort() {
+            Arrays.sort(removedIds, 0, removedCount);
+            for (int i = 1; i < addedCount; i++) {
+                if (addedIds[i - 1] > addedIds[i]) {
+                    sortAdded();
+                    return;
+                }
+            }
+        }
+
+        private void sortAdded() {
+            Integer[] order = new Integer[addedCount];
+            for (int i = 0; i < addedCount; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingLong(i -> addedIds[i]));
+            long[] sortedIds = new long[addedCount];
+            float[] sortedWeights = new float[addedCount];
+            for (int i = 0; i < addedCount; i++) {
+                sortedIds[i] = addedIds[order[i]];
+                sortedWeights[i] = addedWeights[order[i]];
+            }
+            addedIds = sortedIds;
+            addedWeights = sortedWeights;
+        }
+    }
+}
@@ -1,21 +1,30 @@
 package com.heamimont.salesstoreapi.service;
 
+import com.heamimont.salesstoreapi.dto.product.ProductChangesDTO;
 import com.heamimont.salesstoreapi.dto.product.ProductPublicResponseDTO;
 import com.heamimont.salesstoreapi.mapper.ProductMapper;
 import com.heamimont.salesstoreapi.dto.product.ProductResponseDTO;
 import com.heamimont.salesstoreapi.dto.product.UpdateProductDTO;
 import com.heamimont.salesstoreapi.dto.product.CreateProductDTO;
+import com.heamimont.salesstoreapi.exceptions.BadRequestException;
 import com.heamimont.salesstoreapi.exceptions.ResourceCreationException;
 import com.heamimont.salesstoreapi.exceptions.ResourceNotFoundException;
 import com.heamimont.salesstoreapi.model.Product;
 import com.heamimont.salesstoreapi.repository.ProductRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 
 
 /**
@@ -26,44 +35,142 @@ import java.util.stream.Collectors;
 public class ProductService {
     private final ProductRepository productRepository;
     private final ProductMapper productMapper;
+    private final ProductCatalog productCatalog;
+    private final ProductChangeLog productChangeLog;
+    private final ProductSearchIndex productSearchIndex;
+    private final HotStockService hotStockService;
+    private final InventoryLedger inventoryLedger;
+
+    @Value("${products.changes.max-wait:30s}")
+    private Duration maxChangesWait;
+
+    @Value("${products.search.max-results:50}")
+    private int maxSearchResults;
 
     private static final Logger logger = LoggerFactory.getLogger(ProductService.class);
 
 
-    public ProductService(ProductRepository productRepository, ProductMapper productMapper) {
+    public ProductService(ProductRepository productRepository,
+                          ProductMapper productMapper,
+                          ProductCatalog productCatalog,
+                          ProductChangeLog productChangeLog,
+                          ProductSearchIndex productSearchIndex,
+                          HotStockService hotStockService,
+                          InventoryLedger inventoryLedger) {
         this.productRepository = productRepository;
         this.productMapper = productMapper;
+        this.productCatalog = productCatalog;
+        this.productChangeLog = productChangeLog;
+        this.productSearchIndex = productSearchIndex;
+        this.hotStockService = hotStockService;
+        this.inventoryLedger = inventoryLedger;
     }
 
     /**
-     * Retrieves all products from the repository.
+     * Retrieves all products from the in-memory catalog snapshot.
      *
      * @return List of ProductResponseDTO containing all products
      * @throws ResourceNotFoundException if an error occurs while fetching products
      */
-    @Transactional(readOnly = true)
     public List<ProductResponseDTO> getAllProducts() {
-        try {
-            return productRepository.findAll().stream()
-                    .map(productMapper::toDTO)
-                    .collect(Collectors.toList());
-        } catch (Exception e) {
-            throw new ResourceNotFoundException("Failed to fetch all products");
-        }
+        return catalogSnapshot().products();
     }
 
     /**
-     * Retrieves all products from the repository for public view.
+     * Retrieves all products from the in-memory catalog snapshot for public view.
      *
      * @return List of ProductPublicResponseDTO containing all products with limited details
      * @throws ResourceNotFoundException if an error occurs while fetching products
      */
-    @Transactional(readOnly = true)
     public List<ProductPublicResponseDTO> getAllProductsPublic() {
+        return catalogSnapshot().publicProducts();
+    }
+
+    /**
+     * Retrieves all products as a pre-serialized JSON body with its ETag.
+     *
+     * @return the serialized list of ProductResponseDTO
+     * @throws ResourceNotFoundException if an error occurs while fetching products
+     */
+    public ProductCatalog.Body getAllProductsBody() {
+        return catalogSnapshot().productsBody();
+    }
+
+    /**
+     * Retrieves all products for public view as a pre-serialized JSON body with its ETag.
+     *
+     * @return the serialized list of ProductPublicResponseDTO
+     * @throws ResourceNotFoundException if an error occurs while fetching products
+     */
+    public ProductCatalog.Body getAllProductsPublicBody() {
+        return catalogSnapshot().publicProductsBody();
+    }
+
+    /**
+     * Retrieves the products changed or deleted since a catalog version, for public view.
+     * If nothing changed yet, waits up to {@code wait} (capped by products.changes.max-wait) for a change.
+     *
+     * @param since the catalog version the client has seen, 0 for the full catalog
+     * @param wait how long to wait for a change, null or zero to answer immediately
+     * @return future of the changes and the catalog version they cover
+     * @throws BadRequestException if since or wait is negative
+     */
+    public CompletableFuture<ProductChangesDTO> getChangesSince(long since, Duration wait) {
+        if (since < 0) {
+            throw new BadRequestException("since must not be negative", null);
+        }
+        if (wait != null && wait.isNegative()) {
+            throw new BadRequestException("wait must not be negative", null);
+        }
+        Duration timeout = wait == null ? Duration.ZERO : (wait.compareTo(maxChangesWait) > 0 ? maxChangesWait : wait);
+
+        return productChangeLog.awaitChangeAfter(since, timeout)
+                .thenApply(until -> {
+                    if (until <= since) {
+                        return new ProductChangesDTO(until, List.of(), List.of());
+                    }
+                    List<ProductPublicResponseDTO> changed = productRepository.findChangedBetween(since, until).stream()
+                            .map(productMapper::toPublicDTO)
+                            .toList();
+                    changed.forEach(product -> product.setAvailableQuantity(product.getAvailableQuantity()
+                            + hotStockService.availableInMemory(product.getId())));
+                    return new ProductChangesDTO(until, changed, productChangeLog.findDeletedBetween(since, until));
+                });
+    }
+
+    /**
+     * Searches products by the words of their name and description, for public view.
+     * The last word of the query also matches as a prefix, so the search can back a typeahead.
+     *
+     * @param query the words to search for
+     * @param limit maximum number of results (capped by products.search.max-results)
+     * @return List of ProductPublicResponseDTO, best match first
+     * @throws BadRequestException if the query is blank or the limit is not positive
+     */
+    public List<ProductPublicResponseDTO> searchProducts(String query, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new BadRequestException("Search query must not be blank", null);
+        }
+        if (limit <= 0) {
+            throw new BadRequestException("limit must be positive", null);
+        }
+        long[] ids = productSearchIndex.search(query, Math.min(limit, maxSearchResults));
+
+        // Resolve through the catalog snapshot, which also reflects stock changes
+        Map<Long, ProductPublicResponseDTO> products = catalogSnapshot().publicProductsById();
+        List<ProductPublicResponseDTO> results = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            ProductPublicResponseDTO product = products.get(id);
+            if (product != null) {
+                results.add(product);
+            }
+        }
+        return results;
+    }
+
+    private ProductCatalog.Snapshot catalogSnapshot() {
         try {
-            return productRepository.findAll().stream()
-                    .map(productMapper::toPublicDTO)
-                    .collect(Collectors.toList());
+            return productCatalog.snapshot();
         } catch (Exception e) {
             throw new ResourceNotFoundException("Failed to fetch all products");
         }
@@ -79,7 +186,7 @@ public class ProductService {
     @Transactional(readOnly = true)
     public ProductResponseDTO getProductById(Long id) {
         return productRepository.findById(id)
-                .map(productMapper::toDTO)
+                .map(this::toDTO)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
     }
 
@@ -93,10 +200,20 @@ public class ProductService {
     @Transactional(readOnly = true)
     public ProductResponseDTO getProductByName(String name) {
         return productRepository.findByName(name)
-                .map(productMapper::toDTO)
+                .map(this::toDTO)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
     }
 
+    // Maps a product with its stock, including the units of a hot product held in memory
+    private ProductResponseDTO toDTO(Product product) {
+        ProductResponseDTO dto = productMapper.toDTO(product);
+        int unlisted = hotStockService.availableInMemory(product.getId());
+        if (unlisted != 0) {
+            dto.setAvailableQuantity(dto.getAvailableQuantity() + unlisted);
+        }
+        return dto;
+    }
+
     /**
      * Creates a new product.
      *
@@ -108,7 +225,11 @@ public class ProductService {
     public ProductResponseDTO createProduct(CreateProductDTO createProductDTO) {
         try {
             Product product = productMapper.toEntity(createProductDTO);
+            product.setChangeVersion(productChangeLog.allocate());
             Product savedProduct = productRepository.save(product);
+            inventoryLedger.recordInitialStock(Map.of(savedProduct.getId(), savedProduct.getAvailableQuantity()));
+            productCatalog.invalidateAfterCommit();
+            productSearchIndex.indexAfterCommit(savedProduct);
             logger.info("[Product Creation] Product ({}, {}) created successfully", savedProduct.getId(), savedProduct.getName());
             return productMapper.toDTO(savedProduct);
         } catch (Exception e) {
@@ -116,20 +237,130 @@ public class ProductService {
         }
     }
 
+    /**
+     * Reduces the available quantity of a product.
+     * Uses a single guarded UPDATE so the stock check and the decrement are atomic,
+     * which prevents lost updates and overselling under concurrent checkouts.
+     * The stock of a hot product is taken from memory instead, see {@link HotStockService}.
+     *
+     * @param productId the ID of the product
+     * @param quantity the quantity to reserve, must be positive
+     * @throws ResourceNotFoundException if the product with the given ID does not exist
+     * @throws IllegalArgumentException if the quantity is not positive or there is not enough stock
+     */
+    @Transactional
     public void reduceProductQuantity(Long productId, int quantity) {
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
-        if (product.getAvailableQuantity() == 0 || product.getAvailableQuantity() < quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        SortedMap<Long, Integer> sale = new TreeMap<>(Map.of(productId, quantity));
+        if (!hotStockService.reserve(sale, null).isEmpty()) {
+            inventoryLedger.recordSales(sale);
+            logger.info("[Product Quantity Reduction] Product ({}) quantity reduced by {} in memory", productId, quantity);
+            return;
+        }
+        if (productRepository.decrementAvailableQuantity(productId, quantity, productChangeLog.allocate()) == 0) {
+            // Nothing was updated, find out why (only on the failure path)
+            if (!productRepository.existsById(productId)) {
+                throw new ResourceNotFoundException("Product not found");
+            }
             throw new IllegalArgumentException("Insufficient product quantity available");
         }
-        product.setAvailableQuantity(product.getAvailableQuantity() - quantity);
-        productRepository.save(product);
-        logger.info("[Product Quantity Reduction] Product ({}, {}) quantity reduced by {}. New available quantity: {}",
-                product.getId(), product.getName(), quantity, product.getAvailableQuantity());
+        inventoryLedger.recordSales(sale);
+        productCatalog.invalidateAfterCommit();
+        logger.info("[Product Quantity Reduction] Product ({}) quantity reduced by {}", productId, quantity);
+    }
+
+    /**
+     * Reserves stock for all lines of an order at once.
+     * Quantities of the same product are merged and all decrements are sent as a single JDBC batch,
+     * ordered by product ID so concurrent orders lock rows in the same order.
+     * Lines of hot products are reserved from memory instead, see {@link HotStockService}; their units sold are
+     * added to the daily sales rollup when the hot stock sales are flushed.
+     * If any product cannot be reserved an exception is thrown and the surrounding transaction rolls back
+     * the decrements that already succeeded.
+     *
+     * @param quantities product ID to quantity to reserve
+     * @param saleDate the day of the sale
+     * @return the lines reserved from memory, which the caller must not add to the daily sales rollup
+     * @throws ResourceNotFoundException if one of the products does not exist
+     * @throws IllegalArgumentException if a quantity is not positive or there is not enough stock
+     */
+    @Transactional
+    public SortedMap<Long, Integer> reserveProductQuantities(Map<Long, Integer> quantities, LocalDate saleDate) {
+        SortedMap<Long, Integer> sorted = sortQuantities(quantities);
+        SortedMap<Long, Integer> fromMemory = takeQuantities(sorted, saleDate);
+        inventoryLedger.recordSales(sorted);
+        logger.info("[Product Quantity Reduction] Reserved stock for {} product(s): {}", sorted.size(), sorted);
+        return fromMemory;
+    }
+
+    /**
+     * Holds stock for a cart, taken from the products like the stock of an order, see {@link StockHoldService}.
+     *
+     * @param quantities product ID to quantity to hold
+     * @throws ResourceNotFoundException if one of the products does not exist
+     * @throws IllegalArgumentException if a quantity is not positive or there is not enough stock
+     */
+    @Transactional
+    public void holdProductQuantities(Map<Long, Integer> quantities) {
+        SortedMap<Long, Integer> sorted = sortQuantities(quantities);
+        takeQuantities(sorted, null);
+        inventoryLedger.recordHolds(sorted);
+        logger.info("[Product Quantity Hold] Held stock for {} product(s): {}", sorted.size(), sorted);
+    }
+
+    /**
+     * Gives held stock back to the products, with a single JDBC batch.
+     *
+     * @param quantities product ID to quantity to give back
+     */
+    @Transactional
+    public void returnHeldQuantities(SortedMap<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        productRepository.returnAvailableQuantities(quantities, productChangeLog.allocate());
+        inventoryLedger.recordHoldReturns(quantities);
+        productCatalog.invalidateAfterCommit();
+        logger.info("[Product Quantity Hold] Returned held stock of {} product(s): {}", quantities.size(), quantities);
+    }
+
+    private static SortedMap<Long, Integer> sortQuantities(Map<Long, Integer> quantities) {
+        SortedMap<Long, Integer> sorted = new TreeMap<>();
+        quantities.forEach((productId, quantity) -> {
+            if (quantity == null || quantity <= 0) {
+                throw new IllegalArgumentException("Quantity must be positive");
+            }
+            sorted.merge(productId, quantity, Integer::sum);
+        });
+        return sorted;
+    }
+
+    // Returns the lines taken from memory
+    private SortedMap<Long, Integer> takeQuantities(SortedMap<Long, Integer> sorted, LocalDate saleDate) {
+        SortedMap<Long, Integer> fromMemory = hotStockService.reserve(sorted, saleDate);
+        SortedMap<Long, Integer> fromDatabase = new TreeMap<>(sorted);
+        fromDatabase.keySet().removeAll(fromMemory.keySet());
+        int[] updated = productRepository.decrementAvailableQuantities(fromDatabase, productChangeLog.allocate());
+
+        int i = 0;
+        for (Long productId : fromDatabase.keySet()) {
+            if (updated[i++] == 0) {
+                if (!productRepository.existsById(productId)) {
+                    throw new ResourceNotFoundException("Product not found");
+                }
+                throw new IllegalArgumentException("Insufficient product quantity available");
+            }
+        }
+        productCatalog.invalidateAfterCommit();
+        return fromMemory;
     }
 
     /**
      * Updates an existing product by its ID.
+     * A new available quantity is set through the inventory ledger, under the product row lock, and is sellable
+     * once the update commits (see {@link InventoryLedger}).
      *
      * @param id the ID of the product to update
      * @param updateProductDTO the DTO containing updated product details
@@ -138,13 +369,20 @@ public class ProductService {
      */
     @Transactional
     public ProductResponseDTO updateProduct(Long id, UpdateProductDTO updateProductDTO) {
+        hotStockService.release(List.of(id));
+        if (updateProductDTO.getAvailableQuantity() != null) {
+            inventoryLedger.setStock(id, updateProductDTO.getAvailableQuantity());
+        }
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
 
         productMapper.updateEntity(product, updateProductDTO);
+        product.setChangeVersion(productChangeLog.allocate());
         Product updatedProduct = productRepository.save(product);
+        productCatalog.invalidateAfterCommit();
+        productSearchIndex.indexAfterCommit(updatedProduct);
         logger.info("[Product Update] Product ({}, {}) updated successfully", updatedProduct.getId(), updatedProduct.getName());
-        return productMapper.toDTO(updatedProduct);
+        return toDTO(updatedProduct);
     }
 
     /**
@@ -159,7 +397,11 @@ public class ProductService {
             if (!productRepository.existsById(id)) {
                 throw new ResourceNotFoundException("Product not found");
             }
+            hotStockService.release(List.of(id));
             productRepository.deleteById(id);
+            productChangeLog.recordDeletion(id);
+            productCatalog.invalidateAfterCommit();
+            productSearchIndex.removeAfterCommit(id);
             logger.info("[Product Deletion] Product ({}) deleted successfully", id);
         } catch (Exception e) {
             throw new ResourceNotFoundException("Product not found. Deletion failed");
@@ -1,32 +1,66 @@
 package com.heamimont.salesstoreapi.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.heamimont.salesstoreapi.dto.report.OrderReportDTO;
+import com.heamimont.salesstoreapi.dto.report.ProductSalesReportDTO;
+import com.heamimont.salesstoreapi.dto.report.ReportFormat;
+import com.heamimont.salesstoreapi.dto.report.ReportGranularity;
+import com.heamimont.salesstoreapi.dto.report.RollupRebuildResponseDTO;
+import com.heamimont.salesstoreapi.dto.report.SalesPeriodReportDTO;
+import com.heamimont.salesstoreapi.dto.report.UserSalesReportDTO;
 import com.heamimont.salesstoreapi.mapper.ReportMapper;
+import com.heamimont.salesstoreapi.exceptions.BadRequestException;
 import com.heamimont.salesstoreapi.exceptions.ReportGenerationException;
 import com.heamimont.salesstoreapi.model.Order;
+import com.heamimont.salesstoreapi.repository.DailyProductSalesRepository;
+import com.heamimont.salesstoreapi.repository.OrderProductRepository;
 import com.heamimont.salesstoreapi.repository.OrderRepository;
 import com.heamimont.salesstoreapi.repository.OrderSpecifications;
+import com.heamimont.salesstoreapi.repository.SalesReportFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
  * Service for generating reports based on orders.
- * Provides methods to filter orders by product name, username, and order date range.
+ * Provides methods to filter orders by product name, username, and order date range,
+ * and to aggregate sales per product, user and period.
  */
 @Service
 public class ReportService {
 
+    private static final Logger logger = LoggerFactory.getLogger(ReportService.class);
+
+    // JDBC fetch size of the export cursor and number of orders loaded and written at a time
+    private static final int EXPORT_BATCH_SIZE = 500;
+
     private final OrderRepository orderRepository;
+    private final OrderProductRepository orderProductRepository;
+    private final DailyProductSalesRepository dailyProductSalesRepository;
     private final ReportMapper reportMapper;
+    private final ObjectMapper objectMapper;
 
-    public ReportService(OrderRepository orderRepository, ReportMapper reportMapper) {
+    public ReportService(OrderRepository orderRepository, OrderProductRepository orderProductRepository,
+                         DailyProductSalesRepository dailyProductSalesRepository,
+                         ReportMapper reportMapper, ObjectMapper objectMapper) {
         this.orderRepository = orderRepository;
+        this.orderProductRepository = orderProductRepository;
+        this.dailyProductSalesRepository = dailyProductSalesRepository;
         this.reportMapper = reportMapper;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -46,11 +80,174 @@ public class ReportService {
             LocalDateTime startDate,
             LocalDateTime endDate) {
 
+        Specification<Order> spec = buildSpecification(productName, username, startDate, endDate);
+
+        List<Order> filteredOrders;
+        try {
+            if (spec == null) {
+                filteredOrders = orderRepository.findAll(); // No filters
+            } else {
+                filteredOrders = orderRepository.findAll(spec);
+            }
+        } catch (Exception e) {
+            throw new ReportGenerationException("Failed to fetch filtered orders", e);
+        }
+
+        return filteredOrders.stream()
+                .map(reportMapper::toOrderReportDTO)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Writes the orders matching the same filters as {@link #getFilteredOrders} to a stream, oldest first.
+     * Orders are read and written in batches, so memory use does not grow with the size of the report.
+     *
+     * @param productName filter by product name (optional)
+     * @param username filter by username (optional)
+     * @param startDate filter orders from this date (inclusive) (optional)
+     * @param endDate filter orders up to this date (inclusive) (optional)
+     * @param format the output format
+     * @param out the stream to write to; left open
+     * @throws ReportGenerationException if reading the orders or writing the report fails
+     */
+    @Transactional(readOnly = true)
+    public void exportFilteredOrders(
+            String productName,
+            String username,
+            LocalDateTime startDate,
+            LocalDateTime endDate,
+            ReportFormat format,
+            OutputStream out) {
+
+        Specification<Order> spec = buildSpecification(productName, username, startDate, endDate);
+
+        try (OrderReportWriter writer = OrderReportWriter.create(format, out, objectMapper)) {
+            orderRepository.streamWithDetails(spec, EXPORT_BATCH_SIZE, orders -> {
+                try {
+                    for (Order order : orders) {
+                        writer.write(reportMapper.toOrderReportDTO(order));
+                    }
+                    writer.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            throw new ReportGenerationException("Failed to export filtered orders", e);
+        }
+    }
+
+    /**
+     * Sums units sold, revenue and gross margin per product.
+     * Read from the daily rollup when the filter allows it, otherwise from the order lines.
+     *
+     * @param filter the product name, username and date range filters
+     * @return one row per product with sales, highest revenue first
+     */
+    @Transactional(readOnly = true)
+    public List<ProductSalesReportDTO> getSalesByProduct(SalesReportFilter filter) {
+        try {
+            return filter.isCoveredByDailyRollup()
+                    ? dailyProductSalesRepository.sumSalesByProduct(filter)
+                    : orderProductRepository.sumSalesByProduct(filter);
+        } catch (Exception e) {
+            throw new ReportGenerationException("Failed to aggregate sales by product", e);
+        }
+    }
+
+    /**
+     * Sums orders, units sold, revenue and gross margin per user.
+     *
+     * @param filter the product name, username and date range filters
+     * @return one row per user with orders, highest revenue first
+     */
+    @Transactional(readOnly = true)
+    public List<UserSalesReportDTO> getSalesByUser(SalesReportFilter filter) {
+        try {
+            return orderProductRepository.sumSalesByUser(filter);
+        } catch (Exception e) {
+            throw new ReportGenerationException("Failed to aggregate sales by user", e);
+        }
+    }
+
+    /**
+     * Sums units sold, revenue and gross margin per day, week or month.
+     * The database groups by day, reading the daily rollup when the filter allows it;
+     * days are then folded into weeks or months, which keeps the SQL portable.
+     *
+     * @param filter the product name, username and date range filters
+     * @param granularity the period length
+     * @return one row per period with sales, oldest first
+     */
+    @Transactional(readOnly = true)
+    public List<SalesPeriodReportDTO> getSalesTimeline(SalesReportFilter filter, ReportGranularity granularity) {
+        List<SalesPeriodReportDTO> days;
+        try {
+            days = filter.isCoveredByDailyRollup()
+                    ? dailyProductSalesRepository.sumSalesByDay(filter)
+                    : orderProductRepository.sumSalesByDay(filter);
+        } catch (Exception e) {
+            throw new ReportGenerationException("Failed to aggregate sales by period", e);
+        }
+        if (granularity == ReportGranularity.DAY) {
+            return days;
+        }
+
+        // Days arrive sorted, so periods are created in order
+        Map<LocalDate, SalesPeriodReportDTO> periods = new LinkedHashMap<>();
+        for (SalesPeriodReportDTO day : days) {
+            periods.merge(granularity.periodStart(day.getPeriodStart()),
+                    new SalesPeriodReportDTO(granularity.periodStart(day.getPeriodStart()),
+                            day.getUnitsSold(), day.getRevenue(), day.getGrossMargin()),
+                    (period, next) -> {
+                        period.setUnitsSold(period.getUnitsSold() + next.getUnitsSold());
+                        period.setRevenue(period.getRevenue().add(next.getRevenue()));
+                        period.setGrossMargin(period.getGrossMargin().add(next.getGrossMargin()));
+                        return period;
+                    });
+        }
+        return new ArrayList<>(periods.values());
+    }
+
+    /**
+     * Recomputes the daily product sales rollup from the orders placed between two days.
+     * Used to backfill the rollup, or to repair it after orders were changed outside the application.
+     *
+     * @param from the first day to rebuild (inclusive), or null for no lower bound
+     * @param to the last day to rebuild (inclusive), or null for no upper bound
+     * @return the rebuilt range and the number of rollup rows written
+     * @throws BadRequestException if from is after to
+     */
+    @Transactional
+    public RollupRebuildResponseDTO rebuildDailySalesRollup(LocalDate from, LocalDate to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new BadRequestException("from must not be after to", null);
+        }
+        try {
+            int rows = dailyProductSalesRepository.rebuild(from, to);
+            logger.info("[Sales Rollup] Rebuilt {} rows for {} .. {}", rows, from, to);
+            return new RollupRebuildResponseDTO(from, to, rows);
+        } catch (Exception e) {
+            throw new ReportGenerationException("Failed to rebuild the daily sales rollup", e);
+        }
+    }
+
+    /**
+     * Combines the given filters into a single specification.
+     * The product name is matched in a subquery, so the query binds one parameter however many products match.
+     *
+     * @return the specification, or null when no filter is set
+     */
+    private Specification<Order> buildSpecification(
+            String productName,
+            String username,
+            LocalDateTime startDate,
+            LocalDateTime endDate) {
+
         Specification<Order> spec = null;
 
         if (productName != null && !productName.trim().isEmpty()) {
-            Specification<Order> productSpec = OrderSpecifications.hasProductName(productName.trim());
-            spec = productSpec;
+            spec = OrderSpecifications.hasAnyProductNameContaining(productName.trim());
         }
 
         if (username != null && !username.trim().isEmpty()) {
@@ -68,19 +265,6 @@ public class ReportService {
             spec = (spec == null) ? endDateSpec : spec.and(endDateSpec);
         }
 
-        List<Order> filteredOrders;
-        try {
-            if (spec == null) {
-                filteredOrders = orderRepository.findAll(); // No filters
-            } else {
-                filteredOrders = orderRepository.findAll(spec);
-            }
-        } catch (Exception e) {
-            throw new ReportGenerationException("Failed to fetch filtered orders", e);
-        }
-
-        return filteredOrders.stream()
-                .map(reportMapper::toOrderReportDTO)
-                .collect(Collectors.toList());
+        return spec;
     }
 }
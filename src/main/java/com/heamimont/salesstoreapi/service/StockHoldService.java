@@ -0,0 +1,313 @@
+package com.heamimont.salesstoreapi.service;
+
+import com.heamimont.salesstoreapi.dto.cart.CreateStockHoldDTO;
+import com.heamimont.salesstoreapi.dto.cart.StockHoldResponseDTO;
+import com.heamimont.salesstoreapi.dto.order.OrderProductDTO;
+import com.heamimont.salesstoreapi.exceptions.BadRequestException;
+import com.heamimont.salesstoreapi.exceptions.ResourceNotFoundException;
+import com.heamimont.salesstoreapi.model.StockHold;
+import com.heamimont.salesstoreapi.model.User;
+import com.heamimont.salesstoreapi.repository.StockHoldRepository;
+import com.heamimont.salesstoreapi.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Stock held for carts while their users check out.
+ * <p>
+ * A hold takes its quantities from the products like an order does, and keeps them for a TTL. An order placed with
+ * the hold sells the held units instead of taking new ones (see {@link OrderService#createOrder}); a hold that is
+ * neither ordered nor released gives its units back when it expires.
+ * <p>
+ * Expiry is driven by a {@link HoldTimingWheel} in memory: placing a hold schedules its deadline in O(1), and every
+ * carts.holds.tick the wheel yields the holds due, which are given back in batches of {@value #EXPIRY_BATCH_SIZE}
+ * with one locking read, one batched stock update and one delete. There is no task per hold, and on startup the
+ * stored holds are scheduled again.
+ * <p>
+ * The wheel only knows the holds placed through its own instance. So that the holds of an instance that stopped are
+ * not kept until the next start, every carts.holds.sweep-interval the table is also scanned for holds past their
+ * deadline, whichever instance placed them. Holds that were already given back are skipped, so a hold expired by
+ * both the wheel and the scan gives its stock back once.
+ */
+@Service
+public class StockHoldService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockHoldService.class);
+
+    private static final int EXPIRY_BATCH_SIZE = 1000;
+
+    private final StockHoldRepository stockHoldRepository;
+    private final UserRepository userRepository;
+    private final ProductService productService;
+    private final InventoryLedger inventoryLedger;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${carts.holds.ttl:15m}")
+    private Duration defaultTtl;
+
+    @Value("${carts.holds.max-ttl:1h}")
+    private Duration maxTtl;
+
+    @Value("${carts.holds.tick:100ms}")
+    private Duration tick;
+
+    private HoldTimingWheel wheel;
+
+    public StockHoldService(StockHoldRepository stockHoldRepository,
+                            UserRepository userRepository,
+                            ProductService productService,
+                            InventoryLedger inventoryLedger,
+                            PlatformTransactionManager transactionManager) {
+        this.stockHoldRepository = stockHoldRepository;
+        this.userRepository = userRepository;
+        this.productService = productService;
+        this.inventoryLedger = inventoryLedger;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Schedules the expiry of the holds left by the previous run.
+     */
+    @PostConstruct
+    void start() {
+        wheel = new HoldTimingWheel(tick.toMillis(), System.currentTimeMillis());
+        if (maxTtl.toMillis() > wheel.rangeMillis()) {
+            throw new IllegalStateException("carts.holds.max-ttl must not exceed " + Duration.ofMillis(wheel.rangeMillis()) +
+                    " with a carts.holds.tick of " + tick);
+        }
+        List<StockHoldRepository.HoldExpiry> holds = stockHoldRepository.findAllExpiries();
+        for (StockHoldRepository.HoldExpiry hold : holds) {
+            wheel.schedule(hold.getId(), toEpochMilli(hold.getExpiresAt()));
+        }
+        if (!holds.isEmpty()) {
+            logger.info("[Stock Holds] Scheduled the expiry of {} hold(s)", holds.size());
+        }
+    }
+
+    /**
+     * Holds stock for the cart of a user.
+     *
+     * @param createStockHoldDTO the products and quantities to hold, and for how long
+     * @param username the user the stock is held for
+     * @return the hold, with when it expires
+     * @throws BadRequestException if the TTL exceeds carts.holds.max-ttl or there is not enough stock
+     * @throws ResourceNotFoundException if the user or one of the products does not exist
+     */
+    @Transactional
+    public StockHoldResponseDTO hold(CreateStockHoldDTO createStockHoldDTO, String username) {
+        Duration ttl = createStockHoldDTO.getTtlSeconds() == null
+                ? defaultTtl
+                : Duration.ofSeconds(createStockHoldDTO.getTtlSeconds());
+        if (ttl.compareTo(maxTtl) > 0) {
+            throw new BadRequestException("ttlSeconds must not exceed " + maxTtl.toSeconds(), null);
+        }
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (OrderProductDTO item : createStockHoldDTO.getItems()) {
+            quantities.merge(item.getProductId(), item.getProductQuantity(), Integer::sum);
+        }
+        try {
+            productService.holdProductQuantities(quantities);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage(), null);
+        }
+
+        Instant expiresAt = Instant.now().plus(ttl);
+        StockHold hold = stockHoldRepository.save(new StockHold(null, user.getId(),
+                LocalDateTime.ofInstant(expiresAt, ZoneId.systemDefault()), quantities));
+        UUID holdId = hold.getId();
+        // Scheduled once committed, as a rolled back hold holds nothing
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                wheel.schedule(holdId, expiresAt.toEpochMilli());
+            }
+        });
+        logger.info("[Stock Holds] Hold ({}, for {}) placed until {}", holdId, username, hold.getExpiresAt());
+        return toDTO(hold);
+    }
+
+    /**
+     * Releases a hold before it expires, giving its stock back.
+     *
+     * @param holdId the hold
+     * @param username the user the hold belongs to
+     * @throws ResourceNotFoundException if the user has no such hold, e.g. because it expired
+     */
+    @Transactional
+    public void release(UUID holdId, String username) {
+        StockHold hold = lockHold(holdId, username);
+        productService.returnHeldQuantities(new TreeMap<>(hold.getQuantities()));
+        stockHoldRepository.delete(hold);
+        logger.info("[Stock Holds] Hold ({}) released", holdId);
+    }
+
+    /**
+     * Converts a hold into the sale of an order, within the transaction of the order.
+     * The held units of the ordered products are sold, held units not ordered are given back,
+     * and the hold is deleted.
+     *
+     * @param holdId the hold
+     * @param username the user placing the order
+     * @param quantities product ID to quantity ordered
+     * @return product ID to the quantity ordered beyond the hold, to be reserved by the order
+     * @throws ResourceNotFoundException if the user has no such hold, or it expired
+     */
+    @Transactional
+    public Map<Long, Integer> convert(UUID holdId, String username, Map<Long, Integer> quantities) {
+        StockHold hold = lockHold(holdId, username);
+        if (hold.getExpiresAt().isBefore(LocalDateTime.now())) {
+            // Left for the expiry, which may not have reached it yet
+            throw new ResourceNotFoundException("Stock hold expired");
+        }
+
+        Map<Long, Integer> remaining = new TreeMap<>();
+        SortedMap<Long, Integer> sold = new TreeMap<>();
+        SortedMap<Long, Integer> returned = new TreeMap<>(hold.getQuantities());
+        quantities.forEach((productId, quantity) -> {
+            int held = returned.getOrDefault(productId, 0);
+            int fromHold = Math.min(held, quantity);
+            if (fromHold > 0) {
+                sold.put(productId, fromHold);
+                if (held == fromHold) {
+                    returned.remove(productId);
+                } else {
+                    returned.put(productId, held - fromHold);
+                }
+            }
+            if (quantity > fromHold) {
+                remaining.put(productId, quantity - fromHold);
+            }
+        });
+
+        // The sold units leave the hold and are sold, without changing the stock
+        inventoryLedger.recordHoldReturns(sold);
+        inventoryLedger.recordSales(sold);
+        productService.returnHeldQuantities(returned);
+        stockHoldRepository.delete(hold);
+        logger.info("[Stock Holds] Hold ({}) converted, {} product(s) sold from it", holdId, sold.size());
+        return remaining;
+    }
+
+    /**
+     * Gives back the stock of the holds whose deadline passed, in batches, each in its own transaction.
+     * Holds already converted or released are skipped.
+     */
+    @Scheduled(fixedDelayString = "${carts.holds.tick:100ms}")
+    public void expireHolds() {
+        expireInBatches(wheel.advance(System.currentTimeMillis()), true);
+    }
+
+    /**
+     * Gives back the stock of every stored hold whose deadline passed, including the holds placed through another
+     * instance, which this instance's wheel does not know.
+     */
+    @Scheduled(fixedDelayString = "${carts.holds.sweep-interval:1m}", initialDelayString = "${carts.holds.sweep-interval:1m}")
+    public void sweepExpiredHolds() {
+        List<UUID> due = stockHoldRepository.findIdsExpiredBefore(LocalDateTime.now());
+        if (!due.isEmpty()) {
+            logger.info("[Stock Holds] Sweep found {} hold(s) past their deadline", due.size());
+        }
+        expireInBatches(due, false);
+    }
+
+    /**
+     * Gives back the stock of all the holds of a user, within the transaction deleting the user.
+     *
+     * @param userId the user
+     */
+    @Transactional
+    public void releaseAllOf(UUID userId) {
+        int released = expire(stockHoldRepository.findIdsByUserId(userId));
+        if (released > 0) {
+            logger.info("[Stock Holds] {} hold(s) of user ({}) released", released, userId);
+        }
+    }
+
+    /**
+     * Expires holds in batches, each in its own transaction. A batch that fails is scheduled on the wheel again
+     * if {@code reschedule} is set, and otherwise left for the next sweep.
+     */
+    private void expireInBatches(List<UUID> due, boolean reschedule) {
+        for (int from = 0; from < due.size(); from += EXPIRY_BATCH_SIZE) {
+            List<UUID> batch = new ArrayList<>(due.subList(from, Math.min(from + EXPIRY_BATCH_SIZE, due.size())));
+            try {
+                int expired = transactionTemplate.execute(status -> expire(batch));
+                if (expired > 0) {
+                    logger.info("[Stock Holds] {} hold(s) expired", expired);
+                }
+            } catch (RuntimeException e) {
+                if (reschedule) {
+                    logger.warn("[Stock Holds] Failed to expire {} hold(s), retrying on the next tick", batch.size(), e);
+                    long retryAt = System.currentTimeMillis();
+                    batch.forEach(holdId -> wheel.schedule(holdId, retryAt));
+                } else {
+                    logger.warn("[Stock Holds] Failed to expire {} hold(s), retrying on the next sweep", batch.size(), e);
+                }
+            }
+        }
+    }
+
+    private int expire(List<UUID> holdIds) {
+        List<UUID> locked = stockHoldRepository.lockAll(holdIds);
+        if (locked.isEmpty()) {
+            return 0;
+        }
+        productService.returnHeldQuantities(stockHoldRepository.sumQuantities(locked));
+        stockHoldRepository.deleteWithItems(locked);
+        return locked.size();
+    }
+
+    /**
+     * Locks a hold of a user until the current transaction completes.
+     */
+    private StockHold lockHold(UUID holdId, String username) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        if (stockHoldRepository.lockAll(List.of(holdId)).isEmpty()) {
+            throw new ResourceNotFoundException("Stock hold not found");
+        }
+        return stockHoldRepository.findById(holdId)
+                .filter(hold -> hold.getUserId().equals(user.getId()))
+                .orElseThrow(() -> new ResourceNotFoundException("Stock hold not found"));
+    }
+
+    private static StockHoldResponseDTO toDTO(StockHold hold) {
+        List<OrderProductDTO> items = new ArrayList<>(hold.getQuantities().size());
+        new TreeMap<>(hold.getQuantities()).forEach((productId, quantity) -> {
+            OrderProductDTO item = new OrderProductDTO();
+            item.setProductId(productId);
+            item.setProductQuantity(quantity);
+            items.add(item);
+        });
+        return new StockHoldResponseDTO(hold.getId(), hold.getExpiresAt(), items);
+    }
+
+    private static long toEpochMilli(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
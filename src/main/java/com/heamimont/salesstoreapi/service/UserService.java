@@ -12,6 +12,8 @@ import com.heamimont.salesstoreapi.model.Role;
 import com.heamimont.salesstoreapi.model.User;
 import com.heamimont.salesstoreapi.repository.OrderRepository;
 import com.heamimont.salesstoreapi.repository.UserRepository;
+import com.heamimont.salesstoreapi.security.AuthenticationCache;
+import com.heamimont.salesstoreapi.security.TokenVersionRegistry;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,6 +38,9 @@ public class UserService {
     private final UserMapper userMapper;
     private final PasswordEncoder passwordEncoder;
     private final OrderRepository orderRepository;
+    private final AuthenticationCache authenticationCache;
+    private final TokenVersionRegistry tokenVersionRegistry;
+    private final StockHoldService stockHoldService;
 
     private static final Logger logger = LoggerFactory.getLogger(UserService.class);
 
@@ -43,11 +48,17 @@ public class UserService {
     public UserService(UserRepository userRepository, 
                       UserMapper userMapper, 
                       PasswordEncoder passwordEncoder,
-                       OrderRepository orderRepository) {
+                       OrderRepository orderRepository,
+                       AuthenticationCache authenticationCache,
+                       TokenVersionRegistry tokenVersionRegistry,
+                       StockHoldService stockHoldService) {
         this.userRepository = userRepository;
         this.userMapper = userMapper;
         this.passwordEncoder = passwordEncoder;
         this.orderRepository = orderRepository;
+        this.authenticationCache = authenticationCache;
+        this.tokenVersionRegistry = tokenVersionRegistry;
+        this.stockHoldService = stockHoldService;
     }
 
     /**
@@ -116,6 +127,7 @@ public class UserService {
             user.setPassword(passwordEncoder.encode(createUserDTO.getPassword()));
             user.setRole(Role.USER); // DEFAULT_ROLE
             User savedUser = userRepository.save(user);
+            tokenVersionRegistry.registerAfterCommit(savedUser.getUsername(), savedUser.getId(), savedUser.getTokenVersion());
             logger.info("[User Creation]: User ({}, {}) created successfully", savedUser.getId(), savedUser.getUsername());
             return userMapper.toDTO(savedUser);
 
@@ -155,6 +167,10 @@ public class UserService {
             throw new ResourceAlreadyExistsException("[EMAIL]: Email already exists");
         }
 
+        // Cached authentications of the user are stale once this commits
+        authenticationCache.invalidateAfterCommit(user.getUsername());
+        String previousUsername = user.getUsername();
+
         // Update user fields using mapper
         userMapper.updateEntity(user, dto);
 
@@ -163,6 +179,13 @@ public class UserService {
             user.setPassword(passwordEncoder.encode(dto.getPassword()));
         }
 
+        // Tokens issued before this change are no longer accepted in stateless mode
+        user.setTokenVersion(user.getTokenVersion() + 1);
+        if (!previousUsername.equals(user.getUsername())) {
+            tokenVersionRegistry.revokeAfterCommit(previousUsername);
+        }
+        tokenVersionRegistry.registerAfterCommit(user.getUsername(), user.getId(), user.getTokenVersion());
+
         // Save and return updated user
         User updatedUser = userRepository.save(user);
         logger.info("[User Update]: User ({}, {}) updated successfully", updatedUser.getId(), updatedUser.getUsername());
@@ -177,9 +200,12 @@ public class UserService {
      */
     @Transactional
     public void deleteUser(UUID id) {
-        if (!userRepository.existsById(id)) {
-            throw new ResourceNotFoundException("User not found");
-        }
+        User user = userRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+
+        // Cached authentications and tokens of the user must not outlive it
+        authenticationCache.invalidateAfterCommit(user.getUsername());
+        tokenVersionRegistry.revokeAfterCommit(user.getUsername());
 
         // Disassociate user from orders before deletion
         List<Order> orders = orderRepository.findOrdersByUser_Id(id)
@@ -190,6 +216,9 @@ public class UserService {
         }
         orderRepository.saveAll(orders);
 
+        // Holds reference the user, and their stock goes back to the products
+        stockHoldService.releaseAllOf(id);
+
         // Delete user
         try {
             userRepository.deleteById(id);
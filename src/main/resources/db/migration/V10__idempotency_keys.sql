@@ -0,0 +1,12 @@
+-- Idempotency-Key of POST /api/orders: the response of the first request with a key, per user, until it expires
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    username VARCHAR(50) NOT NULL,
+    idempotency_key VARCHAR(255) NOT NULL,
+    request_hash VARCHAR(64) NOT NULL,
+    response_body TEXT,
+    created_at TIMESTAMP NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (username, idempotency_key)
+    );
+
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_expires_at ON idempotency_keys (expires_at);
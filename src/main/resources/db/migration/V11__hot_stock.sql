@@ -0,0 +1,10 @@
+-- Hot-SKU mode: stock leased from a product row into in-memory shards, and the sales made from them
+ALTER TABLE products ADD COLUMN IF NOT EXISTS leased_quantity INTEGER NOT NULL DEFAULT 0;
+
+CREATE TABLE IF NOT EXISTS hot_stock_consumption (
+    id BIGSERIAL PRIMARY KEY,
+    product_id BIGINT NOT NULL,
+    quantity INTEGER NOT NULL,
+    -- Day of the sale, added to daily_product_sales by the flush; null for stock held, not sold
+    sale_date DATE
+    );
@@ -0,0 +1,17 @@
+-- Append-only stock ledger: every stock change of a product, see InventoryLedger
+CREATE TABLE IF NOT EXISTS inventory_movements (
+    id BIGSERIAL PRIMARY KEY,
+    product_id BIGINT NOT NULL,
+    quantity INTEGER NOT NULL,
+    reason VARCHAR(20) NOT NULL,
+    created_at TIMESTAMP NOT NULL
+    );
+
+-- Movements of a product are summed up to reconcile it with its stock
+CREATE INDEX IF NOT EXISTS idx_inventory_movements_product ON inventory_movements (product_id);
+
+-- Opening balance of the existing products, so the movements of every product sum up to its stock
+INSERT INTO inventory_movements (product_id, quantity, reason, created_at)
+SELECT id, available_quantity + leased_quantity, 'ADJUSTMENT', CURRENT_TIMESTAMP
+FROM products
+WHERE available_quantity + leased_quantity <> 0;
@@ -0,0 +1,13 @@
+-- Stock held for carts until it expires, see StockHoldService
+CREATE TABLE IF NOT EXISTS stock_holds (
+    id UUID PRIMARY KEY,
+    user_id UUID NOT NULL REFERENCES users(id),
+    expires_at TIMESTAMP NOT NULL
+    );
+
+CREATE TABLE IF NOT EXISTS stock_hold_items (
+    hold_id UUID NOT NULL REFERENCES stock_holds (id),
+    product_id BIGINT NOT NULL,
+    quantity INTEGER NOT NULL,
+    PRIMARY KEY (hold_id, product_id)
+    );
@@ -1,9 +1,13 @@
 -- =========================================================
--- DB Initialization Script (Fixed to match UUID entities)
+-- Baseline schema (formerly DBInit.sql)
+-- Statements are idempotent, so databases created from DBInit.sql are migrated as well
 -- =========================================================
 
 -- Enable UUID extension for Postgres
+-- vendor: postgresql
 CREATE EXTENSION IF NOT EXISTS "uuid-ossp";
+-- vendor: h2
+CREATE ALIAS IF NOT EXISTS uuid_generate_v4 FOR "java.util.UUID.randomUUID";
 
 -- =========================================================
 -- Lookup Tables for enums
@@ -31,7 +35,7 @@ INSERT INTO order_statuses (name) VALUES ('DONE'), ('IN_PROGRESS'), ('PENDING')
 
 -- Users table
 CREATE TABLE IF NOT EXISTS users (
-    id UUID PRIMARY KEY DEFAULT uuid_generate_v4(),
+    id UUID DEFAULT uuid_generate_v4() PRIMARY KEY,
     first_name VARCHAR(30) NOT NULL,
     last_name VARCHAR(30) NOT NULL,
     username VARCHAR(50) NOT NULL UNIQUE,
@@ -52,7 +56,7 @@ CREATE TABLE IF NOT EXISTS products (
 
 -- Orders table
 CREATE TABLE IF NOT EXISTS orders (
-    id UUID PRIMARY KEY DEFAULT uuid_generate_v4(),
+    id UUID DEFAULT uuid_generate_v4() PRIMARY KEY,
     user_id UUID NOT NULL REFERENCES users(id) ON DELETE CASCADE,
     order_date TIMESTAMP NOT NULL,
     total_cost NUMERIC(38,2) NOT NULL,
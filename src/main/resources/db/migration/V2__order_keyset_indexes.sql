@@ -0,0 +1,3 @@
+-- Keyset pagination of order listings on (order_date, id)
+CREATE INDEX IF NOT EXISTS idx_orders_order_date_id ON orders (order_date, id);
+CREATE INDEX IF NOT EXISTS idx_orders_user_order_date_id ON orders (user_id, order_date, id);
@@ -0,0 +1,7 @@
+-- Rollup of units sold per day and product, maintained by the application
+CREATE TABLE IF NOT EXISTS daily_product_sales (
+    sale_date DATE NOT NULL,
+    product_id BIGINT NOT NULL REFERENCES products(id),
+    units_sold BIGINT NOT NULL,
+    PRIMARY KEY (sale_date, product_id)
+    );
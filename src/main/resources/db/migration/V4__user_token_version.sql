@@ -0,0 +1,2 @@
+-- Token version of stateless JWTs, bumped on every change of the user
+ALTER TABLE users ADD COLUMN IF NOT EXISTS token_version INTEGER NOT NULL DEFAULT 0;
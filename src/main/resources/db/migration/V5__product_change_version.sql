@@ -0,0 +1,12 @@
+-- Catalog delta sync: version of the last change of each product, and the deleted products
+ALTER TABLE products ADD COLUMN IF NOT EXISTS change_version BIGINT NOT NULL DEFAULT 0;
+
+-- Existing products are changes after version 0, so a full sync (since=0) lists them; versions are allocated from here on
+UPDATE products SET change_version = 1 WHERE change_version = 0;
+
+CREATE TABLE IF NOT EXISTS product_tombstones (
+    change_version BIGINT PRIMARY KEY,
+    product_id BIGINT NOT NULL
+    );
+
+CREATE INDEX IF NOT EXISTS idx_products_change_version ON products (change_version);
@@ -0,0 +1,8 @@
+-- Report filters: product names are resolved to IDs through the trigram index,
+-- then orders are filtered with a semi-join on order_products.product_id
+-- vendor: postgresql
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- vendor: postgresql
+CREATE INDEX IF NOT EXISTS idx_products_name_trgm ON products USING gin (lower(name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_order_products_product_id ON order_products (product_id, order_id);
@@ -0,0 +1,9 @@
+-- Case-insensitive user lookups: existsByUsernameIgnoreCase / existsByEmailIgnoreCase and
+-- OrderSpecifications.hasUsername compare upper(...), which the plain unique indexes cannot serve
+-- vendor: postgresql
+CREATE INDEX IF NOT EXISTS idx_users_upper_username ON users (upper(username));
+-- vendor: postgresql
+CREATE INDEX IF NOT EXISTS idx_users_upper_email ON users (upper(email));
+
+-- Foreign key checks when a product is deleted; the primary key leads with sale_date
+CREATE INDEX IF NOT EXISTS idx_daily_product_sales_product_id ON daily_product_sales (product_id);
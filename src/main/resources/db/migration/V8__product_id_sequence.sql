@@ -0,0 +1,9 @@
+-- Product IDs come from a pooled sequence (allocation size 50, see Product), so Hibernate can batch product inserts.
+-- Each value handed out by the sequence reserves the 50 IDs up to and including it, so skip past the existing IDs.
+-- vendor: postgresql
+ALTER SEQUENCE products_id_seq INCREMENT BY 50;
+-- vendor: postgresql
+SELECT setval('products_id_seq', (SELECT COALESCE(MAX(id), 0) FROM products) + 50);
+-- H2 does not name the sequence of a BIGSERIAL column
+-- vendor: h2
+CREATE SEQUENCE IF NOT EXISTS products_id_seq START WITH 1 INCREMENT BY 50;
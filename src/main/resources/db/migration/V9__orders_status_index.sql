@@ -0,0 +1,2 @@
+-- Fulfillment work queue: POST /api/orders/claim takes the oldest PENDING orders
+CREATE INDEX IF NOT EXISTS idx_orders_status_order_date ON orders (status, order_date);
@@ -0,0 +1,153 @@
+package com.heamimont.salesstoreapi.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.IntPredicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SchemaMigratorTest {
+
+    @TempDir
+    Path migrations;
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private SchemaMigrator migrator;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:migrations-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        migrator = new SchemaMigrator(dataSource, "file:" + migrations);
+    }
+
+    @Test
+    void migrate_appliesMigrationsInVersionOrderAndRecordsThem() throws IOException {
+        // V10 depends on V2; versions are compared as numbers, not file names
+        write("V10__add_price.sql", "ALTER TABLE items ADD COLUMN price DECIMAL(10, 2);");
+        write("V2__create_items.sql", "CREATE TABLE items (id INT PRIMARY KEY, name VARCHAR(50));\nINSERT INTO items (id, name) VALUES (1, 'first');");
+
+        assertThat(migrator.migrate()).isEqualTo(2);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM items WHERE price IS NULL", Integer.class)).isEqualTo(1);
+        List<String> history = jdbcTemplate.queryForList(
+                "SELECT version || ':' || description FROM schema_migrations ORDER BY applied_at, version", String.class);
+        assertThat(history).containsExactly("2:create items", "10:add price");
+    }
+
+    @Test
+    void migrate_skipsAppliedMigrations() throws IOException {
+        write("V1__create_items.sql", "CREATE TABLE items (id INT PRIMARY KEY);");
+        assertThat(migrator.migrate()).isEqualTo(1);
+
+        write("V2__create_tags.sql", "CREATE TABLE tags (id INT PRIMARY KEY);");
+        assertThat(migrator.migrate()).isEqualTo(1);
+        assertThat(migrator.migrate()).isZero();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM schema_migrations", Integer.class)).isEqualTo(2);
+    }
+
+    @Test
+    void migrate_failsWhenAppliedMigrationChanged() throws IOException {
+        write("V1__create_items.sql", "CREATE TABLE items (id INT PRIMARY KEY);");
+        migrator.migrate();
+
+        write("V1__create_items.sql", "CREATE TABLE items (id BIGINT PRIMARY KEY);");
+
+        assertThatThrownBy(() -> migrator.migrate())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("V1__create_items was changed");
+    }
+
+    @Test
+    void migrate_rollsBackFailedMigrationAndKeepsEarlierOnes() throws IOException {
+        write("V1__create_items.sql", "CREATE TABLE items (id INT PRIMARY KEY);");
+        write("V2__broken.sql", "INSERT INTO items (id) VALUES (1);\nINSERT INTO missing_table (id) VALUES (1);");
+
+        assertThatThrownBy(() -> migrator.migrate())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("V2__broken failed");
+
+        assertThat(jdbcTemplate.queryForList("SELECT version FROM schema_migrations", Integer.class)).containsExactly(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM items", Integer.class)).isZero();
+    }
+
+    @Test
+    void migrate_rejectsDuplicateVersions() throws IOException {
+        write("V1__create_items.sql", "CREATE TABLE items (id INT PRIMARY KEY);");
+        write("V01__create_tags.sql", "CREATE TABLE tags (id INT PRIMARY KEY);");
+
+        assertThatThrownBy(() -> migrator.migrate())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Duplicate migration version 1");
+    }
+
+    @Test
+    void migrate_runsStatementsMarkedForAnotherDatabaseOnlyThere() throws IOException {
+        write("V1__create_items.sql", """
+                CREATE TABLE items (id INT PRIMARY KEY, name VARCHAR(50));
+                -- vendor: postgresql
+                CREATE INDEX idx_items_name ON items
+                    USING gin (lower(name) gin_trgm_ops);
+                -- vendor: h2
+                CREATE INDEX idx_items_name ON items (name);
+                INSERT INTO items (id, name) VALUES (1, 'first');
+                """);
+
+        assertThat(migrator.migrate()).isEqualTo(1);
+
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.indexes WHERE index_name = 'IDX_ITEMS_NAME'", Integer.class)).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM items", Integer.class)).isEqualTo(1);
+    }
+
+    @Test
+    void migrations_listProductsCreatedBeforeTheChangeVersionInAFullSync() throws IOException {
+        DriverManagerDataSource postgresMode = new DriverManagerDataSource(
+                "jdbc:h2:mem:migrations-" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+        JdbcTemplate database = new JdbcTemplate(postgresMode);
+        SchemaMigrator productionMigrations = new SchemaMigrator(postgresMode, "file:" + migrations);
+        Resource[] scripts = new PathMatchingResourcePatternResolver().getResources("classpath:db/migration/V*__*.sql");
+        copy(scripts, version -> version < 5);
+        productionMigrations.migrate();
+        database.update("INSERT INTO products (name, actual_price, selling_price, available_quantity) VALUES ('Old Product', 1, 2, 3)");
+
+        copy(scripts, version -> version >= 5);
+        productionMigrations.migrate();
+
+        // The queries of ProductChangeLog.load and ProductRepository.findChangedBetween, for since=0
+        long until = database.queryForObject("SELECT COALESCE(MAX(change_version), 0) FROM products", Long.class);
+        assertThat(until).isPositive();
+        assertThat(database.queryForList("SELECT name FROM products WHERE change_version > 0 AND change_version <= ?",
+                String.class, until)).containsExactly("Old Product");
+    }
+
+    private void copy(Resource[] scripts, IntPredicate versions) throws IOException {
+        for (Resource script : scripts) {
+            String fileName = script.getFilename();
+            if (versions.test(Integer.parseInt(fileName.substring(1, fileName.indexOf("__"))))) {
+                try (InputStream in = script.getInputStream()) {
+                    Files.write(migrations.resolve(fileName), in.readAllBytes());
+                }
+            }
+        }
+    }
+
+    private void write(String fileName, String sql) throws IOException {
+        Files.writeString(migrations.resolve(fileName), sql);
+    }
+}
@@ -0,0 +1,147 @@
+package com.heamimont.salesstoreapi.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.heamimont.salesstoreapi.model.Order;
+import com.heamimont.salesstoreapi.model.OrderStatus;
+import com.heamimont.salesstoreapi.model.Product;
+import com.heamimont.salesstoreapi.model.Role;
+import com.heamimont.salesstoreapi.model.User;
+import com.heamimont.salesstoreapi.repository.DailyProductSalesRepository;
+import com.heamimont.salesstoreapi.repository.OrderRepository;
+import com.heamimont.salesstoreapi.repository.ProductRepository;
+import com.heamimont.salesstoreapi.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.hamcrest.Matchers.nullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Batch order creation through POST /api/orders/batch.
+ * Not transactional, as every chunk of orders commits in its own transaction.
+ */
+@SpringBootTest(properties = {"orders.batch.chunk-size=2", "orders.status-update.chunk-size=2"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@WithMockUser(username = "admin", roles = {"ADMIN"})
+class OrderBatchControllerTest {
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private ObjectMapper objectMapper;
+    @Autowired private UserRepository userRepository;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private OrderRepository orderRepository;
+    @Autowired private DailyProductSalesRepository dailyProductSalesRepository;
+
+    private User alice;
+    private User bob;
+    private Product laptop;
+    private Product mouse;
+
+    @BeforeEach
+    void setUp() {
+        alice = userRepository.save(new User(null, "batch-alice", "Alice", "Smith", "batch-alice@example.com", "password", Role.USER));
+        bob = userRepository.save(new User(null, "batch-bob", "Bob", "Jones", "batch-bob@example.com", "password", Role.USER));
+        laptop = productRepository.saveAndFlush(new Product(null, "Batch Laptop", null, BigDecimal.valueOf(800), BigDecimal.valueOf(1000), 3));
+        mouse = productRepository.saveAndFlush(new Product(null, "Batch Mouse", null, BigDecimal.valueOf(5), BigDecimal.valueOf(20), 100));
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (User user : List.of(alice, bob)) {
+            orderRepository.deleteAll(orderRepository.findOrdersByUser_Id(user.getId()).orElse(List.of()));
+        }
+        dailyProductSalesRepository.deleteAll(dailyProductSalesRepository.findAll().stream()
+                .filter(row -> row.getId().getProductId().equals(laptop.getId()) || row.getId().getProductId().equals(mouse.getId()))
+                .toList());
+        productRepository.deleteAllById(List.of(laptop.getId(), mouse.getId()));
+        userRepository.deleteAll(List.of(alice, bob));
+    }
+
+    @Test
+    void createOrders_placesValidOrdersAndReportsRejectedOnes() throws Exception {
+        String body = """
+                [
+                  {"username":"batch-alice","orderProducts":[{"productId":%1$d,"productQuantity":2},{"productId":%2$d,"productQuantity":1},{"productId":%2$d,"productQuantity":4}]},
+                  {"username":"batch-nobody","orderProducts":[{"productId":%2$d,"productQuantity":1}]},
+                  {"username":"batch-bob","orderProducts":[{"productId":%1$d,"productQuantity":2}]},
+                  {"username":"batch-bob","orderProducts":[{"productId":%2$d,"productQuantity":0}]},
+                  {"username":"batch-bob","orderProducts":[{"productId":%1$d,"productQuantity":1},{"productId":%2$d,"productQuantity":10}]},
+                  {"username":"batch-alice","orderProducts":[{"productId":999999,"productQuantity":1}]}
+                ]
+                """.formatted(laptop.getId(), mouse.getId());
+
+        String response = mockMvc.perform(post("/api/orders/batch").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(2))
+                .andExpect(jsonPath("$.failed").value(4))
+                .andExpect(jsonPath("$.results[1].orderId").value(nullValue()))
+                .andExpect(jsonPath("$.results[1].error").value("User not found"))
+                // The first order took 2 of the 3 laptops
+                .andExpect(jsonPath("$.results[2].error").value("Insufficient product quantity available"))
+                .andExpect(jsonPath("$.results[3].error").value("orderProducts[0].productQuantity: Quantity must be at least 1"))
+                .andExpect(jsonPath("$.results[4].error").value(nullValue()))
+                .andExpect(jsonPath("$.results[5].error").value("Product not found"))
+                .andReturn().getResponse().getContentAsString();
+
+        JsonNode results = objectMapper.readTree(response).get("results");
+        UUID aliceOrderId = UUID.fromString(results.get(0).get("orderId").asText());
+        UUID bobOrderId = UUID.fromString(results.get(4).get("orderId").asText());
+
+        Order aliceOrder = orderRepository.findWithDetailsById(aliceOrderId).orElseThrow();
+        assertThat(aliceOrder.getUser().getId()).isEqualTo(alice.getId());
+        assertThat(aliceOrder.getStatus()).isEqualTo(OrderStatus.PENDING);
+        assertThat(aliceOrder.getTotalCost()).isEqualByComparingTo("2100");
+        assertThat(aliceOrder.getOrderProducts())
+                .extracting(line -> line.getProduct().getId(), line -> line.getProductQuantity())
+                .containsExactlyInAnyOrder(
+                        tuple(laptop.getId(), 2),
+                        tuple(mouse.getId(), 5));
+        assertThat(orderRepository.findWithDetailsById(bobOrderId).orElseThrow().getTotalCost()).isEqualByComparingTo("1200");
+
+        assertThat(productRepository.findById(laptop.getId()).orElseThrow().getAvailableQuantity()).isZero();
+        assertThat(productRepository.findById(mouse.getId()).orElseThrow().getAvailableQuantity()).isEqualTo(85);
+        assertThat(dailyProductSalesRepository.findAll())
+                .filteredOn(row -> row.getId().getProductId().equals(mouse.getId()))
+                .singleElement()
+                .satisfies(row -> {
+                    assertThat(row.getId().getSaleDate()).isEqualTo(LocalDate.now());
+                    assertThat(row.getUnitsSold()).isEqualTo(15);
+                });
+    }
+
+    @Test
+    void createOrders_rejectsEmptyBatch() throws Exception {
+        mockMvc.perform(post("/api/orders/batch").contentType(MediaType.APPLICATION_JSON).content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(username = "batch-alice", roles = {"USER"})
+    void createOrders_requiresAdmin() throws Exception {
+        String body = """
+                [{"username":"batch-alice","orderProducts":[{"productId":%d,"productQuantity":1}]}]
+                """.formatted(mouse.getId());
+        mockMvc.perform(post("/api/orders/batch").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isForbidden());
+        assertThat(productRepository.findById(mouse.getId()).orElseThrow().getAvailableQuantity()).isEqualTo(100);
+    }
+}
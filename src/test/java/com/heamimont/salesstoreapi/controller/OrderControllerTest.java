@@ -25,7 +25,11 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -135,7 +139,8 @@ class OrderControllerTest {
 
         mockMvc.perform(get("/api/orders/me"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.length()").value(1));
+                .andExpect(jsonPath("$.orders.length()").value(1))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
     }
 
     @Test
@@ -146,7 +151,47 @@ class OrderControllerTest {
 
         mockMvc.perform(get("/api/orders"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.length()").value(1));
+                .andExpect(jsonPath("$.orders.length()").value(1));
+    }
+
+    @Test
+    @WithMockUser(username = "admin", roles = {"ADMIN"})
+    void getAllOrders_withCursor_ShouldWalkAllPagesNewestFirst() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            createOrderAndReturnId(validCreateOrderDTO(1));
+        }
+
+        List<String> seenIds = new ArrayList<>();
+        List<LocalDateTime> seenDates = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            var request = get("/api/orders").param("size", "2");
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            String body = mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            JsonNode page = objectMapper.readTree(body);
+            page.get("orders").forEach(order -> {
+                seenIds.add(order.get("id").asText());
+                seenDates.add(LocalDateTime.parse(order.get("orderDate").asText()));
+            });
+            cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+            pages++;
+        } while (cursor != null);
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(seenIds).hasSize(5).doesNotHaveDuplicates();
+        assertThat(seenDates).isSortedAccordingTo(Comparator.reverseOrder());
+    }
+
+    @Test
+    @WithMockUser(username = "admin", roles = {"ADMIN"})
+    void getAllOrders_withInvalidCursor_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/api/orders").param("cursor", "garbage"))
+                .andExpect(status().isBadRequest());
     }
 
     @Test
@@ -193,6 +238,47 @@ class OrderControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    @WithMockUser(username = "admin", roles = {"ADMIN"})
+    void claimOrders_asAdmin_ShouldClaimOldestPendingOrdersOnce() throws Exception {
+        String first = createOrderAndReturnId(validCreateOrderDTO(1));
+        String second = createOrderAndReturnId(validCreateOrderDTO(1));
+        String third = createOrderAndReturnId(validCreateOrderDTO(1));
+
+        mockMvc.perform(post("/api/orders/claim").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(first))
+                .andExpect(jsonPath("$[0].status").value("IN_PROGRESS"))
+                .andExpect(jsonPath("$[1].id").value(second))
+                .andExpect(jsonPath("$[0].orderProducts[0].productId").value(product.getId()));
+
+        mockMvc.perform(post("/api/orders/claim").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(third));
+
+        mockMvc.perform(post("/api/orders/claim"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+
+        assertThat(orderRepository.findAll()).extracting(Order::getStatus).containsOnly(OrderStatus.IN_PROGRESS);
+    }
+
+    @Test
+    @WithMockUser(username = "admin", roles = {"ADMIN"})
+    void claimOrders_invalidLimit_ShouldReturn400() throws Exception {
+        mockMvc.perform(post("/api/orders/claim").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(username = "customer")
+    void claimOrders_asUser_ShouldReturnForbidden() throws Exception {
+        mockMvc.perform(post("/api/orders/claim"))
+                .andExpect(status().isForbidden());
+    }
+
     @Test
     @WithMockUser(username = "admin", roles = {"ADMIN"})
     void getOrderById_asAdmin_ShouldReturnOrder() throws Exception {
@@ -0,0 +1,203 @@
+package com.heamimont.salesstoreapi.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.heamimont.salesstoreapi.model.IdempotencyRecord;
+import com.heamimont.salesstoreapi.model.IdempotencyRecordKey;
+import com.heamimont.salesstoreapi.model.Product;
+import com.heamimont.salesstoreapi.model.Role;
+import com.heamimont.salesstoreapi.model.User;
+import com.heamimont.salesstoreapi.repository.DailyProductSalesRepository;
+import com.heamimont.salesstoreapi.repository.IdempotencyRecordRepository;
+import com.heamimont.salesstoreapi.repository.OrderRepository;
+import com.heamimont.salesstoreapi.repository.ProductRepository;
+import com.heamimont.salesstoreapi.repository.UserRepository;
+import com.heamimont.salesstoreapi.service.OrderIdempotencyService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Idempotency-Key support of POST /api/orders.
+ * Not transactional, as keys are claimed and released in their own transactions.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class OrderIdempotencyControllerTest {
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private ObjectMapper objectMapper;
+    @Autowired private OrderIdempotencyService orderIdempotencyService;
+    @Autowired private IdempotencyRecordRepository idempotencyRecordRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private OrderRepository orderRepository;
+    @Autowired private DailyProductSalesRepository dailyProductSalesRepository;
+
+    private final List<User> users = new ArrayList<>();
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        users.add(userRepository.save(new User(null, "idem-user", "Idem", "Potent", "idem-user@example.com", "password", Role.USER)));
+        users.add(userRepository.save(new User(null, "idem-other", "Other", "User", "idem-other@example.com", "password", Role.USER)));
+        product = productRepository.saveAndFlush(new Product(null, "Idempotent Product", null, BigDecimal.ONE, BigDecimal.TEN, 10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        idempotencyRecordRepository.deleteAll();
+        for (User user : users) {
+            orderRepository.deleteAll(orderRepository.findOrdersByUser_Id(user.getId()).orElse(List.of()));
+        }
+        dailyProductSalesRepository.deleteAll(dailyProductSalesRepository.findAll().stream()
+                .filter(row -> row.getId().getProductId().equals(product.getId()))
+                .toList());
+        productRepository.deleteById(product.getId());
+        userRepository.deleteAll(users);
+    }
+
+    @Test
+    void createOrder_retriedWithTheSameKey_createsTheOrderOnce() throws Exception {
+        String first = createOrder("idem-user", "key-1", 2)
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Idempotent-Replayed", "false"))
+                .andReturn().getResponse().getContentAsString();
+        String retry = createOrder("idem-user", "key-1", 2)
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(objectMapper.readTree(retry)).isEqualTo(objectMapper.readTree(first));
+        assertThat(orderRepository.findOrdersByUser_Id(users.get(0).getId()).orElseThrow()).hasSize(1);
+        assertThat(availableQuantity()).isEqualTo(8);
+    }
+
+    @Test
+    void createOrder_keyReusedForAnotherOrder_isRejected() throws Exception {
+        createOrder("idem-user", "key-2", 1).andExpect(status().isCreated());
+
+        createOrder("idem-user", "key-2", 3).andExpect(status().isConflict());
+        // Keys are scoped to the user
+        createOrder("idem-other", "key-2", 3)
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Idempotent-Replayed", "false"));
+        assertThat(availableQuantity()).isEqualTo(6);
+    }
+
+    @Test
+    void createOrder_concurrentDuplicates_createTheOrderOnce() throws Exception {
+        int requests = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(requests);
+        CountDownLatch start = new CountDownLatch(1);
+        Set<String> orderIds = ConcurrentHashMap.newKeySet();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                String response = createOrder("idem-user", "key-3", 1)
+                        .andExpect(status().isCreated())
+                        .andReturn().getResponse().getContentAsString();
+                orderIds.add(objectMapper.readTree(response).get("id").asText());
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(orderIds).hasSize(1);
+        assertThat(orderRepository.findOrdersByUser_Id(users.get(0).getId()).orElseThrow()).hasSize(1);
+        assertThat(availableQuantity()).isEqualTo(9);
+    }
+
+    @Test
+    void createOrder_failedRequest_releasesTheKey() throws Exception {
+        createOrder("idem-user", "key-4", 20).andExpect(status().is5xxServerError());
+        assertThat(idempotencyRecordRepository.findById(new IdempotencyRecordKey("idem-user", "key-4"))).isEmpty();
+
+        product.setAvailableQuantity(50);
+        productRepository.saveAndFlush(product);
+        createOrder("idem-user", "key-4", 20)
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Idempotent-Replayed", "false"));
+        assertThat(availableQuantity()).isEqualTo(30);
+    }
+
+    @Test
+    void createOrder_keyLeftWithoutResponse_isTakenOver() throws Exception {
+        // Left by a request that committed its key but crashed before its order
+        LocalDateTime now = LocalDateTime.now();
+        idempotencyRecordRepository.save(new IdempotencyRecord(
+                new IdempotencyRecordKey("idem-user", "key-5"), "hash", null, now, now.plusDays(1)));
+
+        createOrder("idem-user", "key-5", 1)
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Idempotent-Replayed", "false"));
+        assertThat(idempotencyRecordRepository.findById(new IdempotencyRecordKey("idem-user", "key-5")))
+                .hasValueSatisfying(record -> assertThat(record.getResponseBody()).isNotNull());
+        assertThat(availableQuantity()).isEqualTo(9);
+    }
+
+    @Test
+    void evictExpired_deletesOnlyExpiredKeys() {
+        LocalDateTime now = LocalDateTime.now();
+        idempotencyRecordRepository.save(new IdempotencyRecord(
+                new IdempotencyRecordKey("idem-user", "expired"), "hash", "{}", now.minusDays(2), now.minusDays(1)));
+        idempotencyRecordRepository.save(new IdempotencyRecord(
+                new IdempotencyRecordKey("idem-user", "live"), "hash", "{}", now, now.plusDays(1)));
+
+        orderIdempotencyService.evictExpired();
+
+        assertThat(idempotencyRecordRepository.findAll())
+                .extracting(record -> record.getId().getIdempotencyKey())
+                .containsExactly("live");
+    }
+
+    @Test
+    void createOrder_blankKey_isRejected() throws Exception {
+        createOrder("idem-user", " ", 1).andExpect(status().isBadRequest());
+        assertThat(availableQuantity()).isEqualTo(10);
+    }
+
+    private ResultActions createOrder(String username, String key, int quantity) throws Exception {
+        return mockMvc.perform(post("/api/orders")
+                .with(user(username).roles("USER"))
+                .header("Idempotency-Key", key)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                        {"orderProducts":[{"productId":%d,"productQuantity":%d}]}
+                        """.formatted(product.getId(), quantity)));
+    }
+
+    private int availableQuantity() {
+        return productRepository.findById(product.getId()).orElseThrow().getAvailableQuantity();
+    }
+}
@@ -0,0 +1,169 @@
+package com.heamimont.salesstoreapi.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.heamimont.salesstoreapi.model.Product;
+import com.heamimont.salesstoreapi.model.Role;
+import com.heamimont.salesstoreapi.model.User;
+import com.heamimont.salesstoreapi.repository.DailyProductSalesRepository;
+import com.heamimont.salesstoreapi.repository.OrderRepository;
+import com.heamimont.salesstoreapi.repository.ProductRepository;
+import com.heamimont.salesstoreapi.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Asynchronous order intake through POST /api/orders with Prefer: respond-async, and GET /api/orders/intake/{id}.
+ * Not transactional, as orders are placed by the intake's writer thread.
+ */
+@SpringBootTest(properties = "orders.intake.enabled=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@WithMockUser(username = "intake-user", roles = {"USER"})
+class OrderIntakeControllerTest {
+
+    @TempDir
+    static Path journalDir;
+
+    @DynamicPropertySource
+    static void journalProperties(DynamicPropertyRegistry registry) {
+        registry.add("orders.intake.journal-dir", () -> journalDir.toString());
+    }
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private ObjectMapper objectMapper;
+    @Autowired private UserRepository userRepository;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private OrderRepository orderRepository;
+    @Autowired private DailyProductSalesRepository dailyProductSalesRepository;
+
+    private User user;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User(null, "intake-user", "In", "Take", "intake-user@example.com", "password", Role.USER));
+        product = productRepository.saveAndFlush(new Product(null, "Intake Product", null, BigDecimal.ONE, BigDecimal.TEN, 3));
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAll(orderRepository.findOrdersByUser_Id(user.getId()).orElse(List.of()));
+        dailyProductSalesRepository.deleteAll(dailyProductSalesRepository.findAll().stream()
+                .filter(row -> row.getId().getProductId().equals(product.getId()))
+                .toList());
+        productRepository.deleteById(product.getId());
+        userRepository.delete(user);
+    }
+
+    @Test
+    void createOrder_respondAsync_acceptsThenPlacesTheOrder() throws Exception {
+        String response = mockMvc.perform(post("/api/orders").header("Prefer", "respond-async")
+                        .contentType(MediaType.APPLICATION_JSON).content(order(2)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.status").value("QUEUED"))
+                .andReturn().getResponse().getContentAsString();
+        JsonNode accepted = objectMapper.readTree(response);
+        UUID orderId = UUID.fromString(accepted.get("orderId").asText());
+        String statusUrl = accepted.get("statusUrl").asText();
+        assertThat(statusUrl).isEqualTo("/api/orders/intake/" + orderId);
+
+        assertThat(awaitStatus(statusUrl).get("status").asText()).isEqualTo("CREATED");
+        assertThat(orderRepository.findById(orderId)).hasValueSatisfying(order ->
+                assertThat(order.getTotalCost()).isEqualByComparingTo("20"));
+        assertThat(productRepository.findById(product.getId()).orElseThrow().getAvailableQuantity()).isEqualTo(1);
+    }
+
+    @Test
+    void createOrder_respondAsync_reportsOrdersThatCannotBePlaced() throws Exception {
+        String response = mockMvc.perform(post("/api/orders").header("Prefer", "respond-async")
+                        .contentType(MediaType.APPLICATION_JSON).content(order(4)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().exists("Location"))
+                .andReturn().getResponse().getContentAsString();
+        String statusUrl = objectMapper.readTree(response).get("statusUrl").asText();
+
+        JsonNode status = awaitStatus(statusUrl);
+        assertThat(status.get("status").asText()).isEqualTo("REJECTED");
+        assertThat(status.get("error").asText()).isEqualTo("Insufficient product quantity available");
+        assertThat(productRepository.findById(product.getId()).orElseThrow().getAvailableQuantity()).isEqualTo(3);
+    }
+
+    @Test
+    void createOrder_withoutPreferHeader_placesTheOrderSynchronously() throws Exception {
+        mockMvc.perform(post("/api/orders").contentType(MediaType.APPLICATION_JSON).content(order(1)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").exists())
+                .andExpect(jsonPath("$.status").value("PENDING"));
+    }
+
+    @Test
+    void getOrderIntakeStatus_isOnlyVisibleToTheOwnerAndAdmins() throws Exception {
+        String response = mockMvc.perform(post("/api/orders").header("Prefer", "respond-async")
+                        .contentType(MediaType.APPLICATION_JSON).content(order(1)))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getContentAsString();
+        String statusUrl = objectMapper.readTree(response).get("statusUrl").asText();
+        awaitStatus(statusUrl);
+
+        mockMvc.perform(get(statusUrl).with(as("someone-else", "USER")))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get(statusUrl).with(as("admin", "ADMIN")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("CREATED"));
+        mockMvc.perform(get("/api/orders/intake/{id}", UUID.randomUUID()))
+                .andExpect(status().isNotFound());
+    }
+
+    private String order(int quantity) {
+        return """
+                {"orderProducts":[{"productId":%d,"productQuantity":%d}]}
+                """.formatted(product.getId(), quantity);
+    }
+
+    /**
+     * Polls the status URL until the order is no longer queued.
+     */
+    private JsonNode awaitStatus(String statusUrl) throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (true) {
+            String response = mockMvc.perform(get(statusUrl))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            JsonNode status = objectMapper.readTree(response);
+            if (!"QUEUED".equals(status.get("status").asText()) || System.currentTimeMillis() > deadline) {
+                return status;
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private static RequestPostProcessor as(String username, String role) {
+        return user(username).roles(role);
+    }
+}
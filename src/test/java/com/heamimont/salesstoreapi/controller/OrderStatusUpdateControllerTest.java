@@ -0,0 +1,174 @@
+package com.heamimont.salesstoreapi.controller;
+
+import com.heamimont.salesstoreapi.dto.order.CreateOrderDTO;
+import com.heamimont.salesstoreapi.dto.order.OrderProductDTO;
+import com.heamimont.salesstoreapi.model.OrderStatus;
+import com.heamimont.salesstoreapi.model.Product;
+import com.heamimont.salesstoreapi.model.Role;
+import com.heamimont.salesstoreapi.model.User;
+import com.heamimont.salesstoreapi.repository.OrderRepository;
+import com.heamimont.salesstoreapi.repository.ProductRepository;
+import com.heamimont.salesstoreapi.repository.UserRepository;
+import com.heamimont.salesstoreapi.service.OrderService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Bulk order status changes through PUT /api/orders/status, and the summary mode of PUT /api/orders/{id}/status.
+ * Chunks of two orders, so that selections span several chunks, and no more than five IDs per request.
+ */
+@SpringBootTest(properties = {"orders.batch.chunk-size=2", "orders.status-update.chunk-size=2", "orders.status-update.max-ids=5"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Transactional
+@WithMockUser(username = "admin", roles = {"ADMIN"})
+class OrderStatusUpdateControllerTest {
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private OrderService orderService;
+    @Autowired private OrderRepository orderRepository;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private UserRepository userRepository;
+
+    private final List<UUID> orderIds = new ArrayList<>();
+    private CreateOrderDTO order;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository.deleteAll();
+        userRepository.save(new User(null, "status-user", "Stat", "Us", "status-user@example.com", "password", Role.USER));
+        Product product = productRepository.saveAndFlush(
+                new Product(null, "Status Product", null, BigDecimal.ONE, BigDecimal.TEN, 100));
+
+        OrderProductDTO line = new OrderProductDTO();
+        line.setProductId(product.getId());
+        line.setProductQuantity(1);
+        order = new CreateOrderDTO();
+        order.setOrderProducts(List.of(line));
+        for (int i = 0; i < 5; i++) {
+            orderIds.add(orderService.createOrder(order, "status-user").getId());
+        }
+    }
+
+    @Test
+    void updateStatuses_byIds_movesEligibleOrdersAndSkipsTheRest() throws Exception {
+        orderService.updateOrderStatusSummary(orderIds.get(1), OrderStatus.DONE);
+        UUID unknown = UUID.randomUUID();
+        String body = """
+                {"status":"IN_PROGRESS","orderIds":["%s","%s","%s","%s","%s"]}
+                """.formatted(orderIds.get(0), orderIds.get(1), unknown, orderIds.get(2), orderIds.get(0));
+
+        mockMvc.perform(put("/api/orders/status").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("IN_PROGRESS"))
+                .andExpect(jsonPath("$.updated").value(2))
+                .andExpect(jsonPath("$.skipped").value(2))
+                .andExpect(jsonPath("$.updatedIds", containsInAnyOrder(orderIds.get(0).toString(), orderIds.get(2).toString())))
+                .andExpect(jsonPath("$.skippedIds", containsInAnyOrder(orderIds.get(1).toString(), unknown.toString())));
+
+        assertThat(statusOf(0)).isEqualTo(OrderStatus.IN_PROGRESS);
+        assertThat(statusOf(1)).isEqualTo(OrderStatus.DONE);
+        assertThat(statusOf(2)).isEqualTo(OrderStatus.IN_PROGRESS);
+        assertThat(statusOf(3)).isEqualTo(OrderStatus.PENDING);
+    }
+
+    @Test
+    void updateStatuses_byFilter_movesEveryMatchingOrderAcrossChunks() throws Exception {
+        orderService.updateOrderStatusSummary(orderIds.get(4), OrderStatus.IN_PROGRESS);
+        String body = """
+                {"status":"DONE","currentStatus":"PENDING","startDate":"%s","endDate":"%s"}
+                """.formatted(LocalDateTime.now().minusHours(1), LocalDateTime.now().plusHours(1));
+
+        mockMvc.perform(put("/api/orders/status").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated").value(4))
+                .andExpect(jsonPath("$.updatedIds", hasSize(4)))
+                .andExpect(jsonPath("$.skipped").value(0));
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(statusOf(i)).isEqualTo(OrderStatus.DONE);
+        }
+        assertThat(statusOf(4)).isEqualTo(OrderStatus.IN_PROGRESS);
+    }
+
+    @Test
+    void updateStatuses_byFilter_beyondMaxIds_returnsOnlyTheCount() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            orderIds.add(orderService.createOrder(order, "status-user").getId());
+        }
+
+        mockMvc.perform(put("/api/orders/status").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\":\"DONE\",\"currentStatus\":\"PENDING\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated").value(7))
+                .andExpect(jsonPath("$.updatedIds").doesNotExist());
+
+        for (int i = 0; i < 7; i++) {
+            assertThat(statusOf(i)).isEqualTo(OrderStatus.DONE);
+        }
+    }
+
+    @Test
+    void updateStatuses_rejectsInvalidTransitionsAndSelections() throws Exception {
+        String id = orderIds.get(0).toString();
+        for (String body : List.of(
+                "{\"status\":\"PENDING\",\"orderIds\":[\"" + id + "\"]}",
+                "{\"status\":\"IN_PROGRESS\",\"currentStatus\":\"DONE\"}",
+                "{\"status\":\"DONE\"}",
+                "{\"status\":\"DONE\",\"orderIds\":[\"" + id + "\"],\"currentStatus\":\"PENDING\"}",
+                "{\"orderIds\":[\"" + id + "\"]}")) {
+            mockMvc.perform(put("/api/orders/status").contentType(MediaType.APPLICATION_JSON).content(body))
+                    .andExpect(status().isBadRequest());
+        }
+        assertThat(statusOf(0)).isEqualTo(OrderStatus.PENDING);
+    }
+
+    @Test
+    void updateOrderStatus_summary_returnsOnlyIdAndStatus() throws Exception {
+        mockMvc.perform(put("/api/orders/{id}/status", orderIds.get(0)).param("summary", "true")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"status\":\"DONE\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(orderIds.get(0).toString()))
+                .andExpect(jsonPath("$.status").value("DONE"))
+                .andExpect(jsonPath("$.orderProducts").doesNotExist());
+        assertThat(statusOf(0)).isEqualTo(OrderStatus.DONE);
+
+        mockMvc.perform(put("/api/orders/{id}/status", UUID.randomUUID()).param("summary", "true")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"status\":\"DONE\"}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser(username = "status-user", roles = {"USER"})
+    void updateStatuses_requiresAdmin() throws Exception {
+        mockMvc.perform(put("/api/orders/status").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\":\"DONE\",\"currentStatus\":\"PENDING\"}"))
+                .andExpect(status().isForbidden());
+        assertThat(statusOf(0)).isEqualTo(OrderStatus.PENDING);
+    }
+
+    private OrderStatus statusOf(int index) {
+        return orderRepository.findById(orderIds.get(index)).orElseThrow().getStatus();
+    }
+}
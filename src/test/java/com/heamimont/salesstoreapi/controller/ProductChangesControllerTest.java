@@ -0,0 +1,133 @@
+package com.heamimont.salesstoreapi.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.heamimont.salesstoreapi.dto.product.CreateProductDTO;
+import com.heamimont.salesstoreapi.dto.product.ProductResponseDTO;
+import com.heamimont.salesstoreapi.dto.product.UpdateProductDTO;
+import com.heamimont.salesstoreapi.service.ProductService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Delta catalog sync through GET /api/products/public/changes.
+ * Not transactional, as change versions only become visible once their transaction commits.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@WithMockUser(username = "user", roles = {"USER"})
+class ProductChangesControllerTest {
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private ObjectMapper objectMapper;
+    @Autowired private ProductService productService;
+
+    private final List<Long> productIds = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        productIds.forEach(id -> {
+            try {
+                productService.deleteProduct(id);
+            } catch (RuntimeException ignored) {
+                // Already deleted by the test
+            }
+        });
+    }
+
+    @Test
+    void changes_reportCreatedUpdatedAndDeletedProducts() throws Exception {
+        long since = changes(0, 0).get("version").asLong();
+
+        ProductResponseDTO kept = createProduct("Delta Keyboard");
+        ProductResponseDTO removed = createProduct("Delta Mouse");
+        productService.deleteProduct(removed.getId());
+
+        JsonNode changes = changes(since, 0);
+        assertThat(changes.get("version").asLong()).isGreaterThan(since);
+        assertThat(changes.get("changed").findValuesAsText("name")).containsExactly("Delta Keyboard");
+        assertThat(changes.get("deleted").get(0).asLong()).isEqualTo(removed.getId());
+
+        // Nothing changed since the returned version
+        JsonNode none = changes(changes.get("version").asLong(), 0);
+        assertThat(none.get("changed")).isEmpty();
+        assertThat(none.get("deleted")).isEmpty();
+
+        productService.reduceProductQuantity(kept.getId(), 2);
+        JsonNode afterStockChange = changes(changes.get("version").asLong(), 0);
+        assertThat(afterStockChange.get("changed").get(0).get("availableQuantity").asInt()).isEqualTo(8);
+    }
+
+    @Test
+    void changes_longPollReturnsOnceAProductChanges() throws Exception {
+        ProductResponseDTO product = createProduct("Delta Headset");
+        long since = changes(0, 0).get("version").asLong();
+
+        MvcResult pending = mockMvc.perform(get("/api/products/public/changes")
+                        .param("since", String.valueOf(since))
+                        .param("wait", "10"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        // Still waiting, as nothing changed yet
+        assertThatThrownBy(() -> pending.getAsyncResult(100)).isInstanceOf(IllegalStateException.class);
+
+        UpdateProductDTO update = new UpdateProductDTO();
+        update.setSellingPrice(BigDecimal.valueOf(99));
+        productService.updateProduct(product.getId(), update);
+
+        String body = mockMvc.perform(asyncDispatch(pending))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode changes = objectMapper.readTree(body);
+        assertThat(changes.get("changed").get(0).get("sellingPrice").decimalValue()).isEqualByComparingTo("99");
+    }
+
+    @Test
+    void changes_negativeSince_returnsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/products/public/changes").param("since", "-1"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private ProductResponseDTO createProduct(String name) {
+        CreateProductDTO dto = new CreateProductDTO();
+        dto.setName(name);
+        dto.setDescription(name);
+        dto.setActualPrice(BigDecimal.valueOf(10));
+        dto.setSellingPrice(BigDecimal.valueOf(20));
+        dto.setAvailableQuantity(10);
+        ProductResponseDTO created = productService.createProduct(dto);
+        productIds.add(created.getId());
+        return created;
+    }
+
+    private JsonNode changes(long since, long wait) throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/products/public/changes")
+                        .param("since", String.valueOf(since))
+                        .param("wait", String.valueOf(wait)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+}
@@ -10,13 +10,18 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -80,6 +85,38 @@ class ProductControllerTest {
                 .andExpect(jsonPath("$[0].name").value("Phone"));
     }
 
+    @Test
+    @WithMockUser(username = "user", roles = {"USER"})
+    void getAllProductsPublic_ShouldSupportEtagAndGzip() throws Exception {
+        Product product = new Product();
+        product.setName("Monitor");
+        product.setDescription("27 inch monitor");
+        product.setActualPrice(BigDecimal.valueOf(200));
+        product.setSellingPrice(BigDecimal.valueOf(300));
+        product.setAvailableQuantity(7);
+        productRepository.save(product);
+
+        MvcResult first = mockMvc.perform(get("/api/products/public"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(jsonPath("$[0].name").value("Monitor"))
+                .andExpect(jsonPath("$[0].actualPrice").doesNotExist())
+                .andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/products/public").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+
+        MvcResult gzipped = mockMvc.perform(get("/api/products/public").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped.getResponse().getContentAsByteArray()))) {
+            assertThat(in.readAllBytes()).isEqualTo(first.getResponse().getContentAsByteArray());
+        }
+    }
+
     @Test
     @WithMockUser(username = "admin", roles = {"ADMIN"})
     void getProductById_ShouldReturnProduct() throws Exception {
@@ -0,0 +1,120 @@
+package com.heamimont.salesstoreapi.controller;
+
+import com.heamimont.salesstoreapi.model.Product;
+import com.heamimont.salesstoreapi.repository.ProductRepository;
+import com.heamimont.salesstoreapi.service.ProductService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Bulk product import through POST /api/products/bulk.
+ * Not transactional, as every import batch commits in its own transaction.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@WithMockUser(username = "admin", roles = {"ADMIN"})
+class ProductImportControllerTest {
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private ProductService productService;
+
+    @AfterEach
+    void tearDown() {
+        productRepository.findAll().stream()
+                .filter(product -> product.getName().startsWith("Import "))
+                .forEach(product -> productService.deleteProduct(product.getId()));
+    }
+
+    @Test
+    void importNdjson_createsValidRowsAndReportsRejectedOnes() throws Exception {
+        String body = """
+                {"name":"Import Laptop","description":"Fast","actualPrice":1200,"sellingPrice":1500,"availableQuantity":10}
+                {"name":"Import Mouse","actualPrice":10,"sellingPrice":-1,"availableQuantity":5}
+                {"name":"Import Laptop","actualPrice":1,"sellingPrice":2,"availableQuantity":3}
+                {"name":"Import Cable",
+                {"name":"Import Hub","actualPrice":5,"sellingPrice":8,"availableQuantity":0}
+                """;
+
+        mockMvc.perform(post("/api/products/bulk").contentType(MediaType.APPLICATION_NDJSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(2))
+                .andExpect(jsonPath("$.updated").value(0))
+                .andExpect(jsonPath("$.failed").value(3))
+                .andExpect(jsonPath("$.errors[0].line").value(2))
+                .andExpect(jsonPath("$.errors[0].name").value("Import Mouse"))
+                .andExpect(jsonPath("$.errors[0].message").value("sellingPrice: Selling price must be positive"))
+                .andExpect(jsonPath("$.errors[1].message").value("name: Duplicate product name in this import"))
+                .andExpect(jsonPath("$.errors[2].line").value(4));
+
+        assertThat(productRepository.findByName("Import Laptop")).get()
+                .extracting(Product::getAvailableQuantity).isEqualTo(10);
+        assertThat(productRepository.findByName("Import Hub")).isPresent();
+        assertThat(productRepository.findByName("Import Mouse")).isEmpty();
+    }
+
+    @Test
+    void importCsv_upsertsByNameAndRefreshesCatalogAndSearch() throws Exception {
+        productRepository.save(new Product(null, "Import Keyboard", "Old", BigDecimal.ONE, BigDecimal.TEN, 1));
+        mockMvc.perform(get("/api/products/public")).andExpect(status().isOk());
+
+        String csv = "name,description,actualPrice,sellingPrice,availableQuantity\n"
+                + "Import Keyboard,Mechanical,40,60,25\n"
+                + "Import Monitor,\"27\"\" display\",150,220,7\n";
+
+        mockMvc.perform(post("/api/products/bulk").contentType("text/csv").content(csv))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.updated").value(1))
+                .andExpect(jsonPath("$.failed").value(0))
+                .andExpect(jsonPath("$.errors", hasSize(0)));
+
+        Product keyboard = productRepository.findByName("Import Keyboard").orElseThrow();
+        assertThat(keyboard.getDescription()).isEqualTo("Mechanical");
+        assertThat(keyboard.getAvailableQuantity()).isEqualTo(25);
+        assertThat(productRepository.findByName("Import Monitor").orElseThrow().getDescription()).isEqualTo("27\" display");
+
+        mockMvc.perform(get("/api/products/public"))
+                .andExpect(jsonPath("$[?(@.name == 'Import Keyboard')].description").value("Mechanical"));
+        mockMvc.perform(get("/api/products/search").param("q", "mechanical"))
+                .andExpect(jsonPath("$[0].name").value("Import Keyboard"));
+    }
+
+    @Test
+    void importCsv_rejectsHeaderWithoutRequiredColumns() throws Exception {
+        mockMvc.perform(post("/api/products/bulk").contentType("text/csv").content("name\nImport Lamp\n"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void import_rejectsOtherContentTypes() throws Exception {
+        mockMvc.perform(post("/api/products/bulk").contentType(MediaType.APPLICATION_JSON).content("[]"))
+                .andExpect(status().isUnsupportedMediaType());
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = {"USER"})
+    void import_requiresAdmin() throws Exception {
+        mockMvc.perform(post("/api/products/bulk").contentType("text/csv")
+                        .content("name,actualPrice,sellingPrice,availableQuantity\nImport Lamp,1,2,3\n"))
+                .andExpect(status().isForbidden());
+        assertThat(productRepository.findByName("Import Lamp")).isEmpty();
+    }
+}
@@ -6,6 +6,7 @@ import com.heamimont.salesstoreapi.dto.order.OrderResponseDTO;
 import com.heamimont.salesstoreapi.model.Product;
 import com.heamimont.salesstoreapi.model.Role;
 import com.heamimont.salesstoreapi.model.User;
+import com.heamimont.salesstoreapi.repository.DailyProductSalesRepository;
 import com.heamimont.salesstoreapi.repository.OrderRepository;
 import com.heamimont.salesstoreapi.repository.ProductRepository;
 import com.heamimont.salesstoreapi.repository.UserRepository;
@@ -24,10 +25,12 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest
@@ -48,6 +51,9 @@ class ReportControllerTest {
     @Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private DailyProductSalesRepository dailyProductSalesRepository;
+
     @Autowired
     private PasswordEncoder passwordEncoder;
 
@@ -193,4 +199,109 @@ class ReportControllerTest {
                         .param("startDate", "not-a-date"))
                 .andExpect(status().isBadRequest());
     }
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    @DisplayName("Should start streaming the export with the requested content type")
+    void exportReport_csv_ShouldStartStreaming() throws Exception {
+        mockMvc.perform(get("/api/reports/export")
+                        .param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andExpect(header().string("Content-Type", "text/csv"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"orders-report.csv\""));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    @DisplayName("Should return 400 for an unsupported export format")
+    void exportReport_invalidFormat_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/api/reports/export")
+                        .param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    @DisplayName("Should return 403 for export by a non-admin")
+    void exportReport_asUser_ShouldReturnForbidden() throws Exception {
+        mockMvc.perform(get("/api/reports/export"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    @DisplayName("Should aggregate units, revenue and margin per product")
+    void getSalesByProduct_ShouldAggregatePerProduct() throws Exception {
+        mockMvc.perform(get("/api/reports/sales/by-product"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[?(@.productName == 'Laptop')].unitsSold").value(1))
+                .andExpect(jsonPath("$[?(@.productName == 'Laptop')].revenue").value(1000.0))
+                .andExpect(jsonPath("$[?(@.productName == 'Laptop')].grossMargin").value(100.0))
+                .andExpect(jsonPath("$[?(@.productName == 'Phone')].unitsSold").value(2))
+                .andExpect(jsonPath("$[?(@.productName == 'Phone')].grossMargin").value(200.0));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    @DisplayName("Should aggregate per user with the username filter applied")
+    void getSalesByUser_withUsernameFilter_ShouldReturnOnlyThatUser() throws Exception {
+        mockMvc.perform(get("/api/reports/sales/by-user")
+                        .param("username", "FooBar"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].username").value("foobar"))
+                .andExpect(jsonPath("$[0].orderCount").value(1))
+                .andExpect(jsonPath("$[0].unitsSold").value(2))
+                .andExpect(jsonPath("$[0].revenue").value(1000.0));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    @DisplayName("Should aggregate all sales of the month into one period")
+    void getSalesTimeline_byMonth_ShouldReturnOnePeriod() throws Exception {
+        mockMvc.perform(get("/api/reports/sales/timeline")
+                        .param("granularity", "month"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].periodStart").value(LocalDate.now().withDayOfMonth(1).toString()))
+                .andExpect(jsonPath("$[0].unitsSold").value(3))
+                .andExpect(jsonPath("$[0].revenue").value(2000.0))
+                .andExpect(jsonPath("$[0].grossMargin").value(300.0));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    @DisplayName("Should return 400 for an unsupported granularity")
+    void getSalesTimeline_invalidGranularity_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/api/reports/sales/timeline")
+                        .param("granularity", "fortnight"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    @DisplayName("Should rebuild the sales rollup from the orders")
+    void rebuildSalesRollup_ShouldRestoreAggregates() throws Exception {
+        dailyProductSalesRepository.deleteAll();
+
+        mockMvc.perform(post("/api/reports/sales/rollup/rebuild")
+                        .param("from", LocalDate.now().minusDays(1).toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rowsWritten").value(2));
+
+        mockMvc.perform(get("/api/reports/sales/by-product"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.productName == 'Phone')].unitsSold").value(2));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    @DisplayName("Should return 400 for an inverted rebuild range")
+    void rebuildSalesRollup_invalidRange_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(post("/api/reports/sales/rollup/rebuild")
+                        .param("from", "2024-02-01")
+                        .param("to", "2024-01-01"))
+                .andExpect(status().isBadRequest());
+    }
+
 }
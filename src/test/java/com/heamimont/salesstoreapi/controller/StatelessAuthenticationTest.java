@@ -0,0 +1,84 @@
+package com.heamimont.salesstoreapi.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.heamimont.salesstoreapi.dto.auth.LoginRequest;
+import com.heamimont.salesstoreapi.dto.user.UpdateUserDTO;
+import com.heamimont.salesstoreapi.model.Role;
+import com.heamimont.salesstoreapi.model.User;
+import com.heamimont.salesstoreapi.repository.UserRepository;
+import com.heamimont.salesstoreapi.service.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * End-to-end check of the stateless authentication mode: tokens carry the role and token version,
+ * and a committed change of the user revokes the tokens issued before it.
+ * Not transactional, as revocation is applied after commit.
+ */
+@SpringBootTest(properties = "security.jwt.stateless=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class StatelessAuthenticationTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired ObjectMapper objectMapper;
+    @Autowired UserRepository userRepository;
+    @Autowired UserService userService;
+    @Autowired PasswordEncoder passwordEncoder;
+
+    private User admin;
+
+    @BeforeEach
+    void setUp() {
+        admin = userRepository.save(new User(null, "statelessadmin", "Stateless", "Admin",
+                "statelessadmin@example.com", passwordEncoder.encode("password123"), Role.ADMIN));
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.findById(admin.getId()).ifPresent(userRepository::delete);
+    }
+
+    @Test
+    void tokenIsAcceptedUntilTheUserChanges() throws Exception {
+        String token = login();
+
+        mockMvc.perform(get("/api/users").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+
+        UpdateUserDTO update = new UpdateUserDTO();
+        update.setFirstName("Changed");
+        userService.updateUser(admin.getId(), update);
+
+        mockMvc.perform(get("/api/users").header("Authorization", "Bearer " + token))
+                .andExpect(status().isUnauthorized());
+
+        // A token issued after the change carries the new version
+        mockMvc.perform(get("/api/users").header("Authorization", "Bearer " + login()))
+                .andExpect(status().isOk());
+    }
+
+    private String login() throws Exception {
+        LoginRequest login = new LoginRequest();
+        login.setUsername("statelessadmin");
+        login.setPassword("password123");
+        String body = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(login)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("token").asText();
+    }
+}
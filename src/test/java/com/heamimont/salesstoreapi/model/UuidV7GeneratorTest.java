@@ -0,0 +1,63 @@
+package com.heamimont.salesstoreapi.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UuidV7GeneratorTest {
+
+    @Test
+    void next_setsVersionVariantAndTimestamp() {
+        long before = System.currentTimeMillis();
+        UUID uuid = UuidV7Generator.next();
+        long after = System.currentTimeMillis();
+
+        assertThat(uuid.version()).isEqualTo(7);
+        assertThat(uuid.variant()).isEqualTo(2);
+        // The timestamp may run ahead of the clock when other tests generated many identifiers in the same millisecond
+        assertThat(UuidV7Generator.timestampOf(uuid)).isGreaterThanOrEqualTo(before).isLessThanOrEqualTo(after + 1_000);
+    }
+
+    @Test
+    void next_isStrictlyIncreasingWithinAMillisecond() {
+        // Far more than the 4096 identifiers the counter holds per millisecond
+        List<String> generated = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            generated.add(UuidV7Generator.next().toString());
+        }
+
+        // The string form orders like the database does (unsigned, byte by byte); UUID.compareTo is signed
+        List<String> sorted = new ArrayList<>(generated);
+        Collections.sort(sorted);
+        assertThat(generated).isEqualTo(sorted).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void next_isUniqueAcrossThreads() throws InterruptedException {
+        ConcurrentLinkedQueue<UUID> generated = new ConcurrentLinkedQueue<>();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int thread = 0; thread < 8; thread++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    generated.add(UuidV7Generator.next());
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        Set<UUID> unique = new HashSet<>(generated);
+        assertThat(unique).hasSize(160_000);
+    }
+}
@@ -0,0 +1,120 @@
+package com.heamimont.salesstoreapi.repository;
+
+import com.heamimont.salesstoreapi.dto.report.ProductSalesReportDTO;
+import com.heamimont.salesstoreapi.dto.report.SalesPeriodReportDTO;
+import com.heamimont.salesstoreapi.model.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class DailyProductSalesRepositoryTest {
+
+    @Autowired
+    private DailyProductSalesRepository dailyProductSalesRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private User user;
+    private Product mouse;
+    private Product keyboard;
+
+    @BeforeEach
+    void setup() {
+        user = userRepository.save(new User(null, "rollupuser", "Roll", "Up", "rollup@example.com", "password", Role.USER));
+        // Flushed, as addUnitsSold writes through JDBC; sequence IDs defer the insert until the flush
+        mouse = productRepository.saveAndFlush(new Product(null, "Mouse", null, BigDecimal.valueOf(8), BigDecimal.valueOf(10), 100));
+        keyboard = productRepository.saveAndFlush(new Product(null, "Keyboard", null, BigDecimal.valueOf(30), BigDecimal.valueOf(50), 100));
+    }
+
+    @Test
+    void testAddUnitsSold_CreatesThenIncrementsRows() {
+        LocalDate day = LocalDate.of(2024, 3, 1);
+        dailyProductSalesRepository.addUnitsSold(day, new TreeMap<>(Map.of(mouse.getId(), 2)));
+        dailyProductSalesRepository.addUnitsSold(day, new TreeMap<>(Map.of(mouse.getId(), 3, keyboard.getId(), 1)));
+
+        DailyProductSales row = dailyProductSalesRepository.findById(new DailyProductSalesKey(day, mouse.getId())).orElseThrow();
+        assertThat(row.getUnitsSold()).isEqualTo(5);
+        assertThat(dailyProductSalesRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void testRebuild_RecomputesOnlyTheRequestedDays() {
+        saveOrder(LocalDateTime.of(2024, 3, 1, 9, 0), mouse, 2);
+        saveOrder(LocalDateTime.of(2024, 3, 1, 18, 0), mouse, 1);
+        saveOrder(LocalDateTime.of(2024, 3, 2, 10, 0), keyboard, 4);
+        // A stale row inside the range, and one outside it that must survive
+        dailyProductSalesRepository.addUnitsSold(LocalDate.of(2024, 3, 2), new TreeMap<>(Map.of(mouse.getId(), 99)));
+        dailyProductSalesRepository.addUnitsSold(LocalDate.of(2024, 2, 1), new TreeMap<>(Map.of(mouse.getId(), 7)));
+
+        int rows = dailyProductSalesRepository.rebuild(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 2));
+
+        assertThat(rows).isEqualTo(2);
+        assertThat(unitsSold(LocalDate.of(2024, 3, 1), mouse)).isEqualTo(3);
+        assertThat(unitsSold(LocalDate.of(2024, 3, 2), keyboard)).isEqualTo(4);
+        assertThat(dailyProductSalesRepository.findById(new DailyProductSalesKey(LocalDate.of(2024, 3, 2), mouse.getId()))).isEmpty();
+        assertThat(unitsSold(LocalDate.of(2024, 2, 1), mouse)).isEqualTo(7);
+    }
+
+    @Test
+    void testSums_MatchTheOrderLineAggregation() {
+        saveOrder(LocalDateTime.of(2024, 3, 1, 9, 0), mouse, 2);
+        saveOrder(LocalDateTime.of(2024, 3, 2, 10, 0), keyboard, 4);
+        saveOrder(LocalDateTime.of(2024, 3, 2, 11, 0), mouse, 1);
+        dailyProductSalesRepository.rebuild(null, null);
+
+        SalesReportFilter filter = new SalesReportFilter(null, null, LocalDateTime.of(2024, 3, 2, 0, 0), null);
+        List<ProductSalesReportDTO> byProduct = dailyProductSalesRepository.sumSalesByProduct(filter);
+        List<SalesPeriodReportDTO> byDay = dailyProductSalesRepository.sumSalesByDay(new SalesReportFilter(null, null, null, null));
+
+        assertThat(byProduct).extracting(ProductSalesReportDTO::getProductName).containsExactly("Keyboard", "Mouse");
+        assertThat(byProduct.get(0).getRevenue()).isEqualByComparingTo("200");
+        assertThat(byProduct.get(0).getGrossMargin()).isEqualByComparingTo("80");
+        assertThat(byDay).extracting(SalesPeriodReportDTO::getPeriodStart)
+                .containsExactly(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 2));
+        assertThat(byDay.get(1).getUnitsSold()).isEqualTo(5);
+    }
+
+    private long unitsSold(LocalDate day, Product product) {
+        return dailyProductSalesRepository.findById(new DailyProductSalesKey(day, product.getId()))
+                .orElseThrow().getUnitsSold();
+    }
+
+    private void saveOrder(LocalDateTime orderDate, Product product, int quantity) {
+        Order order = new Order();
+        order.setUser(user);
+        order.setOrderDate(orderDate);
+        order.setTotalCost(BigDecimal.TEN);
+        order.setStatus(OrderStatus.PENDING);
+        OrderProduct orderProduct = new OrderProduct();
+        orderProduct.setOrder(order);
+        orderProduct.setProduct(product);
+        orderProduct.setProductQuantity(quantity);
+        order.getOrderProducts().add(orderProduct);
+        orderRepository.save(order);
+        entityManager.flush();
+    }
+}
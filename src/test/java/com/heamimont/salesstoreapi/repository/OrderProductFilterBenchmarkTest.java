@@ -0,0 +1,142 @@
+package com.heamimont.salesstoreapi.repository;
+
+import com.heamimont.salesstoreapi.model.Order;
+import com.heamimont.salesstoreapi.model.Product;
+import com.heamimont.salesstoreapi.model.Role;
+import com.heamimont.salesstoreapi.model.User;
+import jakarta.persistence.criteria.Join;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares filtering orders by product name the previous way (join of order lines and products, made distinct)
+ * with resolving the name to product IDs first and filtering with a semi-join on order_products.product_id.
+ * Logs the H2 plans of both queries and their timings.
+ * Run with -Dbenchmark.order-lines=2000000 for a dataset with millions of order lines.
+ */
+@Tag("benchmark")
+@DataJpaTest
+@ActiveProfiles("test")
+class OrderProductFilterBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderProductFilterBenchmarkTest.class);
+    private static final int PRODUCTS = 1_000;
+    private static final int LINES_PER_ORDER = 4;
+    private static final int ROUNDS = 5;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void productNameFilter_semiJoinMatchesJoinAndDistinct() {
+        int orderLines = Integer.getInteger("benchmark.order-lines", 200_000);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        seed(jdbcTemplate, orderLines / LINES_PER_ORDER);
+
+        // Matches 1% of the products ("Product 42", "Product 142", ...)
+        String fragment = "42";
+        List<Long> productIds = productRepository.findIdsByNameContaining(fragment);
+        String idList = productIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+
+        logger.info("[Product Filter Benchmark] join + distinct plan:\n{}", explain(jdbcTemplate,
+                "SELECT DISTINCT o.id FROM orders o JOIN order_products op ON op.order_id = o.id "
+                        + "JOIN products p ON p.id = op.product_id WHERE LOWER(p.name) LIKE '%" + fragment + "%'"));
+        logger.info("[Product Filter Benchmark] semi-join plan:\n{}", explain(jdbcTemplate,
+                "SELECT o.id FROM orders o WHERE o.id IN (SELECT op.order_id FROM order_products op "
+                        + "WHERE op.product_id IN (" + idList + "))"));
+
+        // The first round warms up the JIT and is not reported
+        for (int round = 0; round <= ROUNDS; round++) {
+            long start = System.nanoTime();
+            long joined = orderRepository.count(joinAndDistinct(fragment));
+            long joinNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long semiJoined = orderRepository.count(
+                    OrderSpecifications.hasAnyProductId(productRepository.findIdsByNameContaining(fragment)));
+            long semiJoinNanos = System.nanoTime() - start;
+
+            assertThat(semiJoined).isEqualTo(joined).isPositive();
+            if (round > 0) {
+                logger.info("[Product Filter Benchmark] round {}: {} of {} orders matched, join + distinct {} ms, resolved IDs + semi-join {} ms",
+                        round, joined, orderLines / LINES_PER_ORDER, joinNanos / 1_000_000, semiJoinNanos / 1_000_000);
+            }
+        }
+    }
+
+    /**
+     * The previous OrderSpecifications.hasProductName.
+     */
+    private static Specification<Order> joinAndDistinct(String productName) {
+        return (root, query, cb) -> {
+            query.distinct(true);
+            Join<Order, Object> orderProductsJoin = root.join("orderProducts");
+            Join<Object, Object> productJoin = orderProductsJoin.join("product");
+            return cb.like(cb.lower(productJoin.get("name")), "%" + productName.toLowerCase() + "%");
+        };
+    }
+
+    private void seed(JdbcTemplate jdbcTemplate, int orders) {
+        long start = System.nanoTime();
+        User user = userRepository.save(new User(null, "benchmark", "Bench", "Mark", "benchmark@example.com", "password", Role.USER));
+        List<Product> products = new ArrayList<>(PRODUCTS);
+        for (int i = 0; i < PRODUCTS; i++) {
+            products.add(new Product(null, "Product " + i, null, BigDecimal.ONE, BigDecimal.TEN, 1_000_000));
+        }
+        List<Long> productIds = productRepository.saveAllAndFlush(products).stream().map(Product::getId).toList();
+
+        Random random = new Random(42);
+        Timestamp orderDate = Timestamp.valueOf(LocalDateTime.of(2024, 1, 1, 12, 0));
+        List<Object[]> orderRows = new ArrayList<>();
+        List<Object[]> lineRows = new ArrayList<>();
+        for (int i = 0; i < orders; i++) {
+            UUID orderId = UUID.randomUUID();
+            orderRows.add(new Object[]{orderId, user.getId(), orderDate, BigDecimal.TEN, "DONE"});
+            // Distinct products per order, as (order_id, product_id) is the primary key
+            int first = random.nextInt(PRODUCTS);
+            for (int line = 0; line < LINES_PER_ORDER; line++) {
+                lineRows.add(new Object[]{orderId, productIds.get((first + line * 97) % PRODUCTS), 1});
+            }
+            if (orderRows.size() == 10_000 || i == orders - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO orders (id, user_id, order_date, total_cost, status) VALUES (?, ?, ?, ?, ?)", orderRows);
+                jdbcTemplate.batchUpdate("INSERT INTO order_products (order_id, product_id, product_quantity) VALUES (?, ?, ?)", lineRows);
+                orderRows.clear();
+                lineRows.clear();
+            }
+        }
+        logger.info("[Product Filter Benchmark] seeded {} orders with {} lines in {} ms",
+                orders, orders * LINES_PER_ORDER, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static String explain(JdbcTemplate jdbcTemplate, String sql) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class));
+    }
+}
@@ -1,20 +1,24 @@
 package com.heamimont.salesstoreapi.repository;
 
 import com.heamimont.salesstoreapi.model.*;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
-@DataJpaTest
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 @ActiveProfiles("test")
 class OrderRepositoryTest {
 
@@ -27,6 +31,9 @@ class OrderRepositoryTest {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private TestEntityManager entityManager;
+
     private User testUser;
     private Product testProduct;
 
@@ -83,4 +90,81 @@ class OrderRepositoryTest {
         assertThat(orderList.get(0).getOrderProducts()).hasSize(1);
         assertThat(orderList.get(0).getOrderProducts().get(0).getProduct().getName()).isEqualTo("Sample Product");
     }
+
+    @Test
+    void testFindAllWithDetails_UsesConstantNumberOfQueries() {
+        User otherUser = new User(null, "otheruser", "Other", "User", "other@example.com", "password", Role.USER);
+        userRepository.save(otherUser);
+        Product otherProduct = new Product(null, "Other Product", null, BigDecimal.ONE, BigDecimal.TEN, 100);
+        productRepository.save(otherProduct);
+
+        for (int i = 0; i < 10; i++) {
+            saveOrder(i % 2 == 0 ? testUser : otherUser, testProduct, otherProduct);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<Order> orders = orderRepository.findAllWithDetails();
+        // Walk the same associations OrderMapper.toDTO walks
+        orders.forEach(order -> {
+            order.getUser().getUsername();
+            order.getOrderProducts().forEach(op -> op.getProduct().getName());
+        });
+
+        assertThat(orders).hasSize(10);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        statistics.clear();
+        List<Order> userOrders = orderRepository.findWithDetailsByUser_Username("testuser");
+        userOrders.forEach(order -> order.getOrderProducts().forEach(op -> op.getProduct().getName()));
+
+        assertThat(userOrders).hasSize(5);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testStreamWithDetails_DeliversMatchingOrdersInBatchesOldestFirst() {
+        User otherUser = new User(null, "otheruser", "Other", "User", "other@example.com", "password", Role.USER);
+        userRepository.save(otherUser);
+        for (int i = 0; i < 7; i++) {
+            saveOrder(i % 2 == 0 ? testUser : otherUser, testProduct);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        List<Integer> batchSizes = new ArrayList<>();
+        List<Order> streamed = new ArrayList<>();
+        orderRepository.streamWithDetails(OrderSpecifications.hasUsername("testuser"), 3, batch -> {
+            batchSizes.add(batch.size());
+            // Details are loaded with the batch
+            batch.forEach(order -> order.getOrderProducts().forEach(op -> op.getProduct().getName()));
+            streamed.addAll(batch);
+        });
+
+        assertThat(batchSizes).containsExactly(3, 1);
+        assertThat(streamed).allMatch(order -> order.getUser().getUsername().equals("testuser"));
+        assertThat(streamed).extracting(Order::getOrderDate).isSorted();
+        // Each batch is detached once it has been consumed
+        assertThat(streamed).noneMatch(order -> entityManager.getEntityManager().contains(order));
+    }
+
+    private void saveOrder(User user, Product... products) {
+        Order order = new Order();
+        order.setUser(user);
+        order.setOrderDate(LocalDateTime.now());
+        order.setTotalCost(BigDecimal.TEN);
+        order.setStatus(OrderStatus.PENDING);
+        for (Product product : products) {
+            OrderProduct orderProduct = new OrderProduct();
+            orderProduct.setOrder(order);
+            orderProduct.setProduct(product);
+            orderProduct.setProductQuantity(1);
+            order.getOrderProducts().add(orderProduct);
+        }
+        orderRepository.save(order);
+    }
 }
@@ -69,6 +69,36 @@ class OrderSpecificationsTest {
         assertThat(results).containsExactly(order1);
     }
 
+    @Test
+    void testHasProductName_OrderWithSeveralMatchingLines_ReturnedOnce() {
+        // "o" matches both Laptop and Mouse, which are both in order1
+        List<Order> results = orderRepository.findAll(OrderSpecifications.hasProductName("o"));
+        assertThat(results).hasSize(2).containsExactlyInAnyOrder(order1, order2);
+    }
+
+    @Test
+    void testHasAnyProductId() {
+        List<Long> laptop = productRepository.findIdsByNameContaining("LAP");
+        List<Long> both = productRepository.findIdsByNameContaining("o");
+        assertThat(laptop).hasSize(1);
+        assertThat(both).hasSize(2);
+
+        assertThat(orderRepository.findAll(OrderSpecifications.hasAnyProductId(laptop)))
+                .containsExactlyInAnyOrder(order1, order2);
+        assertThat(orderRepository.findAll(OrderSpecifications.hasAnyProductId(both)))
+                .hasSize(2).containsExactlyInAnyOrder(order1, order2);
+        assertThat(orderRepository.count(OrderSpecifications.hasAnyProductId(both))).isEqualTo(2);
+        assertThat(orderRepository.findAll(OrderSpecifications.hasAnyProductId(List.of()))).isEmpty();
+    }
+
+    @Test
+    void testHasAnyProductNameContaining() {
+        assertThat(orderRepository.findAll(OrderSpecifications.hasAnyProductNameContaining("LAP")))
+                .containsExactlyInAnyOrder(order1, order2);
+        assertThat(orderRepository.count(OrderSpecifications.hasAnyProductNameContaining("o"))).isEqualTo(2);
+        assertThat(orderRepository.findAll(OrderSpecifications.hasAnyProductNameContaining("keyboard"))).isEmpty();
+    }
+
     @Test
     void testHasUsername() {
         Specification<Order> spec = OrderSpecifications.hasUsername("alice");
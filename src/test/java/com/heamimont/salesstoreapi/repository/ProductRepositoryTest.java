@@ -0,0 +1,57 @@
+package com.heamimont.salesstoreapi.repository;
+
+import com.heamimont.salesstoreapi.model.Product;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class ProductRepositoryTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void testUpsertAllByName_InsertsNewNamesAndOverwritesExistingOnes() {
+        Product existing = productRepository.saveAndFlush(
+                new Product(null, "Upsert Keyboard", "Old", BigDecimal.ONE, BigDecimal.TEN, 1));
+        // Without an ID, like a product created concurrently after its name was looked up
+        Product keyboard = product("Upsert Keyboard", "Mechanical", 25);
+        Product monitor = product("Upsert Monitor", "27 inch", 7);
+
+        productRepository.upsertAllByName(List.of(monitor, keyboard));
+        entityManager.clear();
+
+        Product storedKeyboard = productRepository.findByName("Upsert Keyboard").orElseThrow();
+        assertThat(storedKeyboard.getId()).isEqualTo(existing.getId()).isNotEqualTo(keyboard.getId());
+        assertThat(storedKeyboard.getDescription()).isEqualTo("Mechanical");
+        assertThat(storedKeyboard.getAvailableQuantity()).isEqualTo(25);
+        assertThat(storedKeyboard.getChangeVersion()).isEqualTo(3);
+
+        Product storedMonitor = productRepository.findByName("Upsert Monitor").orElseThrow();
+        assertThat(storedMonitor.getId()).isEqualTo(monitor.getId());
+        assertThat(storedMonitor.getAvailableQuantity()).isEqualTo(7);
+
+        // IDs come from the entity's own sequence allocation, so products saved afterwards never collide
+        Product saved = productRepository.saveAndFlush(
+                new Product(null, "Upsert Mouse", null, BigDecimal.ONE, BigDecimal.TEN, 1));
+        assertThat(saved.getId()).isNotIn(existing.getId(), monitor.getId(), keyboard.getId());
+    }
+
+    private static Product product(String name, String description, int quantity) {
+        Product product = new Product(null, name, description, BigDecimal.valueOf(40), BigDecimal.valueOf(60), quantity);
+        product.setChangeVersion(3);
+        return product;
+    }
+}
@@ -0,0 +1,228 @@
+package com.heamimont.salesstoreapi.repository;
+
+import com.heamimont.salesstoreapi.config.SchemaMigrationConfig;
+import com.heamimont.salesstoreapi.model.Product;
+import com.heamimont.salesstoreapi.model.Role;
+import com.heamimont.salesstoreapi.model.User;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the repository queries used on request paths, captures the SQL Hibernate generates and fails if the
+ * H2 plan of any of it scans a whole table. The schema is built by the migrations in db/migration, which the
+ * entities are validated against, not generated from the entities. Queries that are expected to read a whole table,
+ * or whose index only exists on PostgreSQL (expression and trigram indexes), are allow-listed per table.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.heamimont.salesstoreapi.repository.RepositoryQueryPlanTest$RecordingStatementInspector",
+        "db.migrations.enabled=true",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.datasource.url=jdbc:h2:mem:migrated;MODE=PostgreSQL;DB_CLOSE_DELAY=-1"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(SchemaMigrationConfig.class)
+@ActiveProfiles("test")
+class RepositoryQueryPlanTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(RepositoryQueryPlanTest.class);
+    private static final Pattern TABLE_SCAN = Pattern.compile("/\\* PUBLIC\\.(\\w+)\\.tableScan");
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private User user;
+    private Product product;
+    private UUID orderId;
+
+    @BeforeEach
+    void setUp() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            users.add(new User(null, "user" + i, "First", "Last", "user" + i + "@example.com", "password", Role.USER));
+        }
+        users = userRepository.saveAllAndFlush(users);
+        user = users.get(0);
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            products.add(new Product(null, "Product " + i, null, BigDecimal.ONE, BigDecimal.TEN, 100));
+        }
+        products = productRepository.saveAllAndFlush(products);
+        product = products.get(0);
+
+        List<Object[]> orderRows = new ArrayList<>();
+        List<Object[]> lineRows = new ArrayList<>();
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < 2_000; i++) {
+            UUID id = UUID.randomUUID();
+            orderRows.add(new Object[]{id, users.get(i % users.size()).getId(),
+                    Timestamp.valueOf(start.plusHours(i)), BigDecimal.TEN, "DONE"});
+            lineRows.add(new Object[]{id, products.get(i % products.size()).getId(), 1});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO orders (id, user_id, order_date, total_cost, status) VALUES (?, ?, ?, ?, ?)", orderRows);
+        jdbcTemplate.batchUpdate("INSERT INTO order_products (order_id, product_id, product_quantity) VALUES (?, ?, ?)", lineRows);
+        orderId = (UUID) orderRows.get(0)[0];
+        RecordingStatementInspector.clear();
+    }
+
+    @Test
+    void userQueries_useIndexes() throws SQLException {
+        userRepository.findByUsername("user1");
+        userRepository.findByEmail("user1@example.com");
+        userRepository.findTokenVersionByUsername("user1");
+        userRepository.findById(user.getId());
+        userRepository.existsByUsernameIgnoreCase("USER1");
+        userRepository.existsByEmailIgnoreCase("USER1@example.com");
+
+        assertNoUnexpectedTableScans(Map.of(
+                // upper(username) / upper(email): expression indexes, PostgreSQL only (V7)
+                "USERS", Set.of("upper(u1_0.username)", "upper(u1_0.email)")));
+    }
+
+    @Test
+    void orderQueries_useIndexes() throws SQLException {
+        LocalDateTime orderDate = LocalDateTime.of(2024, 2, 1, 0, 0);
+        orderRepository.findById(orderId);
+        orderRepository.findWithDetailsById(orderId);
+        orderRepository.findWithDetailsByIdIn(List.of(orderId));
+        orderRepository.findOrdersByUser_Id(user.getId());
+        orderRepository.findOrdersByUser_Username(user.getUsername());
+        orderRepository.findWithDetailsByUser_Username(user.getUsername());
+        orderRepository.findPageIds(Limit.of(20));
+        orderRepository.findPageIdsAfter(orderDate, orderId, Limit.of(20));
+        orderRepository.findPageIdsByUserId(user.getId(), Limit.of(20));
+        orderRepository.findPageIdsByUserIdAfter(user.getId(), orderDate, orderId, Limit.of(20));
+
+        assertNoUnexpectedTableScans(Map.of());
+    }
+
+    @Test
+    void reportFilters_useIndexes() throws SQLException {
+        List<Long> productIds = productRepository.findIdsByNameContaining("42");
+        orderRepository.findAll(OrderSpecifications.hasAnyProductId(List.of(product.getId())));
+        orderRepository.findAll(OrderSpecifications.hasUsername("USER1"));
+        orderRepository.findAll(OrderSpecifications.orderDateAfter(LocalDateTime.of(2024, 3, 1, 0, 0))
+                .and(OrderSpecifications.orderDateBefore(LocalDateTime.of(2024, 3, 2, 0, 0))));
+
+        assertThat(productIds).hasSize(1);
+        assertNoUnexpectedTableScans(Map.of(
+                // LIKE '%...%': pg_trgm index, PostgreSQL only (V6)
+                "PRODUCTS", Set.of("like"),
+                // upper(username): expression index, PostgreSQL only (V7)
+                "USERS", Set.of("upper(u1_0.username)")));
+    }
+
+    @Test
+    void claimQueue_readsPendingOrdersFromStatusIndex() throws SQLException {
+        // Plain JDBC, so not captured by the statement inspector
+        try (Connection connection = dataSource.getConnection()) {
+            String plan = explain(connection, OrderRepositoryImpl.NEXT_PENDING_SQL);
+            // H2 may pick the index of the foreign key on status instead, which does not order by date
+            assertThat(plan).doesNotContain("tableScan").contains("STATUS = 'PENDING' */");
+        }
+        assertThat(new JdbcTemplate(dataSource).queryForList(
+                "SELECT column_name FROM information_schema.index_columns WHERE index_name = 'IDX_ORDERS_STATUS_ORDER_DATE' "
+                        + "ORDER BY ordinal_position", String.class))
+                .containsExactly("STATUS", "ORDER_DATE");
+    }
+
+    /**
+     * Explains every captured SELECT and fails on a table scan, unless the SQL contains one of the fragments
+     * allow-listed for the scanned table.
+     */
+    private void assertNoUnexpectedTableScans(Map<String, Set<String>> allowed) throws SQLException {
+        List<String> statements = RecordingStatementInspector.selects();
+        assertThat(statements).isNotEmpty();
+        List<String> violations = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection()) {
+            for (String sql : statements) {
+                String plan = explain(connection, sql);
+                logger.debug("[Query Plan] {}\n{}", sql, plan);
+                Matcher matcher = TABLE_SCAN.matcher(plan);
+                while (matcher.find()) {
+                    String table = matcher.group(1);
+                    Set<String> fragments = allowed.getOrDefault(table, Set.of());
+                    if (fragments.stream().noneMatch(sql::contains)) {
+                        violations.add("Table scan on " + table + ":\n" + sql + "\n" + plan);
+                    }
+                }
+            }
+        }
+        assertThat(violations).isEmpty();
+    }
+
+    private static String explain(Connection connection, String sql) throws SQLException {
+        // H2 explains a prepared statement without its parameters being bound
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql);
+             ResultSet rows = statement.executeQuery()) {
+            StringBuilder plan = new StringBuilder();
+            while (rows.next()) {
+                plan.append(rows.getString(1)).append('\n');
+            }
+            return plan.toString();
+        }
+    }
+
+    /**
+     * Records the SQL of every statement Hibernate prepares.
+     */
+    public static class RecordingStatementInspector implements StatementInspector {
+
+        private static final List<String> statements = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public String inspect(String sql) {
+            statements.add(sql);
+            return sql;
+        }
+
+        static List<String> selects() {
+            synchronized (statements) {
+                return statements.stream().filter(sql -> sql.trim().toLowerCase().startsWith("select")).distinct().toList();
+            }
+        }
+
+        static void clear() {
+            statements.clear();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.heamimont.salesstoreapi.repository;
+
+import com.heamimont.salesstoreapi.model.UuidV7Generator;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares inserting orders keyed by random UUIDs (the previous @GeneratedValue) with UUIDv7 keys:
+ * insert throughput, and the size of the table and its primary key index afterwards.
+ * Runs on a file-backed H2 database (an MVStore B-tree).
+ * Run with -Dbenchmark.uuid-rows=2000000 for a larger table.
+ */
+@Tag("benchmark")
+class UuidPrimaryKeyBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(UuidPrimaryKeyBenchmarkTest.class);
+    private static final int BATCH_SIZE = 1_000;
+
+    @TempDir
+    Path databaseDirectory;
+
+    @Test
+    void insert_randomVersusTimeOrderedKeys() {
+        int rows = Integer.getInteger("benchmark.uuid-rows", 200_000);
+
+        // Warms up the JIT, not reported
+        insert("warmup-random", rows / 10, UUID::randomUUID);
+        insert("warmup-uuidv7", rows / 10, UuidV7Generator::next);
+
+        Result random = insert("random", rows, UUID::randomUUID);
+        Result timeOrdered = insert("uuidv7", rows, UuidV7Generator::next);
+
+        logger.info("[UUID Key Benchmark] {} rows: random {} rows/s, {} KiB; UUIDv7 {} rows/s, {} KiB",
+                rows, random.rowsPerSecond(), random.diskSpaceKiB(), timeOrdered.rowsPerSecond(), timeOrdered.diskSpaceKiB());
+    }
+
+    private Result insert(String name, int rows, Supplier<UUID> ids) {
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource(
+                "jdbc:h2:file:" + databaseDirectory.resolve(name), true);
+        try {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            jdbcTemplate.execute("CREATE TABLE orders (id UUID PRIMARY KEY, order_date TIMESTAMP NOT NULL, total_cost DECIMAL(10, 2) NOT NULL)");
+
+            Timestamp orderDate = Timestamp.valueOf(LocalDateTime.of(2024, 1, 1, 12, 0));
+            List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+            long start = System.nanoTime();
+            for (int i = 0; i < rows; i++) {
+                batch.add(new Object[]{ids.get(), orderDate, BigDecimal.TEN});
+                if (batch.size() == BATCH_SIZE || i == rows - 1) {
+                    jdbcTemplate.batchUpdate("INSERT INTO orders (id, order_date, total_cost) VALUES (?, ?, ?)", batch);
+                    batch.clear();
+                }
+            }
+            long nanos = System.nanoTime() - start;
+
+            assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders", Long.class)).isEqualTo(rows);
+            jdbcTemplate.execute("CHECKPOINT");
+            Long diskSpace = jdbcTemplate.queryForObject("SELECT DISK_SPACE_USED('ORDERS')", Long.class);
+            return new Result(rows * 1_000_000_000L / Math.max(nanos, 1), diskSpace == null ? -1 : diskSpace / 1024);
+        } finally {
+            new JdbcTemplate(dataSource).execute("SHUTDOWN");
+            dataSource.destroy();
+        }
+    }
+
+    private record Result(long rowsPerSecond, long diskSpaceKiB) {
+    }
+}
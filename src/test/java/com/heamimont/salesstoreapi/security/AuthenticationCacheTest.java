@@ -0,0 +1,107 @@
+package com.heamimont.salesstoreapi.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuthenticationCacheTest {
+
+    private final MutableClock clock = new MutableClock();
+    private AuthenticationCache cache;
+
+    private final UserDetails alice = new User("alice", "password", List.of());
+    private final UserDetails bob = new User("bob", "password", List.of());
+
+    @BeforeEach
+    void setUp() {
+        cache = new AuthenticationCache(100, Duration.ofMinutes(5), clock);
+    }
+
+    @Test
+    void get_afterPut_returnsUserDetailsUntilTtl() {
+        cache.put("token-a", alice, clock.instant().plus(Duration.ofHours(1)), cache.stamp());
+
+        assertThat(cache.get("token-a")).isSameAs(alice);
+        assertThat(cache.get("token-b")).isNull();
+
+        clock.advance(Duration.ofMinutes(5));
+        assertThat(cache.get("token-a")).isNull();
+    }
+
+    @Test
+    void get_entryNeverOutlivesTheToken() {
+        cache.put("token-a", alice, clock.instant().plus(Duration.ofSeconds(30)), cache.stamp());
+
+        clock.advance(Duration.ofSeconds(29));
+        assertThat(cache.get("token-a")).isSameAs(alice);
+        clock.advance(Duration.ofSeconds(1));
+        assertThat(cache.get("token-a")).isNull();
+    }
+
+    @Test
+    void invalidate_dropsOnlyThatUsersTokens() {
+        cache.put("token-a1", alice, clock.instant().plus(Duration.ofHours(1)), cache.stamp());
+        cache.put("token-a2", alice, clock.instant().plus(Duration.ofHours(1)), cache.stamp());
+        cache.put("token-b", bob, clock.instant().plus(Duration.ofHours(1)), cache.stamp());
+
+        cache.invalidate("alice");
+
+        assertThat(cache.get("token-a1")).isNull();
+        assertThat(cache.get("token-a2")).isNull();
+        assertThat(cache.get("token-b")).isSameAs(bob);
+    }
+
+    @Test
+    void put_afterInvalidationSinceStamp_isSkipped() {
+        long stamp = cache.stamp();
+        // The user changes while their details are being loaded
+        cache.invalidate("alice");
+
+        cache.put("token-a", alice, clock.instant().plus(Duration.ofHours(1)), stamp);
+
+        assertThat(cache.get("token-a")).isNull();
+    }
+
+    @Test
+    void put_beyondMaxSize_staysBounded() {
+        for (int i = 0; i < 250; i++) {
+            cache.put("token-" + i, alice, clock.instant().plus(Duration.ofHours(1)), cache.stamp());
+        }
+
+        assertThat(cache.size()).isLessThanOrEqualTo(100);
+        assertThat(cache.get("token-249")).isSameAs(alice);
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -6,7 +6,6 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -33,6 +32,12 @@ class JwtAuthenticationFilterTest {
     @Mock
     private CustomUserDetailsService userDetailsService;
 
+    @Mock
+    private AuthenticationCache authenticationCache;
+
+    @Mock
+    private TokenVersionRegistry tokenVersionRegistry;
+
     @Mock
     private HttpServletRequest request;
 
@@ -45,12 +50,12 @@ class JwtAuthenticationFilterTest {
     @Mock
     private UserDetails userDetails;
 
-    @InjectMocks
     private JwtAuthenticationFilter jwtAuthenticationFilter;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        jwtAuthenticationFilter = new JwtAuthenticationFilter(jwtService, userDetailsService, authenticationCache, tokenVersionRegistry);
         // Clear security context before each test
         SecurityContextHolder.clearContext();
     }
@@ -83,7 +88,6 @@ class JwtAuthenticationFilterTest {
         SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("existingUser", null, Collections.emptyList()));
 
         when(request.getHeader("Authorization")).thenReturn("Bearer someToken");
-        when(jwtService.extractUsername("someToken")).thenReturn("testUser");
 
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
 
@@ -99,13 +103,15 @@ class JwtAuthenticationFilterTest {
         String username = "testUser";
 
         when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
-        when(jwtService.extractUsername(token)).thenReturn(username);
+        JwtToken jwtToken = new JwtToken(username, null, null, -1, System.currentTimeMillis() + 60_000);
+        when(jwtService.validateAndParse(token)).thenReturn(jwtToken);
         when(userDetailsService.loadUserByUsername(username)).thenReturn(userDetails);
-        when(jwtService.isTokenValid(token, userDetails)).thenReturn(false);
+        when(jwtService.isTokenValid(jwtToken, userDetails)).thenReturn(false);
 
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
 
         assertNull(SecurityContextHolder.getContext().getAuthentication());
-        verify(filterChain).doFilter(request, response);
+        verify(response).sendError(HttpServletResponse.SC_UNAUTHORIZED, "Invalid JWT token");
+        verifyNoInteractions(filterChain);
     }
 }
@@ -0,0 +1,95 @@
+package com.heamimont.salesstoreapi.security;
+
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class JwtAuthenticationFilterCachingTest {
+
+    private JwtService jwtService;
+    private CustomUserDetailsService userDetailsService;
+    private AuthenticationCache authenticationCache;
+    private TokenVersionRegistry tokenVersionRegistry;
+    private JwtAuthenticationFilter filter;
+
+    private final UserDetails userDetails = new User("alice", "password", List.of());
+
+    @BeforeEach
+    void setUp() {
+        jwtService = mock(JwtService.class);
+        userDetailsService = mock(CustomUserDetailsService.class);
+        authenticationCache = new AuthenticationCache(100, Duration.ofMinutes(5));
+        tokenVersionRegistry = mock(TokenVersionRegistry.class);
+        filter = new JwtAuthenticationFilter(jwtService, userDetailsService, authenticationCache, tokenVersionRegistry);
+
+        JwtToken token = new JwtToken("alice", null, null, -1, Instant.now().plus(Duration.ofHours(1)).toEpochMilli());
+        when(jwtService.validateAndParse("token")).thenReturn(token);
+        when(jwtService.isTokenValid(token, userDetails)).thenReturn(true);
+        when(userDetailsService.loadUserByUsername("alice")).thenReturn(userDetails);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void repeatedRequests_withSameToken_parseAndLoadUserOnce() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            FilterChain chain = mock(FilterChain.class);
+            MockHttpServletRequest request = new MockHttpServletRequest();
+            request.addHeader("Authorization", "Bearer token");
+            MockHttpServletResponse response = new MockHttpServletResponse();
+
+            filter.doFilterInternal(request, response, chain);
+
+            verify(chain).doFilter(request, response);
+            assertThat(SecurityContextHolder.getContext().getAuthentication().getName()).isEqualTo("alice");
+            SecurityContextHolder.clearContext();
+        }
+
+        verify(jwtService, times(1)).validateAndParse("token");
+        verify(userDetailsService, times(1)).loadUserByUsername("alice");
+    }
+
+    @Test
+    void request_afterUserInvalidation_loadsUserAgain() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer token");
+
+        filter.doFilterInternal(request, new MockHttpServletResponse(), mock(FilterChain.class));
+        SecurityContextHolder.clearContext();
+        authenticationCache.invalidate("alice");
+        filter.doFilterInternal(request, new MockHttpServletResponse(), mock(FilterChain.class));
+
+        verify(userDetailsService, times(2)).loadUserByUsername("alice");
+    }
+
+    @Test
+    void invalidToken_isRejectedAndNotCached() throws Exception {
+        when(jwtService.isTokenValid(any(JwtToken.class), eq(userDetails))).thenReturn(false);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer token");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = mock(FilterChain.class);
+
+        filter.doFilterInternal(request, response, chain);
+
+        assertThat(response.getStatus()).isEqualTo(401);
+        verifyNoInteractions(chain);
+        assertThat(authenticationCache.get("token")).isNull();
+    }
+}
@@ -0,0 +1,81 @@
+package com.heamimont.salesstoreapi.security;
+
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class JwtAuthenticationFilterStatelessTest {
+
+    private JwtService jwtService;
+    private CustomUserDetailsService userDetailsService;
+    private TokenVersionRegistry tokenVersionRegistry;
+    private JwtAuthenticationFilter filter;
+    private final UUID aliceId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        jwtService = mock(JwtService.class);
+        userDetailsService = mock(CustomUserDetailsService.class);
+        tokenVersionRegistry = mock(TokenVersionRegistry.class);
+        when(tokenVersionRegistry.isEnabled()).thenReturn(true);
+        filter = new JwtAuthenticationFilter(jwtService, userDetailsService,
+                new AuthenticationCache(100, Duration.ofMinutes(5)), tokenVersionRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void currentTokenVersion_authenticatesFromClaimsWithoutLoadingUser() throws Exception {
+        when(jwtService.validateAndParse("token"))
+                .thenReturn(new JwtToken("alice", aliceId, "ADMIN", 2, System.currentTimeMillis() + 60_000));
+        when(tokenVersionRegistry.isCurrent("alice", aliceId, 2)).thenReturn(true);
+        FilterChain chain = mock(FilterChain.class);
+        MockHttpServletRequest request = request();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilterInternal(request, response, chain);
+
+        verify(chain).doFilter(request, response);
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertThat(authentication.getName()).isEqualTo("alice");
+        assertThat(authentication.getAuthorities()).extracting(GrantedAuthority::getAuthority)
+                .containsExactly("ROLE_ADMIN");
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void outdatedTokenVersion_isRejected() throws Exception {
+        when(jwtService.validateAndParse("token"))
+                .thenReturn(new JwtToken("alice", aliceId, "ADMIN", 1, System.currentTimeMillis() + 60_000));
+        when(tokenVersionRegistry.isCurrent("alice", aliceId, 1)).thenReturn(false);
+        FilterChain chain = mock(FilterChain.class);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilterInternal(request(), response, chain);
+
+        assertThat(response.getStatus()).isEqualTo(401);
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+        verifyNoInteractions(chain, userDetailsService);
+    }
+
+    private static MockHttpServletRequest request() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer token");
+        return request;
+    }
+}
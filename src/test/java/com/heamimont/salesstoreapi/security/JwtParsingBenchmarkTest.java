@@ -0,0 +1,72 @@
+package com.heamimont.salesstoreapi.security;
+
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.Key;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * Measures parse+verify throughput in tokens per second, comparing a parser built for every call
+ * (the previous implementation) with the single parser JwtService now builds at startup.
+ */
+@Tag("benchmark")
+class JwtParsingBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtParsingBenchmarkTest.class);
+    private static final int TOKENS = 2_000;
+    private static final int ROUNDS = 5;
+
+    @Test
+    void validateAndParse_throughput() {
+        JwtService jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secret", "12345678901234567890123456789012");
+        jwtService.init();
+        Key signingKey = (Key) ReflectionTestUtils.getField(jwtService, "signingKey");
+
+        List<String> tokens = new ArrayList<>(TOKENS);
+        for (int i = 0; i < TOKENS; i++) {
+            UserDetails userDetails = Mockito.mock(UserDetails.class);
+            when(userDetails.getUsername()).thenReturn("user" + i);
+            tokens.add(jwtService.generateToken(userDetails));
+        }
+
+        // The first round warms up the JIT and is not reported
+        for (int round = 0; round <= ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (String token : tokens) {
+                Jwts.parserBuilder().setSigningKey(signingKey).build().parseClaimsJws(token).getBody();
+            }
+            long perCallBuilder = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int verified = 0;
+            for (String token : tokens) {
+                if (jwtService.validateAndParse(token).subject() != null) {
+                    verified++;
+                }
+            }
+            long prebuiltParser = System.nanoTime() - start;
+
+            assertThat(verified).isEqualTo(TOKENS);
+            if (round > 0) {
+                logger.info("[JWT Parsing Benchmark] round {}: per-call builder {} tokens/s, prebuilt parser {} tokens/s",
+                        round, tokensPerSecond(perCallBuilder), tokensPerSecond(prebuiltParser));
+            }
+        }
+    }
+
+    private static long tokensPerSecond(long nanos) {
+        return TOKENS * 1_000_000_000L / Math.max(nanos, 1);
+    }
+}
@@ -1,5 +1,8 @@
 package com.heamimont.salesstoreapi.security;
 
+import com.heamimont.salesstoreapi.model.Role;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -11,6 +14,7 @@ import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.when;
@@ -89,4 +93,61 @@ class JwtServiceTest {
 
         assertFalse(jwtService.isTokenValid(expiredToken, userDetails));
     }
+
+    @Test
+    void validateAndParse_ShouldReturnVerifiedToken() {
+        Map<String, Object> extraClaims = new HashMap<>();
+        extraClaims.put("role", "ADMIN");
+        String tokenWithRole = jwtService.generateToken(extraClaims, userDetails);
+
+        JwtToken parsed = jwtService.validateAndParse(tokenWithRole);
+
+        assertEquals("testuser", parsed.subject());
+        assertEquals("ADMIN", parsed.role());
+        assertTrue(parsed.expiresAtMillis() > System.currentTimeMillis());
+        assertFalse(parsed.isExpired(System.currentTimeMillis()));
+    }
+
+    @Test
+    void validateAndParse_ShouldReject_TamperedToken() {
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertThrows(JwtException.class, () -> jwtService.validateAndParse(tampered));
+    }
+
+    @Test
+    void validateAndParse_ShouldReject_ExpiredToken() {
+        String expiredToken = io.jsonwebtoken.Jwts.builder()
+                .setSubject(userDetails.getUsername())
+                .setExpiration(new Date(System.currentTimeMillis() - 1000))
+                .signWith((Key) ReflectionTestUtils.getField(jwtService, "signingKey"))
+                .compact();
+
+        assertThrows(ExpiredJwtException.class, () -> jwtService.validateAndParse(expiredToken));
+    }
+
+    @Test
+    void generateToken_WithTokenVersion_ShouldCarryUserIdRoleAndVersion() {
+        UserDetails admin = new org.springframework.security.core.userdetails.User(
+                "admin", "password", Role.ADMIN.getAuthorities());
+
+        UUID userId = UUID.randomUUID();
+
+        JwtToken parsed = jwtService.validateAndParse(jwtService.generateToken(admin, userId, 3));
+
+        assertEquals("admin", parsed.subject());
+        assertEquals(userId, parsed.userId());
+        assertEquals("ADMIN", parsed.role());
+        assertEquals(3, parsed.tokenVersion());
+        assertTrue(parsed.isStateless());
+    }
+
+    @Test
+    void validateAndParse_WithoutVersion_ShouldNotBeStateless() {
+        JwtToken parsed = jwtService.validateAndParse(token);
+
+        assertNull(parsed.userId());
+        assertEquals(-1, parsed.tokenVersion());
+        assertFalse(parsed.isStateless());
+    }
 }
@@ -0,0 +1,134 @@
+package com.heamimont.salesstoreapi.security;
+
+import com.heamimont.salesstoreapi.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TokenVersionRegistryTest {
+
+    private final UUID aliceId = UUID.randomUUID();
+    private final UUID bobId = UUID.randomUUID();
+    private final UUID carolId = UUID.randomUUID();
+
+    private UserRepository userRepository;
+    private TokenVersionRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        registry = new TokenVersionRegistry(userRepository, true);
+    }
+
+    @Test
+    void load_registersAllUsers_andServesThemWithoutQueries() {
+        when(userRepository.findAllTokenVersions()).thenReturn(List.of(
+                row("alice", aliceId, 2),
+                row("bob", bobId, 0)));
+
+        registry.load();
+
+        assertTrue(registry.isCurrent("alice", aliceId, 2));
+        assertFalse(registry.isCurrent("alice", aliceId, 1));
+        assertTrue(registry.isCurrent("bob", bobId, 0));
+        assertFalse(registry.isCurrent("bob", aliceId, 0));
+        verify(userRepository, never()).findTokenVersionByUsername(any());
+    }
+
+    @Test
+    void currentVersion_unknownUser_isLoadedOnceFromDatabase() {
+        when(userRepository.findTokenVersionByUsername("carol")).thenReturn(Optional.of(row("carol", carolId, 4)));
+
+        TokenVersionRegistry.Version expected = new TokenVersionRegistry.Version(carolId, 4);
+        assertEquals(Optional.of(expected), registry.currentVersion("carol"));
+        assertEquals(Optional.of(expected), registry.currentVersion("carol"));
+
+        verify(userRepository, times(1)).findTokenVersionByUsername("carol");
+    }
+
+    @Test
+    void currentVersion_missingUser_isEmpty() {
+        when(userRepository.findTokenVersionByUsername("ghost")).thenReturn(Optional.empty());
+
+        assertEquals(Optional.empty(), registry.currentVersion("ghost"));
+        assertFalse(registry.isCurrent("ghost", UUID.randomUUID(), 0));
+    }
+
+    @Test
+    void registerAndRevoke_outsideTransaction_applyImmediately() {
+        registry.registerAfterCommit("alice", aliceId, 0);
+        assertTrue(registry.isCurrent("alice", aliceId, 0));
+
+        registry.registerAfterCommit("alice", aliceId, 1);
+        assertFalse(registry.isCurrent("alice", aliceId, 0));
+        assertTrue(registry.isCurrent("alice", aliceId, 1));
+
+        registry.revokeAfterCommit("alice");
+        assertFalse(registry.isCurrent("alice", aliceId, 1));
+        verify(userRepository, never()).findTokenVersionByUsername(any());
+    }
+
+    @Test
+    void usernameRegisteredAgain_rejectsTokensOfTheFormerUser() {
+        registry.registerAfterCommit("alice", aliceId, 0);
+        registry.revokeAfterCommit("alice");
+
+        UUID newAliceId = UUID.randomUUID();
+        registry.registerAfterCommit("alice", newAliceId, 0);
+
+        // Same username and version, but issued to the deleted user
+        assertFalse(registry.isCurrent("alice", aliceId, 0));
+        assertTrue(registry.isCurrent("alice", newAliceId, 0));
+    }
+
+    @Test
+    void load_doesNotOverrideUsersRegisteredSince() {
+        UUID newAliceId = UUID.randomUUID();
+        registry.registerAfterCommit("alice", newAliceId, 0);
+        registry.revokeAfterCommit("bob");
+        when(userRepository.findAllTokenVersions()).thenReturn(List.of(
+                row("alice", aliceId, 3),
+                row("bob", bobId, 1)));
+
+        registry.load();
+
+        assertFalse(registry.isCurrent("alice", aliceId, 3));
+        assertTrue(registry.isCurrent("alice", newAliceId, 0));
+        assertFalse(registry.isCurrent("bob", bobId, 1));
+    }
+
+    @Test
+    void disabledRegistry_doesNotLoadUsers() {
+        TokenVersionRegistry disabled = new TokenVersionRegistry(userRepository, false);
+
+        disabled.load();
+
+        assertFalse(disabled.isEnabled());
+        verifyNoInteractions(userRepository);
+    }
+
+    private static UserRepository.TokenVersion row(String username, UUID id, int tokenVersion) {
+        return new UserRepository.TokenVersion() {
+            @Override
+            public String getUsername() {
+                return username;
+            }
+
+            @Override
+            public UUID getId() {
+                return id;
+            }
+
+            @Override
+            public int getTokenVersion() {
+                return tokenVersion;
+            }
+        };
+    }
+}
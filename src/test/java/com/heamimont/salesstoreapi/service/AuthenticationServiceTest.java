@@ -10,6 +10,7 @@ import com.heamimont.salesstoreapi.dto.user.CreateUserDTO;
 import com.heamimont.salesstoreapi.mapper.UserMapper;
 import com.heamimont.salesstoreapi.dto.user.UserResponseDTO;
 import com.heamimont.salesstoreapi.security.JwtService;
+import com.heamimont.salesstoreapi.security.TokenVersionRegistry;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -28,6 +29,7 @@ class AuthenticationServiceTest {
     private JwtService jwtService;
     private AuthenticationManager authenticationManager;
     private UserDetailsService userDetailsService;
+    private TokenVersionRegistry tokenVersionRegistry;
 
     private AuthenticationService authenticationService;
 
@@ -38,8 +40,10 @@ class AuthenticationServiceTest {
         jwtService = mock(JwtService.class);
         authenticationManager = mock(AuthenticationManager.class);
         userDetailsService = mock(UserDetailsService.class);
+        tokenVersionRegistry = mock(TokenVersionRegistry.class);
 
-        authenticationService = new AuthenticationService(userService, userMapper, jwtService, authenticationManager, userDetailsService);
+        authenticationService = new AuthenticationService(userService, userMapper, jwtService, authenticationManager,
+                userDetailsService, tokenVersionRegistry);
     }
 
     @Test
@@ -0,0 +1,80 @@
+package com.heamimont.salesstoreapi.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HoldTimingWheelTest {
+
+    private static final long TICK = 10;
+
+    @Test
+    void advance_expiresHoldsOnTheTickOfTheirDeadline() {
+        HoldTimingWheel wheel = new HoldTimingWheel(TICK, 0);
+        UUID soon = UUID.randomUUID();
+        UUID later = UUID.randomUUID();
+        wheel.schedule(later, 95);
+        wheel.schedule(soon, 30);
+
+        assertThat(wheel.advance(29)).isEmpty();
+        assertThat(wheel.advance(30)).containsExactly(soon);
+        // 95 ms is rounded up to the tick of 100 ms, so the hold never expires early
+        assertThat(wheel.advance(99)).isEmpty();
+        assertThat(wheel.advance(100)).containsExactly(later);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void advance_cascadesDeadlinesFromEveryLevel() {
+        HoldTimingWheel wheel = new HoldTimingWheel(TICK, 0);
+        Random random = new Random(42);
+        Map<UUID, Long> deadlines = new HashMap<>();
+        long range = wheel.rangeMillis();
+        for (int i = 0; i < 20_000; i++) {
+            UUID id = UUID.randomUUID();
+            // Spread over all levels, including the slot boundaries
+            long deadline = switch (i % 4) {
+                case 0 -> 1 + random.nextInt(640);
+                case 1 -> 64 * TICK * (1 + random.nextInt(64));
+                case 2 -> 1 + (long) (random.nextDouble() * 4096 * 64 * TICK);
+                default -> 1 + (long) (random.nextDouble() * (range - TICK));
+            };
+            deadlines.put(id, deadline);
+            wheel.schedule(id, deadline);
+        }
+
+        long now = 0;
+        int expired = 0;
+        while (wheel.size() > 0) {
+            long previous = now;
+            now += 1 + random.nextInt(20_000) * TICK;
+            for (UUID id : wheel.advance(now)) {
+                long deadline = deadlines.get(id);
+                // Expired in the step its deadline falls in, rounded up to a tick
+                assertThat(deadline).isLessThanOrEqualTo(now);
+                assertThat(Math.floorDiv(deadline + TICK - 1, TICK) * TICK).isGreaterThan(previous);
+                expired++;
+            }
+        }
+        assertThat(expired).isEqualTo(deadlines.size());
+    }
+
+    @Test
+    void schedule_passedDeadlineExpiresOnTheNextTick_andFarDeadlineIsRefused() {
+        HoldTimingWheel wheel = new HoldTimingWheel(TICK, 1_000);
+        UUID passed = UUID.randomUUID();
+        wheel.schedule(passed, 500);
+
+        assertThat(wheel.advance(1_000)).isEmpty();
+        assertThat(wheel.advance(1_010)).isEqualTo(List.of(passed));
+        assertThatThrownBy(() -> wheel.schedule(UUID.randomUUID(), 1_010 + wheel.rangeMillis()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
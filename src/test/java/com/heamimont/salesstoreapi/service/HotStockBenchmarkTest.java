@@ -0,0 +1,151 @@
+package com.heamimont.salesstoreapi.service;
+
+import com.heamimont.salesstoreapi.dto.order.CreateOrderDTO;
+import com.heamimont.salesstoreapi.dto.order.OrderProductDTO;
+import com.heamimont.salesstoreapi.dto.product.UpdateProductDTO;
+import com.heamimont.salesstoreapi.model.Product;
+import com.heamimont.salesstoreapi.model.Role;
+import com.heamimont.salesstoreapi.model.User;
+import com.heamimont.salesstoreapi.repository.DailyProductSalesRepository;
+import com.heamimont.salesstoreapi.repository.OrderRepository;
+import com.heamimont.salesstoreapi.repository.ProductRepository;
+import com.heamimont.salesstoreapi.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares concurrent orders of a single product served from its row with the same orders served from memory
+ * once the product is hot.
+ * Run with -Dbenchmark.orders=20000 for a larger burst.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "products.hot-stock.enabled=true",
+        "products.hot-stock.shards=4",
+        "products.hot-stock.lease-size=25",
+        "products.hot-stock.contention-threshold=0",
+        "products.hot-stock.promote-after=5",
+        "products.hot-stock.window=1h",
+        "products.hot-stock.flush-interval=1h",
+        "spring.jpa.show-sql=false"
+})
+@ActiveProfiles("test")
+class HotStockBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(HotStockBenchmarkTest.class);
+    private static final int THREADS = 16;
+    private static final int STOCK = 1_000_000;
+
+    @Autowired private HotStockService hotStockService;
+    @Autowired private OrderService orderService;
+    @Autowired private ProductService productService;
+    @Autowired private OrderRepository orderRepository;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private DailyProductSalesRepository dailyProductSalesRepository;
+
+    private User user;
+    private Long productId;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User(null, "hot-bench", "Bench", "Mark", "hot-bench@example.com", "password", Role.USER));
+        productId = productRepository.saveAndFlush(
+                new Product(null, "Hot Benchmark Product", null, BigDecimal.ONE, BigDecimal.TEN, STOCK)).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAll(orderRepository.findOrdersByUser_Id(user.getId()).orElse(List.of()));
+        dailyProductSalesRepository.deleteAll(dailyProductSalesRepository.findAll().stream()
+                .filter(row -> row.getId().getProductId().equals(productId))
+                .toList());
+        productService.deleteProduct(productId);
+        userRepository.delete(user);
+    }
+
+    @Test
+    void hotProduct_placesConcurrentOrdersOfOneProductFaster() throws Exception {
+        int count = Integer.getInteger("benchmark.orders", 2_000);
+
+        long rowNanos = placeConcurrently(count);
+
+        hotStockService.promote(productId);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (hotStockService.availableInMemory(productId) == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        long hotNanos = placeConcurrently(count);
+
+        hotStockService.flushConsumption();
+        UpdateProductDTO update = new UpdateProductDTO();
+        update.setDescription("Benchmarked");
+        productService.updateProduct(productId, update);
+
+        assertThat(orderRepository.findOrdersByUser_Id(user.getId()).orElseThrow()).hasSize(2 * count);
+        Product product = productRepository.findById(productId).orElseThrow();
+        assertThat(product.getAvailableQuantity()).isEqualTo(STOCK - 2 * count);
+        assertThat(product.getLeasedQuantity()).isZero();
+
+        logger.info("[Hot Stock Benchmark] {} orders of one product on {} threads: from the row {} ms ({} orders/s), from memory {} ms ({} orders/s)",
+                count, THREADS,
+                rowNanos / 1_000_000, count * 1_000_000_000L / rowNanos,
+                hotNanos / 1_000_000, count * 1_000_000_000L / hotNanos);
+    }
+
+    /**
+     * Places {@code count} single unit orders of the product on {@link #THREADS} threads.
+     *
+     * @return the elapsed nanoseconds
+     */
+    private long placeConcurrently(int count) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int orders = count / THREADS + (t < count % THREADS ? 1 : 0);
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < orders; i++) {
+                    orderService.createOrder(order(), user.getUsername());
+                }
+                return null;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.MINUTES);
+        }
+        long elapsed = System.nanoTime() - begin;
+        executor.shutdown();
+        return elapsed;
+    }
+
+    private CreateOrderDTO order() {
+        OrderProductDTO line = new OrderProductDTO();
+        line.setProductId(productId);
+        line.setProductQuantity(1);
+        CreateOrderDTO order = new CreateOrderDTO();
+        order.setOrderProducts(List.of(line));
+        return order;
+    }
+}
@@ -0,0 +1,268 @@
+package com.heamimont.salesstoreapi.service;
+
+import com.heamimont.salesstoreapi.dto.order.BatchOrderDTO;
+import com.heamimont.salesstoreapi.dto.order.CreateOrderDTO;
+import com.heamimont.salesstoreapi.dto.order.OrderBatchResultDTO;
+import com.heamimont.salesstoreapi.dto.order.OrderProductDTO;
+import com.heamimont.salesstoreapi.dto.product.UpdateProductDTO;
+import com.heamimont.salesstoreapi.model.DailyProductSales;
+import com.heamimont.salesstoreapi.model.Product;
+import com.heamimont.salesstoreapi.model.Role;
+import com.heamimont.salesstoreapi.model.User;
+import com.heamimont.salesstoreapi.repository.DailyProductSalesRepository;
+import com.heamimont.salesstoreapi.repository.HotStockConsumptionRepository;
+import com.heamimont.salesstoreapi.repository.OrderRepository;
+import com.heamimont.salesstoreapi.repository.ProductRepository;
+import com.heamimont.salesstoreapi.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Hot-SKU mode: stock leased into memory, sales flushed to the rows, rollbacks, promotion and demotion.
+ * Windows and flushes are driven by the tests, so their schedules are set far apart.
+ * Not transactional, as leases and returns run on the lease thread.
+ */
+@SpringBootTest(properties = {
+        "products.hot-stock.enabled=true",
+        "products.hot-stock.shards=4",
+        "products.hot-stock.lease-size=25",
+        "products.hot-stock.contention-threshold=0",
+        "products.hot-stock.promote-after=5",
+        "products.hot-stock.window=1h",
+        "products.hot-stock.flush-interval=1h",
+        "spring.jpa.show-sql=false"
+})
+@ActiveProfiles("test")
+class HotStockServiceTest {
+
+    // shards * lease-size
+    private static final int LEASE = 100;
+
+    @Autowired private HotStockService hotStockService;
+    @Autowired private OrderService orderService;
+    @Autowired private OrderBatchService orderBatchService;
+    @Autowired private ProductService productService;
+    @Autowired private HotStockConsumptionRepository hotStockConsumptionRepository;
+    @Autowired private OrderRepository orderRepository;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private DailyProductSalesRepository dailyProductSalesRepository;
+
+    private User user;
+    private final List<Long> productIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User(null, "hot-user", "Hot", "Stock", "hot-user@example.com", "password", Role.USER));
+    }
+
+    @AfterEach
+    void tearDown() {
+        // Flushed first, as the flush adds the sales to the daily rollup
+        hotStockService.flushConsumption();
+        orderRepository.deleteAll(orderRepository.findOrdersByUser_Id(user.getId()).orElse(List.of()));
+        dailyProductSalesRepository.deleteAll(dailyProductSalesRepository.findAll().stream()
+                .filter(row -> productIds.contains(row.getId().getProductId()))
+                .toList());
+        for (Long productId : productIds) {
+            productService.deleteProduct(productId);
+        }
+        userRepository.delete(user);
+    }
+
+    @Test
+    void promote_servesOrdersFromMemoryAndFlushesTheSalesToTheRow() {
+        Long productId = product("Hot Product", 250);
+        promoteAndAwaitLease(productId);
+        assertThat(product(productId).getAvailableQuantity()).isEqualTo(150);
+        assertThat(product(productId).getLeasedQuantity()).isEqualTo(LEASE);
+
+        for (int i = 0; i < 3; i++) {
+            orderService.createOrder(order(Map.of(productId, 2)), user.getUsername());
+        }
+
+        // The row and the rollup are not touched by the orders, only their sales are recorded
+        long leasedVersion = product(productId).getChangeVersion();
+        assertThat(product(productId).getAvailableQuantity()).isEqualTo(150);
+        assertThat(hotStockService.availableInMemory(productId)).isEqualTo(LEASE - 6);
+        assertThat(hotStockConsumptionRepository.count()).isEqualTo(3);
+        assertThat(unitsSold(productId)).isZero();
+
+        // One flush for all three: the leased quantity, the rollup and a new change version for the delta sync
+        hotStockService.flushConsumption();
+        assertThat(product(productId).getLeasedQuantity()).isEqualTo(LEASE - 6);
+        assertThat(hotStockConsumptionRepository.count()).isZero();
+        assertThat(unitsSold(productId)).isEqualTo(6);
+        assertThat(product(productId).getChangeVersion()).isGreaterThan(leasedVersion);
+
+        // An admin change returns the unsold units first
+        UpdateProductDTO update = new UpdateProductDTO();
+        update.setDescription("Edited");
+        productService.updateProduct(productId, update);
+        assertThat(hotStockService.isHot(productId)).isFalse();
+        assertThat(product(productId).getAvailableQuantity()).isEqualTo(244);
+        assertThat(product(productId).getLeasedQuantity()).isZero();
+    }
+
+    @Test
+    void unitsInMemory_areListed_andReleasedForBatchOrders() {
+        Long productId = product("Hot Listed Product", 120);
+        promoteAndAwaitLease(productId);
+        assertThat(product(productId).getAvailableQuantity()).isEqualTo(20);
+
+        assertThat(productService.getProductById(productId).getAvailableQuantity()).isEqualTo(120);
+        await(() -> productService.getAllProductsPublic().stream()
+                .anyMatch(product -> product.getId().equals(productId) && product.getAvailableQuantity() == 120));
+
+        // More than the row holds, so only placeable once the units in memory are back in it
+        BatchOrderDTO order = new BatchOrderDTO();
+        order.setUsername(user.getUsername());
+        order.setOrderProducts(order(Map.of(productId, 110)).getOrderProducts());
+        OrderBatchResultDTO result = orderBatchService.createOrders(List.of(order));
+
+        assertThat(result.getCreated()).isEqualTo(1);
+        assertThat(hotStockService.isHot(productId)).isFalse();
+        assertThat(product(productId).getAvailableQuantity()).isEqualTo(10);
+        assertThat(product(productId).getLeasedQuantity()).isZero();
+        assertThat(productService.getProductById(productId).getAvailableQuantity()).isEqualTo(10);
+    }
+
+    @Test
+    void reserve_rolledBack_givesTheUnitsBackToMemory() {
+        Long hotId = product("Hot Rollback Product", 200);
+        Long scarceId = product("Scarce Product", 1);
+        promoteAndAwaitLease(hotId);
+
+        assertThatThrownBy(() -> orderService.createOrder(order(Map.of(hotId, 5, scarceId, 2)), user.getUsername()))
+                .hasMessageContaining("Insufficient product quantity available");
+
+        assertThat(hotStockService.availableInMemory(hotId)).isEqualTo(LEASE);
+        assertThat(hotStockConsumptionRepository.count()).isZero();
+        assertThat(product(scarceId).getAvailableQuantity()).isEqualTo(1);
+    }
+
+    @Test
+    void evaluate_promotesContendedProductsAndDemotesIdleOnes() {
+        Long productId = product("Contended Product", 300);
+        // With a contention threshold of 0 every database reservation counts as contended
+        for (int i = 0; i < 5; i++) {
+            orderService.createOrder(order(Map.of(productId, 1)), user.getUsername());
+        }
+
+        hotStockService.evaluate();
+        assertThat(hotStockService.isHot(productId)).isTrue();
+        await(() -> hotStockService.availableInMemory(productId) == LEASE);
+        orderService.createOrder(order(Map.of(productId, 1)), user.getUsername());
+
+        // A window with reservations keeps the product hot, an idle one demotes it
+        hotStockService.evaluate();
+        assertThat(hotStockService.isHot(productId)).isTrue();
+        hotStockService.evaluate();
+        await(() -> !hotStockService.isHot(productId) && product(productId).getAvailableQuantity() == 294);
+        hotStockService.flushConsumption();
+        assertThat(product(productId).getLeasedQuantity()).isZero();
+    }
+
+    @Test
+    void reserve_concurrentOrders_neverOversell() throws Exception {
+        int stock = 150;
+        Long productId = product("Hot Scarce Product", stock);
+        promoteAndAwaitLease(productId);
+        AtomicInteger placed = new AtomicInteger();
+
+        int threads = 8;
+        int attempts = 40;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < attempts; i++) {
+                    try {
+                        orderService.createOrder(order(Map.of(productId, 1)), user.getUsername());
+                        placed.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        assertThat(e).hasMessageContaining("Insufficient product quantity available");
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(placed.get()).isEqualTo(stock);
+        await(() -> !hotStockService.isHot(productId));
+        hotStockService.flushConsumption();
+        assertThat(product(productId).getAvailableQuantity()).isZero();
+        assertThat(product(productId).getLeasedQuantity()).isZero();
+        assertThat(unitsSold(productId)).isEqualTo(stock);
+    }
+
+    private Long product(String name, int quantity) {
+        Long id = productRepository.saveAndFlush(new Product(null, name, null, BigDecimal.ONE, BigDecimal.TEN, quantity)).getId();
+        productIds.add(id);
+        return id;
+    }
+
+    private Product product(Long id) {
+        return productRepository.findById(id).orElseThrow();
+    }
+
+    private long unitsSold(Long productId) {
+        return dailyProductSalesRepository.findAll().stream()
+                .filter(row -> row.getId().getProductId().equals(productId))
+                .mapToLong(DailyProductSales::getUnitsSold)
+                .sum();
+    }
+
+    private void promoteAndAwaitLease(Long productId) {
+        hotStockService.promote(productId);
+        await(() -> hotStockService.availableInMemory(productId) == LEASE);
+    }
+
+    private static CreateOrderDTO order(Map<Long, Integer> quantities) {
+        List<OrderProductDTO> lines = new ArrayList<>();
+        quantities.forEach((productId, quantity) -> {
+            OrderProductDTO line = new OrderProductDTO();
+            line.setProductId(productId);
+            line.setProductQuantity(quantity);
+            lines.add(line);
+        });
+        CreateOrderDTO order = new CreateOrderDTO();
+        order.setOrderProducts(lines);
+        return order;
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("condition not met in time").isLessThan(deadline);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
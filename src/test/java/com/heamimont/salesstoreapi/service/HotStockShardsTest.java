@@ -0,0 +1,81 @@
+package com.heamimont.salesstoreapi.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HotStockShardsTest {
+
+    @Test
+    void take_gathersFromSeveralShardsWhenNoneHoldsEnough() {
+        HotStockShards shards = new HotStockShards(4, units -> { });
+        shards.add(10);
+
+        // 3, 3, 2 and 2 units per shard
+        assertThat(shards.take(7)).isTrue();
+        assertThat(shards.available()).isEqualTo(3);
+        assertThat(shards.take(4)).isFalse();
+        assertThat(shards.available()).isEqualTo(3);
+        assertThat(shards.take(3)).isTrue();
+        assertThat(shards.available()).isZero();
+    }
+
+    @Test
+    void deactivate_drainsTheShardsAndRefusesUnitsAfterwards() {
+        AtomicInteger orphaned = new AtomicInteger();
+        HotStockShards shards = new HotStockShards(4, orphaned::addAndGet);
+        shards.add(20);
+        shards.take(5);
+
+        assertThat(shards.deactivate()).isEqualTo(15);
+        assertThat(shards.take(1)).isFalse();
+        assertThat(shards.giveBack(5)).isFalse();
+        assertThat(shards.add(5)).isFalse();
+        assertThat(shards.available()).isZero();
+    }
+
+    @Test
+    void takeAndGiveBack_concurrently_neverLoseOrCreateUnits() throws Exception {
+        int threads = 8;
+        int rounds = 20_000;
+        HotStockShards shards = new HotStockShards(4, units -> { });
+        shards.add(1_000);
+
+        AtomicInteger held = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int quantity = 1 + t % 5;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < rounds; i++) {
+                    if (shards.take(quantity)) {
+                        held.addAndGet(quantity);
+                        if (i % 2 == 0) {
+                            held.addAndGet(-quantity);
+                            shards.giveBack(quantity);
+                        }
+                    }
+                }
+            }));
+        }
+        futures.add(executor.submit(() -> {
+            for (int i = 0; i < 1_000; i++) {
+                shards.rebalance();
+            }
+        }));
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(shards.available() + held.get()).isEqualTo(1_000);
+    }
+}
@@ -0,0 +1,188 @@
+package com.heamimont.salesstoreapi.service;
+
+import com.heamimont.salesstoreapi.dto.order.CreateOrderDTO;
+import com.heamimont.salesstoreapi.dto.order.OrderProductDTO;
+import com.heamimont.salesstoreapi.dto.product.CreateProductDTO;
+import com.heamimont.salesstoreapi.dto.product.ProductPublicResponseDTO;
+import com.heamimont.salesstoreapi.dto.product.UpdateProductDTO;
+import com.heamimont.salesstoreapi.model.InventoryMovement;
+import com.heamimont.salesstoreapi.model.InventoryMovementReason;
+import com.heamimont.salesstoreapi.model.Role;
+import com.heamimont.salesstoreapi.model.User;
+import com.heamimont.salesstoreapi.repository.DailyProductSalesRepository;
+import com.heamimont.salesstoreapi.repository.InventoryMovementRepository;
+import com.heamimont.salesstoreapi.repository.OrderRepository;
+import com.heamimont.salesstoreapi.repository.ProductRepository;
+import com.heamimont.salesstoreapi.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Inventory ledger: stock changes recorded as movements, restocks sellable right away, and reconciliation.
+ * Not transactional, as concurrent updates run in their own transactions.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+class InventoryLedgerTest {
+
+    @Autowired private ProductService productService;
+    @Autowired private OrderService orderService;
+    @Autowired private InventoryMovementRepository inventoryMovementRepository;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private OrderRepository orderRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private DailyProductSalesRepository dailyProductSalesRepository;
+
+    private User user;
+    private final List<Long> productIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User(null, "ledger-user", "Ledger", "User", "ledger-user@example.com", "password", Role.USER));
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAll(orderRepository.findOrdersByUser_Id(user.getId()).orElse(List.of()));
+        dailyProductSalesRepository.deleteAll(dailyProductSalesRepository.findAll().stream()
+                .filter(row -> productIds.contains(row.getId().getProductId()))
+                .toList());
+        inventoryMovementRepository.deleteAll(inventoryMovementRepository.findAll().stream()
+                .filter(movement -> productIds.contains(movement.getProductId()))
+                .toList());
+        productIds.forEach(productService::deleteProduct);
+        userRepository.delete(user);
+    }
+
+    @Test
+    void restock_isRecordedAndSellableRightAway() throws InterruptedException {
+        Long productId = product("Ledger Restocked Product", 5);
+
+        productService.updateProduct(productId, stock(12));
+
+        assertThat(snapshot(productId)).isEqualTo(12);
+        assertThat(publicStock(productId, 12)).isEqualTo(12);
+        assertThat(movements(productId)).extracting(InventoryMovement::getReason)
+                .containsExactly(InventoryMovementReason.RESTOCK, InventoryMovementReason.RESTOCK);
+
+        orderService.createOrder(order(productId, 10), user.getUsername());
+        assertThat(productService.getProductById(productId).getAvailableQuantity()).isEqualTo(2);
+    }
+
+    @Test
+    void lowering_isRecordedAsAnAdjustment() {
+        Long productId = product("Ledger Lowered Product", 5);
+        productService.updateProduct(productId, stock(20));
+
+        productService.updateProduct(productId, stock(3));
+
+        assertThat(snapshot(productId)).isEqualTo(3);
+        assertThat(movements(productId)).extracting(InventoryMovement::getQuantity).containsExactly(5, 15, -17);
+        assertThat(inventoryMovementRepository.sumByProductId(productId)).isEqualTo(3);
+    }
+
+    @Test
+    void movements_reconcileWithTheStock() {
+        Long productId = product("Ledger Reconciled Product", 50);
+        orderService.createOrder(order(productId, 4), user.getUsername());
+        orderService.createOrder(order(productId, 6), user.getUsername());
+        productService.updateProduct(productId, stock(100));
+        orderService.createOrder(order(productId, 5), user.getUsername());
+
+        assertThat(inventoryMovementRepository.sumByProductId(productId))
+                .isEqualTo(productService.getProductById(productId).getAvailableQuantity())
+                .isEqualTo(95);
+    }
+
+    @Test
+    void concurrentRaises_toTheSameStock_doNotAddUp() throws Exception {
+        Long productId = product("Ledger Concurrent Product", 5);
+        int updaters = 4;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(updaters);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < updaters; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return productService.updateProduct(productId, stock(20));
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(inventoryMovementRepository.sumByProductId(productId)).isEqualTo(20);
+        assertThat(productService.getProductById(productId).getAvailableQuantity()).isEqualTo(20);
+    }
+
+    private Long product(String name, int quantity) {
+        CreateProductDTO dto = new CreateProductDTO();
+        dto.setName(name);
+        dto.setActualPrice(BigDecimal.ONE);
+        dto.setSellingPrice(BigDecimal.TEN);
+        dto.setAvailableQuantity(quantity);
+        Long id = productService.createProduct(dto).getId();
+        productIds.add(id);
+        return id;
+    }
+
+    private int snapshot(Long productId) {
+        return productRepository.findAvailableQuantityById(productId).orElseThrow();
+    }
+
+    private List<InventoryMovement> movements(Long productId) {
+        return inventoryMovementRepository.findAll().stream()
+                .filter(movement -> movement.getProductId().equals(productId))
+                .sorted(Comparator.comparing(InventoryMovement::getId))
+                .toList();
+    }
+
+    // The catalog is rebuilt in the background, so its stock is read once it includes the expected one
+    private int publicStock(Long productId, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        int stock;
+        while ((stock = productService.getAllProductsPublic().stream()
+                .filter(product -> product.getId().equals(productId))
+                .mapToInt(ProductPublicResponseDTO::getAvailableQuantity)
+                .findFirst().orElse(-1)) != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        return stock;
+    }
+
+    private static UpdateProductDTO stock(int quantity) {
+        UpdateProductDTO dto = new UpdateProductDTO();
+        dto.setAvailableQuantity(quantity);
+        return dto;
+    }
+
+    private static CreateOrderDTO order(Long productId, int quantity) {
+        OrderProductDTO line = new OrderProductDTO();
+        line.setProductId(productId);
+        line.setProductQuantity(quantity);
+        CreateOrderDTO order = new CreateOrderDTO();
+        order.setOrderProducts(List.of(line));
+        return order;
+    }
+}
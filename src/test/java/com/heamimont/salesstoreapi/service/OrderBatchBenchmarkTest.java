@@ -0,0 +1,135 @@
+package com.heamimont.salesstoreapi.service;
+
+import com.heamimont.salesstoreapi.dto.order.BatchOrderDTO;
+import com.heamimont.salesstoreapi.dto.order.OrderBatchResultDTO;
+import com.heamimont.salesstoreapi.dto.order.OrderProductDTO;
+import com.heamimont.salesstoreapi.model.Product;
+import com.heamimont.salesstoreapi.model.Role;
+import com.heamimont.salesstoreapi.model.User;
+import com.heamimont.salesstoreapi.repository.DailyProductSalesRepository;
+import com.heamimont.salesstoreapi.repository.OrderRepository;
+import com.heamimont.salesstoreapi.repository.ProductRepository;
+import com.heamimont.salesstoreapi.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares placing a burst of marketplace orders one request at a time (OrderService.createOrder)
+ * with placing them in one batch.
+ * Run with -Dbenchmark.orders=50000 for a larger burst.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+class OrderBatchBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderBatchBenchmarkTest.class);
+    private static final int USERS = 50;
+    private static final int PRODUCTS = 200;
+    private static final int LINES_PER_ORDER = 3;
+
+    @Autowired private OrderService orderService;
+    @Autowired private OrderBatchService orderBatchService;
+    @Autowired private OrderRepository orderRepository;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private DailyProductSalesRepository dailyProductSalesRepository;
+
+    private final List<User> users = new ArrayList<>();
+    private final List<Long> productIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < USERS; i++) {
+            users.add(userRepository.save(new User(null, "batch-bench-" + i, "Bench", "Mark",
+                    "batch-bench-" + i + "@example.com", "password", Role.USER)));
+        }
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            products.add(new Product(null, "Batch Benchmark Product " + i, null,
+                    BigDecimal.valueOf(5), BigDecimal.valueOf(10), 10_000_000));
+        }
+        productRepository.saveAllAndFlush(products).forEach(product -> productIds.add(product.getId()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (User user : users) {
+            orderRepository.deleteAll(orderRepository.findOrdersByUser_Id(user.getId()).orElse(List.of()));
+        }
+        dailyProductSalesRepository.deleteAll(dailyProductSalesRepository.findAll().stream()
+                .filter(row -> productIds.contains(row.getId().getProductId()))
+                .toList());
+        productRepository.deleteAllById(productIds);
+        userRepository.deleteAll(users);
+    }
+
+    @Test
+    void batch_placesTheSameOrdersFasterThanOneAtATime() {
+        int count = Integer.getInteger("benchmark.orders", 1_000);
+        List<BatchOrderDTO> orders = orders(count);
+
+        long start = System.nanoTime();
+        for (BatchOrderDTO order : orders) {
+            orderService.createOrder(order, order.getUsername());
+        }
+        long singleNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        OrderBatchResultDTO result = orderBatchService.createOrders(orders);
+        long batchNanos = System.nanoTime() - start;
+
+        assertThat(result.getCreated()).isEqualTo(count);
+        assertThat(result.getFailed()).isZero();
+        long placed = users.stream()
+                .mapToLong(user -> orderRepository.findOrdersByUser_Id(user.getId()).orElse(List.of()).size())
+                .sum();
+        assertThat(placed).isEqualTo(2L * count);
+        assertThat(productRepository.findById(productIds.get(0)).orElseThrow().getAvailableQuantity())
+                .isEqualTo(10_000_000 - 2 * unitsOfFirstProduct(orders));
+
+        logger.info("[Order Batch Benchmark] {} orders of {} lines: one at a time {} ms ({} orders/s), batch {} ms ({} orders/s)",
+                count, LINES_PER_ORDER,
+                singleNanos / 1_000_000, count * 1_000_000_000L / singleNanos,
+                batchNanos / 1_000_000, count * 1_000_000_000L / batchNanos);
+    }
+
+    private List<BatchOrderDTO> orders(int count) {
+        List<BatchOrderDTO> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            BatchOrderDTO order = new BatchOrderDTO();
+            order.setUsername(users.get(i % USERS).getUsername());
+            List<OrderProductDTO> lines = new ArrayList<>(LINES_PER_ORDER);
+            for (int line = 0; line < LINES_PER_ORDER; line++) {
+                OrderProductDTO orderProduct = new OrderProductDTO();
+                orderProduct.setProductId(productIds.get((i + line * 61) % PRODUCTS));
+                orderProduct.setProductQuantity(1 + line);
+                lines.add(orderProduct);
+            }
+            order.setOrderProducts(lines);
+            orders.add(order);
+        }
+        return orders;
+    }
+
+    private int unitsOfFirstProduct(List<BatchOrderDTO> orders) {
+        return orders.stream()
+                .flatMap(order -> order.getOrderProducts().stream())
+                .filter(line -> line.getProductId().equals(productIds.get(0)))
+                .mapToInt(OrderProductDTO::getProductQuantity)
+                .sum();
+    }
+}
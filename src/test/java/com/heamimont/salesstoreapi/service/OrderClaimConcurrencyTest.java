@@ -0,0 +1,121 @@
+package com.heamimont.salesstoreapi.service;
+
+import com.heamimont.salesstoreapi.dto.order.BatchOrderDTO;
+import com.heamimont.salesstoreapi.dto.order.OrderBatchResultDTO;
+import com.heamimont.salesstoreapi.dto.order.OrderProductDTO;
+import com.heamimont.salesstoreapi.dto.order.OrderResponseDTO;
+import com.heamimont.salesstoreapi.model.Order;
+import com.heamimont.salesstoreapi.model.OrderStatus;
+import com.heamimont.salesstoreapi.model.Product;
+import com.heamimont.salesstoreapi.model.Role;
+import com.heamimont.salesstoreapi.model.User;
+import com.heamimont.salesstoreapi.repository.DailyProductSalesRepository;
+import com.heamimont.salesstoreapi.repository.OrderRepository;
+import com.heamimont.salesstoreapi.repository.ProductRepository;
+import com.heamimont.salesstoreapi.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Stress test for the fulfillment work queue: several workers drain the pending orders at the same time.
+ * Not transactional on purpose: every claim has to commit on its own so the workers really compete.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class OrderClaimConcurrencyTest {
+
+    private static final int ORDERS = 60;
+    private static final int WORKERS = 6;
+    private static final int CLAIM_SIZE = 4;
+
+    @Autowired private OrderService orderService;
+    @Autowired private OrderBatchService orderBatchService;
+    @Autowired private OrderRepository orderRepository;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private DailyProductSalesRepository dailyProductSalesRepository;
+
+    private User user;
+    private Product product;
+    private final List<UUID> orderIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User(null, "claim-user", "Claim", "User", "claim-user@example.com", "password", Role.USER));
+        product = productRepository.saveAndFlush(new Product(null, "Claim Product", null, BigDecimal.ONE, BigDecimal.TEN, ORDERS));
+
+        List<BatchOrderDTO> orders = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            OrderProductDTO line = new OrderProductDTO();
+            line.setProductId(product.getId());
+            line.setProductQuantity(1);
+            BatchOrderDTO order = new BatchOrderDTO();
+            order.setUsername(user.getUsername());
+            order.setOrderProducts(List.of(line));
+            orders.add(order);
+        }
+        OrderBatchResultDTO result = orderBatchService.createOrders(orders);
+        result.getResults().forEach(order -> orderIds.add(order.getOrderId()));
+        assertThat(orderIds).doesNotContainNull();
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAll(orderRepository.findOrdersByUser_Id(user.getId()).orElse(List.of()));
+        dailyProductSalesRepository.deleteAll(dailyProductSalesRepository.findAll().stream()
+                .filter(row -> row.getId().getProductId().equals(product.getId()))
+                .toList());
+        productRepository.deleteById(product.getId());
+        userRepository.delete(user);
+    }
+
+    @Test
+    void claimPendingOrders_concurrentWorkers_claimEveryOrderExactlyOnce() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(WORKERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<UUID> claimed = Collections.synchronizedList(new ArrayList<>());
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < WORKERS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                List<OrderResponseDTO> batch;
+                do {
+                    batch = orderService.claimPendingOrders(CLAIM_SIZE);
+                    assertThat(batch.size()).isLessThanOrEqualTo(CLAIM_SIZE);
+                    batch.forEach(order -> claimed.add(order.getId()));
+                } while (!batch.isEmpty());
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Pending orders left behind by other tests may be claimed too, but no order twice
+        assertThat(claimed).doesNotHaveDuplicates().containsAll(orderIds);
+        assertThat(orderRepository.findAllById(orderIds))
+                .extracting(Order::getStatus)
+                .containsOnly(OrderStatus.IN_PROGRESS);
+    }
+}
@@ -0,0 +1,101 @@
+package com.heamimont.salesstoreapi.service;
+
+import com.heamimont.salesstoreapi.dto.order.CreateOrderDTO;
+import com.heamimont.salesstoreapi.dto.order.OrderProductDTO;
+import com.heamimont.salesstoreapi.model.Product;
+import com.heamimont.salesstoreapi.model.Role;
+import com.heamimont.salesstoreapi.model.User;
+import com.heamimont.salesstoreapi.repository.DailyProductSalesRepository;
+import com.heamimont.salesstoreapi.repository.OrderRepository;
+import com.heamimont.salesstoreapi.repository.ProductRepository;
+import com.heamimont.salesstoreapi.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Counts the JPA statements order creation prepares for 1, 10 and 100 line orders.
+ * Stock reservation runs as one JDBC batch and products are loaded with one query,
+ * so the statement count must not grow with the number of lines (apart from batched line inserts).
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class OrderCreationStatementCountTest {
+
+    @Autowired private OrderService orderService;
+    @Autowired private OrderRepository orderRepository;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private DailyProductSalesRepository dailyProductSalesRepository;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+
+    private final List<Long> productIds = new ArrayList<>();
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = new User(null, "statement-count", "Statement", "Count", "statement-count@example.com", "password", Role.USER);
+        userRepository.save(user);
+
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            products.add(new Product(null, "Statement Count Product " + i, null,
+                    BigDecimal.valueOf(5), BigDecimal.valueOf(10), 1_000));
+        }
+        productRepository.saveAll(products).forEach(p -> productIds.add(p.getId()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAll(orderRepository.findOrdersByUser_Username("statement-count").orElse(List.of()));
+        dailyProductSalesRepository.deleteAll(dailyProductSalesRepository.findAll().stream()
+                .filter(row -> productIds.contains(row.getId().getProductId()))
+                .toList());
+        productRepository.deleteAllById(productIds);
+        userRepository.delete(user);
+    }
+
+    @Test
+    void createOrder_statementCountDoesNotGrowWithLineCount() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        // Warm up, so lazy initialisation is not counted
+        createOrder(1);
+
+        long[] statements = new long[3];
+        int[] lineCounts = {1, 10, 100};
+        for (int i = 0; i < lineCounts.length; i++) {
+            statistics.clear();
+            createOrder(lineCounts[i]);
+            statements[i] = statistics.getPrepareStatementCount();
+        }
+
+        // A 100 line order may only need a couple more prepared statements (insert batches of 50 lines)
+        assertThat(statements[2] - statements[0]).isLessThanOrEqualTo(2);
+    }
+
+    private void createOrder(int lines) {
+        List<OrderProductDTO> orderProducts = new ArrayList<>();
+        for (int i = 0; i < lines; i++) {
+            OrderProductDTO line = new OrderProductDTO();
+            line.setProductId(productIds.get(i));
+            line.setProductQuantity(1);
+            orderProducts.add(line);
+        }
+        CreateOrderDTO dto = new CreateOrderDTO();
+        dto.setOrderProducts(orderProducts);
+        orderService.createOrder(dto, "statement-count");
+    }
+}
@@ -0,0 +1,189 @@
+package com.heamimont.salesstoreapi.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.heamimont.salesstoreapi.dto.order.BatchOrderDTO;
+import com.heamimont.salesstoreapi.dto.order.CreateOrderDTO;
+import com.heamimont.salesstoreapi.dto.order.OrderIntakeStatus;
+import com.heamimont.salesstoreapi.dto.order.OrderProductDTO;
+import com.heamimont.salesstoreapi.exceptions.ServiceUnavailableException;
+import com.heamimont.salesstoreapi.model.Order;
+import com.heamimont.salesstoreapi.model.Product;
+import com.heamimont.salesstoreapi.model.Role;
+import com.heamimont.salesstoreapi.model.User;
+import com.heamimont.salesstoreapi.model.UuidV7Generator;
+import com.heamimont.salesstoreapi.repository.DailyProductSalesRepository;
+import com.heamimont.salesstoreapi.repository.OrderRepository;
+import com.heamimont.salesstoreapi.repository.ProductRepository;
+import com.heamimont.salesstoreapi.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Recovery of the asynchronous order intake: orders journaled before a restart are placed after it, once,
+ * and a writer that fails keeps retrying.
+ * Not transactional, as orders are placed by the intake's writer thread.
+ */
+@SpringBootTest(properties = {
+        "orders.intake.enabled=true",
+        // One order per group, so a stalled writer leaves the next order queued
+        "orders.intake.group-size=1"
+})
+@ActiveProfiles("test")
+class OrderIntakeServiceTest {
+
+    @TempDir
+    static Path journalDir;
+
+    @DynamicPropertySource
+    static void journalProperties(DynamicPropertyRegistry registry) {
+        registry.add("orders.intake.journal-dir", () -> journalDir.toString());
+    }
+
+    @Autowired private OrderIntakeService orderIntakeService;
+    @Autowired private OrderBatchService orderBatchService;
+    @Autowired private ObjectMapper objectMapper;
+    @Autowired private UserRepository userRepository;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private OrderRepository orderRepository;
+    @Autowired private DailyProductSalesRepository dailyProductSalesRepository;
+
+    @Value("${orders.intake.segment-size}")
+    private DataSize segmentSize;
+
+    private User user;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User(null, "replay-user", "Re", "Play", "replay-user@example.com", "password", Role.USER));
+        product = productRepository.saveAndFlush(new Product(null, "Replay Product", null, BigDecimal.ONE, BigDecimal.TEN, 10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAll(orderRepository.findOrdersByUser_Id(user.getId()).orElse(List.of()));
+        dailyProductSalesRepository.deleteAll(dailyProductSalesRepository.findAll().stream()
+                .filter(row -> row.getId().getProductId().equals(product.getId()))
+                .toList());
+        productRepository.deleteById(product.getId());
+        userRepository.delete(user);
+    }
+
+    @Test
+    void start_placesJournaledOrdersThatWereNotPlacedBeforeTheRestart() throws Exception {
+        orderIntakeService.stop();
+
+        // One order was placed before the crash but not checkpointed, the other one was not placed yet
+        UUID placedId = UuidV7Generator.next();
+        UUID pendingId = UuidV7Generator.next();
+        orderBatchService.placeWithIds(List.of(placedId), List.of(order(2)));
+        try (OrderJournal journal = OrderJournal.open(journalDir, (int) segmentSize.toBytes(), (sequence, payload) -> { })) {
+            journal.sync(journal.append(objectMapper.writeValueAsBytes(new OrderIntakeService.JournalRecord(placedId, order(2)))));
+            journal.sync(journal.append(objectMapper.writeValueAsBytes(new OrderIntakeService.JournalRecord(pendingId, order(3)))));
+        }
+
+        orderIntakeService.start();
+
+        assertThat(awaitStatus(pendingId)).isEqualTo(OrderIntakeStatus.CREATED);
+        assertThat(awaitStatus(placedId)).isEqualTo(OrderIntakeStatus.CREATED);
+        assertThat(orderRepository.findOrdersByUser_Id(user.getId()).orElseThrow())
+                .extracting(Order::getId)
+                .containsExactlyInAnyOrder(placedId, pendingId);
+        assertThat(productRepository.findById(product.getId()).orElseThrow().getAvailableQuantity()).isEqualTo(5);
+    }
+
+    @Test
+    void accept_journalsOrdersThatThenGetPlaced() throws Exception {
+        CreateOrderDTO dto = new CreateOrderDTO();
+        dto.setOrderProducts(order(1).getOrderProducts());
+        UUID first = orderIntakeService.accept(dto, user.getUsername()).orElseThrow();
+        UUID second = orderIntakeService.accept(dto, user.getUsername()).orElseThrow();
+
+        assertThat(awaitStatus(first)).isEqualTo(OrderIntakeStatus.CREATED);
+        assertThat(awaitStatus(second)).isEqualTo(OrderIntakeStatus.CREATED);
+        assertThat(productRepository.findById(product.getId()).orElseThrow().getAvailableQuantity()).isEqualTo(8);
+    }
+
+    @Test
+    void writerFailure_stallsTheIntakeUntilItRecovers() throws Exception {
+        orderIntakeService.stop();
+        UUID firstId = UuidV7Generator.next();
+        UUID secondId = UuidV7Generator.next();
+        try (OrderJournal journal = OrderJournal.open(journalDir, (int) segmentSize.toBytes(), (sequence, payload) -> { })) {
+            journal.sync(journal.append(objectMapper.writeValueAsBytes(new OrderIntakeService.JournalRecord(firstId, order(2)))));
+            journal.sync(journal.append(objectMapper.writeValueAsBytes(new OrderIntakeService.JournalRecord(secondId, order(3)))));
+        }
+        // The journal cannot be checkpointed while a directory takes the name of its temporary file
+        Path blocker = Files.createDirectory(journalDir.resolve("checkpoint.tmp"));
+        CreateOrderDTO dto = new CreateOrderDTO();
+        dto.setOrderProducts(order(1).getOrderProducts());
+
+        orderIntakeService.start();
+        try {
+            // The first order is placed, then checkpointing it fails and the writer retries instead of stopping
+            assertThat(awaitStatus(firstId)).isEqualTo(OrderIntakeStatus.CREATED);
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (orderIntakeService.accept(dto, user.getUsername()).isPresent()) {
+                assertThat(System.currentTimeMillis()).as("intake not stalled in time").isLessThan(deadline);
+                Thread.sleep(20);
+            }
+            assertThatThrownBy(() -> orderIntakeService.getStatus(secondId, user.getUsername(), false))
+                    .isInstanceOf(ServiceUnavailableException.class);
+        } finally {
+            Files.delete(blocker);
+        }
+
+        assertThat(awaitStatus(secondId)).isEqualTo(OrderIntakeStatus.CREATED);
+        UUID thirdId = orderIntakeService.accept(dto, user.getUsername()).orElseThrow();
+        assertThat(awaitStatus(thirdId)).isEqualTo(OrderIntakeStatus.CREATED);
+        assertThat(orderRepository.findOrdersByUser_Id(user.getId()).orElseThrow())
+                .extracting(Order::getId)
+                .contains(firstId, secondId, thirdId);
+    }
+
+    private BatchOrderDTO order(int quantity) {
+        OrderProductDTO line = new OrderProductDTO();
+        line.setProductId(product.getId());
+        line.setProductQuantity(quantity);
+        BatchOrderDTO order = new BatchOrderDTO();
+        order.setUsername(user.getUsername());
+        order.setOrderProducts(List.of(line));
+        return order;
+    }
+
+    private OrderIntakeStatus awaitStatus(UUID orderId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        OrderIntakeStatus status;
+        while ((status = statusOf(orderId)) == OrderIntakeStatus.QUEUED && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        return status;
+    }
+
+    // A stalled intake answers for queued orders with an error
+    private OrderIntakeStatus statusOf(UUID orderId) {
+        try {
+            return orderIntakeService.getStatus(orderId, user.getUsername(), false).getStatus();
+        } catch (ServiceUnavailableException e) {
+            return OrderIntakeStatus.QUEUED;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.heamimont.salesstoreapi.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderJournalTest {
+
+    private static final int SEGMENT_SIZE = 256;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void open_replaysRecordsAfterTheLastCommit() {
+        try (OrderJournal journal = OrderJournal.open(directory, SEGMENT_SIZE, (sequence, payload) -> { })) {
+            for (int i = 1; i <= 5; i++) {
+                journal.append(bytes("order-" + i));
+            }
+            journal.sync(journal.lastSequence());
+            journal.commit(2);
+        }
+
+        Map<Long, String> replayed = reopen();
+        assertThat(replayed).containsExactly(
+                Map.entry(3L, "order-3"), Map.entry(4L, "order-4"), Map.entry(5L, "order-5"));
+    }
+
+    @Test
+    void append_continuesSequenceAfterReopen() {
+        try (OrderJournal journal = OrderJournal.open(directory, SEGMENT_SIZE, (sequence, payload) -> { })) {
+            journal.append(bytes("first"));
+            journal.append(bytes("second"));
+        }
+        try (OrderJournal journal = OrderJournal.open(directory, SEGMENT_SIZE, (sequence, payload) -> { })) {
+            assertThat(journal.append(bytes("third"))).isEqualTo(3);
+            journal.commit(1);
+        }
+
+        assertThat(reopen()).containsExactly(Map.entry(2L, "second"), Map.entry(3L, "third"));
+    }
+
+    @Test
+    void open_stopsAtATornRecord() throws IOException {
+        try (OrderJournal journal = OrderJournal.open(directory, SEGMENT_SIZE, (sequence, payload) -> { })) {
+            journal.append(bytes("complete"));
+            journal.append(bytes("torn"));
+        }
+        Path segment = segments().get(0);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            // Corrupt the last byte of the second record's payload, as a crash during its write would
+            file.seek(16 + "complete".length() + 16 + "torn".length() - 1);
+            file.write('X');
+        }
+
+        assertThat(reopen()).containsExactly(Map.entry(1L, "complete"));
+    }
+
+    @Test
+    void append_rollsSegmentsAndCommitDeletesCommittedOnes() throws IOException {
+        try (OrderJournal journal = OrderJournal.open(directory, SEGMENT_SIZE, (sequence, payload) -> { })) {
+            // 16 bytes of header and 48 of payload: four records per segment
+            for (int i = 0; i < 10; i++) {
+                journal.append(new byte[48]);
+            }
+            assertThat(segments()).hasSize(3);
+
+            journal.commit(4);
+            assertThat(segments()).hasSize(2);
+            journal.commit(9);
+            assertThat(segments()).hasSize(1);
+            journal.commit(10);
+            assertThat(segments()).hasSize(1);
+        }
+        assertThat(reopen()).isEmpty();
+        assertThat(segments()).hasSize(1);
+    }
+
+    @Test
+    void append_rejectsRecordsLargerThanASegment() {
+        try (OrderJournal journal = OrderJournal.open(directory, SEGMENT_SIZE, (sequence, payload) -> { })) {
+            assertThatThrownBy(() -> journal.append(new byte[SEGMENT_SIZE]))
+                    .isInstanceOf(IllegalArgumentException.class);
+            assertThat(journal.append(bytes("small"))).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void append_rejectsEmptyRecords() {
+        try (OrderJournal journal = OrderJournal.open(directory, SEGMENT_SIZE, (sequence, payload) -> { })) {
+            assertThatThrownBy(() -> journal.append(new byte[0]))
+                    .isInstanceOf(IllegalArgumentException.class);
+            assertThat(journal.append(bytes("small"))).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void appendAndSync_concurrentWriters_keepEveryRecord() throws Exception {
+        int writers = 8;
+        int records = 200;
+        try (OrderJournal journal = OrderJournal.open(directory, 4096, (sequence, payload) -> { })) {
+            ExecutorService executor = Executors.newFixedThreadPool(writers);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                int writer = w;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < records; i++) {
+                        journal.sync(journal.append(bytes(writer + "-" + i)));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+            executor.shutdown();
+        }
+
+        Map<Long, String> replayed = reopen();
+        assertThat(replayed).hasSize(writers * records);
+        assertThat(replayed.keySet()).containsExactlyElementsOf(
+                Stream.iterate(1L, sequence -> sequence + 1).limit((long) writers * records).toList());
+    }
+
+    private Map<Long, String> reopen() {
+        Map<Long, String> replayed = new LinkedHashMap<>();
+        OrderJournal.open(directory, SEGMENT_SIZE, (sequence, payload) ->
+                replayed.put(sequence, new String(payload, StandardCharsets.UTF_8))).close();
+        return replayed;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("journal-")).sorted().toList();
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
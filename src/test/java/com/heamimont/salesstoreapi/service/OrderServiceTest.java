@@ -2,16 +2,22 @@ package com.heamimont.salesstoreapi.service;
 
 import com.heamimont.salesstoreapi.dto.order.CreateOrderDTO;
 import com.heamimont.salesstoreapi.mapper.OrderMapper;
+import com.heamimont.salesstoreapi.dto.order.OrderPageResponseDTO;
 import com.heamimont.salesstoreapi.dto.order.OrderResponseDTO;
+import com.heamimont.salesstoreapi.dto.order.OrderStatusDTO;
+import com.heamimont.salesstoreapi.exceptions.BadRequestException;
 import com.heamimont.salesstoreapi.exceptions.ResourceCreationException;
 import com.heamimont.salesstoreapi.exceptions.ResourceNotFoundException;
 import com.heamimont.salesstoreapi.model.*;
+import com.heamimont.salesstoreapi.repository.DailyProductSalesRepository;
 import com.heamimont.salesstoreapi.repository.OrderRepository;
 import com.heamimont.salesstoreapi.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.data.domain.Limit;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -36,6 +42,9 @@ class OrderServiceTest {
     @Mock
     private ProductService productService;
 
+    @Mock
+    private DailyProductSalesRepository dailyProductSalesRepository;
+
     @InjectMocks
     private OrderService orderService;
 
@@ -48,6 +57,8 @@ class OrderServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(orderService, "defaultPageSize", 20);
+        ReflectionTestUtils.setField(orderService, "maxPageSize", 100);
 
         orderId = UUID.randomUUID();
 
@@ -88,6 +99,7 @@ class OrderServiceTest {
 
         // Add an OrderProduct with a product with price 50 and quantity 2 to test totalCost calculation
         Product product = new Product();
+        product.setId(1L);
         product.setSellingPrice(BigDecimal.valueOf(50));
         OrderProduct op = new OrderProduct();
         op.setProduct(product);
@@ -103,6 +115,8 @@ class OrderServiceTest {
         assertEquals(BigDecimal.valueOf(100), testOrder.getTotalCost());
 
         verify(userRepository).findByUsername("testuser");
+        verify(productService).reserveProductQuantities(Map.of(1L, 2), testOrder.getOrderDate().toLocalDate());
+        verify(dailyProductSalesRepository).addUnitsSold(testOrder.getOrderDate().toLocalDate(), new TreeMap<>(Map.of(1L, 2)));
         verify(orderRepository).save(testOrder);
         verify(orderMapper).toDTO(testOrder);
     }
@@ -122,63 +136,120 @@ class OrderServiceTest {
 
     @Test
     void getOrdersByUsername_success() {
-        List<Order> orders = List.of(testOrder);
-        when(orderRepository.findOrdersByUser_Username("testuser")).thenReturn(Optional.of(orders));
+        testOrder.setId(orderId);
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+        when(orderRepository.findPageIdsByUserId(testUser.getId(), Limit.of(21))).thenReturn(List.of(orderId));
+        when(orderRepository.findWithDetailsByIdIn(List.of(orderId))).thenReturn(List.of(testOrder));
         when(orderMapper.toDTO(testOrder)).thenReturn(testOrderResponseDTO);
 
-        List<OrderResponseDTO> result = orderService.getOrdersByUsername("testuser");
+        OrderPageResponseDTO result = orderService.getOrdersByUsername("testuser", null, null);
 
-        assertEquals(1, result.size());
-        assertEquals(testOrderResponseDTO, result.get(0));
+        assertEquals(1, result.getOrders().size());
+        assertEquals(testOrderResponseDTO, result.getOrders().get(0));
+        assertNull(result.getNextCursor());
 
-        verify(orderRepository).findOrdersByUser_Username("testuser");
+        verify(orderRepository).findPageIdsByUserId(testUser.getId(), Limit.of(21));
         verify(orderMapper).toDTO(testOrder);
     }
 
+    @Test
+    void getOrdersByUsername_noOrders_throwsResourceNotFoundException() {
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+        when(orderRepository.findPageIdsByUserId(any(), any())).thenReturn(List.of());
+
+        assertThrows(ResourceNotFoundException.class,
+                () -> orderService.getOrdersByUsername("testuser", null, null));
+    }
+
     @Test
     void getOrdersByUsername_failure_throwsResourceNotFoundException() {
-        when(orderRepository.findOrdersByUser_Username("testuser")).thenThrow(new RuntimeException("DB error"));
+        when(userRepository.findByUsername("testuser")).thenThrow(new RuntimeException("DB error"));
 
         ResourceNotFoundException ex = assertThrows(ResourceNotFoundException.class,
-                () -> orderService.getOrdersByUsername("testuser"));
+                () -> orderService.getOrdersByUsername("testuser", null, null));
 
         assertTrue(ex.getMessage().contains("Failed to fetch orders"));
     }
 
     @Test
     void getAllOrders_success() {
-        List<Order> orders = List.of(testOrder);
-        when(orderRepository.findAll()).thenReturn(orders);
+        testOrder.setId(orderId);
+        when(orderRepository.findPageIds(Limit.of(21))).thenReturn(List.of(orderId));
+        when(orderRepository.findWithDetailsByIdIn(List.of(orderId))).thenReturn(List.of(testOrder));
         when(orderMapper.toDTO(testOrder)).thenReturn(testOrderResponseDTO);
 
-        List<OrderResponseDTO> result = orderService.getAllOrders();
+        OrderPageResponseDTO result = orderService.getAllOrders(null, null);
 
-        assertEquals(1, result.size());
-        assertEquals(testOrderResponseDTO, result.get(0));
-        verify(orderRepository).findAll();
+        assertEquals(1, result.getOrders().size());
+        assertEquals(testOrderResponseDTO, result.getOrders().get(0));
+        assertNull(result.getNextCursor());
+        verify(orderRepository).findPageIds(Limit.of(21));
         verify(orderMapper).toDTO(testOrder);
     }
 
+    @Test
+    void getAllOrders_morePages_returnsCursorOfLastOrder() {
+        testOrder.setId(orderId);
+        UUID nextId = UUID.randomUUID();
+        when(orderRepository.findPageIds(Limit.of(2))).thenReturn(List.of(orderId, nextId));
+        when(orderRepository.findWithDetailsByIdIn(List.of(orderId))).thenReturn(List.of(testOrder));
+        when(orderMapper.toDTO(testOrder)).thenReturn(testOrderResponseDTO);
+
+        OrderPageResponseDTO result = orderService.getAllOrders(null, 1);
+
+        assertEquals(1, result.getOrders().size());
+        assertEquals(OrderCursor.of(testOrder).encode(), result.getNextCursor());
+
+        // The cursor resumes strictly after the last order of the page
+        when(orderRepository.findPageIdsAfter(testOrder.getOrderDate(), orderId, Limit.of(2))).thenReturn(List.of(nextId));
+        when(orderRepository.findWithDetailsByIdIn(List.of(nextId))).thenReturn(List.of());
+
+        OrderPageResponseDTO next = orderService.getAllOrders(result.getNextCursor(), 1);
+
+        assertTrue(next.getOrders().isEmpty());
+        verify(orderRepository).findPageIdsAfter(testOrder.getOrderDate(), orderId, Limit.of(2));
+    }
+
+    @Test
+    void getAllOrders_sizeAboveMaximum_isCapped() {
+        when(orderRepository.findPageIds(any())).thenReturn(List.of());
+
+        orderService.getAllOrders(null, 10_000);
+
+        verify(orderRepository).findPageIds(Limit.of(101));
+    }
+
+    @Test
+    void getAllOrders_invalidCursor_throwsBadRequestException() {
+        assertThrows(BadRequestException.class, () -> orderService.getAllOrders("not-a-cursor", null));
+        verifyNoInteractions(orderRepository);
+    }
+
+    @Test
+    void getAllOrders_nonPositiveSize_throwsBadRequestException() {
+        assertThrows(BadRequestException.class, () -> orderService.getAllOrders(null, 0));
+    }
+
     @Test
     void getAllOrders_failure_throwsResourceNotFoundException() {
-        when(orderRepository.findAll()).thenThrow(new RuntimeException("DB error"));
+        when(orderRepository.findPageIds(any())).thenThrow(new RuntimeException("DB error"));
 
         ResourceNotFoundException ex = assertThrows(ResourceNotFoundException.class,
-                () -> orderService.getAllOrders());
+                () -> orderService.getAllOrders(null, null));
 
         assertTrue(ex.getMessage().contains("Failed to fetch all orders"));
     }
 
     @Test
     void updateOrderStatus_success() {
-        when(orderRepository.findById(orderId)).thenReturn(Optional.of(testOrder));
+        when(orderRepository.findWithDetailsById(orderId)).thenReturn(Optional.of(testOrder));
         when(orderRepository.save(any(Order.class))).thenReturn(testOrder);
         when(orderMapper.toDTO(testOrder)).thenReturn(testOrderResponseDTO);
 
         OrderResponseDTO result = orderService.updateOrderStatus(orderId, OrderStatus.DONE);
 
         assertNotNull(result);
-        verify(orderRepository).findById(orderId);
+        verify(orderRepository).findWithDetailsById(orderId);
         verify(orderRepository).save(testOrder);
         verify(orderMapper).toDTO(testOrder);
         assertEquals(OrderStatus.DONE, testOrder.getStatus());
@@ -186,7 +257,7 @@ class OrderServiceTest {
 
     @Test
     void updateOrderStatus_orderNotFound_throwsResourceNotFoundException() {
-        when(orderRepository.findById(orderId)).thenReturn(Optional.empty());
+        when(orderRepository.findWithDetailsById(orderId)).thenReturn(Optional.empty());
 
         ResourceNotFoundException ex = assertThrows(ResourceNotFoundException.class,
                 () -> orderService.updateOrderStatus(orderId, OrderStatus.DONE));
@@ -194,22 +265,41 @@ class OrderServiceTest {
         assertTrue(ex.getMessage().contains("Order not found"));
     }
 
+    @Test
+    void updateOrderStatusSummary_updatesWithoutLoadingTheOrder() {
+        when(orderRepository.updateStatusById(orderId, OrderStatus.IN_PROGRESS)).thenReturn(1);
+
+        OrderStatusDTO result = orderService.updateOrderStatusSummary(orderId, OrderStatus.IN_PROGRESS);
+
+        assertEquals(orderId, result.getId());
+        assertEquals(OrderStatus.IN_PROGRESS, result.getStatus());
+        verify(orderRepository, never()).findWithDetailsById(any());
+        verifyNoInteractions(orderMapper);
+    }
+
+    @Test
+    void updateOrderStatusSummary_orderNotFound_throwsResourceNotFoundException() {
+        when(orderRepository.updateStatusById(orderId, OrderStatus.DONE)).thenReturn(0);
+
+        assertThrows(ResourceNotFoundException.class, () -> orderService.updateOrderStatusSummary(orderId, OrderStatus.DONE));
+    }
+
     @Test
     void getOrderById_success() {
-        when(orderRepository.findById(orderId)).thenReturn(Optional.of(testOrder));
+        when(orderRepository.findWithDetailsById(orderId)).thenReturn(Optional.of(testOrder));
         when(orderMapper.toDTO(testOrder)).thenReturn(testOrderResponseDTO);
 
         OrderResponseDTO result = orderService.getOrderById(orderId);
 
         assertNotNull(result);
         assertEquals(testOrderResponseDTO, result);
-        verify(orderRepository).findById(orderId);
+        verify(orderRepository).findWithDetailsById(orderId);
         verify(orderMapper).toDTO(testOrder);
     }
 
     @Test
     void getOrderById_notFound_throwsResourceNotFoundException() {
-        when(orderRepository.findById(orderId)).thenReturn(Optional.empty());
+        when(orderRepository.findWithDetailsById(orderId)).thenReturn(Optional.empty());
 
         ResourceNotFoundException ex = assertThrows(ResourceNotFoundException.class,
                 () -> orderService.getOrderById(orderId));
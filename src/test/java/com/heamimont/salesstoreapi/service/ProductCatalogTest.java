@@ -0,0 +1,149 @@
+package com.heamimont.salesstoreapi.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.heamimont.salesstoreapi.dto.product.ProductPublicResponseDTO;
+import com.heamimont.salesstoreapi.dto.product.ProductResponseDTO;
+import com.heamimont.salesstoreapi.mapper.ProductMapper;
+import com.heamimont.salesstoreapi.model.Product;
+import com.heamimont.salesstoreapi.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class ProductCatalogTest {
+
+    private ProductRepository productRepository;
+    private ProductCatalog catalog;
+    private final List<Product> products = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        when(productRepository.findAll()).thenAnswer(invocation -> List.copyOf(products));
+        products.add(new Product(1L, "Laptop", "Gaming laptop", BigDecimal.valueOf(1200), BigDecimal.valueOf(1500), 10));
+        catalog = new ProductCatalog(productRepository, new ProductMapper(), new ObjectMapper());
+    }
+
+    @Test
+    void snapshot_isBuiltOnceAndReused() {
+        ProductCatalog.Snapshot first = catalog.snapshot();
+        ProductCatalog.Snapshot second = catalog.snapshot();
+
+        assertThat(second).isSameAs(first);
+        assertThat(first.products()).extracting(ProductResponseDTO::getName).containsExactly("Laptop");
+        assertThat(first.publicProducts()).extracting(ProductPublicResponseDTO::getName).containsExactly("Laptop");
+        verify(productRepository, times(1)).findAll();
+    }
+
+    @Test
+    void invalidate_rebuildsWithNewContentAndTag() throws InterruptedException {
+        ProductCatalog.Snapshot before = catalog.snapshot();
+
+        products.add(new Product(2L, "Phone", "Smartphone", BigDecimal.valueOf(500), BigDecimal.valueOf(700), 20));
+        catalog.invalidateAfterCommit();
+        ProductCatalog.Snapshot after = awaitRebuild(before);
+
+        assertThat(after.publicProducts()).hasSize(2);
+        assertThat(after.publicProductsBody().tag()).isNotEqualTo(before.publicProductsBody().tag());
+        verify(productRepository, times(2)).findAll();
+    }
+
+    @Test
+    void invalidate_withoutContentChange_keepsTag() throws InterruptedException {
+        ProductCatalog.Snapshot before = catalog.snapshot();
+
+        catalog.invalidateAfterCommit();
+
+        assertThat(awaitRebuild(before).publicProductsBody().tag()).isEqualTo(before.publicProductsBody().tag());
+    }
+
+    @Test
+    void stockSources_areListedWithTheAvailableQuantity() {
+        catalog.addStockSource(productId -> productId == 1L ? 5 : 0);
+
+        assertThat(catalog.snapshot().products()).extracting(ProductResponseDTO::getAvailableQuantity).containsExactly(15);
+        assertThat(catalog.snapshot().publicProductsById().get(1L).getAvailableQuantity()).isEqualTo(15);
+    }
+
+    @Test
+    void body_gzipVariantMatchesJson() throws IOException {
+        ProductCatalog.Body body = catalog.snapshot().publicProductsBody();
+
+        byte[] inflated;
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body.gzip()))) {
+            inflated = in.readAllBytes();
+        }
+
+        assertThat(inflated).isEqualTo(body.json());
+        assertThat(new ObjectMapper().readTree(body.json()).get(0).get("name").asText()).isEqualTo("Laptop");
+        assertThat(new ObjectMapper().readTree(body.json()).get(0).has("actualPrice")).isFalse();
+    }
+
+    @Test
+    void readers_doNotWaitForRebuild_andChangesDuringItAreCoalesced() throws Exception {
+        ProductCatalog.Snapshot before = catalog.snapshot();
+        CountDownLatch rebuilding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(productRepository.findAll()).thenAnswer(invocation -> {
+            rebuilding.countDown();
+            assertThat(release.await(10, TimeUnit.SECONDS)).isTrue();
+            return List.copyOf(products);
+        });
+
+        catalog.invalidateAfterCommit();
+        assertThat(rebuilding.await(10, TimeUnit.SECONDS)).isTrue();
+
+        // The rebuild is blocked, yet readers get the previous snapshot at once
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<ProductCatalog.Snapshot>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(catalog::snapshot));
+            }
+            for (Future<ProductCatalog.Snapshot> result : results) {
+                assertThat(result.get(1, TimeUnit.SECONDS)).isSameAs(before);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Changes committed during the rebuild trigger one more rebuild, not one each
+        products.add(new Product(2L, "Phone", "Smartphone", BigDecimal.valueOf(500), BigDecimal.valueOf(700), 20));
+        for (int i = 0; i < 5; i++) {
+            catalog.invalidateAfterCommit();
+        }
+        release.countDown();
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (catalog.snapshot().publicProducts().size() != 2) {
+            assertThat(System.currentTimeMillis()).as("rebuild not completed in time").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+        // The first build, the blocked rebuild and the one after it
+        verify(productRepository, times(3)).findAll();
+    }
+
+    private ProductCatalog.Snapshot awaitRebuild(ProductCatalog.Snapshot before) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (catalog.snapshot() == before) {
+            assertThat(System.currentTimeMillis()).as("rebuild not completed in time").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+        return catalog.snapshot();
+    }
+}
@@ -0,0 +1,101 @@
+package com.heamimont.salesstoreapi.service;
+
+import com.heamimont.salesstoreapi.repository.ProductRepository;
+import com.heamimont.salesstoreapi.repository.ProductTombstoneRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProductChangeLogTest {
+
+    private ProductChangeLog changeLog;
+
+    @BeforeEach
+    void setUp() {
+        ProductRepository productRepository = mock(ProductRepository.class);
+        ProductTombstoneRepository productTombstoneRepository = mock(ProductTombstoneRepository.class);
+        when(productRepository.findMaxChangeVersion()).thenReturn(10L);
+        when(productTombstoneRepository.findMaxChangeVersion()).thenReturn(12L);
+
+        changeLog = new ProductChangeLog(productRepository, productTombstoneRepository, Runnable::run);
+        changeLog.load();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void load_continuesAfterHighestStoredVersion() {
+        assertEquals(12L, changeLog.stableVersion());
+        assertEquals(13L, changeLog.allocate());
+        assertEquals(13L, changeLog.stableVersion());
+    }
+
+    @Test
+    void stableVersion_waitsForOlderVersionsStillInFlight() {
+        // Two transactions take versions 13 and 14; 14 commits first
+        TransactionSynchronizationManager.initSynchronization();
+        long first = changeLog.allocate();
+        long second = changeLog.allocate();
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        assertEquals(List.of(13L, 14L), List.of(first, second));
+
+        synchronizations.get(1).afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals(12L, changeLog.stableVersion());
+
+        synchronizations.get(0).afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals(14L, changeLog.stableVersion());
+    }
+
+    @Test
+    void stableVersion_skipsRolledBackVersions() {
+        TransactionSynchronizationManager.initSynchronization();
+        changeLog.allocate();
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        long committed = changeLog.allocate();
+
+        synchronizations.get(0).afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertEquals(committed, changeLog.stableVersion());
+    }
+
+    @Test
+    void awaitChangeAfter_completesWhenChangeBecomesStable() throws Exception {
+        CompletableFuture<Long> waiting = changeLog.awaitChangeAfter(12L, Duration.ofSeconds(10));
+        assertFalse(waiting.isDone());
+
+        long version = changeLog.allocate();
+
+        assertEquals(version, waiting.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void awaitChangeAfter_alreadyChanged_completesImmediately() {
+        CompletableFuture<Long> result = changeLog.awaitChangeAfter(5L, Duration.ofSeconds(10));
+
+        assertTrue(result.isDone());
+        assertEquals(12L, result.join());
+    }
+
+    @Test
+    void awaitChangeAfter_withoutChange_completesAfterTimeout() throws Exception {
+        CompletableFuture<Long> result = changeLog.awaitChangeAfter(12L, Duration.ofMillis(50));
+
+        assertEquals(12L, result.get(5, TimeUnit.SECONDS));
+    }
+}
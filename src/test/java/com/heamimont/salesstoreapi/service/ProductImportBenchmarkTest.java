@@ -0,0 +1,90 @@
+package com.heamimont.salesstoreapi.service;
+
+import com.heamimont.salesstoreapi.dto.product.CreateProductDTO;
+import com.heamimont.salesstoreapi.dto.product.ProductImportFormat;
+import com.heamimont.salesstoreapi.dto.product.ProductImportResultDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Imports 100k products from CSV through the bulk import, once creating and once updating them, and compares
+ * the rate with creating products one request (transaction) at a time.
+ * Run with -Dbenchmark.import-rows=1000000 for a larger import.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductImportBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductImportBenchmarkTest.class);
+    private static final int SINGLE_ROWS = 1_000;
+
+    @Autowired private ProductImportService productImportService;
+    @Autowired private ProductService productService;
+    @Autowired private ProductSearchIndex productSearchIndex;
+    @Autowired private ProductCatalog productCatalog;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM products WHERE name LIKE 'Bulk %'");
+        productSearchIndex.load();
+        productCatalog.invalidateAfterCommit();
+    }
+
+    @Test
+    void importCsv_throughput() {
+        int rows = Integer.getInteger("benchmark.import-rows", 100_000);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < SINGLE_ROWS; i++) {
+            CreateProductDTO product = new CreateProductDTO();
+            product.setName("Bulk single " + i);
+            product.setActualPrice(BigDecimal.ONE);
+            product.setSellingPrice(BigDecimal.TEN);
+            product.setAvailableQuantity(1);
+            productService.createProduct(product);
+        }
+        long singleRowsPerSecond = SINGLE_ROWS * 1_000_000_000L / (System.nanoTime() - start);
+
+        start = System.nanoTime();
+        ProductImportResultDTO created = productImportService.importProducts(csv(rows, 10), ProductImportFormat.CSV);
+        long createMillis = (System.nanoTime() - start) / 1_000_000;
+        assertThat(created.getCreated()).isEqualTo(rows);
+        assertThat(created.getFailed()).isZero();
+
+        start = System.nanoTime();
+        ProductImportResultDTO updated = productImportService.importProducts(csv(rows, 20), ProductImportFormat.CSV);
+        long updateMillis = (System.nanoTime() - start) / 1_000_000;
+        assertThat(updated.getUpdated()).isEqualTo(rows);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM products WHERE name LIKE 'Bulk product %' AND available_quantity = 20", Integer.class))
+                .isEqualTo(rows);
+
+        logger.info("[Product Import Benchmark] one product per request: {} rows/s ({} s for {} rows); "
+                        + "bulk import of {} rows: created in {} ms, updated in {} ms",
+                singleRowsPerSecond, rows / Math.max(singleRowsPerSecond, 1), rows, rows, createMillis, updateMillis);
+    }
+
+    private static ByteArrayInputStream csv(int rows, int quantity) {
+        StringBuilder csv = new StringBuilder(rows * 80).append("name,description,actualPrice,sellingPrice,availableQuantity\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append("Bulk product ").append(i).append(",\"Imported product ").append(i).append(", model ")
+                    .append(Integer.toString(i, 36)).append("\",12.50,19.99,").append(quantity).append('\n');
+        }
+        return new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,106 @@
+package com.heamimont.salesstoreapi.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.heamimont.salesstoreapi.dto.product.ProductImportFormat;
+import com.heamimont.salesstoreapi.exceptions.BadRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProductImportReaderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void csv_readsQuotedFieldsAndTracksLines() throws IOException {
+        String csv = "\uFEFFName,actual_price,Selling Price,availableQuantity,description,ignored\r\n"
+                + "Laptop,1200,1500.50,10,\"Fast, light\",x\r\n"
+                + "\r\n"
+                + "\"Mouse \"\"Pro\"\"\",10,20,5,\"Two\nlines\"\n"
+                + "Cable,5,8,3\n";
+
+        List<ProductImportReader.Row> rows = read(ProductImportFormat.CSV, csv);
+
+        assertThat(rows).extracting(ProductImportReader.Row::line).containsExactly(2L, 4L, 6L);
+        assertThat(rows).allSatisfy(row -> assertThat(row.error()).isNull());
+        assertThat(rows.get(0).product().getName()).isEqualTo("Laptop");
+        assertThat(rows.get(0).product().getDescription()).isEqualTo("Fast, light");
+        assertThat(rows.get(0).product().getActualPrice()).isEqualByComparingTo("1200");
+        assertThat(rows.get(0).product().getSellingPrice()).isEqualByComparingTo(new BigDecimal("1500.50"));
+        assertThat(rows.get(0).product().getAvailableQuantity()).isEqualTo(10);
+        assertThat(rows.get(1).name()).isEqualTo("Mouse \"Pro\"");
+        assertThat(rows.get(1).product().getDescription()).isEqualTo("Two\nlines");
+        assertThat(rows.get(2).product().getDescription()).isNull();
+    }
+
+    @Test
+    void csv_reportsUnparsableNumbersPerRow() throws IOException {
+        String csv = "name,actualPrice,sellingPrice,availableQuantity\n"
+                + "Laptop,abc,1500,10\n"
+                + "Mouse,10,20,1.5\n"
+                + "Cable,5,8,3\n";
+
+        List<ProductImportReader.Row> rows = read(ProductImportFormat.CSV, csv);
+
+        assertThat(rows).extracting(ProductImportReader.Row::error).containsExactly(
+                "actualPrice: must be a number", "availableQuantity: must be a whole number", null);
+        assertThat(rows.get(0).name()).isEqualTo("Laptop");
+    }
+
+    @Test
+    void csv_reportsUnterminatedQuote() throws IOException {
+        List<ProductImportReader.Row> rows = read(ProductImportFormat.CSV,
+                "name,actualPrice,sellingPrice,availableQuantity\n\"Laptop,1,2,3\n");
+
+        assertThat(rows).singleElement().satisfies(row -> {
+            assertThat(row.line()).isEqualTo(2);
+            assertThat(row.error()).isEqualTo("Unterminated quoted field");
+        });
+    }
+
+    @Test
+    void csv_rejectsHeaderWithoutRequiredColumns() {
+        assertThatThrownBy(() -> read(ProductImportFormat.CSV, "name,description\nLaptop,Fast\n"))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessage("CSV header is missing the column(s) actualprice, sellingprice, availablequantity");
+        assertThatThrownBy(() -> read(ProductImportFormat.CSV, ""))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void ndjson_readsOneProductPerLineAndReportsMalformedLines() throws IOException {
+        String ndjson = "{\"name\":\"Laptop\",\"actualPrice\":1200,\"sellingPrice\":1500,\"availableQuantity\":10}\n"
+                + "\n"
+                + "{\"name\":\"Mouse\",\n"
+                + "{\"name\":\"Cable\",\"actualPrice\":\"cheap\"}\n"
+                + "{\"name\":\"Hub\",\"actualPrice\":5,\"sellingPrice\":8,\"availableQuantity\":3}";
+
+        List<ProductImportReader.Row> rows = read(ProductImportFormat.NDJSON, ndjson);
+
+        assertThat(rows).extracting(ProductImportReader.Row::line).containsExactly(1L, 3L, 4L, 5L);
+        assertThat(rows.get(0).product().getName()).isEqualTo("Laptop");
+        assertThat(rows.get(1).error()).startsWith("Malformed JSON");
+        assertThat(rows.get(2).error()).startsWith("Malformed JSON");
+        assertThat(rows.get(3).product().getAvailableQuantity()).isEqualTo(3);
+    }
+
+    private List<ProductImportReader.Row> read(ProductImportFormat format, String input) throws IOException {
+        List<ProductImportReader.Row> rows = new ArrayList<>();
+        try (ProductImportReader reader = ProductImportReader.create(format,
+                new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), objectMapper)) {
+            ProductImportReader.Row row;
+            while ((row = reader.next()) != null) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+}
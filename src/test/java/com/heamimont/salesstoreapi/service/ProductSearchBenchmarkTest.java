@@ -0,0 +1,94 @@
+package com.heamimont.salesstoreapi.service;
+
+import com.heamimont.salesstoreapi.model.Product;
+import com.heamimont.salesstoreapi.repository.ProductRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Measures search throughput in queries per second over an index of 100k generated products,
+ * for whole-word, multi-word and typeahead (prefix) queries.
+ */
+@Tag("benchmark")
+class ProductSearchBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchBenchmarkTest.class);
+    private static final int PRODUCTS = 100_000;
+    private static final int QUERIES = 2_000;
+    private static final int ROUNDS = 5;
+
+    private static final String[] ADJECTIVES = {"wireless", "ergonomic", "compact", "portable", "premium",
+            "gaming", "silent", "rugged", "smart", "classic", "vintage", "modern", "solar", "digital", "magnetic"};
+    private static final String[] NOUNS = {"laptop", "mouse", "keyboard", "monitor", "headset", "speaker",
+            "charger", "camera", "router", "printer", "tablet", "watch", "lamp", "backpack", "microphone"};
+
+    @Test
+    void search_throughput() {
+        Random random = new Random(42);
+        List<Product> products = new ArrayList<>(PRODUCTS);
+        for (long id = 1; id <= PRODUCTS; id++) {
+            String name = pick(random, ADJECTIVES) + " " + pick(random, NOUNS) + " " + id;
+            String description = "A " + pick(random, ADJECTIVES) + " " + pick(random, NOUNS)
+                    + " for home and office, model " + Long.toString(id, 36);
+            products.add(new Product(id, name, description, BigDecimal.ONE, BigDecimal.TEN, 1));
+        }
+        ProductRepository productRepository = mock(ProductRepository.class);
+        when(productRepository.findAll()).thenReturn(products);
+
+        long start = System.nanoTime();
+        ProductSearchIndex index = new ProductSearchIndex(productRepository);
+        index.load();
+        logger.info("[Product Search Benchmark] indexed {} products in {} ms", PRODUCTS, (System.nanoTime() - start) / 1_000_000);
+
+        List<String> words = new ArrayList<>(QUERIES);
+        List<String> phrases = new ArrayList<>(QUERIES);
+        List<String> prefixes = new ArrayList<>(QUERIES);
+        for (int i = 0; i < QUERIES; i++) {
+            String noun = pick(random, NOUNS);
+            words.add(noun);
+            phrases.add(pick(random, ADJECTIVES) + " " + noun);
+            prefixes.add(pick(random, ADJECTIVES) + " " + noun.substring(0, 1 + random.nextInt(3)));
+        }
+
+        // The first round warms up the JIT and is not reported
+        for (int round = 0; round <= ROUNDS; round++) {
+            long wordNanos = run(index, words);
+            long phraseNanos = run(index, phrases);
+            long prefixNanos = run(index, prefixes);
+            if (round > 0) {
+                logger.info("[Product Search Benchmark] round {}: word {} queries/s, two words {} queries/s, typeahead {} queries/s",
+                        round, queriesPerSecond(wordNanos), queriesPerSecond(phraseNanos), queriesPerSecond(prefixNanos));
+            }
+        }
+    }
+
+    private static long run(ProductSearchIndex index, List<String> queries) {
+        long start = System.nanoTime();
+        int found = 0;
+        for (String query : queries) {
+            found += index.search(query, 10).length;
+        }
+        long nanos = System.nanoTime() - start;
+        assertThat(found).isEqualTo(queries.size() * 10);
+        return nanos;
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static long queriesPerSecond(long nanos) {
+        return QUERIES * 1_000_000_000L / Math.max(nanos, 1);
+    }
+}
@@ -0,0 +1,142 @@
+package com.heamimont.salesstoreapi.service;
+
+import com.heamimont.salesstoreapi.model.Product;
+import com.heamimont.salesstoreapi.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class ProductSearchIndexTest {
+
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        ProductRepository productRepository = mock(ProductRepository.class);
+        when(productRepository.findAll()).thenReturn(List.of(
+                product(1L, "Gaming Laptop", "Fast laptop with a large screen"),
+                product(2L, "Laptop Bag", "Padded bag for any laptop"),
+                product(3L, "Wireless Mouse", "Ergonomic mouse for gaming"),
+                product(4L, "Café Mug", "Ceramic mug")));
+        index = new ProductSearchIndex(productRepository);
+        index.load();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void search_ranksNameMatchesAboveDescriptionMatches() {
+        assertThat(index.search("gaming", 10)).containsExactly(1L, 3L);
+    }
+
+    @Test
+    void search_requiresAllWords() {
+        assertThat(index.search("laptop bag", 10)).containsExactly(2L);
+        assertThat(index.search("mouse laptop", 10)).isEmpty();
+    }
+
+    @Test
+    void search_matchesLastWordAsPrefix() {
+        assertThat(index.search("lap", 10)).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(index.search("wireless mo", 10)).containsExactly(3L);
+        // Only the last word is a prefix
+        assertThat(index.search("wire mouse", 10)).isEmpty();
+    }
+
+    @Test
+    void search_ranksWholeWordAbovePrefix() {
+        index.index(5L, "Mousepad", "Desk pad");
+
+        assertThat(index.search("mouse", 10)).containsExactly(3L, 5L);
+    }
+
+    @Test
+    void search_expandsPrefixToRareCompletionsUntilTheLimitIsFilled() {
+        // 100 completions of "gad" shared by two products each, and one held by a single product
+        for (int i = 0; i < 100; i++) {
+            index.index(100L + 2 * i, "Gadget" + i, null);
+            index.index(101L + 2 * i, "Gadget" + i, null);
+        }
+        index.index(99L, "Gadfly", null);
+
+        assertThat(index.search("gad", 500)).hasSize(201).contains(99L);
+        assertThat(index.search("gad", 10)).hasSize(10);
+        assertThat(index.search("gadf", 10)).containsExactly(99L);
+    }
+
+    @Test
+    void search_ignoresCaseAndDiacritics() {
+        assertThat(index.search("CAFE", 10)).containsExactly(4L);
+        assertThat(index.search("café-mug", 10)).containsExactly(4L);
+    }
+
+    @Test
+    void search_respectsLimit() {
+        assertThat(index.search("laptop", 1)).hasSize(1);
+        assertThat(index.search("  ", 10)).isEmpty();
+    }
+
+    @Test
+    void index_replacesPreviousTermsOfProduct() {
+        index.index(3L, "Trackball", "Ergonomic trackball");
+
+        assertThat(index.search("mouse", 10)).isEmpty();
+        assertThat(index.search("trackball", 10)).containsExactly(3L);
+    }
+
+    @Test
+    void indexAll_replacesAndAddsProductsInOneBatch() {
+        // Out of ID order, with a product that keeps one of its terms and one that is new
+        index.indexAll(new long[]{5L, 3L, 1L},
+                new String[]{"Gaming Chair", "Trackball", "Gaming Laptop"},
+                new String[]{"Ergonomic chair", "Ergonomic trackball", "Slim laptop"});
+
+        assertThat(index.search("mouse", 10)).isEmpty();
+        assertThat(index.search("fast", 10)).isEmpty();
+        assertThat(index.search("trackball", 10)).containsExactly(3L);
+        assertThat(index.search("gaming", 10)).containsExactly(1L, 5L);
+        assertThat(index.search("ergonomic", 10)).containsExactly(3L, 5L);
+        assertThat(index.search("laptop", 10)).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void remove_dropsProductFromResults() {
+        index.remove(1L);
+
+        assertThat(index.search("laptop", 10)).containsExactly(2L);
+        assertThat(index.search("fast", 10)).isEmpty();
+    }
+
+    @Test
+    void indexAfterCommit_appliesOnlyOnCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        index.indexAfterCommit(product(6L, "Keyboard", "Mechanical keyboard"));
+        index.removeAfterCommit(1L);
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+
+        assertThat(index.search("keyboard", 10)).isEmpty();
+        assertThat(index.search("fast", 10)).containsExactly(1L);
+
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+
+        assertThat(index.search("keyboard", 10)).containsExactly(6L);
+        assertThat(index.search("fast", 10)).isEmpty();
+    }
+
+    private static Product product(long id, String name, String description) {
+        return new Product(id, name, description, BigDecimal.ONE, BigDecimal.TEN, 1);
+    }
+}
@@ -0,0 +1,97 @@
+package com.heamimont.salesstoreapi.service;
+
+import com.heamimont.salesstoreapi.model.Product;
+import com.heamimont.salesstoreapi.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Stress test for concurrent stock reservation.
+ * Not transactional on purpose: every reservation has to commit on its own so the threads really compete.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductServiceConcurrencyTest {
+
+    private static final int INITIAL_STOCK = 50;
+    private static final int THREADS = 8;
+    private static final int ATTEMPTS_PER_THREAD = 20;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        product = new Product();
+        product.setName("Concurrency Product");
+        product.setDescription("Product used for the concurrent checkout test");
+        product.setActualPrice(BigDecimal.valueOf(10));
+        product.setSellingPrice(BigDecimal.valueOf(15));
+        product.setAvailableQuantity(INITIAL_STOCK);
+        product = productRepository.save(product);
+    }
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteById(product.getId());
+    }
+
+    @Test
+    void reduceProductQuantity_concurrentCheckouts_neverOversell() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    try {
+                        productService.reduceProductQuantity(product.getId(), 1);
+                        reserved.incrementAndGet();
+                    } catch (IllegalArgumentException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Exactly the initial stock is sold, everything else is rejected, and the stock never goes negative
+        assertThat(reserved.get()).isEqualTo(INITIAL_STOCK);
+        assertThat(rejected.get()).isEqualTo(THREADS * ATTEMPTS_PER_THREAD - INITIAL_STOCK);
+        assertThat(productRepository.findById(product.getId()))
+                .get()
+                .extracting(Product::getAvailableQuantity)
+                .isEqualTo(0);
+    }
+}
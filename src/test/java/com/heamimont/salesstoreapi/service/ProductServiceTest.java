@@ -1,6 +1,8 @@
 package com.heamimont.salesstoreapi.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.heamimont.salesstoreapi.dto.product.*;
+import com.heamimont.salesstoreapi.exceptions.BadRequestException;
 import com.heamimont.salesstoreapi.exceptions.ResourceCreationException;
 import com.heamimont.salesstoreapi.exceptions.ResourceNotFoundException;
 import com.heamimont.salesstoreapi.mapper.ProductMapper;
@@ -10,9 +12,13 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -26,7 +32,18 @@ class ProductServiceTest {
     @Mock
     private ProductMapper productMapper;
 
-    @InjectMocks
+    @Mock
+    private ProductChangeLog productChangeLog;
+
+    @Mock
+    private ProductSearchIndex productSearchIndex;
+
+    @Mock
+    private HotStockService hotStockService;
+
+    @Mock
+    private InventoryLedger inventoryLedger;
+
     private ProductService productService;
 
     private Product product;
@@ -37,6 +54,13 @@ class ProductServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        // A real catalog over the mocked repository, so reads go through the snapshot
+        productService = new ProductService(productRepository, productMapper,
+                new ProductCatalog(productRepository, productMapper, new ObjectMapper()),
+                productChangeLog, productSearchIndex, hotStockService, inventoryLedger);
+        ReflectionTestUtils.setField(productService, "maxChangesWait", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(productService, "maxSearchResults", 50);
+        when(productChangeLog.allocate()).thenReturn(7L);
 
         product = new Product(1L, "Product A", "Description A",
                 new BigDecimal("10.00"), new BigDecimal("15.00"), 100);
@@ -120,6 +144,7 @@ class ProductServiceTest {
         verify(productMapper).toEntity(createProductDTO);
         verify(productRepository).save(product);
         verify(productMapper).toDTO(product);
+        verify(productSearchIndex).indexAfterCommit(product);
     }
 
     @Test
@@ -143,7 +168,6 @@ class ProductServiceTest {
             p.setDescription(dto.getDescription());
             p.setActualPrice(dto.getActualPrice());
             p.setSellingPrice(dto.getSellingPrice());
-            p.setAvailableQuantity(dto.getAvailableQuantity());
 
             return null;
         }).when(productMapper).updateEntity(product, updateProductDTO);
@@ -155,9 +179,11 @@ class ProductServiceTest {
 
         assertNotNull(result);
         verify(productRepository).findById(1L);
+        verify(inventoryLedger).setStock(1L, 120);
         verify(productMapper).updateEntity(product, updateProductDTO);
         verify(productRepository).save(product);
         verify(productMapper).toDTO(product);
+        verify(productSearchIndex).indexAfterCommit(product);
     }
 
     @Test
@@ -173,6 +199,8 @@ class ProductServiceTest {
         doNothing().when(productRepository).deleteById(1L);
 
         assertDoesNotThrow(() -> productService.deleteProduct(1L));
+        verify(productChangeLog).recordDeletion(1L);
+        verify(productSearchIndex).removeAfterCommit(1L);
 
         verify(productRepository).existsById(1L);
         verify(productRepository).deleteById(1L);
@@ -192,4 +220,139 @@ class ProductServiceTest {
 
         assertThrows(ResourceNotFoundException.class, () -> productService.deleteProduct(1L));
     }
+
+    @Test
+    void testReduceProductQuantity_UsesGuardedDecrement() {
+        when(productRepository.decrementAvailableQuantity(1L, 5, 7L)).thenReturn(1);
+
+        assertDoesNotThrow(() -> productService.reduceProductQuantity(1L, 5));
+
+        verify(productRepository).decrementAvailableQuantity(1L, 5, 7L);
+        verify(productRepository, never()).findById(anyLong());
+        verify(productRepository, never()).save(any());
+    }
+
+    @Test
+    void testReduceProductQuantity_ThrowsIllegalArgumentException_WhenInsufficientStock() {
+        when(productRepository.decrementAvailableQuantity(1L, 500, 7L)).thenReturn(0);
+        when(productRepository.existsById(1L)).thenReturn(true);
+
+        assertThrows(IllegalArgumentException.class, () -> productService.reduceProductQuantity(1L, 500));
+    }
+
+    @Test
+    void testReduceProductQuantity_ThrowsResourceNotFoundException_WhenProductNotFound() {
+        when(productRepository.decrementAvailableQuantity(1L, 5, 7L)).thenReturn(0);
+        when(productRepository.existsById(1L)).thenReturn(false);
+
+        assertThrows(ResourceNotFoundException.class, () -> productService.reduceProductQuantity(1L, 5));
+    }
+
+    @Test
+    void testReduceProductQuantity_ThrowsIllegalArgumentException_WhenQuantityNotPositive() {
+        assertThrows(IllegalArgumentException.class, () -> productService.reduceProductQuantity(1L, 0));
+
+        verifyNoInteractions(productRepository, productChangeLog);
+    }
+
+    @Test
+    void testReserveProductQuantities_MergesAndSortsByProductId() {
+        Map<Long, Integer> quantities = new HashMap<>();
+        quantities.put(3L, 1);
+        quantities.put(1L, 2);
+        when(productRepository.decrementAvailableQuantities(any(), eq(7L))).thenReturn(new int[]{1, 1});
+
+        productService.reserveProductQuantities(quantities, LocalDate.now());
+
+        ArgumentCaptor<SortedMap<Long, Integer>> captor = ArgumentCaptor.forClass(SortedMap.class);
+        verify(productRepository).decrementAvailableQuantities(captor.capture(), eq(7L));
+        assertEquals(List.of(1L, 3L), new ArrayList<>(captor.getValue().keySet()));
+        assertEquals(2, captor.getValue().get(1L));
+    }
+
+    @Test
+    void testReserveProductQuantities_ThrowsIllegalArgumentException_WhenOneLineHasInsufficientStock() {
+        when(productRepository.decrementAvailableQuantities(any(), eq(7L))).thenReturn(new int[]{1, 0});
+        when(productRepository.existsById(2L)).thenReturn(true);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> productService.reserveProductQuantities(Map.of(1L, 1, 2L, 50), LocalDate.now()));
+    }
+
+    @Test
+    void testReserveProductQuantities_ThrowsResourceNotFoundException_WhenProductNotFound() {
+        when(productRepository.decrementAvailableQuantities(any(), eq(7L))).thenReturn(new int[]{0});
+        when(productRepository.existsById(7L)).thenReturn(false);
+
+        assertThrows(ResourceNotFoundException.class,
+                () -> productService.reserveProductQuantities(Map.of(7L, 1), LocalDate.now()));
+    }
+
+    @Test
+    void testGetChangesSince_ReturnsChangedAndDeletedProductsUpToStableVersion() {
+        ProductPublicResponseDTO publicDTO = new ProductPublicResponseDTO();
+        publicDTO.setId(1L);
+        when(productChangeLog.awaitChangeAfter(3L, Duration.ZERO)).thenReturn(CompletableFuture.completedFuture(9L));
+        when(productRepository.findChangedBetween(3L, 9L)).thenReturn(List.of(product));
+        when(productMapper.toPublicDTO(product)).thenReturn(publicDTO);
+        when(productChangeLog.findDeletedBetween(3L, 9L)).thenReturn(List.of(5L));
+
+        ProductChangesDTO changes = productService.getChangesSince(3L, null).join();
+
+        assertEquals(9L, changes.getVersion());
+        assertEquals(List.of(publicDTO), changes.getChanged());
+        assertEquals(List.of(5L), changes.getDeleted());
+    }
+
+    @Test
+    void testGetChangesSince_NoChange_ReturnsEmptyWithoutQueries() {
+        when(productChangeLog.awaitChangeAfter(9L, Duration.ofSeconds(30))).thenReturn(CompletableFuture.completedFuture(9L));
+
+        ProductChangesDTO changes = productService.getChangesSince(9L, Duration.ofMinutes(5)).join();
+
+        assertEquals(9L, changes.getVersion());
+        assertTrue(changes.getChanged().isEmpty());
+        assertTrue(changes.getDeleted().isEmpty());
+        verify(productRepository, never()).findChangedBetween(anyLong(), anyLong());
+    }
+
+    @Test
+    void testGetChangesSince_NegativeArguments_ThrowBadRequestException() {
+        assertThrows(BadRequestException.class, () -> productService.getChangesSince(-1L, null));
+        assertThrows(BadRequestException.class, () -> productService.getChangesSince(0L, Duration.ofSeconds(-1)));
+    }
+
+    @Test
+    void testSearchProducts_ReturnsSnapshotProductsInRankOrder() {
+        Product other = new Product(2L, "Product B", "Description B",
+                new BigDecimal("10.00"), new BigDecimal("15.00"), 5);
+        ProductPublicResponseDTO first = new ProductPublicResponseDTO();
+        first.setId(1L);
+        ProductPublicResponseDTO second = new ProductPublicResponseDTO();
+        second.setId(2L);
+        when(productRepository.findAll()).thenReturn(List.of(product, other));
+        when(productMapper.toPublicDTO(product)).thenReturn(first);
+        when(productMapper.toPublicDTO(other)).thenReturn(second);
+        // ID 3 is in the index but no longer in the catalog, and is skipped
+        when(productSearchIndex.search("prod", 10)).thenReturn(new long[]{2L, 3L, 1L});
+
+        List<ProductPublicResponseDTO> results = productService.searchProducts("prod", 10);
+
+        assertEquals(List.of(second, first), results);
+    }
+
+    @Test
+    void testSearchProducts_CapsLimit() {
+        when(productSearchIndex.search("prod", 50)).thenReturn(new long[0]);
+
+        assertTrue(productService.searchProducts("prod", 1000).isEmpty());
+        verify(productSearchIndex).search("prod", 50);
+    }
+
+    @Test
+    void testSearchProducts_InvalidArguments_ThrowBadRequestException() {
+        assertThrows(BadRequestException.class, () -> productService.searchProducts(" ", 10));
+        assertThrows(BadRequestException.class, () -> productService.searchProducts("prod", 0));
+        verifyNoInteractions(productSearchIndex);
+    }
 }
@@ -1,18 +1,34 @@
 package com.heamimont.salesstoreapi.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.heamimont.salesstoreapi.dto.report.OrderProductReportDTO;
 import com.heamimont.salesstoreapi.dto.report.OrderReportDTO;
+import com.heamimont.salesstoreapi.dto.report.ReportFormat;
+import com.heamimont.salesstoreapi.dto.report.ReportGranularity;
+import com.heamimont.salesstoreapi.dto.report.SalesPeriodReportDTO;
 import com.heamimont.salesstoreapi.mapper.ReportMapper;
 import com.heamimont.salesstoreapi.exceptions.ReportGenerationException;
 import com.heamimont.salesstoreapi.model.Order;
+import com.heamimont.salesstoreapi.exceptions.BadRequestException;
+import com.heamimont.salesstoreapi.repository.DailyProductSalesRepository;
+import com.heamimont.salesstoreapi.repository.OrderProductRepository;
 import com.heamimont.salesstoreapi.repository.OrderRepository;
+import com.heamimont.salesstoreapi.repository.SalesReportFilter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -21,14 +37,19 @@ import static org.mockito.Mockito.*;
 class ReportServiceTest {
 
     private OrderRepository orderRepository;
+    private OrderProductRepository orderProductRepository;
+    private DailyProductSalesRepository dailyProductSalesRepository;
     private ReportMapper reportMapper;
     private ReportService reportService;
 
     @BeforeEach
     void setUp() {
         orderRepository = mock(OrderRepository.class);
+        orderProductRepository = mock(OrderProductRepository.class);
+        dailyProductSalesRepository = mock(DailyProductSalesRepository.class);
         reportMapper = mock(ReportMapper.class);
-        reportService = new ReportService(orderRepository, reportMapper);
+        reportService = new ReportService(orderRepository, orderProductRepository, dailyProductSalesRepository,
+                reportMapper, new ObjectMapper());
     }
 
     @Test
@@ -119,4 +140,137 @@ class ReportServiceTest {
                 .hasMessageContaining("Failed to fetch filtered orders");
     }
 
+    @Test
+    void testExportFilteredOrders_Json_WritesArrayAcrossBatches() throws Exception {
+        Order order1 = new Order();
+        Order order2 = new Order();
+        stubStreamedBatches(List.of(order1), List.of(order2));
+        when(reportMapper.toOrderReportDTO(order1)).thenReturn(report("Ann Lee", "Mouse", 2));
+        when(reportMapper.toOrderReportDTO(order2)).thenReturn(report("Bob Ray", "Laptop", 1));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        reportService.exportFilteredOrders(null, null, null, null, ReportFormat.JSON, out);
+
+        JsonNode json = new ObjectMapper().readTree(out.toByteArray());
+        assertThat(json.isArray()).isTrue();
+        assertThat(json).hasSize(2);
+        assertThat(json.get(1).get("userFullName").asText()).isEqualTo("Bob Ray");
+        verify(orderRepository).streamWithDetails(isNull(), anyInt(), any());
+    }
+
+    @Test
+    void testExportFilteredOrders_Ndjson_WritesOneOrderPerLine() {
+        Order order1 = new Order();
+        Order order2 = new Order();
+        stubStreamedBatches(List.of(order1, order2));
+        when(reportMapper.toOrderReportDTO(order1)).thenReturn(report("Ann Lee", "Mouse", 2));
+        when(reportMapper.toOrderReportDTO(order2)).thenReturn(report("Bob Ray", "Laptop", 1));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        reportService.exportFilteredOrders("mouse", null, null, null, ReportFormat.NDJSON, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).startsWith("{").contains("\"Ann Lee\"");
+        verify(orderRepository).streamWithDetails(notNull(), anyInt(), any());
+    }
+
+    @Test
+    void testExportFilteredOrders_Csv_WritesOneRowPerOrderLineAndEscapes() {
+        Order order = new Order();
+        stubStreamedBatches(List.of(order));
+        when(reportMapper.toOrderReportDTO(order)).thenReturn(report("Ann Lee", "Mouse, \"wireless\"", 2));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        reportService.exportFilteredOrders(null, null, null, null, ReportFormat.CSV, out);
+
+        String[] rows = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertThat(rows).hasSize(2);
+        assertThat(rows[0]).isEqualTo("orderId,userFullName,productName,quantity");
+        assertThat(rows[1]).endsWith(",Ann Lee,\"Mouse, \"\"wireless\"\"\",2");
+    }
+
+    @Test
+    void testExportFilteredOrders_ExceptionThrown_ThrowsReportGenerationException() {
+        doThrow(new RuntimeException("DB error")).when(orderRepository).streamWithDetails(any(), anyInt(), any());
+
+        assertThatThrownBy(() ->
+                reportService.exportFilteredOrders(null, null, null, null, ReportFormat.JSON, new ByteArrayOutputStream())
+        ).isInstanceOf(ReportGenerationException.class)
+                .hasMessageContaining("Failed to export filtered orders");
+    }
+
+    @Test
+    void testGetSalesTimeline_Week_FoldsDaysIntoWeeksStartingMonday() {
+        SalesReportFilter filter = new SalesReportFilter(null, null, null, null);
+        when(dailyProductSalesRepository.sumSalesByDay(filter)).thenReturn(List.of(
+                new SalesPeriodReportDTO(LocalDate.of(2024, 1, 1), 1, BigDecimal.valueOf(10), BigDecimal.valueOf(2)),
+                new SalesPeriodReportDTO(LocalDate.of(2024, 1, 7), 2, BigDecimal.valueOf(20), BigDecimal.valueOf(4)),
+                new SalesPeriodReportDTO(LocalDate.of(2024, 1, 8), 3, BigDecimal.valueOf(30), BigDecimal.valueOf(6))));
+
+        List<SalesPeriodReportDTO> weeks = reportService.getSalesTimeline(filter, ReportGranularity.WEEK);
+
+        assertThat(weeks).extracting(SalesPeriodReportDTO::getPeriodStart)
+                .containsExactly(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 8));
+        assertThat(weeks.get(0).getUnitsSold()).isEqualTo(3);
+        assertThat(weeks.get(0).getRevenue()).isEqualByComparingTo("30");
+        assertThat(weeks.get(0).getGrossMargin()).isEqualByComparingTo("6");
+    }
+
+    @Test
+    void testGetSalesByProduct_DayAlignedFilter_ReadsRollup() {
+        SalesReportFilter filter = new SalesReportFilter("mouse", null,
+                LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 1, 31, 23, 59, 59));
+
+        reportService.getSalesByProduct(filter);
+
+        verify(dailyProductSalesRepository).sumSalesByProduct(filter);
+        verifyNoInteractions(orderProductRepository);
+    }
+
+    @Test
+    void testGetSalesByProduct_UsernameOrPartialDayFilter_ReadsOrderLines() {
+        SalesReportFilter byUser = new SalesReportFilter(null, "alice", null, null);
+        SalesReportFilter partialDay = new SalesReportFilter(null, null, LocalDateTime.of(2024, 1, 1, 12, 0), null);
+
+        reportService.getSalesByProduct(byUser);
+        reportService.getSalesByProduct(partialDay);
+
+        verify(orderProductRepository).sumSalesByProduct(byUser);
+        verify(orderProductRepository).sumSalesByProduct(partialDay);
+        verifyNoInteractions(dailyProductSalesRepository);
+    }
+
+    @Test
+    void testRebuildDailySalesRollup_FromAfterTo_ThrowsBadRequestException() {
+        assertThatThrownBy(() -> reportService.rebuildDailySalesRollup(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 1, 1)))
+                .isInstanceOf(BadRequestException.class);
+        verifyNoInteractions(dailyProductSalesRepository);
+    }
+
+    @Test
+    void testGetSalesByProduct_ExceptionThrown_ThrowsReportGenerationException() {
+        SalesReportFilter filter = new SalesReportFilter("mouse", "alice", null, null);
+        when(orderProductRepository.sumSalesByProduct(filter)).thenThrow(new RuntimeException("DB error"));
+
+        assertThatThrownBy(() -> reportService.getSalesByProduct(filter))
+                .isInstanceOf(ReportGenerationException.class)
+                .hasMessageContaining("Failed to aggregate sales by product");
+    }
+
+    @SafeVarargs
+    private void stubStreamedBatches(List<Order>... batches) {
+        doAnswer(invocation -> {
+            Consumer<List<Order>> consumer = invocation.getArgument(2);
+            for (List<Order> batch : batches) {
+                consumer.accept(batch);
+            }
+            return null;
+        }).when(orderRepository).streamWithDetails(any(), anyInt(), any());
+    }
+
+    private static OrderReportDTO report(String userFullName, String productName, int quantity) {
+        return new OrderReportDTO(UUID.randomUUID(), List.of(new OrderProductReportDTO(productName, quantity)), userFullName);
+    }
+
 }
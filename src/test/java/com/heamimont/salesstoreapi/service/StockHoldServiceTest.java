@@ -0,0 +1,206 @@
+package com.heamimont.salesstoreapi.service;
+
+import com.heamimont.salesstoreapi.dto.cart.CreateStockHoldDTO;
+import com.heamimont.salesstoreapi.dto.cart.StockHoldResponseDTO;
+import com.heamimont.salesstoreapi.dto.order.CreateOrderDTO;
+import com.heamimont.salesstoreapi.dto.order.OrderProductDTO;
+import com.heamimont.salesstoreapi.dto.product.CreateProductDTO;
+import com.heamimont.salesstoreapi.exceptions.BadRequestException;
+import com.heamimont.salesstoreapi.exceptions.ResourceNotFoundException;
+import com.heamimont.salesstoreapi.model.Role;
+import com.heamimont.salesstoreapi.model.StockHold;
+import com.heamimont.salesstoreapi.model.User;
+import com.heamimont.salesstoreapi.repository.DailyProductSalesRepository;
+import com.heamimont.salesstoreapi.repository.InventoryMovementRepository;
+import com.heamimont.salesstoreapi.repository.OrderRepository;
+import com.heamimont.salesstoreapi.repository.ProductRepository;
+import com.heamimont.salesstoreapi.repository.StockHoldRepository;
+import com.heamimont.salesstoreapi.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Stock holds: taking stock, selling it with an order, releasing it, and expiry through the timing wheel and the sweep.
+ * Not transactional, as expiry runs on the scheduler in its own transactions.
+ */
+@SpringBootTest(properties = {
+        "carts.holds.tick=50ms",
+        "spring.jpa.show-sql=false"
+})
+@ActiveProfiles("test")
+class StockHoldServiceTest {
+
+    @Autowired private StockHoldService stockHoldService;
+    @Autowired private OrderService orderService;
+    @Autowired private ProductService productService;
+    @Autowired private StockHoldRepository stockHoldRepository;
+    @Autowired private InventoryMovementRepository inventoryMovementRepository;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private OrderRepository orderRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private DailyProductSalesRepository dailyProductSalesRepository;
+
+    private User user;
+    private final List<Long> productIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User(null, "hold-user", "Hold", "User", "hold-user@example.com", "password", Role.USER));
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAll(orderRepository.findOrdersByUser_Id(user.getId()).orElse(List.of()));
+        stockHoldRepository.deleteAll(stockHoldRepository.findAll().stream()
+                .filter(hold -> hold.getUserId().equals(user.getId()))
+                .toList());
+        dailyProductSalesRepository.deleteAll(dailyProductSalesRepository.findAll().stream()
+                .filter(row -> productIds.contains(row.getId().getProductId()))
+                .toList());
+        inventoryMovementRepository.deleteAll(inventoryMovementRepository.findAll().stream()
+                .filter(movement -> productIds.contains(movement.getProductId()))
+                .toList());
+        productIds.forEach(productService::deleteProduct);
+        userRepository.delete(user);
+    }
+
+    @Test
+    void order_sellsTheHeldUnitsAndGivesBackTheOthers() {
+        Long keyboardId = product("Held Keyboard", 10);
+        Long mouseId = product("Held Mouse", 10);
+        StockHoldResponseDTO hold = stockHoldService.hold(hold(Map.of(keyboardId, 4, mouseId, 3), null), user.getUsername());
+        assertThat(stock(keyboardId)).isEqualTo(6);
+        assertThat(stock(mouseId)).isEqualTo(7);
+
+        // 4 keyboards of which 2 beyond the hold, 1 of the 3 held mice
+        CreateOrderDTO order = order(Map.of(keyboardId, 6, mouseId, 1));
+        order.setHoldId(hold.getId());
+        orderService.createOrder(order, user.getUsername());
+
+        assertThat(stock(keyboardId)).isEqualTo(4);
+        assertThat(stock(mouseId)).isEqualTo(9);
+        assertThat(stockHoldRepository.existsById(hold.getId())).isFalse();
+        assertThat(inventoryMovementRepository.sumByProductId(keyboardId)).isEqualTo(4);
+        assertThat(inventoryMovementRepository.sumByProductId(mouseId)).isEqualTo(9);
+
+        // A hold sells once
+        assertThatThrownBy(() -> orderService.createOrder(order, user.getUsername()))
+                .hasMessageContaining("Stock hold not found");
+    }
+
+    @Test
+    void expiry_givesTheStockBack() {
+        Long productId = product("Abandoned Product", 5);
+        StockHoldResponseDTO hold = stockHoldService.hold(hold(Map.of(productId, 5), 1), user.getUsername());
+        assertThat(stock(productId)).isZero();
+
+        await(() -> stock(productId) == 5);
+        assertThat(stockHoldRepository.existsById(hold.getId())).isFalse();
+        assertThat(inventoryMovementRepository.sumByProductId(productId)).isEqualTo(5);
+
+        CreateOrderDTO order = order(Map.of(productId, 1));
+        order.setHoldId(hold.getId());
+        assertThatThrownBy(() -> orderService.createOrder(order, user.getUsername()))
+                .hasMessageContaining("Stock hold not found");
+    }
+
+    @Test
+    void sweep_givesBackTheStockOfHoldsTheWheelDoesNotKnow() {
+        Long productId = product("Orphaned Product", 5);
+        StockHoldResponseDTO hold = stockHoldService.hold(hold(Map.of(productId, 5), 3600), user.getUsername());
+        // As if placed through another instance that stopped: overdue, but not due on this wheel
+        StockHold stored = stockHoldRepository.findById(hold.getId()).orElseThrow();
+        stored.setExpiresAt(LocalDateTime.now().minusMinutes(1));
+        stockHoldRepository.save(stored);
+
+        stockHoldService.sweepExpiredHolds();
+
+        assertThat(stock(productId)).isEqualTo(5);
+        assertThat(stockHoldRepository.existsById(hold.getId())).isFalse();
+        assertThat(inventoryMovementRepository.sumByProductId(productId)).isEqualTo(5);
+    }
+
+    @Test
+    void release_givesTheStockBackOnce() {
+        Long productId = product("Released Product", 3);
+        StockHoldResponseDTO hold = stockHoldService.hold(hold(Map.of(productId, 2), null), user.getUsername());
+
+        assertThatThrownBy(() -> stockHoldService.hold(hold(Map.of(productId, 2), null), user.getUsername()))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("Insufficient product quantity available");
+        assertThatThrownBy(() -> stockHoldService.hold(hold(Map.of(productId, 1), 24 * 3600), user.getUsername()))
+                .isInstanceOf(BadRequestException.class);
+
+        stockHoldService.release(hold.getId(), user.getUsername());
+        assertThat(stock(productId)).isEqualTo(3);
+        assertThatThrownBy(() -> stockHoldService.release(hold.getId(), user.getUsername()))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    private Long product(String name, int quantity) {
+        CreateProductDTO dto = new CreateProductDTO();
+        dto.setName(name);
+        dto.setActualPrice(BigDecimal.ONE);
+        dto.setSellingPrice(BigDecimal.TEN);
+        dto.setAvailableQuantity(quantity);
+        Long id = productService.createProduct(dto).getId();
+        productIds.add(id);
+        return id;
+    }
+
+    private int stock(Long productId) {
+        return productRepository.findAvailableQuantityById(productId).orElseThrow();
+    }
+
+    private static CreateStockHoldDTO hold(Map<Long, Integer> quantities, Integer ttlSeconds) {
+        CreateStockHoldDTO hold = new CreateStockHoldDTO();
+        hold.setItems(lines(quantities));
+        hold.setTtlSeconds(ttlSeconds);
+        return hold;
+    }
+
+    private static CreateOrderDTO order(Map<Long, Integer> quantities) {
+        CreateOrderDTO order = new CreateOrderDTO();
+        order.setOrderProducts(lines(quantities));
+        return order;
+    }
+
+    private static List<OrderProductDTO> lines(Map<Long, Integer> quantities) {
+        List<OrderProductDTO> lines = new ArrayList<>();
+        new LinkedHashMap<>(quantities).forEach((productId, quantity) -> {
+            OrderProductDTO line = new OrderProductDTO();
+            line.setProductId(productId);
+            line.setProductQuantity(quantity);
+            lines.add(line);
+        });
+        return lines;
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("condition not met in time").isLessThan(deadline);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
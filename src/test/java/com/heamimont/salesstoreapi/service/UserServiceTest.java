@@ -8,6 +8,8 @@ import com.heamimont.salesstoreapi.model.Role;
 import com.heamimont.salesstoreapi.model.User;
 import com.heamimont.salesstoreapi.repository.OrderRepository;
 import com.heamimont.salesstoreapi.repository.UserRepository;
+import com.heamimont.salesstoreapi.security.AuthenticationCache;
+import com.heamimont.salesstoreapi.security.TokenVersionRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
@@ -35,6 +37,15 @@ class UserServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private AuthenticationCache authenticationCache;
+
+    @Mock
+    private TokenVersionRegistry tokenVersionRegistry;
+
+    @Mock
+    private StockHoldService stockHoldService;
+
     @InjectMocks
     private UserService userService;
 
@@ -156,10 +167,16 @@ class UserServiceTest {
         when(userRepository.save(any(User.class))).thenReturn(user);
         when(userMapper.toDTO(user)).thenReturn(userResponseDTO);
 
+        String usernameBeforeUpdate = user.getUsername();
         UserResponseDTO result = userService.updateUser(userId, updateUserDTO);
 
         assertEquals("testuser", result.getUsername()); // userMapper mocked to return the same DTO
         verify(userRepository).save(user);
+        verify(authenticationCache).invalidateAfterCommit(usernameBeforeUpdate);
+        // Renaming revokes tokens of the old username, and tokens of the user get a new version
+        assertEquals(1, user.getTokenVersion());
+        verify(tokenVersionRegistry).revokeAfterCommit(usernameBeforeUpdate);
+        verify(tokenVersionRegistry).registerAfterCommit("updateduser", userId, 1);
     }
 
     @Test
@@ -171,17 +188,21 @@ class UserServiceTest {
 
     @Test
     void deleteUser_existingUser_successful() {
-        when(userRepository.existsById(userId)).thenReturn(true);
+        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
         doNothing().when(userRepository).deleteById(userId);
 
         assertDoesNotThrow(() -> userService.deleteUser(userId));
+        verify(stockHoldService).releaseAllOf(userId);
         verify(userRepository).deleteById(userId);
+        verify(authenticationCache).invalidateAfterCommit(user.getUsername());
+        verify(tokenVersionRegistry).revokeAfterCommit(user.getUsername());
     }
 
     @Test
     void deleteUser_nonExistingUser_throwsResourceNotFoundException() {
-        when(userRepository.existsById(userId)).thenReturn(false);
+        when(userRepository.findById(userId)).thenReturn(Optional.empty());
 
         assertThrows(ResourceNotFoundException.class, () -> userService.deleteUser(userId));
+        verifyNoInteractions(authenticationCache);
     }
 }